@@ -1,86 +1,174 @@
 package com.getpcpanel.commands;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
 
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import lombok.extern.log4j.Log4j2;
+import one.util.streamex.StreamEx;
 
+/**
+ * Runs the commands of the controls. Every {@link CommandLane} has its own thread, so a backend that is slow to respond, like OBS
+ * waiting for a reply, does not hold up the others. Within a lane a control only has one command waiting: a newer one replaces it,
+ * and the commands of one control run in order.
+ */
 @Log4j2
 @Service
 public final class CommandDispatcher {
-    private final Map<String, Runnable> map = new ConcurrentHashMap<>();
-    private final HandlerThread handler = new HandlerThread();
+    private static final int MAX_KNOBS = 32;
+    /** A dial and its button are different controls */
+    private static final int CONTROLS_PER_DEVICE = MAX_KNOBS * 2;
+    private final Map<String, Integer> deviceIndexes = new ConcurrentHashMap<>();
+    private final AtomicInteger nextDeviceIndex = new AtomicInteger();
+    private final Lane[] lanes = StreamEx.of(CommandLane.values()).map(Lane::new).toArray(Lane[]::new);
 
     @PostConstruct
     public void init() {
-        handler.start();
-        Runtime.getRuntime().addShutdownHook(new Thread(handler::doStop, "CommandHandler shutdown hook"));
+        for (var lane : lanes) {
+            lane.start();
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "CommandHandler shutdown hook"));
     }
 
-    private CommandDispatcher() {
+    CommandDispatcher() {
     }
 
     @EventListener
     public void onCommand(PCPanelControlEvent event) {
-        map.put(event.serialNum() + event.knob(), event.buildRunnable());
-        handler.doNotify();
+        if (event.knob() < 0 || event.knob() >= MAX_KNOBS) {
+            log.error("Knob {} of {} out of range", event.knob(), event.serialNum());
+            return;
+        }
+        var control = deviceIndex(event.serialNum()) * CONTROLS_PER_DEVICE + event.knob() * 2 + (event.vol() == null ? 1 : 0);
+        event.forEachLane((lane, runnable) -> lanes[lane.ordinal()].submit(control, runnable));
+    }
+
+    private int deviceIndex(String serialNum) {
+        var result = deviceIndexes.get(serialNum);
+        if (result == null) {
+            result = deviceIndexes.computeIfAbsent(serialNum, s -> nextDeviceIndex.getAndIncrement());
+        }
+        return result;
+    }
+
+    public List<LaneStats> getStats() {
+        return StreamEx.of(lanes).map(Lane::getStats).toList();
+    }
+
+    void stop() {
+        for (var lane : lanes) {
+            lane.doStop();
+        }
+    }
+
+    /**
+     * @param queued   controls with a command waiting
+     * @param superseded commands that were replaced by a newer one of the same control before they ran
+     */
+    public record LaneStats(CommandLane lane, int queued, long executed, long superseded, long averageRunMicros, long maxRunMicros) {
+    }
+
+    private static final class Slot {
+        private final AtomicReference<Runnable> pending = new AtomicReference<>();
     }
 
-    private final class HandlerThread extends Thread {
-        private final Object waiter = new Object();
+    private static final class Lane extends Thread {
+        private final CommandLane type;
+        private final BlockingQueue<Slot> queue = new LinkedBlockingQueue<>();
+        private final AtomicLong executed = new AtomicLong();
+        private final AtomicLong superseded = new AtomicLong();
+        private volatile Slot[] slots = new Slot[0];
         private volatile boolean stopped;
+        // Only written by the lane thread
+        private volatile long totalRunNanos;
+        private volatile long maxRunNanos;
 
-        private HandlerThread() {
-            super("Command Handler Thread");
+        private Lane(CommandLane type) {
+            super("Command Handler " + type);
+            this.type = type;
             setDaemon(true);
         }
 
-        public void doStop() {
+        private void submit(int control, Runnable runnable) {
+            var slot = slot(control);
+            if (slot.pending.getAndSet(runnable) == null) {
+                queue.add(slot);
+            } else {
+                superseded.incrementAndGet();
+            }
+        }
+
+        private Slot slot(int control) {
+            var current = slots;
+            var slot = control < current.length ? current[control] : null;
+            return slot == null ? createSlot(control) : slot;
+        }
+
+        private synchronized Slot createSlot(int control) {
+            var current = slots;
+            if (control >= current.length) {
+                current = Arrays.copyOf(current, Math.max(control + 1, current.length * 2));
+            }
+            if (current[control] == null) {
+                current[control] = new Slot();
+            }
+            slots = current;
+            return current[control];
+        }
+
+        private void doStop() {
             stopped = true;
-            doNotify();
+            interrupt();
         }
 
         @Override
         public void run() {
-            var foundAnyOnPrevSweep = false;
             while (!stopped) {
-                if (!foundAnyOnPrevSweep)
-                    waitForWaiter();
-                foundAnyOnPrevSweep = false;
-                for (var entry : map.entrySet()) {
-                    var cmd = entry.getValue();
-                    if (cmd == null)
-                        continue;
-                    map.remove(entry.getKey());
-
-                    try {
-                        cmd.run();
-                    } catch (Throwable t) {
-                        log.error("Error running command", t);
-                    }
-                    foundAnyOnPrevSweep = true;
+                var runnable = next();
+                if (runnable == null) {
+                    continue;
+                }
+                var start = System.nanoTime();
+                try {
+                    runnable.run();
+                } catch (Throwable t) {
+                    log.error("Error running command", t);
                 }
+                var took = System.nanoTime() - start;
+                totalRunNanos += took;
+                maxRunNanos = Math.max(maxRunNanos, took);
+                executed.incrementAndGet();
             }
         }
 
-        private void waitForWaiter() {
+        private @Nullable Runnable next() {
             try {
-                synchronized (waiter) {
-                    waiter.wait();
-                }
+                return queue.take().pending.getAndSet(null);
             } catch (InterruptedException e) {
-                log.error("Interrupted", e);
+                if (!stopped) {
+                    log.error("Interrupted", e);
+                }
+                return null;
             }
         }
 
-        public void doNotify() {
-            synchronized (waiter) {
-                waiter.notify();
-            }
+        private LaneStats getStats() {
+            var count = executed.get();
+            return new LaneStats(type, queue.size(), count, superseded.get(), count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalRunNanos / count),
+                    TimeUnit.NANOSECONDS.toMicros(maxRunNanos));
         }
     }
 }
@@ -0,0 +1,14 @@
+package com.getpcpanel.commands;
+
+/**
+ * The {@link CommandDispatcher} runs the commands of every lane on its own thread, so a backend that is slow to respond only delays
+ * its own commands.
+ */
+public enum CommandLane {
+    AUDIO,
+    OBS,
+    VOICEMEETER,
+    /** Keystrokes, media keys, programs and profile switches */
+    SYSTEM,
+    LIGHTING
+}
@@ -1,6 +1,7 @@
 package com.getpcpanel.commands;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import javax.annotation.Nonnull;
@@ -11,6 +12,7 @@ import com.getpcpanel.commands.command.Command;
 import com.getpcpanel.commands.command.CommandNoOp;
 
 import lombok.Data;
+import lombok.ToString;
 import one.util.streamex.StreamEx;
 
 @Data
@@ -18,7 +20,9 @@ public class Commands {
     public static final Commands EMPTY = new Commands(List.of(), CommandsType.allAtOnce);
     private final @Nonnull List<Command> commands;
     private final @Nonnull CommandsType type;
-    @JsonIgnore private int sequenceIdx = -1;
+    // Moved on by the lane that ran the step, read by the thread that dispatches the next press
+    @JsonIgnore private volatile int sequenceIdx = -1;
+    @JsonIgnore @ToString.Exclude private final transient Map<CommandLane, List<Command>> lanes;
 
     public static @Nonnull List<Command> cmds(@Nullable Commands buttonData) {
         if (buttonData != null) {
@@ -30,6 +34,19 @@ public class Commands {
     public Commands(@Nonnull List<Command> commands, @Nullable CommandsType type) {
         this.commands = StreamEx.of(commands).remove(CommandNoOp.class::isInstance).toImmutableList();
         this.type = type != null ? type : CommandsType.allAtOnce;
+        lanes = splitByLane(this.commands);
+    }
+
+    /**
+     * System commands, like switching the profile or running a program, can change what the commands after them act on, so a group
+     * with one of them runs in order on the system lane. Other commands only touch their own backend and run on their own lane.
+     */
+    private static Map<CommandLane, List<Command>> splitByLane(List<Command> commands) {
+        var lanes = StreamEx.of(commands).groupingBy(Command::getLane);
+        if (lanes.size() > 1 && lanes.containsKey(CommandLane.SYSTEM)) {
+            return Map.of(CommandLane.SYSTEM, commands);
+        }
+        return Map.copyOf(lanes);
     }
 
     public <T extends Command> Optional<T> getCommand(Class<T> cmd) {
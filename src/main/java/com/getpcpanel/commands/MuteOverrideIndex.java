@@ -0,0 +1,197 @@
+package com.getpcpanel.commands;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import com.getpcpanel.commands.command.CommandObsSetSourceVolume;
+import com.getpcpanel.commands.command.CommandVoiceMeeter;
+import com.getpcpanel.commands.command.CommandVoiceMeeterAdvanced;
+import com.getpcpanel.commands.command.CommandVoiceMeeterBasic;
+import com.getpcpanel.commands.command.CommandVolumeDevice;
+import com.getpcpanel.commands.command.CommandVolumeProcess;
+import com.getpcpanel.profile.Profile;
+import com.getpcpanel.profile.SingleKnobLightingConfig;
+import com.getpcpanel.profile.SingleSliderLabelLightingConfig;
+import com.getpcpanel.profile.SingleSliderLightingConfig;
+import com.getpcpanel.ui.ILightingDialogMuteOverrideHelper;
+import com.getpcpanel.util.coloroverride.ColorOverrideHolder;
+import com.getpcpanel.voicemeeter.Voicemeeter.ButtonType;
+import com.getpcpanel.voicemeeter.Voicemeeter.ControlType;
+
+/**
+ * The mute override slots of the connected devices, indexed by the audio target they react to. A mute event only has to look at the
+ * targets of its own kind, instead of at every dial and slider of every device.
+ * <p>
+ * Most targets are matched with a contains, just like they are in the UI, so the lookups go over the distinct targets of a kind and
+ * not over a single key.
+ */
+final class MuteOverrideIndex {
+    private static final Pattern voiceMeeterPattern = Pattern.compile("VoiceMeeter: (Input|Output) (\\d+), (.*)"); // 1: In/Out, 2: Idx, 3: ButtonType
+    private final Set<String> serials = new LinkedHashSet<>();
+    private final Map<String, List<Slot>> byObsSource = new HashMap<>();
+    private final Map<String, List<Slot>> byProcess = new HashMap<>(); // Lower case
+    private final Map<String, List<Slot>> byDeviceId = new HashMap<>();
+    private final Map<String, List<Slot>> byDeviceName = new HashMap<>();
+    private final Map<String, List<Slot>> byVoiceMeeterControl = new HashMap<>(); // Lower case 'strip[0]', any button
+    private final Map<VoiceMeeterButton, List<Slot>> byVoiceMeeterButton = new HashMap<>();
+
+    MuteOverrideIndex(Collection<Slot> slots) {
+        slots.forEach(this::index);
+    }
+
+    private void index(Slot slot) {
+        serials.add(slot.serial());
+        if (!slot.isFollow()) {
+            add(byDeviceName, slot.deviceOrFollow(), slot);
+            var matcher = voiceMeeterPattern.matcher(slot.deviceOrFollow());
+            var inOut = matcher.matches() ? ControlType.fromDn(matcher.group(1)) : null;
+            if (inOut != null) {
+                var button = new VoiceMeeterButton(voiceMeeterControl(inOut, NumberUtils.toInt(matcher.group(2), -1) - 1), ButtonType.fromName(matcher.group(3)));
+                byVoiceMeeterButton.computeIfAbsent(button, k -> new ArrayList<>()).add(slot);
+            }
+            return;
+        }
+
+        var cmd = slot.cmd();
+        cmd.getCommand(CommandObsSetSourceVolume.class).map(CommandObsSetSourceVolume::getSourceName).ifPresent(source -> add(byObsSource, source, slot));
+        cmd.getCommand(CommandVolumeProcess.class).ifPresent(vp -> vp.getProcessName().forEach(p -> add(byProcess, StringUtils.lowerCase(p), slot)));
+        cmd.getCommand(CommandVolumeDevice.class).ifPresent(vd -> add(byDeviceId, StringUtils.defaultString(vd.getDeviceId()), slot));
+        var voiceMeeterCmd = cmd.getCommand(CommandVoiceMeeter.class).orElse(null);
+        if (voiceMeeterCmd instanceof CommandVoiceMeeterBasic vmBasic && vmBasic.getCt() != null) {
+            add(byVoiceMeeterControl, voiceMeeterControl(vmBasic.getCt(), vmBasic.getIndex()), slot);
+        } else if (voiceMeeterCmd instanceof CommandVoiceMeeterAdvanced vmAdv) {
+            // The advanced parameter only matches when it starts with the control, so index it on the part up to the first ']'
+            var end = StringUtils.indexOf(vmAdv.getFullParam(), ']');
+            if (end >= 0) {
+                add(byVoiceMeeterControl, vmAdv.getFullParam().substring(0, end + 1).toLowerCase(Locale.ROOT), slot);
+            }
+        }
+    }
+
+    private static void add(Map<String, List<Slot>> map, @Nullable String key, Slot slot) {
+        if (key != null) {
+            map.computeIfAbsent(key, k -> new ArrayList<>()).add(slot);
+        }
+    }
+
+    private static String voiceMeeterControl(ControlType type, int idx) {
+        return (type.name() + "[" + idx + "]").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the serials of all devices that have a mute override
+     */
+    Set<String> serials() {
+        return serials;
+    }
+
+    Collection<Slot> obsSource(String input) {
+        return collect(byObsSource, source -> source.contains(input), new LinkedHashSet<>());
+    }
+
+    Collection<Slot> process(String lowerCaseName) {
+        return collect(byProcess, process -> process.contains(lowerCaseName), new LinkedHashSet<>());
+    }
+
+    /**
+     * @param defaultDeviceOnEmpty resolves an empty device id to the current default device, which can change at any time so it can not
+     *                             be part of the index
+     */
+    Collection<Slot> device(String name, String id, UnaryOperator<String> defaultDeviceOnEmpty) {
+        var result = collect(byDeviceName, deviceOrFollow -> StringUtils.containsIgnoreCase(name, deviceOrFollow), new LinkedHashSet<>());
+        return collect(byDeviceId, deviceId -> defaultDeviceOnEmpty.apply(deviceId).equals(id), result);
+    }
+
+    Collection<Slot> voiceMeeter(ControlType type, int idx, ButtonType button) {
+        var control = voiceMeeterControl(type, idx);
+        var result = new LinkedHashSet<>(byVoiceMeeterControl.getOrDefault(control, List.of()));
+        result.addAll(byVoiceMeeterButton.getOrDefault(new VoiceMeeterButton(control, button), List.of()));
+        return result;
+    }
+
+    private static Collection<Slot> collect(Map<String, List<Slot>> map, Predicate<String> keyMatches, Collection<Slot> into) {
+        map.forEach((key, slots) -> {
+            if (keyMatches.test(key)) {
+                into.addAll(slots);
+            }
+        });
+        return into;
+    }
+
+    /**
+     * @return the slots of a profile that have a mute override, the dial data of a slider is shared by the slider and its label
+     */
+    static List<Slot> slots(String serial, Profile profile) {
+        var result = new ArrayList<Slot>();
+        var lightingConfig = profile.getLightingConfig();
+        var knobLength = lightingConfig.getKnobConfigs().length;
+        for (var idxCommand : profile.getDialData().entrySet()) {
+            int idx = idxCommand.getKey();
+            var cmd = idxCommand.getValue();
+            if (idx < knobLength) {
+                var knob = lightingConfig.getKnobConfigs()[idx];
+                addSlot(result, new Slot(serial, Part.DIAL, idx, knob.getMuteOverrideDeviceOrFollow(), knob.getMuteOverrideColor(), cmd));
+            } else {
+                var slider = idx - knobLength;
+                if (slider >= lightingConfig.getSliderConfigs().length) {
+                    continue;
+                }
+                var sliderConfig = lightingConfig.getSliderConfigs()[slider];
+                var labelConfig = lightingConfig.getSliderLabelConfigs()[slider];
+                addSlot(result, new Slot(serial, Part.SLIDER, slider, sliderConfig.getMuteOverrideDeviceOrFollow(), sliderConfig.getMuteOverrideColor(), cmd));
+                addSlot(result, new Slot(serial, Part.SLIDER_LABEL, slider, labelConfig.getMuteOverrideDeviceOrFollow(), labelConfig.getMuteOverrideColor(), cmd));
+            }
+        }
+        return result;
+    }
+
+    private static void addSlot(List<Slot> result, Slot slot) {
+        if (StringUtils.isNoneBlank(slot.deviceOrFollow(), slot.muteColor())) {
+            result.add(slot);
+        }
+    }
+
+    enum Part {
+        DIAL, SLIDER, SLIDER_LABEL
+    }
+
+    record Slot(String serial, Part part, int index, String deviceOrFollow, String muteColor, Commands cmd) {
+        boolean isFollow() {
+            return ILightingDialogMuteOverrideHelper.FOLLOW_PROCESS.equals(deviceOrFollow);
+        }
+
+        void apply(ColorOverrideHolder holder, boolean muted) {
+            switch (part) {
+                case DIAL -> holder.setDialOverride(serial, index, muted ? new SingleKnobLightingConfig().setMode(SingleKnobLightingConfig.SINGLE_KNOB_MODE.STATIC)
+                                                                                                         .setColor1(muteColor)
+                                                                                                         .setMuteOverrideDeviceOrFollow(deviceOrFollow)
+                                                                                                         .setMuteOverrideColor(muteColor) : null);
+                case SLIDER -> holder.setSliderOverride(serial, index, muted ? new SingleSliderLightingConfig().setMode(SingleSliderLightingConfig.SINGLE_SLIDER_MODE.STATIC)
+                                                                                                               .setColor1(muteColor)
+                                                                                                               .setMuteOverrideDeviceOrFollow(deviceOrFollow)
+                                                                                                               .setMuteOverrideColor(muteColor) : null);
+                case SLIDER_LABEL -> holder.setSliderLabelOverride(serial, index, muted ? new SingleSliderLabelLightingConfig().setMode(SingleSliderLabelLightingConfig.SINGLE_SLIDER_LABEL_MODE.STATIC)
+                                                                                                                              .setColor(muteColor)
+                                                                                                                              .setMuteOverrideDeviceOrFollow(deviceOrFollow)
+                                                                                                                              .setMuteOverrideColor(muteColor) : null);
+            }
+        }
+    }
+
+    private record VoiceMeeterButton(String control, @Nullable ButtonType button) {
+    }
+}
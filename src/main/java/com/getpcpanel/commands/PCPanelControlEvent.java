@@ -1,21 +1,36 @@
 package com.getpcpanel.commands;
 
+import java.util.function.BiConsumer;
+
 import javax.annotation.Nullable;
 
 import com.getpcpanel.hid.DialValue;
 
-import one.util.streamex.StreamEx;
-
 public record PCPanelControlEvent(String serialNum, int knob, Commands cmd, boolean initial, @Nullable DialValue vol) {
-    public Runnable buildRunnable() {
-        return switch (cmd.getType()) {
-            case allAtOnce -> () -> StreamEx.of(cmd.getCommands()).map(c -> c.toRunnable(initial, serialNum, vol)).forEach(Runnable::run);
-            case sequential -> () -> {
-                var idx = incBetween(cmd.getSequenceIdx(), cmd.getCommands().size());
-                cmd.setSequenceIdx(idx);
-                cmd.getCommands().get(idx).toRunnable(initial, serialNum, vol).run();
-            };
-        };
+    /**
+     * Gives what to run per {@link CommandLane}, commands on different lanes run independently of each other.
+     */
+    public void forEachLane(BiConsumer<CommandLane, Runnable> consumer) {
+        var commands = cmd.getCommands();
+        if (commands.isEmpty()) {
+            return;
+        }
+        switch (cmd.getType()) {
+            case allAtOnce -> cmd.getLanes().forEach((lane, laneCommands) -> consumer.accept(lane, () -> {
+                for (var command : laneCommands) {
+                    command.toRunnable(initial, serialNum, vol).run();
+                }
+            }));
+            case sequential -> {
+                // The index only moves on when the command runs, so a press that is superseded before it ran does not skip a step
+                var idx = incBetween(cmd.getSequenceIdx(), commands.size());
+                var command = commands.get(idx);
+                consumer.accept(command.getLane(), () -> {
+                    cmd.setSequenceIdx(idx);
+                    command.toRunnable(initial, serialNum, vol).run();
+                });
+            }
+        }
     }
 
     private int incBetween(int value, int high) {
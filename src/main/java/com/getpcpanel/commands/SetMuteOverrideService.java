@@ -1,27 +1,20 @@
 package com.getpcpanel.commands;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.List;
-import java.util.function.Predicate;
-import java.util.regex.Pattern;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 
-import com.getpcpanel.commands.command.CommandObsSetSourceVolume;
-import com.getpcpanel.commands.command.CommandVoiceMeeter;
-import com.getpcpanel.commands.command.CommandVoiceMeeterAdvanced;
-import com.getpcpanel.commands.command.CommandVoiceMeeterBasic;
-import com.getpcpanel.commands.command.CommandVolumeDevice;
-import com.getpcpanel.commands.command.CommandVolumeProcess;
 import com.getpcpanel.cpp.AudioDeviceEvent;
 import com.getpcpanel.cpp.AudioSessionEvent;
-import com.getpcpanel.cpp.EventType;
 import com.getpcpanel.cpp.ISndCtrl;
 import com.getpcpanel.hid.DeviceHolder;
 import com.getpcpanel.hid.DeviceScanner;
@@ -29,24 +22,15 @@ import com.getpcpanel.obs.OBS;
 import com.getpcpanel.obs.OBSConnectEvent;
 import com.getpcpanel.obs.OBSMuteEvent;
 import com.getpcpanel.profile.LightingConfig;
-import com.getpcpanel.profile.Profile;
 import com.getpcpanel.profile.SaveService;
-import com.getpcpanel.profile.SingleKnobLightingConfig;
-import com.getpcpanel.profile.SingleSliderLabelLightingConfig;
-import com.getpcpanel.profile.SingleSliderLightingConfig;
-import com.getpcpanel.ui.ILightingDialogMuteOverrideHelper;
 import com.getpcpanel.ui.LightingChangedToDefaultEvent;
 import com.getpcpanel.util.coloroverride.ColorOverrideHolder;
 import com.getpcpanel.util.coloroverride.IOverrideColorProvider;
 import com.getpcpanel.util.coloroverride.IOverrideColorProviderProvider;
 import com.getpcpanel.voicemeeter.VoiceMeeterMuteEvent;
-import com.getpcpanel.voicemeeter.Voicemeeter.ButtonType;
-import com.getpcpanel.voicemeeter.Voicemeeter.ControlType;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import one.util.streamex.EntryStream;
-import one.util.streamex.StreamEx;
 
 /**
  * Triggers a color change when the device or application that is controlled by the dial/slider is muted/unmuted.
@@ -56,23 +40,29 @@ import one.util.streamex.StreamEx;
 @Order(0)
 @RequiredArgsConstructor
 public class SetMuteOverrideService implements IOverrideColorProviderProvider {
-    private static final Pattern voiceMeeterPattern = Pattern.compile("VoiceMeeter: (Input|Output) (\\d+), (.*)"); // 1: In/Out, 2: Idx, 3: ButtonType
     private final DeviceHolder devices;
     private final ISndCtrl sndCtrl;
     private final SaveService saveService;
     private final OBS obs;
     private final ColorOverrideHolder colorOverrideHolder = new ColorOverrideHolder();
+    @GuardedBy("this") private @Nullable MuteOverrideIndex index;
 
     @EventListener({ DeviceScanner.DeviceConnectedEvent.class, LightingChangedToDefaultEvent.class })
     public void triggerAll() {
+        invalidateIndex();
         colorOverrideHolder.clearAllOverrides();
+        var index = index();
         for (var device : sndCtrl.getDevices()) {
-            onAudioDevice(new AudioDeviceEvent(device, EventType.CHANGED));
+            apply(index.device(device.name(), device.id(), sndCtrl::defaultDeviceOnEmpty), device.muted());
         }
         for (var sess : sndCtrl.getAllSessions()) {
-            onAudioSession(new AudioSessionEvent(sess, EventType.CHANGED));
+            apply(index.process(processName(sess.executable())), sess.muted());
         }
-        updateObs(new OBSConnectEvent(obs.isConnected()));
+        if (obs.isConnected()) {
+            applyObs(index);
+        }
+        // The overrides were cleared, so also refresh devices of which nothing is muted anymore
+        sendLighting(index.serials());
     }
 
     @EventListener(OBSConnectEvent.class)
@@ -81,160 +71,101 @@ public class SetMuteOverrideService implements IOverrideColorProviderProvider {
             return;
         }
 
-        EntryStream.of(obs.getSourcesWithMuteState()).mapKeyValue(OBSMuteEvent::new).forEach(this::onObsSource);
+        sendLighting(applyObs(index()));
+    }
+
+    private Set<String> applyObs(MuteOverrideIndex index) {
+        var changed = new HashSet<String>();
+        obs.getSourcesWithMuteState().forEach((source, muted) -> changed.addAll(apply(index.obsSource(source), muted)));
+        return changed;
     }
 
     @EventListener
     public void onObsSource(OBSMuteEvent event) {
-        var lcName = event.input();
-        handleEvent(
-                dlc -> isFollow(dlc) &&
-                        dlc.cmd.getCommand(CommandObsSetSourceVolume.class).flatMap(ms -> StreamEx.of(ms.getSourceName()).findFirst(n -> n.contains(lcName))).isPresent(),
-                event.muted());
+        sendLighting(apply(index().obsSource(event.input()), event.muted()));
     }
 
     @EventListener
     public void onVoiceMeeterSource(VoiceMeeterMuteEvent event) {
-        var type = event.ct();
-        var idx = event.idx();
-        var button = event.button();
-        handleEvent(
-                dlc -> {
-                    if (isFollow(dlc)) {
-                        var voiceMeeterCmd = dlc.cmd.getCommand(CommandVoiceMeeter.class).orElse(null);
-                        if (voiceMeeterCmd instanceof CommandVoiceMeeterBasic vmBasic) {
-                            return vmBasic.getCt() == type && vmBasic.getIndex() == idx;
-                        } else if (voiceMeeterCmd instanceof CommandVoiceMeeterAdvanced vmAdv) {
-                            return StringUtils.startsWithIgnoreCase(vmAdv.getFullParam(), type.name() + "[" + idx + "]");
-                        }
-                    } else if (StringUtils.isNotBlank(dlc.deviceOrFollow)) {
-                        var matcher = voiceMeeterPattern.matcher(dlc.deviceOrFollow);
-                        if (!matcher.matches()) {
-                            return false;
-                        }
-                        var inOut = ControlType.fromDn(matcher.group(1));
-                        var gIdx = NumberUtils.toInt(matcher.group(2), -1) - 1;
-                        var bType = ButtonType.fromName(matcher.group(3));
-                        return inOut == type && idx == gIdx && bType == button;
-                    }
-                    return false;
-                },
-                event.state());
+        sendLighting(apply(index().voiceMeeter(event.ct(), event.idx(), event.button()), event.state()));
     }
 
     @EventListener
     public void onAudioSession(AudioSessionEvent event) {
-        var lcName = StringUtils.lowerCase(event.session().executable().getName().toLowerCase());
-        handleEvent(
-                dlc -> isFollow(dlc) &&
-                        dlc.cmd.getCommand(CommandVolumeProcess.class).flatMap(vd -> StreamEx.of(vd.getProcessName()).map(String::toLowerCase).findFirst(n -> n.contains(lcName))).isPresent(),
-                event.session().muted());
+        sendLighting(apply(index().process(processName(event.session().executable())), event.session().muted()));
     }
 
     @EventListener
     public void onAudioDevice(AudioDeviceEvent event) {
-        handleEvent(
-                dlc -> isDevice(event, dlc) || (isFollow(dlc) &&
-                        dlc.cmd.getCommand(CommandVolumeDevice.class).filter(vd -> sndCtrl.defaultDeviceOnEmpty(vd.getDeviceId()).equals(event.device().id())).isPresent()),
-                event.device().muted());
+        var device = event.device();
+        sendLighting(apply(index().device(device.name(), device.id(), sndCtrl::defaultDeviceOnEmpty), device.muted()));
+    }
+
+    private static String processName(File executable) {
+        return executable.getName().toLowerCase();
     }
 
-    private boolean isFollow(DeviceLightingCapable dlc) {
-        return ILightingDialogMuteOverrideHelper.FOLLOW_PROCESS.equals(dlc.deviceOrFollow);
+    /**
+     * The index only changes when a profile, its lighting or the connected devices change, all of which are saved or signalled.
+     */
+    @EventListener({ SaveService.SaveEvent.class, DeviceScanner.DeviceDisconnectedEvent.class })
+    public synchronized void invalidateIndex() {
+        index = null;
     }
 
-    private boolean isDevice(AudioDeviceEvent event, DeviceLightingCapable dlc) {
-        return StringUtils.containsIgnoreCase(event.device().name(), dlc.deviceOrFollow);
+    private synchronized MuteOverrideIndex index() {
+        if (index == null) {
+            index = buildIndex();
+        }
+        return index;
     }
 
-    public void handleEvent(Predicate<DeviceLightingCapable> isApplicable, boolean isMuted) {
+    private MuteOverrideIndex buildIndex() {
+        var slots = new ArrayList<MuteOverrideIndex.Slot>();
         for (var idDeviceSave : saveService.get().getDevices().entrySet()) {
             var deviceOpt = devices.getDevice(idDeviceSave.getKey());
             if (deviceOpt.isEmpty()) {
                 log.debug("Device {} not connected", idDeviceSave.getKey());
                 continue;
             }
-            var device = deviceOpt.get();
-            var deviceSave = idDeviceSave.getValue();
-            var profile = deviceSave.ensureCurrentProfile(device.getDeviceType());
-            var mayBeChangedLC = device.getLightingConfig();
-            if (mayBeChangedLC.getLightingMode() != LightingConfig.LightingMode.CUSTOM) {
-                continue;
+            var profile = idDeviceSave.getValue().ensureCurrentProfile(deviceOpt.get().getDeviceType());
+            try {
+                slots.addAll(MuteOverrideIndex.slots(idDeviceSave.getKey(), profile));
+            } catch (Exception e) {
+                log.error("Unable to get device lighting capable", e);
             }
+        }
+        return new MuteOverrideIndex(slots);
+    }
 
-            var mayBeChanged = false;
-            for (var dlc : tryGetAllDeviceLightingCapable(device.getSerialNumber(), mayBeChangedLC, profile)) {
-                if (isApplicable.test(dlc)) {
-                    if (isMuted) {
-                        dlc.toMuteColor.run();
-                    } else {
-                        dlc.toOriginal.run();
-                    }
-                    mayBeChanged = true;
-                }
-            }
-            if (mayBeChanged) {
-                device.setLighting(mayBeChangedLC, true);
+    /**
+     * Sets or removes the overrides of the slots without sending them to the devices.
+     *
+     * @return the serials of the devices of which the lighting changed
+     */
+    private Set<String> apply(Collection<MuteOverrideIndex.Slot> slots, boolean isMuted) {
+        if (slots.isEmpty()) {
+            return Set.of();
+        }
+        var changed = new HashSet<String>();
+        for (var slot : slots) {
+            if (changed.contains(slot.serial()) || isCustom(slot.serial())) {
+                slot.apply(colorOverrideHolder, isMuted);
+                changed.add(slot.serial());
             }
         }
+        return changed;
     }
 
-    private List<DeviceLightingCapable> tryGetAllDeviceLightingCapable(String deviceSerial, LightingConfig mayBeChangedLC, Profile profile) {
-        try {
-            return getAllDeviceLightingCapable(deviceSerial, mayBeChangedLC, profile);
-        } catch (Exception e) {
-            log.error("Unable to get device lighting capable", e);
-            return List.of();
-        }
+    private boolean isCustom(String serial) {
+        return devices.getDevice(serial).map(device -> device.getLightingConfig().getLightingMode() == LightingConfig.LightingMode.CUSTOM).orElse(false);
     }
 
-    private List<DeviceLightingCapable> getAllDeviceLightingCapable(String deviceSerial, LightingConfig mayBeChangedLC, Profile profile) {
-        var result = new ArrayList<DeviceLightingCapable>();
-
-        var oLightConfig = profile.getLightingConfig();
-        var knobLength = mayBeChangedLC.getKnobConfigs().length;
-        for (var idxCommand : profile.getDialData().entrySet()) {
-            var idx = idxCommand.getKey();
-            var command = idxCommand.getValue();
-            if (idx < knobLength) {
-                // It's a knob
-                var deviceOrFollow = oLightConfig.getKnobConfigs()[idx].getMuteOverrideDeviceOrFollow();
-                var muteOverrideColor = oLightConfig.getKnobConfigs()[idx].getMuteOverrideColor();
-                if (StringUtils.isNoneBlank(deviceOrFollow, muteOverrideColor)) {
-                    Runnable toOriginal = () -> colorOverrideHolder.setDialOverride(deviceSerial, idx, null);
-                    Runnable toMute = () -> colorOverrideHolder.setDialOverride(deviceSerial, idx, new SingleKnobLightingConfig().setMode(SingleKnobLightingConfig.SINGLE_KNOB_MODE.STATIC)
-                                                                                                                                 .setColor1(muteOverrideColor)
-                                                                                                                                 .setMuteOverrideDeviceOrFollow(deviceOrFollow)
-                                                                                                                                 .setMuteOverrideColor(muteOverrideColor));
-                    result.add(new DeviceLightingCapable(deviceOrFollow, command, toOriginal, toMute));
-                }
-            } else { // It's a slider with label
-                var slider = idx - knobLength;
-                var sliderDeviceOrFollow = oLightConfig.getSliderConfigs()[slider].getMuteOverrideDeviceOrFollow();
-                var sliderOverride = oLightConfig.getSliderConfigs()[slider].getMuteOverrideColor();
-                if (StringUtils.isNoneBlank(sliderDeviceOrFollow, sliderOverride)) {
-                    Runnable toOriginal = () -> colorOverrideHolder.setSliderOverride(deviceSerial, slider, null);
-                    Runnable toMute = () -> colorOverrideHolder.setSliderOverride(deviceSerial, slider, new SingleSliderLightingConfig().setMode(SingleSliderLightingConfig.SINGLE_SLIDER_MODE.STATIC)
-                                                                                                                                        .setColor1(sliderOverride)
-                                                                                                                                        .setMuteOverrideDeviceOrFollow(sliderDeviceOrFollow)
-                                                                                                                                        .setMuteOverrideColor(sliderOverride));
-                    result.add(new DeviceLightingCapable(sliderDeviceOrFollow, command, toOriginal, toMute)); // Slider
-                }
-
-                var labelDeviceOrFollow = oLightConfig.getSliderLabelConfigs()[slider].getMuteOverrideDeviceOrFollow();
-                var labelOverride = oLightConfig.getSliderLabelConfigs()[slider].getMuteOverrideColor();
-                if (StringUtils.isNoneBlank(labelDeviceOrFollow, labelOverride)) {
-                    Runnable toOriginal = () -> colorOverrideHolder.setSliderLabelOverride(deviceSerial, slider, null);
-                    Runnable toMute = () -> colorOverrideHolder.setSliderLabelOverride(deviceSerial, slider, new SingleSliderLabelLightingConfig().setMode(SingleSliderLabelLightingConfig.SINGLE_SLIDER_LABEL_MODE.STATIC)
-                                                                                                                                                  .setColor(labelOverride)
-                                                                                                                                                  .setMuteOverrideDeviceOrFollow(labelDeviceOrFollow)
-                                                                                                                                                  .setMuteOverrideColor(labelOverride));
-                    result.add(new DeviceLightingCapable(labelDeviceOrFollow, command, toOriginal, toMute)); // Slider label
-                }
-            }
+    private void sendLighting(Collection<String> serials) {
+        for (var serial : serials) {
+            devices.getDevice(serial).filter(device -> device.getLightingConfig().getLightingMode() == LightingConfig.LightingMode.CUSTOM)
+                   .ifPresent(device -> device.setLighting(device.getLightingConfig(), true));
         }
-
-        return result;
     }
 
     @Override
@@ -242,6 +173,4 @@ public class SetMuteOverrideService implements IOverrideColorProviderProvider {
         return colorOverrideHolder;
     }
 
-    record DeviceLightingCapable(@Nullable String deviceOrFollow, Commands cmd, Runnable toOriginal, Runnable toMuteColor) {
-    }
 }
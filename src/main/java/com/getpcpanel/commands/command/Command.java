@@ -2,7 +2,9 @@ package com.getpcpanel.commands.command;
 
 import javax.annotation.Nullable;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.getpcpanel.commands.CommandLane;
 import com.getpcpanel.hid.DialValue;
 
 import lombok.ToString;
@@ -28,5 +30,13 @@ public abstract class Command {
         };
     }
 
+    /**
+     * @return the lane this command runs on in the {@link com.getpcpanel.commands.CommandDispatcher}
+     */
+    @JsonIgnore
+    public CommandLane getLane() {
+        return CommandLane.SYSTEM;
+    }
+
     public abstract String buildLabel();
 }
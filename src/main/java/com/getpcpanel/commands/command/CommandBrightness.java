@@ -1,8 +1,11 @@
 package com.getpcpanel.commands.command;
 
+import javax.annotation.Nullable;
+
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.getpcpanel.MainFX;
+import com.getpcpanel.commands.CommandLane;
 import com.getpcpanel.hid.DeviceHolder;
 import com.getpcpanel.profile.SaveService;
 
@@ -15,6 +18,9 @@ import lombok.extern.log4j.Log4j2;
 @ToString(callSuper = true)
 public class CommandBrightness extends Command implements DialAction {
     private final DialCommandParams dialParams;
+    // Looked up on first use, see CommandVolume
+    @ToString.Exclude @Nullable private transient DeviceHolder deviceHolder;
+    @ToString.Exclude @Nullable private transient SaveService saveService;
 
     @JsonCreator
     public CommandBrightness(@JsonProperty("dialParams") DialCommandParams dialParams) {
@@ -23,15 +29,38 @@ public class CommandBrightness extends Command implements DialAction {
 
     @Override
     public void execute(DialActionParameters context) {
-        MainFX.getBean(DeviceHolder.class).getDevice(context.device()).ifPresent(device -> {
+        getDeviceHolder().getDevice(context.device()).ifPresent(device -> {
             var lightingConfig = device.getLightingConfig();
             lightingConfig.setGlobalBrightness(context.dial().getValue(this));
             device.setLighting(lightingConfig, false);
 
-            MainFX.getBean(SaveService.class).debouncedSave();
+            getSaveService().debouncedSave();
         });
     }
 
+    private DeviceHolder getDeviceHolder() {
+        var result = deviceHolder;
+        if (result == null) {
+            result = MainFX.getBean(DeviceHolder.class);
+            deviceHolder = result;
+        }
+        return result;
+    }
+
+    private SaveService getSaveService() {
+        var result = saveService;
+        if (result == null) {
+            result = MainFX.getBean(SaveService.class);
+            saveService = result;
+        }
+        return result;
+    }
+
+    @Override
+    public CommandLane getLane() {
+        return CommandLane.LIGHTING;
+    }
+
     @Override
     public String buildLabel() {
         return "";
@@ -1,7 +1,29 @@
 package com.getpcpanel.commands.command;
 
+import javax.annotation.Nullable;
+
+import com.getpcpanel.MainFX;
+import com.getpcpanel.commands.CommandLane;
+import com.getpcpanel.obs.OBS;
+
 import lombok.Getter;
 
 @Getter
 public abstract class CommandObs extends Command {
+    // Looked up on first use, see CommandVolume
+    @Nullable private transient OBS obs;
+
+    protected OBS getObs() {
+        var result = obs;
+        if (result == null) {
+            result = MainFX.getBean(OBS.class);
+            obs = result;
+        }
+        return result;
+    }
+
+    @Override
+    public CommandLane getLane() {
+        return CommandLane.OBS;
+    }
 }
@@ -2,8 +2,6 @@ package com.getpcpanel.commands.command;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.getpcpanel.MainFX;
-import com.getpcpanel.obs.OBS;
 
 import lombok.Getter;
 import lombok.ToString;
@@ -20,7 +18,7 @@ public class CommandObsSetScene extends CommandObs implements ButtonAction {
 
     @Override
     public void execute() {
-        var obs = MainFX.getBean(OBS.class);
+        var obs = getObs();
         if (obs.isConnected()) {
             obs.setCurrentScene(scene);
         }
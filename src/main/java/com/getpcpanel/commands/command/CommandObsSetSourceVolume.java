@@ -2,8 +2,6 @@ package com.getpcpanel.commands.command;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.getpcpanel.MainFX;
-import com.getpcpanel.obs.OBS;
 
 import lombok.Getter;
 import lombok.ToString;
@@ -24,7 +22,7 @@ public class CommandObsSetSourceVolume extends CommandObs implements DialAction
 
     @Override
     public void execute(DialActionParameters context) {
-        var obs = MainFX.getBean(OBS.class);
+        var obs = getObs();
         if (obs.isConnected()) {
             obs.setSourceVolume(sourceName, context.dial().getValue(this));
         }
@@ -1,9 +1,31 @@
 package com.getpcpanel.commands.command;
 
+import javax.annotation.Nullable;
+
+import com.getpcpanel.MainFX;
+import com.getpcpanel.commands.CommandLane;
+import com.getpcpanel.voicemeeter.Voicemeeter;
+
 import lombok.Getter;
 import lombok.ToString;
 
 @Getter
 @ToString(callSuper = true)
 public abstract class CommandVoiceMeeter extends Command {
+    // Looked up on first use, see CommandVolume
+    @ToString.Exclude @Nullable private transient Voicemeeter voiceMeeter;
+
+    protected Voicemeeter getVoiceMeeter() {
+        var result = voiceMeeter;
+        if (result == null) {
+            result = MainFX.getBean(Voicemeeter.class);
+            voiceMeeter = result;
+        }
+        return result;
+    }
+
+    @Override
+    public CommandLane getLane() {
+        return CommandLane.VOICEMEETER;
+    }
 }
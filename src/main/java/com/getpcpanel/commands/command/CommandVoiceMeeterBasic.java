@@ -2,7 +2,6 @@ package com.getpcpanel.commands.command;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.getpcpanel.MainFX;
 import com.getpcpanel.voicemeeter.Voicemeeter;
 
 import lombok.Getter;
@@ -30,7 +29,7 @@ public class CommandVoiceMeeterBasic extends CommandVoiceMeeter implements DialA
 
     @Override
     public void execute(DialActionParameters context) {
-        var voiceMeeter = MainFX.getBean(Voicemeeter.class);
+        var voiceMeeter = getVoiceMeeter();
         if (voiceMeeter.login()) {
             voiceMeeter.controlLevel(ct, index, dt, context.dial().getValue(this));
         }
@@ -2,7 +2,6 @@ package com.getpcpanel.commands.command;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.getpcpanel.MainFX;
 import com.getpcpanel.voicemeeter.Voicemeeter;
 
 import lombok.Getter;
@@ -24,7 +23,7 @@ public class CommandVoiceMeeterBasicButton extends CommandVoiceMeeter implements
 
     @Override
     public void execute() {
-        var voiceMeeter = MainFX.getBean(Voicemeeter.class);
+        var voiceMeeter = getVoiceMeeter();
         if (voiceMeeter.login()) {
             voiceMeeter.controlButton(ct, index, bt, null);
         }
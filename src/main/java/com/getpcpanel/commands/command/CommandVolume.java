@@ -1,13 +1,40 @@
 package com.getpcpanel.commands.command;
 
+import javax.annotation.Nullable;
+
 import com.getpcpanel.MainFX;
+import com.getpcpanel.commands.CommandLane;
 import com.getpcpanel.cpp.ISndCtrl;
+import com.getpcpanel.cpp.VolumeWriteCoalescer;
 
 import lombok.ToString;
 
 @ToString(callSuper = true)
 public abstract class CommandVolume extends Command {
+    // Looked up on first use, a command is replaced when it is edited but the beans stay the same
+    @ToString.Exclude @Nullable private transient ISndCtrl sndCtrl;
+    @ToString.Exclude @Nullable private transient VolumeWriteCoalescer volumeWriter;
+
     protected ISndCtrl getSndCtrl() {
-        return MainFX.getBean(ISndCtrl.class);
+        var result = sndCtrl;
+        if (result == null) {
+            result = MainFX.getBean(ISndCtrl.class);
+            sndCtrl = result;
+        }
+        return result;
+    }
+
+    protected VolumeWriteCoalescer getVolumeWriter() {
+        var result = volumeWriter;
+        if (result == null) {
+            result = MainFX.getBean(VolumeWriteCoalescer.class);
+            volumeWriter = result;
+        }
+        return result;
+    }
+
+    @Override
+    public CommandLane getLane() {
+        return CommandLane.AUDIO;
     }
 }
@@ -29,7 +29,7 @@ public class CommandVolumeDevice extends CommandVolume implements DialAction {
         if (!context.initial() && unMuteOnVolumeChange) {
             getSndCtrl().muteDevice(deviceId, MuteType.unmute);
         }
-        getSndCtrl().setDeviceVolume(deviceId, context.dial().getValue(this, 0, 1));
+        getVolumeWriter().setDeviceVolume(deviceId, context.dial().getValue(this, 0, 1));
     }
 
     @Override
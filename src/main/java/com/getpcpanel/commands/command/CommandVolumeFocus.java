@@ -18,7 +18,7 @@ public class CommandVolumeFocus extends CommandVolume implements DialAction {
 
     @Override
     public void execute(DialActionParameters context) {
-        getSndCtrl().setFocusVolume(context.dial().getValue(this, 0, 1));
+        getVolumeWriter().setFocusVolume(context.dial().getValue(this, 0, 1));
     }
 
     @Override
@@ -36,7 +36,8 @@ public class CommandVolumeProcess extends CommandVolume implements DialAction {
         if (!context.initial() && unMuteOnVolumeChange) {
             snd.muteProcesses(new HashSet<>(processName), MuteType.unmute);
         }
-        processName.forEach(process -> snd.setProcessVolume(process, device, context.dial().getValue(this, 0, 1)));
+        var writer = getVolumeWriter();
+        processName.forEach(process -> writer.setProcessVolume(process, device, context.dial().getValue(this, 0, 1)));
     }
 
     @Override
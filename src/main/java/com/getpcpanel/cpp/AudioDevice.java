@@ -33,6 +33,18 @@ public class AudioDevice implements Serializable {
         log.trace("State changed: {}", this);
     }
 
+    /**
+     * Sets volume and mute state at once and only triggers a change when either one actually changed.
+     */
+    public boolean state(float volume, boolean muted) {
+        //noinspection FloatingPointEquality
+        if (this.volume == volume && this.muted == muted) {
+            return false;
+        }
+        setState(volume, muted);
+        return true;
+    }
+
     public boolean isOutput() {
         return dataflow.output();
     }
@@ -67,6 +67,20 @@ public class AudioSession {
         return this;
     }
 
+    /**
+     * Sets volume and mute state at once and only triggers a change when either one actually changed.
+     */
+    public boolean state(float volume, boolean muted) {
+        //noinspection FloatingPointEquality
+        if (this.volume == volume && this.muted == muted) {
+            return false;
+        }
+        this.volume = volume;
+        this.muted = muted;
+        triggerChange();
+        return true;
+    }
+
     public boolean isSystemSounds() {
         return pid == 0 || StringUtils.containsIgnoreCase(icon, "AudioSrv.Dll");
     }
@@ -0,0 +1,152 @@
+package com.getpcpanel.cpp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.getpcpanel.util.TimingWheel;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Write stage in front of {@link ISndCtrl} for volume changes. Every target (device, process on a device or the focus application)
+ * has a single pending value, a newer value replaces a pending one that was not written yet. Writes for a target are at least
+ * `volume.min-write-interval-ms` apart so a fast moving slider can never queue more backend calls than the backend can handle. The
+ * writes are timed by the {@link TimingWheel} and run one at a time, as the backends expect.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class VolumeWriteCoalescer {
+    private final ISndCtrl sndCtrl;
+    private final TimingWheel timingWheel;
+    @Value("${volume.min-write-interval-ms:20}") private final long minWriteIntervalMs;
+    private final Map<TargetKey, Target> targets = new ConcurrentHashMap<>();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+    private final Object writeLock = new Object();
+
+    public void setDeviceVolume(String deviceId, float volume) {
+        submit(new TargetKey(TargetType.device, StringUtils.defaultString(deviceId), ""), volume, v -> sndCtrl.setDeviceVolume(deviceId, v));
+    }
+
+    public void setProcessVolume(String fileName, @Nullable String device, float volume) {
+        submit(new TargetKey(TargetType.process, StringUtils.lowerCase(fileName), StringUtils.defaultString(device)), volume, v -> sndCtrl.setProcessVolume(fileName, device, v));
+    }
+
+    public void setFocusVolume(float volume) {
+        submit(TargetKey.FOCUS, volume, sndCtrl::setFocusVolume);
+    }
+
+    private void submit(TargetKey key, float volume, Consumer<Float> write) {
+        var target = targets.computeIfAbsent(key, Target::new);
+        synchronized (target) {
+            if (target.changed) {
+                superseded.incrementAndGet();
+            }
+            target.pending = volume;
+            target.write = write;
+            target.changed = true;
+            if (!target.scheduled) {
+                target.scheduled = true;
+                scheduleFlush(target);
+            }
+        }
+    }
+
+    @GuardedBy("target")
+    private void scheduleFlush(Target target) {
+        var delayNanos = target.lastWriteNanos + TimeUnit.MILLISECONDS.toNanos(minWriteIntervalMs) - System.nanoTime();
+        target.timeout = timingWheel.schedule(() -> flush(target), Math.max(0, delayNanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Writes the pending value. The target stays scheduled until the write is done, so a value that arrives meanwhile is written after
+     * it and never next to it.
+     */
+    private void flush(Target target) {
+        float volume;
+        Consumer<Float> write;
+        synchronized (target) {
+            volume = target.pending;
+            write = target.write;
+            target.changed = false;
+            target.lastWriteNanos = System.nanoTime();
+        }
+        try {
+            synchronized (writeLock) {
+                write.accept(volume);
+            }
+            written.incrementAndGet();
+        } catch (Exception e) {
+            log.error("Unable to set volume for {}", target.key, e);
+        }
+        synchronized (target) {
+            if (target.changed) {
+                scheduleFlush(target);
+            } else {
+                target.scheduled = false;
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(written.get(), superseded.get(), targets.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.debug("Volume writes: {}", stats());
+        for (var target : targets.values()) {
+            synchronized (target) {
+                if (target.timeout != null) {
+                    target.timeout.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param written    number of writes that reached the backend
+     * @param superseded number of values that were replaced by a newer value before they were written
+     * @param targets    number of distinct targets that were written to
+     */
+    public record Stats(long written, long superseded, int targets) {
+    }
+
+    enum TargetType {
+        device, process, focus
+    }
+
+    record TargetKey(TargetType type, String target, String device) {
+        static final TargetKey FOCUS = new TargetKey(TargetType.focus, "", "");
+    }
+
+    private static final class Target {
+        private final TargetKey key;
+        @GuardedBy("this") private float pending;
+        @GuardedBy("this") private Consumer<Float> write;
+        /** A value was submitted that was not written yet */
+        @GuardedBy("this") private boolean changed;
+        /** A write is scheduled or running */
+        @GuardedBy("this") private boolean scheduled;
+        @GuardedBy("this") @Nullable private TimingWheel.Timeout timeout;
+        @GuardedBy("this") private long lastWriteNanos;
+
+        private Target(TargetKey key) {
+            this.key = key;
+            lastWriteNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.getpcpanel.cpp.linux;
+
+import java.io.IOException;
+import java.util.function.IntConsumer;
+
+/**
+ * Source of active window changes for {@link LinuxFocusTracker}. The first available source (in {@link org.springframework.core.annotation.Order})
+ * is used, so other display servers or compositors can be supported by adding a bean.
+ */
+public interface ActiveWindowSource {
+    String name();
+
+    boolean isAvailable();
+
+    /**
+     * Blocks while listening for changes, every change of the active window calls the listener with the pid owning the window, or -1
+     * when no window is active or the pid is not known. Returns or throws when the source stopped.
+     */
+    void listen(IntConsumer listener) throws IOException, InterruptedException;
+}
@@ -0,0 +1,55 @@
+package com.getpcpanel.cpp.linux;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.function.IntConsumer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.getpcpanel.spring.ConditionalOnLinux;
+import com.getpcpanel.util.ProcessHelper;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Runs the command configured in `focus.source-command` which should print the pid of the active window on a line every time it
+ * changes. Wayland compositors have no common way to follow the active window, this allows using a compositor specific script
+ * (for example around `swaymsg -t subscribe` or the Hyprland event socket).
+ */
+@Order(0)
+@Component
+@ConditionalOnLinux
+@RequiredArgsConstructor
+public class CommandActiveWindowSource implements ActiveWindowSource {
+    private final ProcessHelper processHelper;
+    @Value("${focus.source-command:}") private final String command;
+
+    @Override
+    public String name() {
+        return "command '" + command + "'";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return StringUtils.isNotBlank(command);
+    }
+
+    @Override
+    public void listen(IntConsumer listener) throws IOException {
+        var process = processHelper.builder("sh", "-c", command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            //noinspection NestedAssignment
+            while ((line = reader.readLine()) != null) {
+                listener.accept(NumberUtils.toInt(StringUtils.trim(line), -1));
+            }
+        } finally {
+            process.destroy();
+        }
+    }
+}
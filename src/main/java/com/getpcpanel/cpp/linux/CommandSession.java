@@ -0,0 +1,189 @@
+package com.getpcpanel.cpp.linux;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.getpcpanel.util.ProcessHelper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Long-lived command session to a sound server tool. Commands are written as lines to the stdin of a single process instead of forking a
+ * new process for every volume change. When the session process cannot be started {@link #send(String)} returns false and the caller
+ * should fall back to single commands. A tool that exits right away or cannot be found is not tried again, and a session that rejects
+ * {@value #MAX_REJECTED} commands is given up as well.
+ * <p>
+ * Any process that reads commands from stdin can act as stand-in (e.g. `cat` when benchmarking the write throughput without a sound
+ * server).
+ */
+@Log4j2
+@RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+public abstract class CommandSession {
+    private static final long RETRY_AFTER_MS = 30_000;
+    private static final int MAX_REJECTED = 3;
+    private final ProcessHelper processHelper;
+    private final String sessionCommand;
+
+    @GuardedBy("this") @Nullable private Process process;
+    @GuardedBy("this") @Nullable private BufferedWriter writer;
+    @GuardedBy("this") private long lastFailure;
+    @GuardedBy("this") private boolean disabled;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @return true when the command was handed to the session, false if the session is not available
+     */
+    public synchronized boolean send(String command) {
+        if (!ensureStarted()) {
+            return false;
+        }
+        try {
+            //noinspection ConstantConditions checked by ensureStarted
+            writer.write(command);
+            writer.newLine();
+            writer.flush();
+            sent.incrementAndGet();
+            log.trace("Session: {}", command);
+            return true;
+        } catch (IOException e) {
+            log.warn("Unable to write to {}, falling back to single commands", sessionCommand, e);
+            markFailed();
+            return false;
+        }
+    }
+
+    public long sentCount() {
+        return sent.get();
+    }
+
+    public long rejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * @param line a line the session wrote to stdout or stderr
+     * @return true when the line reports a command that failed
+     */
+    protected boolean isRejection(String line) {
+        return StringUtils.startsWithIgnoreCase(line.strip(), "error");
+    }
+
+    @GuardedBy("this")
+    private boolean ensureStarted() {
+        if (process != null && process.isAlive()) {
+            return true;
+        }
+        if (process != null) {
+            log.info("{} exited with {}", sessionCommand, process.exitValue());
+            markFailed();
+        }
+        if (disabled || StringUtils.isBlank(sessionCommand) || System.currentTimeMillis() - lastFailure < RETRY_AFTER_MS) {
+            return false;
+        }
+
+        try {
+            var started = processHelper.builder(StringUtils.split(sessionCommand)).redirectErrorStream(true).start();
+            // Tools exit immediately when their sound server is not running (e.g. pacmd on PipeWire), give it a moment to do so. That
+            // does not change while we run, so the session is not tried again instead of stalling a send every retry.
+            if (started.waitFor(100, TimeUnit.MILLISECONDS)) {
+                log.info("{} is not available (exit code {}), using single commands", sessionCommand, started.exitValue());
+                disabled = true;
+                return false;
+            }
+            process = started;
+            writer = new BufferedWriter(new OutputStreamWriter(started.getOutputStream(), StandardCharsets.UTF_8));
+            var reader = new Thread(() -> readOutput(started), "Output of " + sessionCommand);
+            reader.setDaemon(true);
+            reader.start();
+            log.info("Started {} session", sessionCommand);
+            return true;
+        } catch (IOException e) {
+            log.info("Unable to start {}, using single commands", sessionCommand, e);
+            disabled = true;
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lastFailure = System.currentTimeMillis();
+        return false;
+    }
+
+    /**
+     * The output is read so a session that keeps running but rejects what it gets does not lose the writes without a trace.
+     */
+    private void readOutput(Process session) {
+        var rejectedBySession = 0;
+        try (var reader = session.inputReader(StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!isRejection(line)) {
+                    log.trace("{}: {}", sessionCommand, line);
+                    continue;
+                }
+                rejected.incrementAndGet();
+                log.warn("{} rejected a command: {}", sessionCommand, line);
+                if (++rejectedBySession == MAX_REJECTED) {
+                    disable(session);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.debug("Stopped reading {}", sessionCommand, e);
+        }
+    }
+
+    private synchronized void disable(Process session) {
+        //noinspection ObjectEquality
+        if (process == session) {
+            log.warn("{} rejected {} commands, using single commands", sessionCommand, MAX_REJECTED);
+            disabled = true;
+            markFailed();
+        }
+    }
+
+    @GuardedBy("this")
+    private void markFailed() {
+        lastFailure = System.currentTimeMillis();
+        if (process != null) {
+            process.destroy();
+        }
+        process = null;
+        writer = null;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.debug("Unable to close session", e);
+            }
+        }
+        if (process != null) {
+            try {
+                if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                    process.destroy();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroy();
+            }
+        }
+        process = null;
+        writer = null;
+    }
+}
@@ -0,0 +1,101 @@
+package com.getpcpanel.cpp.linux;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nullable;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Feeds a PCM stream, like the output of `parec`, into a {@link PeakMeter} on its own daemon thread until the stream ends or the
+ * capture is closed. The read buffer is reused, so a running capture does not allocate.
+ */
+@Log4j2
+final class LevelCapture {
+    /** 16ms of audio at the capture rate, small enough to keep the meter current */
+    private static final int READ_BYTES = 256;
+    private final String target;
+    private final InputStream in;
+    private final @Nullable Process process;
+    private final PeakMeter meter;
+    private final long startedNanos = System.nanoTime();
+    private volatile long endedNanos;
+    private volatile boolean running = true;
+
+    LevelCapture(String target, InputStream in, @Nullable Process process, PeakMeter meter) {
+        this.target = target;
+        this.in = in;
+        this.process = process;
+        this.meter = meter;
+    }
+
+    LevelCapture start() {
+        var reader = new Thread(this::run, "Level capture " + target);
+        reader.setDaemon(true);
+        reader.start();
+        return this;
+    }
+
+    private void run() {
+        try {
+            pump(in, meter);
+        } catch (IOException e) {
+            if (running) {
+                log.debug("Capture of {} stopped", target, e);
+            }
+        } finally {
+            endedNanos = System.nanoTime();
+            running = false;
+            meter.reset();
+        }
+    }
+
+    /**
+     * Reads the stream into the meter until it ends.
+     *
+     * @return the number of bytes read
+     */
+    static long pump(InputStream in, PeakMeter meter) throws IOException {
+        var buffer = new byte[READ_BYTES];
+        var total = 0L;
+        int read;
+        //noinspection NestedAssignment
+        while ((read = in.read(buffer)) >= 0) {
+            meter.accept(buffer, read);
+            total += read;
+        }
+        return total;
+    }
+
+    String target() {
+        return target;
+    }
+
+    PeakMeter meter() {
+        return meter;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return how long the stream was read, only known once it ended
+     */
+    long ranNanos() {
+        return endedNanos - startedNanos;
+    }
+
+    void close() {
+        running = false;
+        if (process != null) {
+            process.destroy();
+        }
+        try {
+            in.close();
+        } catch (IOException e) {
+            log.trace("Unable to close capture of {}", target, e);
+        }
+    }
+}
@@ -5,20 +5,24 @@ import org.springframework.context.ApplicationEventPublisher;
 import com.getpcpanel.cpp.AudioDevice;
 import com.getpcpanel.cpp.DataFlow;
 
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.Setter;
 
 @Getter
 public class LinuxAudioDevice extends AudioDevice {
     private final int index;
-    private final boolean isDefault;
+    @Setter(AccessLevel.PACKAGE) private volatile boolean isDefault;
     private final boolean isOutput;
 
-    public LinuxAudioDevice(ApplicationEventPublisher eventPublisher, int index, String name, String id, boolean isDefault, boolean isOutput) {
+    public LinuxAudioDevice(ApplicationEventPublisher eventPublisher, int index, String name, String id, boolean isDefault, boolean isOutput, float volume, boolean muted) {
         super(eventPublisher, name, id);
         this.index = index;
         this.isDefault = isDefault;
         this.isOutput = isOutput;
         dataflow(DataFlow.dfRender);
+        volume(volume);
+        muted(muted);
     }
 
     public boolean isDefaultOutput() {
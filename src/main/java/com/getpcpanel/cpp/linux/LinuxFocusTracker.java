@@ -0,0 +1,144 @@
+package com.getpcpanel.cpp.linux;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import com.getpcpanel.cpp.linux.LinuxProcessIndex.ProcessEntry;
+import com.getpcpanel.cpp.windows.WindowFocusChangedEvent;
+import com.getpcpanel.spring.ConditionalOnLinux;
+import com.getpcpanel.util.ProcessHelper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import one.util.streamex.StreamEx;
+
+/**
+ * Keeps track of the focused application by following the first available {@link ActiveWindowSource}. The binary of the focused
+ * process is resolved through the {@link LinuxProcessIndex} once per focus change and published as {@link WindowFocusChangedEvent}. When no source is available every
+ * {@link #current()} call falls back to asking `xdotool`.
+ */
+@Log4j2
+@Service
+@ConditionalOnLinux
+@RequiredArgsConstructor
+public class LinuxFocusTracker extends Thread {
+    private static final long RESTART_DELAY_MS = 5000;
+    private final List<ActiveWindowSource> sources;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProcessHelper processHelper;
+    private final LinuxProcessIndex processIndex;
+    private volatile Focus focus = Focus.NONE;
+    private volatile boolean tracking;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void init() {
+        setName("Focus tracker");
+        setDaemon(true);
+        start();
+    }
+
+    @PreDestroy
+    public void deInit() {
+        running = false;
+        interrupt();
+    }
+
+    @Override
+    public void run() {
+        var source = StreamEx.of(sources).findFirst(ActiveWindowSource::isAvailable).orElse(null);
+        if (source == null) {
+            log.info("No active window source available, focus is determined on every use");
+            return;
+        }
+        log.info("Following active window with {}", source.name());
+        while (running) {
+            try {
+                tracking = true;
+                source.listen(this::onFocusPid);
+            } catch (IOException e) {
+                log.warn("Active window source {} failed", source.name(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                tracking = false;
+            }
+            try {
+                Thread.sleep(RESTART_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the focused process, without forking any process while a source is being followed
+     */
+    public Focus current() {
+        if (tracking) {
+            return focus;
+        }
+        var pid = xdotoolActivePid();
+        return pid == focus.pid() ? focus : new Focus(pid, binaryOf(pid));
+    }
+
+    void onFocusPid(int pid) {
+        var previous = focus;
+        if (previous.pid() == pid) {
+            return;
+        }
+        var current = new Focus(pid, binaryOf(pid));
+        focus = current;
+        log.trace("Focus changed to {}", current);
+        if (current.binary() != null && !Objects.equals(previous.binary(), current.binary())) {
+            eventPublisher.publishEvent(new WindowFocusChangedEvent(current.binary()));
+        }
+    }
+
+    private @Nullable String binaryOf(int pid) {
+        return processIndex.get(pid).map(ProcessEntry::name).orElse(null);
+    }
+
+    private int xdotoolActivePid() {
+        try {
+            var activeWindow = lineFrom("xdotool", "getactivewindow");
+            if (StringUtils.isBlank(activeWindow)) {
+                return -1;
+            }
+            return NumberUtils.toInt(lineFrom("xdotool", "getwindowpid", activeWindow), -1);
+        } catch (Exception e) {
+            log.error("Unable to run process", e);
+        }
+        return -1;
+    }
+
+    private @Nullable String lineFrom(String... cmd) throws IOException {
+        var lines = IOUtils.readLines(processHelper.builder(cmd).start().getInputStream(), Charset.defaultCharset());
+        if (lines.isEmpty()) {
+            return null;
+        }
+        return lines.get(0);
+    }
+
+    /**
+     * @param pid    pid of the focused process, -1 when unknown
+     * @param binary name of the binary of the focused process, null when unknown
+     */
+    public record Focus(int pid, @Nullable String binary) {
+        static final Focus NONE = new Focus(-1, null);
+    }
+}
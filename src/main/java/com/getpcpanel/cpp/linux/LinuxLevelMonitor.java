@@ -0,0 +1,198 @@
+package com.getpcpanel.cpp.linux;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.getpcpanel.commands.Commands;
+import com.getpcpanel.commands.command.CommandVolumeDevice;
+import com.getpcpanel.commands.command.CommandVolumeFocus;
+import com.getpcpanel.commands.command.CommandVolumeProcess;
+import com.getpcpanel.cpp.ISndCtrl;
+import com.getpcpanel.device.DeviceType;
+import com.getpcpanel.hid.AudioLevelSource;
+import com.getpcpanel.profile.SaveService;
+import com.getpcpanel.spring.ConditionalOnLinux;
+import com.getpcpanel.util.ProcessHelper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import one.util.streamex.StreamEx;
+
+/**
+ * Captures the audio of what the dials and sliders control with `parec`, but only for the controls of which the lighting asks for
+ * the level. A device is captured from its monitor source and a session with a monitor stream of its sink input, at a low rate in
+ * mono as only the level is needed. Controls that follow the same device or session share one capture.
+ * <p>
+ * Asking for a level is a lock-free lookup; resolving which captures a control needs, (re)starting them and stopping captures that
+ * are no longer asked for is done once a second. A stream for which {@code parec} keeps exiting right away is not captured again until it is
+ * no longer asked for.
+ */
+@Log4j2
+@Service
+@ConditionalOnLinux
+@RequiredArgsConstructor
+public class LinuxLevelMonitor implements AudioLevelSource {
+    static final int RATE = 8000;
+    private static final int WINDOW_SAMPLES = RATE / 20;
+    private static final long IDLE_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final long IMMEDIATE_EXIT_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final int MAX_IMMEDIATE_EXITS = 5;
+    private final SaveService saveService;
+    private final ISndCtrl sndCtrl;
+    private final ProcessHelper processHelper;
+    private final Map<String, AtomicReferenceArray<Watch>> watches = new ConcurrentHashMap<>();
+    private final Map<String, LevelCapture> captures = new ConcurrentHashMap<>();
+    // Only used by refresh
+    private final Map<String, Integer> immediateExits = new HashMap<>();
+    private volatile boolean parecMissing;
+
+    @Override
+    public int level(String serialNumber, int analog) {
+        var controls = watches.computeIfAbsent(serialNumber, s -> new AtomicReferenceArray<>(DeviceType.PCPANEL_PRO.getAnalogCount()));
+        if (analog < 0 || analog >= controls.length()) {
+            return 0;
+        }
+        var watch = controls.get(analog);
+        if (watch == null) {
+            controls.compareAndSet(analog, null, new Watch());
+            watch = controls.get(analog);
+        }
+        watch.lastAsked = System.nanoTime();
+        var result = 0;
+        for (var capture : watch.captures) {
+            result = Math.max(result, capture.meter().peakLevel());
+        }
+        return result;
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public void refresh() {
+        if (watches.isEmpty() || parecMissing) {
+            return;
+        }
+        for (var it = captures.values().iterator(); it.hasNext(); ) {
+            var capture = it.next();
+            if (!capture.isRunning()) {
+                it.remove();
+                ended(capture);
+            }
+        }
+        var now = System.nanoTime();
+        var used = new HashSet<String>();
+        watches.forEach((serialNumber, controls) -> {
+            for (var analog = 0; analog < controls.length(); analog++) {
+                var watch = controls.get(analog);
+                if (watch == null) {
+                    continue;
+                }
+                if (now - watch.lastAsked > IDLE_NANOS) {
+                    controls.compareAndSet(analog, watch, null);
+                    continue;
+                }
+                var dial = analog;
+                var targets = targets(saveService.getProfile(serialNumber).map(p -> p.getDialData(dial)).orElse(null));
+                used.addAll(targets);
+                watch.captures = StreamEx.of(targets).map(this::capture).nonNull().toImmutableList();
+            }
+        });
+        immediateExits.keySet().retainAll(used);
+        for (var it = captures.values().iterator(); it.hasNext(); ) {
+            var capture = it.next();
+            if (!used.contains(capture.target())) {
+                log.debug("Stopping capture of {}", capture.target());
+                it.remove();
+                capture.close();
+            }
+        }
+    }
+
+    /**
+     * @return the `parec` arguments of the streams that the control follows
+     */
+    Set<String> targets(@Nullable Commands commands) {
+        var result = new LinkedHashSet<String>();
+        if (commands == null) {
+            return result;
+        }
+        commands.getCommand(CommandVolumeDevice.class).map(cmd -> sndCtrl.defaultDeviceOnEmpty(cmd.getDeviceId())).ifPresent(id -> result.add(deviceTarget(id)));
+        commands.getCommand(CommandVolumeProcess.class).ifPresent(cmd -> cmd.getProcessName().forEach(name -> addSessions(result, name)));
+        commands.getCommand(CommandVolumeFocus.class).ifPresent(cmd -> addSessions(result, sndCtrl.getFocusApplication()));
+        return result;
+    }
+
+    static String deviceTarget(String deviceId) {
+        return StringUtils.startsWith(deviceId, SndCtrlLinux.INPUT_PREFIX)
+                ? "--device=" + StringUtils.removeStart(deviceId, SndCtrlLinux.INPUT_PREFIX)
+                : "--device=" + deviceId + ".monitor";
+    }
+
+    private void addSessions(Set<String> result, @Nullable String nameOrTitle) {
+        if (StringUtils.isBlank(nameOrTitle)) {
+            return;
+        }
+        StreamEx.of(sndCtrl.getAllSessions())
+                .select(LinuxAudioSession.class)
+                .filter(s -> StringUtils.equalsIgnoreCase(s.executable().getName(), nameOrTitle) || StringUtils.equalsIgnoreCase(s.title(), nameOrTitle))
+                .forEach(s -> result.add("--monitor-stream=" + s.index()));
+    }
+
+    private void ended(LevelCapture capture) {
+        if (capture.ranNanos() >= IMMEDIATE_EXIT_NANOS) {
+            immediateExits.remove(capture.target());
+            return;
+        }
+        var exits = immediateExits.merge(capture.target(), 1, Integer::sum);
+        if (exits == MAX_IMMEDIATE_EXITS) {
+            log.warn("parec keeps exiting for {}, not capturing it until it is no longer used", capture.target());
+        }
+    }
+
+    private @Nullable LevelCapture capture(String target) {
+        var existing = captures.get(target);
+        if (existing != null) {
+            return existing;
+        }
+        if (immediateExits.getOrDefault(target, 0) >= MAX_IMMEDIATE_EXITS) {
+            return null;
+        }
+        try {
+            var process = processHelper.builder("parec", "--raw", "--format=s16le", "--channels=1", "--rate=" + RATE, "--latency-msec=20", target)
+                                       .redirectError(ProcessBuilder.Redirect.DISCARD)
+                                       .start();
+            var capture = new LevelCapture(target, process.getInputStream(), process, new PeakMeter(WINDOW_SAMPLES)).start();
+            log.debug("Started capture of {}", target);
+            captures.put(target, capture);
+            return capture;
+        } catch (IOException e) {
+            log.warn("Unable to start parec, VU meter lighting is not available: {}", e.getMessage());
+            parecMissing = true;
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        captures.values().forEach(LevelCapture::close);
+        captures.clear();
+    }
+
+    private static final class Watch {
+        private volatile long lastAsked;
+        private volatile List<LevelCapture> captures = List.of();
+    }
+}
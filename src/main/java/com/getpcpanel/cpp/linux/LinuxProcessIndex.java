@@ -0,0 +1,265 @@
+package com.getpcpanel.cpp.linux;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.getpcpanel.spring.ConditionalOnLinux;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import one.util.streamex.StreamEx;
+
+/**
+ * Index of the running processes read from `/proc`. A refresh only lists the pid directories: new pids are read, gone pids are
+ * removed and a bounded number of known pids have their start time checked, so the cost of a refresh depends on the number of
+ * process changes instead of the number of processes. A pid that was reused is detected by its start time, every pid is checked
+ * again right before it is used.
+ */
+@Log4j2
+@Service
+@ConditionalOnLinux
+@RequiredArgsConstructor
+public class LinuxProcessIndex {
+    private static final int VALIDATE_PER_REFRESH = 256;
+    @Value("${process-index.proc-root:/proc}") private final String procRoot;
+    @Value("${process-index.min-refresh-interval-ms:2000}") private final long minRefreshIntervalMs;
+    @GuardedBy("this") private final Map<Integer, ProcessEntry> processes = new HashMap<>();
+    @GuardedBy("this") private int validateCursor;
+    @GuardedBy("this") private long lastRefreshNanos;
+    @GuardedBy("this") private boolean refreshed;
+    @GuardedBy("this") private long refreshes;
+    @GuardedBy("this") private long lastRefreshMicros;
+    @GuardedBy("this") private long maxRefreshMicros;
+    private volatile List<ProcessEntry> snapshot = List.of();
+    private volatile boolean snapshotDirty;
+
+    /**
+     * @return all processes, refreshed when the last refresh is older than `process-index.min-refresh-interval-ms`
+     */
+    public List<ProcessEntry> processes() {
+        refreshIfStale();
+        if (snapshotDirty) {
+            synchronized (this) {
+                if (snapshotDirty) {
+                    snapshot = List.copyOf(processes.values());
+                    snapshotDirty = false;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the process with the pid, checked to still be the same process (and re-read when the pid was reused)
+     */
+    public synchronized Optional<ProcessEntry> get(int pid) {
+        if (pid <= 0) {
+            return Optional.empty();
+        }
+        var startTime = readStartTime(pid);
+        var entry = processes.get(pid);
+        if (startTime < 0) {
+            if (entry != null) {
+                processes.remove(pid);
+                snapshotDirty = true;
+            }
+            return Optional.empty();
+        }
+        if (entry == null || entry.startTime() != startTime) {
+            entry = read(pid, startTime);
+            processes.put(pid, entry);
+            snapshotDirty = true;
+        }
+        return Optional.of(entry);
+    }
+
+    /**
+     * Ends all processes of which the command name matches the pattern, the same processes `pkill pattern` ends.
+     *
+     * @return the number of processes that were asked to end
+     */
+    public int kill(String pattern) {
+        var matcher = commandMatcher(pattern);
+        return (int) StreamEx.of(processes())
+                             .filter(matcher)
+                             .filter(p -> kill(p.pid()))
+                             .count();
+    }
+
+    /**
+     * Like pkill the pattern is a regular expression that is searched for in the (15 character) command name, a pattern that is not
+     * a valid expression is searched for as is.
+     */
+    static Predicate<ProcessEntry> commandMatcher(String pattern) {
+        Pattern compiled;
+        try {
+            compiled = Pattern.compile(pattern);
+        } catch (PatternSyntaxException e) {
+            compiled = Pattern.compile(Pattern.quote(pattern));
+        }
+        var result = compiled;
+        return p -> p.command() != null && result.matcher(p.command()).find();
+    }
+
+    /**
+     * Ends the process with the pid (SIGTERM), after checking the pid was not reused since it was last seen.
+     */
+    public boolean kill(int pid) {
+        ProcessEntry expected;
+        synchronized (this) {
+            expected = processes.get(pid);
+        }
+        var current = get(pid);
+        if (current.isEmpty() || (expected != null && expected.startTime() != current.get().startTime())) {
+            log.debug("Not killing {}, process is gone or the pid was reused", pid);
+            return false;
+        }
+        return ProcessHandle.of(pid).map(ProcessHandle::destroy).orElse(false);
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(processes.size(), refreshes, lastRefreshMicros, maxRefreshMicros);
+    }
+
+    private synchronized void refreshIfStale() {
+        if (refreshed && System.nanoTime() - lastRefreshNanos < minRefreshIntervalMs * 1_000_000L) {
+            return;
+        }
+        refresh();
+    }
+
+    synchronized void refresh() {
+        var start = System.nanoTime();
+        var names = new File(procRoot).list();
+        if (names == null) {
+            return;
+        }
+        var seen = new HashSet<Integer>(names.length * 2);
+        for (var name : names) {
+            var pid = NumberUtils.toInt(name, -1);
+            if (pid <= 0) {
+                continue;
+            }
+            seen.add(pid);
+            if (!processes.containsKey(pid)) {
+                var startTime = readStartTime(pid);
+                if (startTime >= 0) {
+                    processes.put(pid, read(pid, startTime));
+                    snapshotDirty = true;
+                }
+            }
+        }
+        if (processes.keySet().retainAll(seen)) {
+            snapshotDirty = true;
+        }
+        validate(names);
+
+        lastRefreshNanos = System.nanoTime();
+        refreshed = true;
+        refreshes++;
+        lastRefreshMicros = (lastRefreshNanos - start) / 1000;
+        maxRefreshMicros = Math.max(maxRefreshMicros, lastRefreshMicros);
+        log.trace("Refreshed {} processes in {}us", processes.size(), lastRefreshMicros);
+    }
+
+    /**
+     * Checks the start time of the next {@link #VALIDATE_PER_REFRESH} known processes to detect pids that were reused between two
+     * refreshes.
+     */
+    @GuardedBy("this")
+    private void validate(String[] names) {
+        var count = Math.min(VALIDATE_PER_REFRESH, names.length);
+        for (var i = 0; i < count; i++) {
+            validateCursor = (validateCursor + 1) % names.length;
+            var pid = NumberUtils.toInt(names[validateCursor], -1);
+            var entry = processes.get(pid);
+            if (entry == null) {
+                continue;
+            }
+            var startTime = readStartTime(pid);
+            if (startTime < 0) {
+                processes.remove(pid);
+                snapshotDirty = true;
+            } else if (startTime != entry.startTime()) {
+                processes.put(pid, read(pid, startTime));
+                snapshotDirty = true;
+            }
+        }
+    }
+
+    private ProcessEntry read(int pid, long startTime) {
+        var dir = Path.of(procRoot, String.valueOf(pid));
+        File exe = null;
+        try {
+            var link = Files.readSymbolicLink(dir.resolve("exe")).toString();
+            exe = new File(StringUtils.removeEnd(link, " (deleted)"));
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            // Kernel threads and processes of other users have no readable executable
+        }
+        String command = null;
+        try {
+            command = StringUtils.trimToNull(Files.readString(dir.resolve("comm")));
+        } catch (IOException e) {
+            // Process ended while reading
+        }
+        return new ProcessEntry(pid, startTime, exe, command);
+    }
+
+    /**
+     * @return the start time (in clock ticks after boot) from `/proc/[pid]/stat`, -1 when the process does not exist
+     */
+    private long readStartTime(int pid) {
+        try {
+            return parseStartTime(Files.readString(Path.of(procRoot, String.valueOf(pid), "stat")));
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The command name in the stat line is between parentheses and can contain spaces, the start time is the 22nd field.
+     */
+    static long parseStartTime(String stat) {
+        var commandEnd = stat.lastIndexOf(')');
+        if (commandEnd < 0) {
+            return -1;
+        }
+        var fields = StringUtils.split(stat.substring(commandEnd + 1));
+        return fields.length > 19 ? NumberUtils.toLong(fields[19], -1) : -1;
+    }
+
+    /**
+     * @param startTime start time of the process, a different start time for the same pid means the pid was reused
+     * @param exe       the executable, null when it cannot be read
+     * @param command   the (possibly truncated) command name
+     */
+    public record ProcessEntry(int pid, long startTime, @Nullable File exe, @Nullable String command) {
+        /**
+         * @return the name of the binary (which is what PulseAudio uses as `application.process.binary`) or the command name
+         */
+        public @Nullable String name() {
+            return exe != null ? exe.getName() : command;
+        }
+    }
+
+    public record Stats(int processes, long refreshes, long lastRefreshMicros, long maxRefreshMicros) {
+    }
+}
@@ -0,0 +1,110 @@
+package com.getpcpanel.cpp.linux;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+
+import one.util.streamex.EntryStream;
+import one.util.streamex.StreamEx;
+
+/**
+ * Immutable snapshot of the Linux audio sessions indexed by lower-cased binary name, lower-cased title and pid. A new snapshot is built
+ * whenever the sessions change so lookups on every knob event don't need a lock or a scan over all sessions. Sessions without a known
+ * pid are not indexed by pid.
+ */
+final class LinuxSessionIndex {
+    static final LinuxSessionIndex EMPTY = new LinuxSessionIndex(List.of(), Map.of(), Map.of(), Map.of());
+
+    private final List<LinuxAudioSession> all;
+    private final Map<String, List<LinuxAudioSession>> byName;
+    private final Map<String, List<LinuxAudioSession>> byTitle;
+    private final Map<Integer, List<LinuxAudioSession>> byPid;
+
+    private LinuxSessionIndex(List<LinuxAudioSession> all, Map<String, List<LinuxAudioSession>> byName, Map<String, List<LinuxAudioSession>> byTitle,
+            Map<Integer, List<LinuxAudioSession>> byPid) {
+        this.all = all;
+        this.byName = byName;
+        this.byTitle = byTitle;
+        this.byPid = byPid;
+    }
+
+    static LinuxSessionIndex of(Collection<LinuxAudioSession> sessions) {
+        var all = List.copyOf(sessions);
+        var byName = new HashMap<String, List<LinuxAudioSession>>();
+        var byTitle = new HashMap<String, List<LinuxAudioSession>>();
+        var byPid = new HashMap<Integer, List<LinuxAudioSession>>();
+        for (var session : all) {
+            add(byName, StringUtils.lowerCase(session.executable().getName()), session);
+            add(byTitle, StringUtils.lowerCase(session.title()), session);
+            if (session.pid() > 0) {
+                add(byPid, session.pid(), session);
+            }
+        }
+        return new LinuxSessionIndex(all, freeze(byName), freeze(byTitle), freeze(byPid));
+    }
+
+    List<LinuxAudioSession> all() {
+        return all;
+    }
+
+    /**
+     * @return the sessions of which the binary name or the title matches (ignoring case), none for a blank name
+     */
+    Set<LinuxAudioSession> byNameOrTitle(@Nullable String nameOrTitle) {
+        if (StringUtils.isBlank(nameOrTitle)) {
+            return Set.of();
+        }
+        var lc = StringUtils.lowerCase(nameOrTitle);
+        var byNameResult = byName.getOrDefault(lc, List.of());
+        var byTitleResult = byTitle.getOrDefault(lc, List.of());
+        if (byTitleResult.isEmpty()) {
+            return Set.copyOf(byNameResult);
+        }
+        var result = new LinkedHashSet<>(byNameResult);
+        result.addAll(byTitleResult);
+        return result;
+    }
+
+    List<LinuxAudioSession> byPid(int pid) {
+        return byPid.getOrDefault(pid, List.of());
+    }
+
+    /**
+     * @return the sessions of the focused process, or of its binary when the process itself plays no audio. None when the focus is
+     * unknown.
+     */
+    Collection<LinuxAudioSession> byFocus(LinuxFocusTracker.Focus focus) {
+        if (focus.pid() <= 0) {
+            return List.of();
+        }
+        var result = byPid(focus.pid());
+        if (result.isEmpty() && focus.binary() != null) {
+            // Audio is often played by a child process of the focused window, match on the binary instead
+            return byNameOrTitle(focus.binary());
+        }
+        return result;
+    }
+
+    private static <K> void add(Map<K, List<LinuxAudioSession>> map, @Nullable K key, LinuxAudioSession session) {
+        if (key != null) {
+            map.computeIfAbsent(key, k -> new ArrayList<>()).add(session);
+        }
+    }
+
+    private static <K> Map<K, List<LinuxAudioSession>> freeze(Map<K, List<LinuxAudioSession>> map) {
+        return EntryStream.of(map).mapValues(List::copyOf).toImmutableMap();
+    }
+
+    @Override
+    public String toString() {
+        return StreamEx.of(all).joining(", ", "[", "]");
+    }
+}
@@ -0,0 +1,98 @@
+package com.getpcpanel.cpp.linux;
+
+/**
+ * Peak and RMS of the last window of a signed 16-bit little-endian mono PCM stream, kept in a primitive ring buffer. The RMS is
+ * updated incrementally per sample, the peak is a scan over the window once per chunk.
+ * <p>
+ * Only one thread may {@link #accept} samples, the results are published in volatile fields so the lighting can read them every
+ * frame without locking.
+ */
+final class PeakMeter {
+    static final int MAX_LEVEL = 255;
+    /** Levels are shown on a decibel scale, anything below this is silence */
+    private static final double FLOOR_DB = -60;
+    private static final double FULL_SCALE = 32768;
+    private final short[] window;
+    private int pos;
+    private int filled;
+    private long sumOfSquares;
+    private int pendingLowByte = -1;
+    private volatile int peak;
+    private volatile int rms;
+
+    PeakMeter(int windowSamples) {
+        window = new short[windowSamples];
+    }
+
+    /**
+     * Adds the samples of a chunk, a sample that is split over two chunks is kept until the next one.
+     */
+    void accept(byte[] pcm, int length) {
+        var i = 0;
+        if (pendingLowByte >= 0 && length > 0) {
+            add((short) (pendingLowByte | pcm[0] << 8));
+            pendingLowByte = -1;
+            i = 1;
+        }
+        for (; i + 1 < length; i += 2) {
+            add((short) (pcm[i] & 0xff | pcm[i + 1] << 8));
+        }
+        if (i < length) {
+            pendingLowByte = pcm[i] & 0xff;
+        }
+
+        var max = 0;
+        for (var s = 0; s < filled; s++) {
+            max = Math.max(max, Math.abs(window[s]));
+        }
+        peak = max;
+        //noinspection NumericCastThatLosesPrecision
+        rms = filled == 0 ? 0 : (int) Math.sqrt((double) sumOfSquares / filled);
+    }
+
+    private void add(short sample) {
+        var old = window[pos];
+        sumOfSquares += sample * sample - old * old;
+        window[pos] = sample;
+        pos = pos + 1 == window.length ? 0 : pos + 1;
+        if (filled < window.length) {
+            filled++;
+        }
+    }
+
+    /**
+     * Back to silence, for when the stream ended.
+     */
+    void reset() {
+        peak = 0;
+        rms = 0;
+    }
+
+    int peak() {
+        return peak;
+    }
+
+    int rms() {
+        return rms;
+    }
+
+    /**
+     * @return the peak on a decibel scale from 0 at {@value #FLOOR_DB}dB to {@link #MAX_LEVEL} at full scale
+     */
+    int peakLevel() {
+        return toLevel(peak);
+    }
+
+    int rmsLevel() {
+        return toLevel(rms);
+    }
+
+    @SuppressWarnings("NumericCastThatLosesPrecision")
+    static int toLevel(int amplitude) {
+        if (amplitude <= 0) {
+            return 0;
+        }
+        var db = 20 * Math.log10(amplitude / FULL_SCALE);
+        return (int) Math.round(Math.max(0, Math.min(1, (db - FLOOR_DB) / -FLOOR_DB)) * MAX_LEVEL);
+    }
+}
@@ -0,0 +1,55 @@
+package com.getpcpanel.cpp.linux;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.getpcpanel.spring.ConditionalOnLinux;
+import com.getpcpanel.util.ProcessHelper;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Persistent `pw-cli` session for changing node parameters. When the session is not available every command is run as a separate
+ * `pw-cli` process.
+ */
+@Log4j2
+@Service
+@ConditionalOnLinux
+@ConditionalOnProperty(name = SndCtrlPipeWire.BACKEND_PROPERTY, havingValue = SndCtrlPipeWire.BACKEND)
+public class PipeWireControlChannel extends CommandSession {
+    private final ProcessHelper processHelper;
+
+    public PipeWireControlChannel(ProcessHelper processHelper, @Value("${pipewire.control-command:pw-cli}") String controlCommand) {
+        super(processHelper, controlCommand);
+        this.processHelper = processHelper;
+    }
+
+    /**
+     * Sets the `Props` param of a node, for example `{"channelVolumes":[0.125,0.125]}`.
+     */
+    public void setProps(int nodeId, String props) {
+        if (send("set-param " + nodeId + " Props " + props)) {
+            return;
+        }
+        try {
+            processHelper.builder("pw-cli", "set-param", String.valueOf(nodeId), "Props", props).start();
+        } catch (IOException e) {
+            log.error("Unable to set {} on {}", props, nodeId, e);
+        }
+    }
+
+    /**
+     * Changes the configured default sink or source, this is stored by the session manager.
+     */
+    public void setDefault(boolean output, String nodeName) {
+        var key = output ? "default.configured.audio.sink" : "default.configured.audio.source";
+        try {
+            processHelper.builder("pw-metadata", "0", key, "{\"name\":\"" + nodeName.replace("\"", "\\\"") + "\"}", "Spa:String:JSON").start();
+        } catch (IOException e) {
+            log.error("Unable to set {} to {}", key, nodeName, e);
+        }
+    }
+}
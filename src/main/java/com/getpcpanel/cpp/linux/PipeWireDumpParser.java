@@ -0,0 +1,228 @@
+package com.getpcpanel.cpp.linux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import lombok.Builder;
+
+/**
+ * Streaming parser for the output of `pw-dump --monitor`. The first array contains all objects, every following array contains the
+ * objects that changed since. Removed objects are written with `"info": null`. Only the fields that are used by {@link SndCtrlPipeWire}
+ * are read, everything else is skipped without being materialized.
+ */
+final class PipeWireDumpParser {
+    private static final JsonFactory factory = new JsonFactory();
+    static final String TYPE_NODE = "PipeWire:Interface:Node";
+    static final String TYPE_METADATA = "PipeWire:Interface:Metadata";
+    static final Set<String> USED_PROPERTIES = Set.of("media.class", "node.name", "node.description", "application.name", "application.process.binary",
+            "application.process.id", "metadata.name");
+
+    private PipeWireDumpParser() {
+    }
+
+    /**
+     * Reads arrays until the end of the stream, every array is handed to the consumer as soon as it is complete.
+     */
+    static void parse(InputStream in, Consumer<List<PipeWireObject>> consumer) throws IOException {
+        try (var parser = factory.createParser(in)) {
+            JsonToken token;
+            //noinspection NestedAssignment
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                var batch = new ArrayList<PipeWireObject>();
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    batch.add(parseObject(parser));
+                }
+                consumer.accept(batch);
+            }
+        }
+    }
+
+    private static PipeWireObject parseObject(JsonParser parser) throws IOException {
+        var builder = PipeWireObject.builder().id(-1).volume(-1);
+        var props = new HashMap<String, String>();
+        var metadata = new HashMap<String, String>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> builder.id(parser.getValueAsInt(-1));
+                case "type" -> builder.type(parser.getValueAsString());
+                case "info" -> {
+                    if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                        builder.removed(true);
+                    } else {
+                        parseInfo(parser, builder, props);
+                    }
+                }
+                case "props" -> parseProps(parser, props);
+                case "metadata" -> parseMetadata(parser, metadata);
+                default -> parser.skipChildren();
+            }
+        }
+        return builder.props(props).metadata(metadata).build();
+    }
+
+    private static void parseInfo(JsonParser parser, PipeWireObject.PipeWireObjectBuilder builder, Map<String, String> props) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "props" -> parseProps(parser, props);
+                case "params" -> parseParams(parser, builder);
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Reads the first `Props` param, e.g. `"Props":[{"volume":1.0,"mute":false,"channelVolumes":[0.125,0.125],...}]`.
+     */
+    private static void parseParams(JsonParser parser, PipeWireObject.PipeWireObjectBuilder builder) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.getCurrentName();
+            parser.nextToken();
+            if (!"Props".equals(field) || parser.currentToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            var found = false;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                if (found) {
+                    parser.skipChildren();
+                } else {
+                    found = parsePropsParam(parser, builder);
+                }
+            }
+        }
+    }
+
+    private static boolean parsePropsParam(JsonParser parser, PipeWireObject.PipeWireObjectBuilder builder) throws IOException {
+        var found = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "mute" -> builder.mute(parser.getValueAsBoolean());
+                case "channelVolumes" -> {
+                    if (parser.currentToken() != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    var channels = 0;
+                    while (parser.nextToken() == JsonToken.VALUE_NUMBER_FLOAT || parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+                        if (channels == 0) {
+                            builder.volume((float) parser.getValueAsDouble(-1));
+                        }
+                        channels++;
+                    }
+                    builder.channels(channels);
+                    found = true;
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return found;
+    }
+
+    private static void parseProps(JsonParser parser, Map<String, String> props) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.getCurrentName();
+            parser.nextToken();
+            if (USED_PROPERTIES.contains(field)) {
+                props.put(field, parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Reads entries like `{"subject":0,"key":"default.audio.sink","type":"Spa:String:JSON","value":{"name":"alsa_output.pci"}}`, a
+     * null value means the key was removed.
+     */
+    private static void parseMetadata(JsonParser parser, Map<String, String> metadata) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String key = null;
+            String value = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "key" -> key = parser.getValueAsString();
+                    case "value" -> value = parseMetadataValue(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (key != null) {
+                metadata.put(key, value);
+            }
+        }
+    }
+
+    private static @Nullable String parseMetadataValue(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            return parser.getValueAsString();
+        }
+        String name = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.getCurrentName();
+            parser.nextToken();
+            if ("name".equals(field)) {
+                name = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return name;
+    }
+
+    /**
+     * @param volume   the linear volume of the first channel (as set on the node, so the cube of the volume shown to the user), -1 when
+     *                 unknown
+     * @param channels number of channels of the node, 0 when unknown
+     * @param metadata metadata entries of a metadata object, a null value means the entry was removed
+     */
+    @Builder
+    record PipeWireObject(int id, @Nullable String type, boolean removed, Map<String, String> props, float volume, int channels, @Nullable Boolean mute,
+                          Map<String, String> metadata) {
+        boolean isNode() {
+            return TYPE_NODE.equals(type);
+        }
+
+        boolean isDefaultMetadata() {
+            return TYPE_METADATA.equals(type) && "default".equals(props.get("metadata.name"));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.getpcpanel.cpp.linux;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.getpcpanel.cpp.linux.PipeWireDumpParser.PipeWireObject;
+import com.getpcpanel.spring.ConditionalOnLinux;
+import com.getpcpanel.util.ProcessHelper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Follows the PipeWire graph with a single `pw-dump --monitor` process and publishes every batch of changed objects as a
+ * {@link PipeWireObjectsEvent}.
+ */
+@Log4j2
+@Component
+@ConditionalOnLinux
+@ConditionalOnProperty(name = SndCtrlPipeWire.BACKEND_PROPERTY, havingValue = SndCtrlPipeWire.BACKEND)
+@RequiredArgsConstructor
+public class PipeWireMonitor extends Thread {
+    private static final long RESTART_DELAY_MS = 2000;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProcessHelper processHelper;
+    @Value("${pipewire.dump-command:pw-dump --monitor --no-colors}") private final String dumpCommand;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong objects = new AtomicLong();
+
+    private volatile boolean running = true;
+    private volatile @Nullable Process process;
+
+    @PostConstruct
+    public void init() {
+        setName("PipeWire monitor");
+        setDaemon(true);
+        start();
+    }
+
+    @PreDestroy
+    public void deInit() {
+        running = false;
+        var current = process;
+        if (current != null) {
+            current.destroy();
+        }
+        interrupt();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            Process started = null;
+            try {
+                started = processHelper.builder(StringUtils.split(dumpCommand)).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+                process = started;
+                if (!running) {
+                    break; // Stopped while starting
+                }
+                var first = new boolean[] { true };
+                PipeWireDumpParser.parse(started.getInputStream(), batch -> {
+                    // The first batch after (re)starting is the complete graph
+                    publish(batch, first[0]);
+                    first[0] = false;
+                });
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("{} failed", dumpCommand, e);
+                }
+            } finally {
+                if (started != null) {
+                    started.destroy();
+                }
+                process = null;
+            }
+            try {
+                Thread.sleep(RESTART_DELAY_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void publish(List<PipeWireObject> batch, boolean complete) {
+        batches.incrementAndGet();
+        objects.addAndGet(batch.size());
+        eventPublisher.publishEvent(new PipeWireObjectsEvent(batch, complete));
+    }
+
+    String getDebugOutput() {
+        return dumpCommand + ": " + batches.get() + " batches, " + objects.get() + " objects";
+    }
+
+    /**
+     * @param complete true when the objects are the complete graph, objects that are not in it are gone
+     */
+    public record PipeWireObjectsEvent(List<PipeWireObject> objects, boolean complete) {
+    }
+}
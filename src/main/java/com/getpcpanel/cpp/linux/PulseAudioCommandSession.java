@@ -0,0 +1,32 @@
+package com.getpcpanel.cpp.linux;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.getpcpanel.spring.ConditionalOnLinux;
+import com.getpcpanel.util.ProcessHelper;
+
+/**
+ * Long-lived command session to PulseAudio (`pacmd` by default) instead of forking a new `pactl` for every volume change. When
+ * `pacmd` cannot be started (for example on PipeWire where `pacmd` is not available) {@link #send(String)} returns false and the
+ * caller should fall back to `pactl`.
+ * <p>
+ * The command is configurable with `pulseaudio.session-command`.
+ */
+@Service
+@ConditionalOnLinux
+public class PulseAudioCommandSession extends CommandSession {
+    public PulseAudioCommandSession(ProcessHelper processHelper, @Value("${pulseaudio.session-command:pacmd}") String sessionCommand) {
+        super(processHelper, sessionCommand);
+    }
+
+    /**
+     * pacmd only writes its welcome line and prompts when a command succeeds, anything else is the reason it failed.
+     */
+    @Override
+    protected boolean isRejection(String line) {
+        var output = StringUtils.removeStart(line.strip(), ">>>").strip();
+        return !output.isEmpty() && !output.startsWith("Welcome to PulseAudio");
+    }
+}
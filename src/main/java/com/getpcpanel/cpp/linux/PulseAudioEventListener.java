@@ -5,12 +5,15 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.regex.Pattern;
 
 import org.apache.commons.collections4.queue.CircularFifoQueue;
-import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
+import com.getpcpanel.cpp.EventType;
 import com.getpcpanel.spring.ConditionalOnLinux;
 import com.getpcpanel.util.ProcessHelper;
 
@@ -22,8 +25,10 @@ import lombok.extern.log4j.Log4j2;
 @Log4j2
 @Component
 @ConditionalOnLinux
+@ConditionalOnProperty(name = SndCtrlPipeWire.BACKEND_PROPERTY, havingValue = SndCtrlLinux.BACKEND, matchIfMissing = true)
 @RequiredArgsConstructor
 public class PulseAudioEventListener extends Thread {
+    private static final Pattern eventPattern = Pattern.compile("Event '(new|change|remove)' on ([a-z-]+) #(\\d+)"); // 1: type, 2: facility, 3: index
     private final ApplicationEventPublisher eventPublisher;
     private final ProcessHelper processHelper;
     private final CircularFifoQueue<String> latestEvents = new CircularFifoQueue<>(50);
@@ -48,6 +53,8 @@ public class PulseAudioEventListener extends Thread {
             try {
                 var process = processHelper.builder("pactl", "subscribe").start();
                 var reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+                // Events might have been missed while (re)connecting, let the model check everything
+                eventPublisher.publishEvent(new LinuxServerChangedEvent());
 
                 var dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
                 String line;
@@ -66,18 +73,36 @@ public class PulseAudioEventListener extends Thread {
         return "pactl subscribe:\n" + String.join("\n", latestEvents);
     }
 
-    private void checkTrigger(String line) {
-        if (StringUtils.containsIgnoreCase(line, "Event 'new' on sink-input") || StringUtils.containsIgnoreCase(line, "Event 'remove' on sink-input")) {
-            eventPublisher.publishEvent(new LinuxSessionChangedEvent());
+    void checkTrigger(String line) {
+        var matcher = eventPattern.matcher(line);
+        if (!matcher.find()) {
+            return;
         }
-        if (StringUtils.containsIgnoreCase(line, "Event 'new' on sink") || StringUtils.containsIgnoreCase(line, "Event 'remove' on sink")) {
-            eventPublisher.publishEvent(new LinuxDeviceChangedEvent());
+        var type = switch (matcher.group(1)) {
+            case "new" -> EventType.ADDED;
+            case "remove" -> EventType.REMOVED;
+            default -> EventType.CHANGED;
+        };
+        var index = NumberUtils.toInt(matcher.group(3), -1);
+        switch (matcher.group(2)) {
+            case "sink-input" -> eventPublisher.publishEvent(new LinuxSessionChangedEvent(type, index));
+            case "sink" -> eventPublisher.publishEvent(new LinuxDeviceChangedEvent(type, true, index));
+            case "source" -> eventPublisher.publishEvent(new LinuxDeviceChangedEvent(type, false, index));
+            case "server" -> eventPublisher.publishEvent(new LinuxServerChangedEvent());
+            default -> {
+            }
         }
     }
 
-    public static class LinuxDeviceChangedEvent {
+    public record LinuxDeviceChangedEvent(EventType type, boolean output, int index) {
+    }
+
+    public record LinuxSessionChangedEvent(EventType type, int index) {
     }
 
-    public static class LinuxSessionChangedEvent {
+    /**
+     * Default devices changed or the subscription was (re)started.
+     */
+    public record LinuxServerChangedEvent() {
     }
 }
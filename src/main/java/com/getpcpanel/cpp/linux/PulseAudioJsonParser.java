@@ -0,0 +1,107 @@
+package com.getpcpanel.cpp.linux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.getpcpanel.cpp.linux.PulseAudioWrapper.InOutput;
+import com.getpcpanel.cpp.linux.PulseAudioWrapper.PulseAudioTarget;
+
+/**
+ * Streaming parser for the output of `pactl -f json list ...`. Only the fields that are used by {@link SndCtrlLinux} are read, everything
+ * else is skipped without being materialized.
+ */
+final class PulseAudioJsonParser {
+    private static final JsonFactory factory = new JsonFactory();
+    static final Set<String> USED_PROPERTIES = Set.of("application.process.id", "application.process.binary", "application.name");
+
+    private PulseAudioJsonParser() {
+    }
+
+    static List<PulseAudioTarget> parse(InputStream in, InOutput type) throws IOException {
+        var result = new ArrayList<PulseAudioTarget>();
+        try (var parser = factory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return result;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                result.add(parseTarget(parser, type));
+            }
+        }
+        return result;
+    }
+
+    private static PulseAudioTarget parseTarget(JsonParser parser, InOutput type) throws IOException {
+        var builder = PulseAudioTarget.builder().type(type).index(-1);
+        var metas = new HashMap<String, String>();
+        var properties = new HashMap<String, String>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "index" -> builder.index(parser.getValueAsInt(-1));
+                case "name" -> metas.put("Name", parser.getValueAsString());
+                case "description" -> metas.put("Description", parser.getValueAsString());
+                case "mute" -> builder.muted(parser.getValueAsBoolean());
+                case "volume" -> builder.volume(parseVolume(parser));
+                case "properties" -> parseProperties(parser, properties);
+                default -> parser.skipChildren();
+            }
+        }
+        return builder.metas(metas).properties(properties).build();
+    }
+
+    /**
+     * Reads the volume of the first channel, e.g. `"front-left":{"value":65536,"value_percent":"100%","db":"0.00 dB"}`.
+     */
+    private static float parseVolume(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return 0f;
+        }
+        var result = -1f;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            if (result >= 0 || parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var field = parser.getCurrentName();
+                parser.nextToken();
+                if ("value_percent".equals(field)) {
+                    result = NumberUtils.toInt(StringUtils.removeEnd(StringUtils.trim(parser.getValueAsString()), "%")) / 100f;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return Math.max(result, 0f);
+    }
+
+    private static void parseProperties(JsonParser parser, Map<String, String> properties) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.getCurrentName();
+            parser.nextToken();
+            if (USED_PROPERTIES.contains(field)) {
+                properties.put(field, parser.getValueAsString());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.getpcpanel.cpp.linux;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -8,6 +9,7 @@ import java.util.Map;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -32,17 +34,38 @@ public class PulseAudioWrapper {
     public static final int NO_OP_IDX = -1;
     public static final int DEFAULT_DEVICE = -2;
     private static final Pattern pactlFirstLine = Pattern.compile("(.*) #(\\d+)");
+    private static final Pattern volumePercentage = Pattern.compile("(\\d+)%");
+    private static final int PA_VOLUME_NORM = 0x10000;
     private final ProcessHelper processHelper;
+    private final PulseAudioCommandSession session;
+    @Nullable private volatile Boolean jsonSupported;
 
     public List<PulseAudioTarget> getDevices() {
         return StreamEx.of(execAndParse(InOutput.output)).append(execAndParse(InOutput.input)).toList();
     }
 
+    /**
+     * @return the names of the default sink and source, values can be null when unknown
+     */
+    public Defaults getDefaults() {
+        var info = new HashMap<String, String>();
+        for (var line : runAndRead(processHelper.builder("pactl", "info"))) {
+            var parts = line.split(":", 2);
+            if (parts.length > 1) {
+                info.put(StringUtils.trimToEmpty(parts[0]), StringUtils.trimToEmpty(parts[1]));
+            }
+        }
+        return new Defaults(info.get("Default Sink"), info.get("Default Source"));
+    }
+
     public void setDeviceVolume(boolean output, int idx, float volume) {
         if (idx == NO_OP_IDX) {
             return;
         }
         var target = output ? "set-sink-volume" : "set-source-volume";
+        if (sessionCommand(target, idxOrDefaultDevice(idx), toPaVolume(volume))) {
+            return;
+        }
         //noinspection NumericCastThatLosesPrecision
         pactl(target, idxOrDefaultDevice(idx), (int) (volume * 100) + "%");
     }
@@ -52,11 +75,17 @@ public class PulseAudioWrapper {
             return;
         }
         var target = output ? "set-sink-mute" : "set-source-mute";
+        if (type != MuteType.toggle && sessionCommand(target, idxOrDefaultDevice(idx), muteTypeToMute(type))) {
+            return;
+        }
         pactl(target, idxOrDefaultDevice(idx), muteTypeToMute(type));
     }
 
     public void setDefaultDevice(boolean output, int index) {
         var target = output ? "set-default-sink" : "set-default-source";
+        if (sessionCommand(target, String.valueOf(index))) {
+            return;
+        }
         pactl(target, String.valueOf(index));
     }
 
@@ -65,17 +94,55 @@ public class PulseAudioWrapper {
     }
 
     public void setSessionVolume(int index, float volume) {
+        if (sessionCommand("set-sink-input-volume", String.valueOf(index), toPaVolume(volume))) {
+            return;
+        }
         //noinspection NumericCastThatLosesPrecision
         pactl("set-sink-input-volume", String.valueOf(index), (int) (volume * 100) + "%");
     }
 
     public void muteSession(int index, MuteType mute) {
+        if (mute != MuteType.toggle && sessionCommand("set-sink-input-mute", String.valueOf(index), muteTypeToMute(mute))) {
+            return;
+        }
         pactl("set-sink-input-mute", String.valueOf(index), muteTypeToMute(mute));
     }
 
     public List<PulseAudioTarget> execAndParse(InOutput type) {
+        if (isJsonSupported()) {
+            try {
+                return execAndParseJson(type);
+            } catch (IOException e) {
+                log.warn("Unable to parse json output of pactl, falling back to text output", e);
+                jsonSupported = false;
+            }
+        }
+        return parseLines(runAndRead(processHelper.builder("pactl", "list", type.pulseType)), type);
+    }
+
+    private List<PulseAudioTarget> execAndParseJson(InOutput type) throws IOException {
+        var process = processHelper.builder("pactl", "-f", "json", "list", type.pulseType).start();
+        try (var in = process.getInputStream()) {
+            return PulseAudioJsonParser.parse(in, type);
+        }
+    }
+
+    /**
+     * pactl supports json output since version 16, check once if this version supports it.
+     */
+    private boolean isJsonSupported() {
+        var result = jsonSupported;
+        if (result == null) {
+            var output = String.join("", runAndRead(processHelper.builder("pactl", "-f", "json", "info")));
+            result = StringUtils.startsWith(StringUtils.trim(output), "{");
+            log.info("pactl json output supported: {}", result);
+            jsonSupported = result;
+        }
+        return result;
+    }
+
+    static List<PulseAudioTarget> parseLines(List<String> cmdOutput, InOutput type) {
         var ret = new ArrayList<PulseAudioTarget>();
-        var cmdOutput = runAndRead(processHelper.builder("pactl", "list", type.pulseType));
 
         PulseAudioTarget.PulseAudioTargetBuilder paTarget = null;
         var properties = new HashMap<String, String>();
@@ -85,10 +152,11 @@ public class PulseAudioWrapper {
         for (var fullLine : cmdOutput) {
             var line = StringUtils.trimToEmpty(fullLine);
 
+            // Only the (not indented) first line of an object has the index
             var firstLineMatcher = pactlFirstLine.matcher(line);
-            if (firstLineMatcher.find()) {
+            if (!fullLine.isEmpty() && !Character.isWhitespace(fullLine.charAt(0)) && firstLineMatcher.find()) {
                 if (paTarget != null) {
-                    ret.add(paTarget.properties(properties).metas(metas).build());
+                    ret.add(withState(paTarget, metas).properties(properties).metas(metas).build());
                 }
                 paTarget = PulseAudioTarget.builder().index(NumberUtils.toInt(firstLineMatcher.group(2), -1)).type(type);
                 properties = new HashMap<>();
@@ -100,7 +168,7 @@ public class PulseAudioWrapper {
                 continue;
 
             if (readingProperties && line.contains("=")) {
-                var parts = line.split("=");
+                var parts = line.split("=", 2);
                 properties.put(StringUtils.trimToEmpty(parts[0]), StringUtils.strip(StringUtils.trimToEmpty(parts[1]), "\""));
             } else if (!readingProperties && line.contains(":")) {
                 if (StringUtils.equals(line, "Properties:")) {
@@ -108,19 +176,37 @@ public class PulseAudioWrapper {
                     continue;
                 }
 
-                var parts = line.split(":");
+                var parts = line.split(":", 2);
                 if (parts.length > 1) {
                     metas.put(StringUtils.trimToEmpty(parts[0]), StringUtils.trimToEmpty(parts[1]));
                 }
             }
         }
         if (paTarget != null) {
-            ret.add(paTarget.properties(properties).metas(metas).type(type).build());
+            ret.add(withState(paTarget, metas).properties(properties).metas(metas).type(type).build());
         }
 
         return ret;
     }
 
+    private static PulseAudioTarget.PulseAudioTargetBuilder withState(PulseAudioTarget.PulseAudioTargetBuilder builder, Map<String, String> metas) {
+        var volumeMatcher = volumePercentage.matcher(StringUtils.defaultString(metas.get("Volume")));
+        var volume = volumeMatcher.find() ? NumberUtils.toInt(volumeMatcher.group(1)) / 100f : 0f;
+        return builder.volume(volume).muted(StringUtils.equalsIgnoreCase(metas.get("Mute"), "yes"));
+    }
+
+    /**
+     * Sends the command through the persistent session, toggling is not supported by pacmd so those always go through pactl.
+     */
+    private boolean sessionCommand(String... cmd) {
+        return session.send(String.join(" ", cmd));
+    }
+
+    @SuppressWarnings("NumericCastThatLosesPrecision")
+    private static String toPaVolume(float volume) {
+        return String.valueOf((int) (Math.max(0f, volume) * PA_VOLUME_NORM));
+    }
+
     @SneakyThrows
     private synchronized void pactl(String... cmd) {
         var fullCmd = new String[cmd.length + 1];
@@ -157,7 +243,10 @@ public class PulseAudioWrapper {
     }
 
     @Builder
-    record PulseAudioTarget(int index, boolean isDefault, Map<String, String> metas, Map<String, String> properties, InOutput type) {
+    record PulseAudioTarget(int index, float volume, boolean muted, Map<String, String> metas, Map<String, String> properties, InOutput type) {
+    }
+
+    record Defaults(@Nullable String sink, @Nullable String source) {
     }
 
     @RequiredArgsConstructor
@@ -8,6 +8,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import javax.annotation.Nullable;
@@ -15,32 +17,65 @@ import javax.annotation.concurrent.GuardedBy;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import com.getpcpanel.cpp.AudioDevice;
+import com.getpcpanel.cpp.AudioDeviceEvent;
 import com.getpcpanel.cpp.AudioSession;
+import com.getpcpanel.cpp.AudioSessionEvent;
+import com.getpcpanel.cpp.EventType;
 import com.getpcpanel.cpp.ISndCtrl;
 import com.getpcpanel.cpp.MuteType;
+import com.getpcpanel.cpp.linux.PulseAudioEventListener.LinuxDeviceChangedEvent;
+import com.getpcpanel.cpp.linux.PulseAudioEventListener.LinuxServerChangedEvent;
+import com.getpcpanel.cpp.linux.PulseAudioEventListener.LinuxSessionChangedEvent;
+import com.getpcpanel.cpp.linux.PulseAudioWrapper.InOutput;
+import com.getpcpanel.cpp.linux.PulseAudioWrapper.PulseAudioTarget;
 import com.getpcpanel.spring.ConditionalOnLinux;
+import com.getpcpanel.util.Debouncer;
 
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import one.util.streamex.StreamEx;
 
+/**
+ * Keeps a model of the PulseAudio devices and sessions keyed by their index. The model is loaded once and then patched with the
+ * events from `pactl subscribe`: removals are applied directly, additions and changes mark the index as dirty after which a single
+ * (rate-limited) list call refreshes only the dirty objects. pactl can only list all objects of a type, so the refresh lists them all
+ * and only applies the dirty ones. Every actual difference is published as an {@link AudioSessionEvent} or {@link AudioDeviceEvent}.
+ * <p>
+ * The volume and mute state written from here is patched into the model right away, and the change events that follow such a write
+ * are skipped for a short while, so turning a knob does not list the objects over and over.
+ */
 @Log4j2
 @Service
 @ConditionalOnLinux
+@ConditionalOnProperty(name = SndCtrlPipeWire.BACKEND_PROPERTY, havingValue = SndCtrlLinux.BACKEND, matchIfMissing = true)
 @RequiredArgsConstructor
 public class SndCtrlLinux implements ISndCtrl {
+    public static final String BACKEND = "pulseaudio";
     public static final String INPUT_PREFIX = "in_";
+    private static final long REFRESH_INTERVAL_MS = 100;
+    private static final long OWN_WRITE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
     private final PulseAudioWrapper cmd;
-    private final LinuxProcessHelper processHelper;
+    private final LinuxFocusTracker focusTracker;
     private final ApplicationEventPublisher eventPublisher;
+    private final Debouncer debouncer;
     @GuardedBy("devices") private final Map<String, LinuxAudioDevice> devices = new HashMap<>();
-    @GuardedBy("sessions") private final Set<LinuxAudioSession> sessions = new HashSet<>();
+    @GuardedBy("sessions") private final Map<Integer, LinuxAudioSession> sessions = new HashMap<>();
+    private volatile LinuxSessionIndex sessionIndex = LinuxSessionIndex.EMPTY;
+    private final Set<Integer> dirtySessions = ConcurrentHashMap.newKeySet();
+    private final Set<DeviceKey> dirtyDevices = ConcurrentHashMap.newKeySet();
+    /** When the volume or mute state of a session or device was last written from here */
+    private final Map<Integer, Long> sessionWrites = new ConcurrentHashMap<>();
+    private final Map<DeviceKey, Long> deviceWrites = new ConcurrentHashMap<>();
+    // Also the rate limit keys, the dirty sets cannot be those as their hash code changes with their content
+    private final Runnable refreshSessions = this::refreshDirtySessions;
+    private final Runnable refreshDevices = this::refreshDirtyDevices;
 
     @PostConstruct
     public void init() {
@@ -48,22 +83,201 @@ public class SndCtrlLinux implements ISndCtrl {
         initSessions();
     }
 
-    @EventListener(PulseAudioEventListener.LinuxDeviceChangedEvent.class)
-    public void initDevices() {
+    private void initDevices() {
+        var defaults = cmd.getDefaults();
         synchronized (devices) {
             devices.clear();
-            StreamEx.of(getDevicesFromCmd()).mapToEntry(AudioDevice::id, Function.identity()).into(devices);
+            StreamEx.of(cmd.getDevices()).mapPartial(pa -> toDevice(pa, defaults)).mapToEntry(AudioDevice::id, Function.identity()).into(devices);
         }
     }
 
-    @EventListener(PulseAudioEventListener.LinuxSessionChangedEvent.class)
-    public void initSessions() {
+    private void initSessions() {
         synchronized (sessions) {
             sessions.clear();
-            sessions.addAll(getSessionsFromCmd());
+            StreamEx.of(cmd.getSessions()).map(this::toSession).forEach(s -> sessions.put(s.index(), s));
+            reindexSessions();
         }
     }
 
+    @EventListener
+    public void onSessionChanged(LinuxSessionChangedEvent event) {
+        if (event.type() == EventType.REMOVED) {
+            removeSession(event.index());
+        } else if (event.type() != EventType.CHANGED || !isOwnWrite(sessionWrites, event.index())) {
+            dirtySessions.add(event.index());
+            debouncer.rateLimit(refreshSessions, refreshSessions, REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @EventListener
+    public void onDeviceChanged(LinuxDeviceChangedEvent event) {
+        var key = new DeviceKey(event.output(), event.index());
+        if (event.type() == EventType.REMOVED) {
+            removeDevice(key);
+        } else if (event.type() != EventType.CHANGED || !isOwnWrite(deviceWrites, key)) {
+            dirtyDevices.add(key);
+            debouncer.rateLimit(refreshDevices, refreshDevices, REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @EventListener(LinuxServerChangedEvent.class)
+    public void onServerChanged() {
+        synchronized (devices) {
+            StreamEx.ofValues(devices).map(DeviceKey::of).forEach(dirtyDevices::add);
+        }
+        synchronized (sessions) {
+            dirtySessions.addAll(sessions.keySet());
+        }
+        dirtyDevices.add(DeviceKey.ALL);
+        dirtySessions.add(PulseAudioWrapper.NO_OP_IDX);
+        debouncer.rateLimit(refreshDevices, refreshDevices, REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        debouncer.rateLimit(refreshSessions, refreshSessions, REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void refreshDirtySessions() {
+        var dirty = takeAll(dirtySessions);
+        if (dirty.isEmpty()) {
+            return;
+        }
+        var all = dirty.contains(PulseAudioWrapper.NO_OP_IDX);
+        var fresh = StreamEx.of(cmd.getSessions()).filter(pa -> all || dirty.contains(pa.index())).toMap(PulseAudioTarget::index, Function.identity(), (a, b) -> b);
+        for (var idx : dirty) {
+            if (!fresh.containsKey(idx)) {
+                removeSession(idx);
+            }
+        }
+        fresh.values().forEach(this::addOrUpdateSession);
+    }
+
+    private void addOrUpdateSession(PulseAudioTarget pa) {
+        LinuxAudioSession existing;
+        LinuxAudioSession added = null;
+        synchronized (sessions) {
+            existing = sessions.get(pa.index());
+            if (existing == null) {
+                added = toSession(pa);
+                sessions.put(pa.index(), added);
+                reindexSessions();
+            }
+        }
+        if (added != null) {
+            log.trace("Session added: {}", added);
+            eventPublisher.publishEvent(new AudioSessionEvent(added, EventType.ADDED));
+        } else if (existing.state(pa.volume(), pa.muted())) {
+            log.trace("Session changed: {}", existing);
+        }
+    }
+
+    private void removeSession(int index) {
+        LinuxAudioSession removed;
+        synchronized (sessions) {
+            removed = sessions.remove(index);
+            if (removed != null) {
+                reindexSessions();
+            }
+        }
+        sessionWrites.remove(index);
+        if (removed != null) {
+            log.trace("Session removed: {}", removed);
+            eventPublisher.publishEvent(new AudioSessionEvent(removed, EventType.REMOVED));
+        }
+    }
+
+    private void refreshDirtyDevices() {
+        var dirty = takeAll(dirtyDevices);
+        if (dirty.isEmpty()) {
+            return;
+        }
+        var all = dirty.contains(DeviceKey.ALL);
+        var defaults = cmd.getDefaults();
+        var fresh = StreamEx.of(cmd.getDevices())
+                            .filter(pa -> all || dirty.contains(DeviceKey.of(pa)))
+                            .toMap(DeviceKey::of, Function.identity(), (a, b) -> b);
+        for (var key : dirty) {
+            if (!fresh.containsKey(key)) {
+                removeDevice(key);
+            }
+        }
+        fresh.values().forEach(pa -> addOrUpdateDevice(pa, defaults));
+    }
+
+    private void addOrUpdateDevice(PulseAudioTarget pa, PulseAudioWrapper.Defaults defaults) {
+        var device = toDevice(pa, defaults).orElse(null);
+        if (device == null) {
+            return;
+        }
+        LinuxAudioDevice existing;
+        boolean replaced;
+        synchronized (devices) {
+            existing = devices.get(device.id());
+            replaced = existing == null || existing.index() != device.index();
+            if (replaced) {
+                devices.put(device.id(), device);
+            }
+        }
+        if (replaced) {
+            if (existing != null) {
+                log.trace("Device removed: {}", existing);
+                eventPublisher.publishEvent(new AudioDeviceEvent(existing, EventType.REMOVED));
+            }
+            log.trace("Device added: {}", device);
+            eventPublisher.publishEvent(new AudioDeviceEvent(device, EventType.ADDED));
+            return;
+        }
+        var defaultChanged = existing.isDefault() != device.isDefault();
+        existing.isDefault(device.isDefault());
+        if (existing.state(device.volume(), device.muted())) {
+            log.trace("Device changed: {}", existing);
+        } else if (defaultChanged) {
+            log.trace("Default changed: {}", existing);
+            eventPublisher.publishEvent(new AudioDeviceEvent(existing, EventType.CHANGED));
+        }
+    }
+
+    private void removeDevice(DeviceKey key) {
+        LinuxAudioDevice removed;
+        synchronized (devices) {
+            removed = StreamEx.ofValues(devices).findFirst(d -> key.equals(DeviceKey.of(d))).orElse(null);
+            if (removed != null) {
+                devices.remove(removed.id());
+            }
+        }
+        deviceWrites.remove(key);
+        if (removed != null) {
+            log.trace("Device removed: {}", removed);
+            eventPublisher.publishEvent(new AudioDeviceEvent(removed, EventType.REMOVED));
+        }
+    }
+
+    @GuardedBy("sessions")
+    private void reindexSessions() {
+        sessionIndex = LinuxSessionIndex.of(sessions.values());
+    }
+
+    private void wroteSession(LinuxAudioSession session, float volume, boolean muted) {
+        sessionWrites.put(session.index(), System.nanoTime());
+        session.state(volume, muted);
+    }
+
+    private void wroteDevice(LinuxAudioDevice device, float volume, boolean muted) {
+        deviceWrites.put(DeviceKey.of(device), System.nanoTime());
+        device.state(volume, muted);
+    }
+
+    private static <K> boolean isOwnWrite(Map<K, Long> writes, K key) {
+        var at = writes.get(key);
+        return at != null && System.nanoTime() - at < OWN_WRITE_NANOS;
+    }
+
+    private static <T> Set<T> takeAll(Set<T> dirty) {
+        var result = new HashSet<T>();
+        for (var it = dirty.iterator(); it.hasNext(); ) {
+            result.add(it.next());
+            it.remove();
+        }
+        return result;
+    }
+
     @Override
     public Map<String, AudioDevice> getDevicesMap() {
         synchronized (devices) {
@@ -80,9 +294,7 @@ public class SndCtrlLinux implements ISndCtrl {
 
     @Override
     public Collection<AudioSession> getAllSessions() {
-        synchronized (sessions) {
-            return allSessions().select(AudioSession.class).toSet();
-        }
+        return StreamEx.of(sessionIndex.all()).select(AudioSession.class).toSet();
     }
 
     @Override
@@ -95,11 +307,19 @@ public class SndCtrlLinux implements ISndCtrl {
     @Override
     public void setDeviceVolume(String deviceId, float volume) {
         cmd.setDeviceVolume(isOutput(deviceId), deviceIdx(deviceId), volume);
+        var device = deviceOf(deviceId);
+        if (device != null) {
+            wroteDevice(device, volume, device.muted());
+        }
     }
 
     @Override
     public void muteDevice(String deviceId, MuteType mute) {
         cmd.muteDevice(isOutput(deviceId), deviceIdx(deviceId), mute);
+        var device = deviceOf(deviceId);
+        if (device != null) {
+            wroteDevice(device, device.volume(), mute.convert(device.muted()));
+        }
     }
 
     @Override
@@ -115,49 +335,45 @@ public class SndCtrlLinux implements ISndCtrl {
 
     @Override
     public void setProcessVolume(String fileName, @Nullable String device, float volume) {
-        Set<LinuxAudioSession> todo;
-        synchronized (sessions) {
-            todo = allSessions().filter(s -> StringUtils.equalsAnyIgnoreCase(fileName, s.executable().getName(), s.title()))
-                                .toSet();
+        for (var session : sessionIndex.byNameOrTitle(fileName)) {
+            cmd.setSessionVolume(session.index(), volume);
+            wroteSession(session, volume, session.muted());
         }
-        todo.forEach(s -> cmd.setSessionVolume(s.index(), volume));
     }
 
     @Override
     public void setFocusVolume(float volume) {
-        var process = processHelper.getActiveProcess();
-        if (process == null) {
-            return;
+        for (var session : sessionIndex.byFocus(focusTracker.current())) {
+            cmd.setSessionVolume(session.index(), volume);
+            wroteSession(session, volume, session.muted());
         }
-        setProcessVolume(process, null, volume);
     }
 
     @Override
     public void muteProcesses(Set<String> fileName, MuteType mute) {
-        var lcFileNames = StreamEx.of(fileName).map(String::toLowerCase).toImmutableSet();
-        Set<LinuxAudioSession> todo;
-        synchronized (sessions) {
-            todo = allSessions().filter(s -> lcFileNames.contains(StringUtils.lowerCase(s.executable().getName())) || lcFileNames.contains(StringUtils.lowerCase(s.title())))
-                                .toSet();
-        }
-        todo.forEach(s -> cmd.muteSession(s.index(), mute));
+        var index = sessionIndex;
+        StreamEx.of(fileName).flatCollection(index::byNameOrTitle).distinct().forEach(s -> {
+            cmd.muteSession(s.index(), mute);
+            wroteSession(s, s.volume(), mute.convert(s.muted()));
+        });
     }
 
     @Override
     public @Nullable String getFocusApplication() {
-        return null;
+        return focusTracker.current().binary();
     }
 
     @Override
     public List<RunningApplication> getRunningApplications() {
-        synchronized (sessions) {
-            return allSessions().map(AudioSession::executable).map(f -> new RunningApplication(0, f, f.getName())).toList();
-        }
+        return StreamEx.of(sessionIndex.all()).map(AudioSession::executable).map(f -> new RunningApplication(0, f, f.getName())).toList();
     }
 
     @Override
     public @Nullable String defaultDeviceOnEmpty(String deviceId) {
-        return null;
+        if (StringUtils.isNotBlank(deviceId)) {
+            return deviceId;
+        }
+        return defaultPlayer();
     }
 
     @Override
@@ -169,32 +385,37 @@ public class SndCtrlLinux implements ISndCtrl {
 
     @Override
     public @Nullable String defaultRecorder() {
-        return null;
-    }
-
-    private Set<LinuxAudioDevice> getDevicesFromCmd() {
-        return StreamEx.of(cmd.getDevices()).mapPartial(this::toDevice).toSet();
+        synchronized (devices) {
+            return StreamEx.ofValues(devices).findFirst(d -> d.isDefault() && !d.isOutput()).map(AudioDevice::id).orElse(null);
+        }
     }
 
-    private Optional<LinuxAudioDevice> toDevice(PulseAudioWrapper.PulseAudioTarget pa) {
-        var isOutput = pa.type() == PulseAudioWrapper.InOutput.output;
+    private Optional<LinuxAudioDevice> toDevice(PulseAudioTarget pa, PulseAudioWrapper.Defaults defaults) {
+        var isOutput = pa.type() == InOutput.output;
         var name = pa.metas().get("Name");
         if (StringUtils.isBlank(name)) {
             return Optional.empty();
         }
-        return Optional.of(new LinuxAudioDevice(eventPublisher, pa.index(), pa.metas().get("Description"), (isOutput ? "" : INPUT_PREFIX) + pa.metas().get("Name"), pa.isDefault(), isOutput));
+        var isDefault = StringUtils.equals(name, isOutput ? defaults.sink() : defaults.source());
+        return Optional.of(new LinuxAudioDevice(eventPublisher, pa.index(), pa.metas().get("Description"), (isOutput ? "" : INPUT_PREFIX) + name, isDefault, isOutput, pa.volume(), pa.muted()));
     }
 
-    private Set<LinuxAudioSession> getSessionsFromCmd() {
-        return StreamEx.of(cmd.getSessions())
-                       .map(pa ->
-                               new LinuxAudioSession(eventPublisher,
-                                       pa.index(),
-                                       NumberUtils.toInt(pa.properties().get("application.process.id"), -1),
-                                       new File(pa.properties().getOrDefault("application.process.binary", "/")),
-                                       pa.properties().get("application.name"),
-                                       "", 0, false))
-                       .toSet();
+    private LinuxAudioSession toSession(PulseAudioTarget pa) {
+        return new LinuxAudioSession(eventPublisher,
+                pa.index(),
+                NumberUtils.toInt(pa.properties().get("application.process.id"), -1),
+                new File(pa.properties().getOrDefault("application.process.binary", "/")),
+                pa.properties().get("application.name"),
+                "", pa.volume(), pa.muted());
+    }
+
+    private @Nullable LinuxAudioDevice deviceOf(String deviceId) {
+        synchronized (devices) {
+            if (StringUtils.isBlank(deviceId)) {
+                return StreamEx.ofValues(devices).findFirst(LinuxAudioDevice::isDefaultOutput).orElse(null);
+            }
+            return devices.get(deviceId);
+        }
     }
 
     private int deviceIdx(String deviceId) {
@@ -210,10 +431,18 @@ public class SndCtrlLinux implements ISndCtrl {
         return !StringUtils.startsWith(deviceId, INPUT_PREFIX);
     }
 
-    private StreamEx<LinuxAudioSession> allSessions() {
-        synchronized (sessions) {
-            var sessionsCopy = new HashSet<>(sessions);
-            return StreamEx.of(sessionsCopy).distinct();
+    /**
+     * Sinks and sources have their own index range.
+     */
+    private record DeviceKey(boolean output, int index) {
+        private static final DeviceKey ALL = new DeviceKey(false, PulseAudioWrapper.NO_OP_IDX);
+
+        static DeviceKey of(PulseAudioTarget pa) {
+            return new DeviceKey(pa.type() == InOutput.output, pa.index());
+        }
+
+        static DeviceKey of(LinuxAudioDevice device) {
+            return new DeviceKey(device.isOutput(), device.index());
         }
     }
 }
@@ -2,6 +2,7 @@ package com.getpcpanel.cpp.linux;
 
 import java.awt.Toolkit;
 import java.awt.datatransfer.StringSelection;
+import java.util.Optional;
 
 import org.springframework.stereotype.Service;
 
@@ -17,11 +18,13 @@ import one.util.streamex.StreamEx;
 @RequiredArgsConstructor
 public class SndCtrlLinuxDebug {
     private final PulseAudioWrapper paWrapper;
-    private final PulseAudioEventListener paEventListener;
+    private final Optional<PulseAudioEventListener> paEventListener;
+    private final Optional<PipeWireMonitor> pipeWireMonitor;
 
     public void copyDebugOutput() {
         var output = StreamEx.of(paWrapper.getDebugOutput())
-                             .append(paEventListener.getDebugOutput())
+                             .append(paEventListener.map(PulseAudioEventListener::getDebugOutput).stream())
+                             .append(pipeWireMonitor.map(PipeWireMonitor::getDebugOutput).stream())
                              .joining("\n".repeat(5));
         var content = new StringSelection(output);
         Toolkit.getDefaultToolkit().getSystemClipboard().setContents(content, null);
@@ -0,0 +1,350 @@
+package com.getpcpanel.cpp.linux;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.getpcpanel.cpp.AudioDevice;
+import com.getpcpanel.cpp.AudioDeviceEvent;
+import com.getpcpanel.cpp.AudioSession;
+import com.getpcpanel.cpp.AudioSessionEvent;
+import com.getpcpanel.cpp.EventType;
+import com.getpcpanel.cpp.ISndCtrl;
+import com.getpcpanel.cpp.MuteType;
+import com.getpcpanel.cpp.linux.PipeWireDumpParser.PipeWireObject;
+import com.getpcpanel.cpp.linux.PipeWireMonitor.PipeWireObjectsEvent;
+import com.getpcpanel.cpp.linux.PulseAudioWrapper.Defaults;
+import com.getpcpanel.spring.ConditionalOnLinux;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import one.util.streamex.StreamEx;
+
+/**
+ * PipeWire backend, used when `linux.audio-backend=pipewire`. The model of sinks, sources and playback streams is kept up to date from
+ * the objects published by {@link PipeWireMonitor}, changes are written through the {@link PipeWireControlChannel}. Device ids are the
+ * same as the ones of {@link SndCtrlLinux} so profiles work with both backends.
+ */
+@Log4j2
+@Service
+@ConditionalOnLinux
+@ConditionalOnProperty(name = SndCtrlPipeWire.BACKEND_PROPERTY, havingValue = SndCtrlPipeWire.BACKEND)
+@RequiredArgsConstructor
+public class SndCtrlPipeWire implements ISndCtrl {
+    public static final String BACKEND_PROPERTY = "linux.audio-backend";
+    public static final String BACKEND = "pipewire";
+    private static final String DEFAULT_SINK = "default.audio.sink";
+    private static final String DEFAULT_SOURCE = "default.audio.source";
+    private final PipeWireControlChannel control;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LinuxFocusTracker focusTracker;
+    private final Map<Integer, PipeWireObject> nodes = new ConcurrentHashMap<>();
+    @GuardedBy("devices") private final Map<String, LinuxAudioDevice> devices = new HashMap<>();
+    @GuardedBy("sessions") private final Map<Integer, LinuxAudioSession> sessions = new HashMap<>();
+    private volatile LinuxSessionIndex sessionIndex = LinuxSessionIndex.EMPTY;
+    private volatile Defaults defaults = new Defaults(null, null);
+
+    @EventListener
+    public void onObjects(PipeWireObjectsEvent event) {
+        if (event.complete()) {
+            var present = StreamEx.of(event.objects()).map(PipeWireObject::id).toSet();
+            StreamEx.ofKeys(nodes).remove(present::contains).toList().forEach(this::removeNode);
+        }
+        for (var object : event.objects()) {
+            if (object.removed()) {
+                removeNode(object.id());
+            } else if (object.isNode()) {
+                updateNode(object);
+            } else if (object.isDefaultMetadata()) {
+                updateDefaults(object.metadata());
+            }
+        }
+    }
+
+    private void updateNode(PipeWireObject update) {
+        var node = merge(nodes.get(update.id()), update);
+        nodes.put(node.id(), node);
+        var mediaClass = StringUtils.defaultString(node.props().get("media.class"));
+        if (mediaClass.startsWith("Audio/Sink")) {
+            addOrUpdateDevice(node, true);
+        } else if (mediaClass.startsWith("Audio/Source")) {
+            addOrUpdateDevice(node, false);
+        } else if ("Stream/Output/Audio".equals(mediaClass)) {
+            addOrUpdateSession(node);
+        }
+    }
+
+    /**
+     * Updates only contain the params when they changed, keep the last known volume otherwise.
+     */
+    private static PipeWireObject merge(@Nullable PipeWireObject previous, PipeWireObject update) {
+        if (previous == null) {
+            return update;
+        }
+        var props = new HashMap<>(previous.props());
+        props.putAll(update.props());
+        var hasVolume = update.volume() >= 0;
+        return PipeWireObject.builder()
+                             .id(update.id())
+                             .type(update.type())
+                             .props(props)
+                             .volume(hasVolume ? update.volume() : previous.volume())
+                             .channels(hasVolume ? update.channels() : previous.channels())
+                             .mute(update.mute() != null ? update.mute() : previous.mute())
+                             .metadata(Map.of())
+                             .build();
+    }
+
+    private void addOrUpdateDevice(PipeWireObject node, boolean output) {
+        var name = node.props().get("node.name");
+        if (StringUtils.isBlank(name)) {
+            return;
+        }
+        var isDefault = StringUtils.equals(name, output ? defaults.sink() : defaults.source());
+        var device = new LinuxAudioDevice(eventPublisher, node.id(), StringUtils.firstNonBlank(node.props().get("node.description"), name),
+                (output ? "" : SndCtrlLinux.INPUT_PREFIX) + name, isDefault, output, volumeOf(node), isMuted(node));
+        LinuxAudioDevice existing;
+        synchronized (devices) {
+            existing = devices.get(device.id());
+            if (existing == null || existing.index() != device.index()) {
+                devices.put(device.id(), device);
+            }
+        }
+        if (existing == null || existing.index() != device.index()) {
+            log.trace("Device added: {}", device);
+            eventPublisher.publishEvent(new AudioDeviceEvent(device, EventType.ADDED));
+            return;
+        }
+        existing.isDefault(isDefault);
+        if (existing.state(device.volume(), device.muted())) {
+            log.trace("Device changed: {}", existing);
+        }
+    }
+
+    private void addOrUpdateSession(PipeWireObject node) {
+        LinuxAudioSession existing;
+        LinuxAudioSession added = null;
+        synchronized (sessions) {
+            existing = sessions.get(node.id());
+            if (existing == null) {
+                added = new LinuxAudioSession(eventPublisher,
+                        node.id(),
+                        NumberUtils.toInt(node.props().get("application.process.id"), -1),
+                        new File(node.props().getOrDefault("application.process.binary", "/")),
+                        node.props().get("application.name"),
+                        "", volumeOf(node), isMuted(node));
+                sessions.put(node.id(), added);
+                reindexSessions();
+            }
+        }
+        if (added != null) {
+            log.trace("Session added: {}", added);
+            eventPublisher.publishEvent(new AudioSessionEvent(added, EventType.ADDED));
+        } else if (existing.state(volumeOf(node), isMuted(node))) {
+            log.trace("Session changed: {}", existing);
+        }
+    }
+
+    private void removeNode(int id) {
+        if (nodes.remove(id) == null) {
+            return;
+        }
+        LinuxAudioDevice removedDevice;
+        synchronized (devices) {
+            removedDevice = StreamEx.ofValues(devices).findFirst(d -> d.index() == id).orElse(null);
+            if (removedDevice != null) {
+                devices.remove(removedDevice.id());
+            }
+        }
+        if (removedDevice != null) {
+            log.trace("Device removed: {}", removedDevice);
+            eventPublisher.publishEvent(new AudioDeviceEvent(removedDevice, EventType.REMOVED));
+        }
+        LinuxAudioSession removedSession;
+        synchronized (sessions) {
+            removedSession = sessions.remove(id);
+            if (removedSession != null) {
+                reindexSessions();
+            }
+        }
+        if (removedSession != null) {
+            log.trace("Session removed: {}", removedSession);
+            eventPublisher.publishEvent(new AudioSessionEvent(removedSession, EventType.REMOVED));
+        }
+    }
+
+    private void updateDefaults(Map<String, String> metadata) {
+        var current = defaults;
+        var updated = new Defaults(metadata.containsKey(DEFAULT_SINK) ? metadata.get(DEFAULT_SINK) : current.sink(),
+                metadata.containsKey(DEFAULT_SOURCE) ? metadata.get(DEFAULT_SOURCE) : current.source());
+        defaults = updated;
+        synchronized (devices) {
+            for (var device : devices.values()) {
+                device.isDefault(StringUtils.equals(nodeName(device), device.isOutput() ? updated.sink() : updated.source()));
+            }
+        }
+    }
+
+    @GuardedBy("sessions")
+    private void reindexSessions() {
+        sessionIndex = LinuxSessionIndex.of(sessions.values());
+    }
+
+    /**
+     * PipeWire uses linear channel volumes, the volume shown to users (and by pactl) is the cube root of it.
+     */
+    private static float volumeOf(PipeWireObject node) {
+        return node.volume() < 0 ? 0f : (float) Math.cbrt(node.volume());
+    }
+
+    private static boolean isMuted(PipeWireObject node) {
+        return Boolean.TRUE.equals(node.mute());
+    }
+
+    private static @Nullable String nodeName(LinuxAudioDevice device) {
+        return StringUtils.removeStart(device.id(), device.isOutput() ? "" : SndCtrlLinux.INPUT_PREFIX);
+    }
+
+    @Override
+    public Map<String, AudioDevice> getDevicesMap() {
+        synchronized (devices) {
+            return new HashMap<>(devices);
+        }
+    }
+
+    @Override
+    public Collection<AudioDevice> getDevices() {
+        synchronized (devices) {
+            return StreamEx.ofValues(devices).select(AudioDevice.class).toSet();
+        }
+    }
+
+    @Override
+    public Collection<AudioSession> getAllSessions() {
+        return StreamEx.of(sessionIndex.all()).select(AudioSession.class).toSet();
+    }
+
+    @Override
+    public AudioDevice getDevice(String id) {
+        synchronized (devices) {
+            return devices.get(id);
+        }
+    }
+
+    @Override
+    public void setDeviceVolume(String deviceId, float volume) {
+        var device = deviceOrDefault(deviceId);
+        if (device != null) {
+            setVolume(device.index(), volume);
+        }
+    }
+
+    @Override
+    public void muteDevice(String deviceId, MuteType mute) {
+        var device = deviceOrDefault(deviceId);
+        if (device != null) {
+            setMute(device.index(), mute, device.muted());
+        }
+    }
+
+    @Override
+    public void setDefaultDevice(String deviceId) {
+        LinuxAudioDevice device;
+        synchronized (devices) {
+            device = devices.get(deviceId);
+        }
+        if (device != null) {
+            control.setDefault(device.isOutput(), nodeName(device));
+        }
+    }
+
+    @Override
+    public void setProcessVolume(String fileName, @Nullable String device, float volume) {
+        for (var session : sessionIndex.byNameOrTitle(fileName)) {
+            setVolume(session.index(), volume);
+        }
+    }
+
+    @Override
+    public void setFocusVolume(float volume) {
+        for (var session : sessionIndex.byFocus(focusTracker.current())) {
+            setVolume(session.index(), volume);
+        }
+    }
+
+    @Override
+    public void muteProcesses(Set<String> fileName, MuteType mute) {
+        var index = sessionIndex;
+        StreamEx.of(fileName).flatCollection(index::byNameOrTitle).distinct().forEach(s -> setMute(s.index(), mute, s.muted()));
+    }
+
+    @Override
+    public @Nullable String getFocusApplication() {
+        return focusTracker.current().binary();
+    }
+
+    @Override
+    public List<RunningApplication> getRunningApplications() {
+        return StreamEx.of(sessionIndex.all()).map(AudioSession::executable).map(f -> new RunningApplication(0, f, f.getName())).toList();
+    }
+
+    @Override
+    public @Nullable String defaultDeviceOnEmpty(String deviceId) {
+        if (StringUtils.isNotBlank(deviceId)) {
+            return deviceId;
+        }
+        return defaultPlayer();
+    }
+
+    @Override
+    public @Nullable String defaultPlayer() {
+        synchronized (devices) {
+            return StreamEx.ofValues(devices).findFirst(LinuxAudioDevice::isDefaultOutput).map(AudioDevice::id).orElse(null);
+        }
+    }
+
+    @Override
+    public @Nullable String defaultRecorder() {
+        synchronized (devices) {
+            return StreamEx.ofValues(devices).findFirst(d -> d.isDefault() && !d.isOutput()).map(AudioDevice::id).orElse(null);
+        }
+    }
+
+    private @Nullable LinuxAudioDevice deviceOrDefault(String deviceId) {
+        var id = StringUtils.isBlank(deviceId) ? defaultPlayer() : deviceId;
+        synchronized (devices) {
+            return id == null ? null : devices.get(id);
+        }
+    }
+
+    private void setVolume(int nodeId, float volume) {
+        var node = nodes.get(nodeId);
+        var channels = node == null || node.channels() <= 0 ? 2 : node.channels();
+        var linear = String.format(Locale.ROOT, "%.6f", Math.pow(Math.max(0f, volume), 3));
+        control.setProps(nodeId, "{\"channelVolumes\":[" + StreamEx.constant(linear, channels).joining(",") + "]}");
+    }
+
+    private void setMute(int nodeId, MuteType mute, boolean current) {
+        var muted = switch (mute) {
+            case mute -> true;
+            case unmute -> false;
+            case toggle -> !current;
+        };
+        control.setProps(nodeId, "{\"mute\":" + muted + "}");
+    }
+}
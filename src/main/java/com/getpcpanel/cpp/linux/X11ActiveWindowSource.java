@@ -0,0 +1,116 @@
+package com.getpcpanel.cpp.linux;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.getpcpanel.spring.ConditionalOnLinux;
+import com.getpcpanel.util.ProcessHelper;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import one.util.streamex.StreamEx;
+
+/**
+ * Follows the `_NET_ACTIVE_WINDOW` property of the X11 root window with a single `xprop -spy` process. The pid of a window is only
+ * looked up the first time the window becomes active, a window that did not have a pid yet is looked up again the next time.
+ */
+@Log4j2
+@Order(100)
+@Component
+@ConditionalOnLinux
+@RequiredArgsConstructor
+public class X11ActiveWindowSource implements ActiveWindowSource {
+    private static final Pattern windowIdPattern = Pattern.compile("window id # (0x[0-9a-fA-F]+)");
+    private static final Pattern pidPattern = Pattern.compile("= (\\d+)");
+    private static final int MAX_CACHED_WINDOWS = 256;
+    private final ProcessHelper processHelper;
+    private final Map<Long, Integer> windowPids = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+            return size() > MAX_CACHED_WINDOWS;
+        }
+    });
+
+    @Override
+    public String name() {
+        return "X11";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return StringUtils.isNotBlank(System.getenv("DISPLAY")) && onPath("xprop");
+    }
+
+    private static boolean onPath(String binary) {
+        return StreamEx.split(StringUtils.defaultString(System.getenv("PATH")), File.pathSeparator)
+                       .remove(String::isEmpty)
+                       .anyMatch(dir -> Files.isExecutable(Path.of(dir, binary)));
+    }
+
+    @Override
+    public void listen(IntConsumer listener) throws IOException {
+        var process = processHelper.builder("xprop", "-spy", "-root", "_NET_ACTIVE_WINDOW").redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            //noinspection NestedAssignment
+            while ((line = reader.readLine()) != null) {
+                var window = parseWindowId(line);
+                if (window != null) {
+                    listener.accept(window == 0 ? -1 : cachedPidOf(window));
+                }
+            }
+        } finally {
+            process.destroy();
+        }
+    }
+
+    /**
+     * @return the window id from a line like `_NET_ACTIVE_WINDOW(WINDOW): window id # 0x3a00007`, null when the line has no id
+     */
+    static @Nullable Long parseWindowId(String line) {
+        var matcher = windowIdPattern.matcher(line);
+        return matcher.find() ? Long.decode(matcher.group(1)) : null;
+    }
+
+    private int cachedPidOf(long window) {
+        var cached = windowPids.get(window);
+        if (cached != null) {
+            return cached;
+        }
+        var result = pidOf(window);
+        if (result != -1) {
+            windowPids.put(window, result);
+        }
+        return result;
+    }
+
+    private int pidOf(long window) {
+        try {
+            var process = processHelper.builder("xprop", "-id", "0x" + Long.toHexString(window), "_NET_WM_PID").redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            var output = String.join("", IOUtils.readLines(process.getInputStream(), Charset.defaultCharset()));
+            var matcher = pidPattern.matcher(output);
+            return matcher.find() ? NumberUtils.toInt(matcher.group(1), -1) : -1;
+        } catch (IOException e) {
+            log.debug("Unable to get pid of window {}", window, e);
+            return -1;
+        }
+    }
+}
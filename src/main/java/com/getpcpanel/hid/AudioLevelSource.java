@@ -0,0 +1,17 @@
+package com.getpcpanel.hid;
+
+/**
+ * Live audio levels of what the dials and sliders control, for {@link com.getpcpanel.profile.LightingEffect.EFFECT_TYPE#VU_METER}
+ * effects.
+ */
+public interface AudioLevelSource {
+    int MAX_LEVEL = 255;
+
+    /**
+     * Called for every rendered frame, so it must return quickly. A control of which the level is asked for the first time may
+     * return 0 until its capture is running.
+     *
+     * @return the current level from 0 to {@link #MAX_LEVEL} of the audio that the dial or slider controls
+     */
+    int level(String serialNumber, int analog);
+}
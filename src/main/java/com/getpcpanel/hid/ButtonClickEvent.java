@@ -1,4 +1,4 @@
 package com.getpcpanel.hid;
 
-public record ButtonClickEvent(String serialNum, int button, boolean dblClick) {
+public record ButtonClickEvent(String serialNum, int button, ButtonGesture gesture) {
 }
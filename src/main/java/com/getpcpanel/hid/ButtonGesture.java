@@ -0,0 +1,22 @@
+package com.getpcpanel.hid;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+public enum ButtonGesture {
+    CLICK,
+    DOUBLE_CLICK,
+    LONG_PRESS,
+    /** Sent when the long press interval is reached and then every repeat interval while the button is held */
+    REPEAT;
+
+    public static final List<String> EVENT_TYPES = Arrays.stream(values()).map(ButtonGesture::getEventType).toList();
+
+    /**
+     * @return the name of the gesture in MQTT events
+     */
+    public String getEventType() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,205 @@
+package com.getpcpanel.hid;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.getpcpanel.util.TimingWheel;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Turns the downs and ups of buttons into {@link ButtonGesture}s. The state of every button is kept in arrays per device and only
+ * changes by compare-and-set, so the reader thread of a device and the timer never lock each other.
+ * <p>
+ * A button is only timed when that matters: a click waits for a possible double click only when the double click does something,
+ * and a press only waits for a long press when a long press or repeat does something. Otherwise the click is sent right away on
+ * the reader thread, which allocates nothing but the event.
+ */
+@Log4j2
+final class ButtonGestureRecognizer {
+    static final int DELAY_CLICK = 1;
+    static final int LONG_PRESS = 1 << 1;
+    static final int REPEAT = 1 << 2;
+    private static final int HOLD = LONG_PRESS | REPEAT;
+    static final int MAX_BUTTONS = 16;
+    private static final long NONE = Long.MIN_VALUE;
+    private static final int IDLE = 0;
+    /** Down, waiting for the long press interval */
+    private static final int DOWN = 1;
+    /** Held past the long press interval */
+    private static final int HELD = 2;
+    /** Clicked, waiting for the double click interval to pass */
+    private static final int CLICK_PENDING = 3;
+    private final TimingWheel timingWheel;
+    private final Settings settings;
+    private final Listener listener;
+    private final Map<String, Buttons> devices = new ConcurrentHashMap<>();
+
+    ButtonGestureRecognizer(TimingWheel timingWheel, Settings settings, Listener listener) {
+        this.timingWheel = timingWheel;
+        this.settings = settings;
+        this.listener = listener;
+    }
+
+    void onButton(String serialNum, int button, boolean pressed, long nowNanos) {
+        if (button < 0 || button >= MAX_BUTTONS) {
+            log.debug("Button {} of {} out of range", button, serialNum);
+            return;
+        }
+        var buttons = devices.get(serialNum);
+        if (buttons == null) {
+            buttons = devices.computeIfAbsent(serialNum, Buttons::new);
+        }
+        if (pressed) {
+            buttons.down(button, nowNanos);
+        } else {
+            buttons.up(button, nowNanos);
+        }
+    }
+
+    void forget(String serialNum) {
+        var buttons = devices.remove(serialNum);
+        if (buttons != null) {
+            for (var i = 0; i < MAX_BUTTONS; i++) {
+                buttons.state.set(i, IDLE);
+                buttons.cancelTimeout(i);
+            }
+        }
+    }
+
+    interface Settings {
+        /**
+         * @return the {@link #DELAY_CLICK}, {@link #LONG_PRESS} and {@link #REPEAT} flags that apply to the button
+         */
+        int gestures(String serialNum, int button);
+
+        long doubleClickMillis();
+
+        long longPressMillis();
+
+        long repeatMillis();
+    }
+
+    interface Listener {
+        void onGesture(String serialNum, int button, ButtonGesture gesture);
+    }
+
+    private final class Buttons {
+        private final String serialNum;
+        private final AtomicIntegerArray state = new AtomicIntegerArray(MAX_BUTTONS);
+        private final AtomicReferenceArray<TimingWheel.Timeout> timeouts = new AtomicReferenceArray<>(MAX_BUTTONS);
+        // Only used by the reader thread, or published to the timer by a write of the state
+        private final long[] lastDownNanos = new long[MAX_BUTTONS];
+        private final int[] gestures = new int[MAX_BUTTONS];
+        private final Runnable[] clickTasks = new Runnable[MAX_BUTTONS];
+        private final Runnable[] holdTasks = new Runnable[MAX_BUTTONS];
+        private final Runnable[] repeatTasks = new Runnable[MAX_BUTTONS];
+
+        private Buttons(String serialNum) {
+            this.serialNum = serialNum;
+            for (var i = 0; i < MAX_BUTTONS; i++) {
+                var button = i;
+                lastDownNanos[i] = NONE;
+                clickTasks[i] = () -> clickExpired(button);
+                holdTasks[i] = () -> held(button);
+                repeatTasks[i] = () -> repeat(button);
+            }
+        }
+
+        private void down(int button, long nowNanos) {
+            var clickPending = state.getAndSet(button, IDLE) == CLICK_PENDING;
+            if (clickPending) {
+                cancelTimeout(button);
+            }
+            var lastDown = lastDownNanos[button];
+            if (lastDown != NONE && nowNanos - lastDown < TimeUnit.MILLISECONDS.toNanos(settings.doubleClickMillis())) {
+                lastDownNanos[button] = NONE;
+                listener.onGesture(serialNum, button, ButtonGesture.DOUBLE_CLICK);
+                return;
+            }
+            if (clickPending) {
+                // Pressed again after the double click interval but before the timer got to it
+                listener.onGesture(serialNum, button, ButtonGesture.CLICK);
+            }
+
+            lastDownNanos[button] = nowNanos;
+            var flags = settings.gestures(serialNum, button);
+            gestures[button] = flags;
+            if ((flags & HOLD) != 0) {
+                state.set(button, DOWN);
+                schedule(button, holdTasks[button], TimeUnit.MILLISECONDS.toNanos(settings.longPressMillis()));
+            } else {
+                click(button, nowNanos, nowNanos);
+            }
+        }
+
+        private void up(int button, long nowNanos) {
+            if (state.compareAndSet(button, DOWN, IDLE)) {
+                cancelTimeout(button);
+                click(button, lastDownNanos[button], nowNanos);
+            } else if (state.compareAndSet(button, HELD, IDLE)) {
+                cancelTimeout(button);
+                lastDownNanos[button] = NONE; // A long press is not the first click of a double click
+            }
+        }
+
+        private void click(int button, long downNanos, long nowNanos) {
+            if ((gestures[button] & DELAY_CLICK) != 0) {
+                var delay = downNanos + TimeUnit.MILLISECONDS.toNanos(settings.doubleClickMillis()) - nowNanos;
+                if (delay > 0) {
+                    state.set(button, CLICK_PENDING);
+                    schedule(button, clickTasks[button], delay);
+                    return;
+                }
+            }
+            listener.onGesture(serialNum, button, ButtonGesture.CLICK);
+        }
+
+        private void clickExpired(int button) {
+            if (state.compareAndSet(button, CLICK_PENDING, IDLE)) {
+                listener.onGesture(serialNum, button, ButtonGesture.CLICK);
+            }
+        }
+
+        private void held(int button) {
+            if (!state.compareAndSet(button, DOWN, HELD)) {
+                return;
+            }
+            var flags = gestures[button];
+            if ((flags & LONG_PRESS) != 0) {
+                listener.onGesture(serialNum, button, ButtonGesture.LONG_PRESS);
+            }
+            if ((flags & REPEAT) != 0) {
+                repeat(button);
+            }
+        }
+
+        private void repeat(int button) {
+            if (state.get(button) != HELD) {
+                return;
+            }
+            listener.onGesture(serialNum, button, ButtonGesture.REPEAT);
+            schedule(button, repeatTasks[button], TimeUnit.MILLISECONDS.toNanos(settings.repeatMillis()));
+            if (state.get(button) != HELD) {
+                cancelTimeout(button); // Released while scheduling
+            }
+        }
+
+        private void schedule(int button, Runnable task, long delayNanos) {
+            var previous = timeouts.getAndSet(button, timingWheel.schedule(task, delayNanos, TimeUnit.NANOSECONDS));
+            if (previous != null) {
+                previous.cancel();
+            }
+        }
+
+        private void cancelTimeout(int button) {
+            var timeout = timeouts.getAndSet(button, null);
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+}
@@ -1,33 +1,54 @@
 package com.getpcpanel.hid;
 
-import java.util.stream.Stream;
-
 import javafx.scene.paint.Color;
 
+/**
+ * Writes a packet into a byte array. All values are written as primitives and colour channels are scaled with a precomputed
+ * brightness table, so nothing but the packet itself is allocated.
+ */
 class ByteWriter {
+    private static final int MAX_BRIGHTNESS = 100;
+    private static final byte[][] BRIGHTNESS_TABLES = new byte[MAX_BRIGHTNESS + 1][];
     private final byte[] buff;
-    private final int brightnessMultiplier;
+    private final byte[] brightnessTable;
     private int pos;
     private int marked;
 
+    static {
+        for (var brightness = 0; brightness <= MAX_BRIGHTNESS; brightness++) {
+            BRIGHTNESS_TABLES[brightness] = brightnessTable(brightness);
+        }
+    }
+
     public ByteWriter(int brightness) {
         this(brightness, 64);
     }
 
     public ByteWriter(int brightness, int length) {
         buff = new byte[length];
-        brightnessMultiplier = brightness;
+        brightnessTable = brightness >= 0 && brightness <= MAX_BRIGHTNESS ? BRIGHTNESS_TABLES[brightness] : brightnessTable(brightness);
     }
 
-    public ByteWriter append(Number... bytes) {
-        return append(Stream.of(bytes).map(Number::byteValue).toArray(Byte[]::new));
+    private static byte[] brightnessTable(int brightness) {
+        var result = new byte[256];
+        for (var i = 0; i < result.length; i++) {
+            //noinspection NumericCastThatLosesPrecision
+            result[i] = (byte) (brightness / 100f * i);
+        }
+        return result;
     }
 
-    public ByteWriter append(Byte... bytes) {
-        for (var i = 0; i < bytes.length; i++) {
-            buff[pos + i] = bytes[i];
-        }
-        return skip(bytes.length);
+    public ByteWriter append(int b) {
+        buff[pos++] = (byte) b;
+        return this;
+    }
+
+    public ByteWriter append(int b1, int b2) {
+        return append(b1).append(b2);
+    }
+
+    public ByteWriter append(int b1, int b2, int b3) {
+        return append(b1).append(b2).append(b3);
     }
 
     public ByteWriter appendBrightness(byte nr) {
@@ -36,12 +57,29 @@ class ByteWriter {
 
     @SuppressWarnings("NumericCastThatLosesPrecision")
     public ByteWriter append(Color c) {
-        return append(applyBrightness((byte) (c.getRed() * 255)), applyBrightness((byte) (c.getGreen() * 255)), applyBrightness((byte) (c.getBlue() * 255)));
+        return appendRgb((byte) (c.getRed() * 255), (byte) (c.getGreen() * 255), (byte) (c.getBlue() * 255));
+    }
+
+    /**
+     * Appends the colour in any format {@link Color#valueOf(String)} accepts, parsed colours are cached.
+     */
+    public ByteWriter appendColor(String color) {
+        return appendRgb(ColorCache.rgb(color));
+    }
+
+    /**
+     * Appends a colour as 0xRRGGBB.
+     */
+    public ByteWriter appendRgb(int rgb) {
+        return appendRgb(rgb >> 16, rgb >> 8, rgb);
+    }
+
+    private ByteWriter appendRgb(int red, int green, int blue) {
+        return append(applyBrightness(red), applyBrightness(green), applyBrightness(blue));
     }
 
-    private byte applyBrightness(byte nr) {
-        //noinspection NumericCastThatLosesPrecision
-        return (byte) (brightnessMultiplier / 100f * (nr & 0xff));
+    private byte applyBrightness(int nr) {
+        return brightnessTable[nr & 0xff];
     }
 
     public ByteWriter skip(int len) {
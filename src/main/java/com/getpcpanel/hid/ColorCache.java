@@ -0,0 +1,40 @@
+package com.getpcpanel.hid;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Colour strings from the lighting configs parsed to RGB, so a lighting packet does not parse every colour again. The configs only
+ * contain a limited set of colours, the cache is cleared when it grows beyond that anyway.
+ */
+final class ColorCache {
+    private static final int MAX_SIZE = 4096;
+    private static final Map<String, Integer> CACHE = new ConcurrentHashMap<>();
+
+    private ColorCache() {
+    }
+
+    /**
+     * @return the colour as 0xRRGGBB
+     * @throws IllegalArgumentException when the colour cannot be parsed
+     */
+    static int rgb(String color) {
+        var result = CACHE.get(color);
+        if (result == null) {
+            if (CACHE.size() >= MAX_SIZE) {
+                CACHE.clear();
+            }
+            result = parse(color);
+            CACHE.put(color, result);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("NumericCastThatLosesPrecision")
+    private static int parse(String color) {
+        var c = Color.valueOf(color);
+        return ((int) (c.getRed() * 255) & 0xff) << 16 | ((int) (c.getGreen() * 255) & 0xff) << 8 | (int) (c.getBlue() * 255) & 0xff;
+    }
+}
@@ -0,0 +1,74 @@
+package com.getpcpanel.hid;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.getpcpanel.profile.SaveService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * The {@link DevicePlan}s of the connected devices. A plan is compiled when the first event of a device comes in, and again for
+ * every save, which is also how profile edits and switches are applied. Only the controls that changed get new entries.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class ControlPlans {
+    private final SaveService saveService;
+    private final Map<String, DevicePlan> plans = new ConcurrentHashMap<>();
+    private final AtomicLong compiled = new AtomicLong();
+    private final AtomicLong recompiledControls = new AtomicLong();
+
+    @Nullable DevicePlan get(String serialNum) {
+        var result = plans.get(serialNum);
+        if (result == null) {
+            result = plans.computeIfAbsent(serialNum, serial -> compile(serial, null));
+        }
+        return result;
+    }
+
+    @EventListener(SaveService.SaveEvent.class)
+    public void onSave() {
+        for (var serialNum : plans.keySet()) {
+            plans.computeIfPresent(serialNum, this::compile);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(DeviceScanner.DeviceDisconnectedEvent event) {
+        plans.remove(event.serialNum());
+    }
+
+    private @Nullable DevicePlan compile(String serialNum, @Nullable DevicePlan previous) {
+        var profile = saveService.getProfile(serialNum).orElse(null);
+        if (profile == null) {
+            return null;
+        }
+        var result = DevicePlan.compile(profile, saveService.get().isPreventClickWhenDblClick(), previous);
+        //noinspection ObjectEquality
+        if (result != previous) {
+            compiled.incrementAndGet();
+            recompiledControls.addAndGet(result.recompiled());
+            log.debug("Compiled {} for {}, {} controls changed", profile, serialNum, result.recompiled());
+        }
+        return result;
+    }
+
+    public Stats getStats() {
+        return new Stats(plans.size(), compiled.get(), recompiledControls.get());
+    }
+
+    /**
+     * @param recompiledControls controls and gestures that got a new entry, summed over all compilations
+     */
+    public record Stats(int devices, long compiled, long recompiledControls) {
+    }
+}
@@ -1,114 +1,262 @@
 package com.getpcpanel.hid;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
 
 import org.apache.commons.lang3.tuple.Pair;
-import org.hid4java.HidDevice;
 import org.springframework.context.ApplicationEventPublisher;
 
 import com.getpcpanel.device.DeviceType;
+import com.getpcpanel.hid.LatestFrameQueue.Frame;
+import com.getpcpanel.profile.KnobFilter;
 import com.getpcpanel.profile.SaveService;
+import com.getpcpanel.util.TimingWheel;
 
-import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
+import one.util.streamex.StreamEx;
 
 @Log4j2
 public class DeviceCommunicationHandler {
-    private static final byte INPUT_CODE_KNOB_CHANGE = 1;
-    private static final byte INPUT_CODE_BUTTON_CHANGE = 2;
+    static final byte INPUT_CODE_KNOB_CHANGE = 1;
+    static final byte INPUT_CODE_BUTTON_CHANGE = 2;
 
     private final ApplicationEventPublisher eventPublisher;
     private final DeviceScanner deviceScanner;
     private final SaveService saveService;
+    private final TimingWheel timingWheel;
     private final String key;
-    private final HidDevice device;
+    private final HidTransport device;
 
     private static final int COM_TIMEOUT_MILLIS = 100;
-
-    private static final int PACKET_LENGTH = 64;
+    private static final long STOP_TIMEOUT_MILLIS = 1000;
+    private static final long MAX_WRITE_PAUSE_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long NO_SETTLE = Long.MAX_VALUE;
+    private static final KnobFilter[] NO_FILTERS = {};
+
+    static final int PACKET_LENGTH = 64;
+    private static final int MAX_KNOBS = 256; // The knob index is a single byte
+    private static final int NOT_SENT = -1;
     private static final int FIRST_NON_INITIAL_READS = 20; // Could have been 9 (dials/sliders of the pro) but take 20 to be safe
     private final DeviceType deviceType;
     private int readUntilNotInitial = FIRST_NON_INITIAL_READS;
+    private final byte[] readBuffer = new byte[PACKET_LENGTH];
+    private final InputPacket inputPacket = new InputPacket();
+    private final byte[] writeBuffer = new byte[PACKET_LENGTH];
 
-    private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+    private final LatestFrameQueue queue = new LatestFrameQueue();
+    private final AtomicLong written = new AtomicLong();
+    private volatile long averageWriteNanos;
     private final KnobDebouncer debouncer = new KnobDebouncer();
-    private final RollingAverageSetter rollingAverageSetter = new RollingAverageSetter();
-    private final Map<Integer, Integer> prevSent = new ConcurrentHashMap<>();
-
-    public DeviceCommunicationHandler(DeviceScanner deviceScanner, ApplicationEventPublisher eventPublisher, SaveService saveService, String key, HidDevice device, DeviceType deviceType) {
+    /** By knob, written by the reader thread and the knob debouncer */
+    private final AtomicIntegerArray prevSent = new AtomicIntegerArray(MAX_KNOBS);
+    // Only used on the reader thread, a null chain passes the values as they are
+    private final KnobFilterChain[] filterChains;
+    private final boolean[] ownFilters;
+    private volatile boolean filtersChanged = true;
+    private long nextSettleNanos = NO_SETTLE;
+    @Nullable private Thread readerThread;
+    @Nullable private Thread writerThread;
+
+    public DeviceCommunicationHandler(DeviceScanner deviceScanner, ApplicationEventPublisher eventPublisher, SaveService saveService, TimingWheel timingWheel, String key,
+            HidTransport device, DeviceType deviceType) {
         this.eventPublisher = eventPublisher;
         this.deviceScanner = deviceScanner;
         this.saveService = saveService;
+        this.timingWheel = timingWheel;
         this.key = key;
         this.device = device;
         this.deviceType = deviceType;
+        filterChains = new KnobFilterChain[deviceType.getAnalogCount()];
+        ownFilters = new boolean[deviceType.getAnalogCount()];
+        for (var i = 0; i < MAX_KNOBS; i++) {
+            prevSent.set(i, NOT_SENT);
+        }
     }
 
     public void start() {
-        var reader = new Thread(this::reader, "HIDReader " + device.getSerialNumber());
-        var writer = new Thread(this::writer, "HIDWriter " + device.getSerialNumber());
+        var reader = new Thread(this::reader, "HIDReader " + device.serialNumber());
+        var writer = new Thread(this::writer, "HIDWriter " + device.serialNumber());
         reader.setDaemon(true);
         writer.setDaemon(true);
+        readerThread = reader;
+        writerThread = writer;
         reader.start();
         writer.start();
     }
 
-    public void sendMessage(byte[]... data) {
-        Collections.addAll(queue, data);
+    /**
+     * Releases the device once the reader and writer stopped, which they do within a read timeout after the handler was removed from
+     * the {@link DeviceScanner}. hidapi does not allow closing a device while it is read, and a device that is still open is not
+     * opened again when it is found again.
+     */
+    void close() {
+        awaitStopped(readerThread);
+        awaitStopped(writerThread);
+        device.close();
+    }
+
+    private void awaitStopped(@Nullable Thread thread) {
+        if (thread == null || thread == Thread.currentThread()) {
+            return;
+        }
+        try {
+            thread.join(STOP_TIMEOUT_MILLIS);
+            if (thread.isAlive()) {
+                log.warn("{} did not stop, closing {} anyway", thread.getName(), key);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues the packets in the bulk lane, an unsent lighting packet for the same part of the device is replaced (see
+     * {@link LatestFrameQueue}).
+     *
+     * @return completes when all packets are written
+     */
+    public CompletableFuture<Void> sendMessage(byte[]... data) {
+        return sendMessage(false, data);
+    }
+
+    /**
+     * @param priority priority packets are written before all bulk packets
+     * @return completes when all packets are written
+     */
+    public CompletableFuture<Void> sendMessage(boolean priority, byte[]... data) {
+        return StreamEx.of(data).map(packet -> queue.add(packet, priority)).toListAndThen(DeviceCommunicationHandler::allOf);
+    }
+
+    /**
+     * Queues the packets in the bulk lane, packets that were not written within maxAge are dropped. Only for packets of which the
+     * state is not needed when they are late, like animation frames.
+     *
+     * @return completes when all packets are written, fails with a {@link java.util.concurrent.TimeoutException} when one was dropped
+     */
+    public CompletableFuture<Void> sendMessage(Duration maxAge, byte[]... data) {
+        var deadline = System.nanoTime() + maxAge.toNanos();
+        return StreamEx.of(data).map(packet -> queue.add(packet, false, deadline)).toListAndThen(DeviceCommunicationHandler::allOf);
+    }
+
+    private static CompletableFuture<Void> allOf(List<CompletableFuture<Void>> futures) {
+        return futures.size() == 1 ? futures.get(0) : CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
     }
 
     public void reader() {
         while (isConnected()) {
             var moreData = true;
             while (moreData) {
-                var data = new byte[PACKET_LENGTH];
-                var val = device.read(data, COM_TIMEOUT_MILLIS);
-                if (readUntilNotInitial != 0) {
-                    readUntilNotInitial--;
-                }
-
-                switch (val) {
+                switch (readOnce()) {
                     case -1 -> {
-                        log.error("DCH ERR: {}", device.getLastErrorMessage());
-                        deviceScanner.deviceRemoved(key, device);
                         return;
                     }
-                    case 0 -> {
-                        moreData = false;
-                        continue;
+                    case 0 -> moreData = false;
+                    default -> {
                     }
                 }
-                interpretInputData(readUntilNotInitial != 0, data);
             }
         }
     }
 
+    /**
+     * Reads and handles a single packet. The read buffer and the decoded packet are reused for every read, so nothing is allocated
+     * on the reader thread unless an event is published.
+     *
+     * @return the number of bytes read, 0 on timeout and -1 when the device is gone
+     */
+    int readOnce() {
+        var val = device.read(readBuffer, readTimeoutMillis());
+        if (readUntilNotInitial != 0) {
+            readUntilNotInitial--;
+        }
+
+        switch (val) {
+            case -1 -> {
+                log.error("DCH ERR: {}", device.lastErrorMessage());
+                deviceScanner.deviceFailed(key, this);
+            }
+            case 0 -> {
+            }
+            default -> interpretInputData(readUntilNotInitial != 0, inputPacket.decode(readBuffer));
+        }
+        if (nextSettleNanos != NO_SETTLE) {
+            settleFilters();
+        }
+        return val;
+    }
+
+    /**
+     * Reads wait shorter while a filter chain has to settle, so it settles on time when the dial stopped.
+     */
+    private int readTimeoutMillis() {
+        if (nextSettleNanos == NO_SETTLE) {
+            return COM_TIMEOUT_MILLIS;
+        }
+        var millis = TimeUnit.NANOSECONDS.toMillis(nextSettleNanos - System.nanoTime()) + 1;
+        return (int) Math.max(1, Math.min(COM_TIMEOUT_MILLIS, millis));
+    }
+
+    private void settleFilters() {
+        var now = System.nanoTime();
+        if (now - nextSettleNanos < 0) {
+            return;
+        }
+        var next = NO_SETTLE;
+        for (var knob = 0; knob < filterChains.length; knob++) {
+            var chain = filterChains[knob];
+            if (chain != null) {
+                var value = chain.settle(now);
+                if (value != KnobFilterChain.NO_VALUE) {
+                    triggerKnob(knob, value, false);
+                }
+                next = Math.min(next, chain.nextSettleNanos());
+            }
+        }
+        nextSettleNanos = next;
+    }
+
+    /**
+     * The filters are read again on the next value, for when the settings or the profile changed.
+     */
+    public void reloadFilters() {
+        filtersChanged = true;
+    }
+
+    /**
+     * Writes are paced to the device: after a write the writer pauses for the average write time (at most 20ms), so a slow device is
+     * not flooded and lighting packets that arrive in the meantime replace the pending ones instead of being written one by one. A
+     * priority packet ends the pause.
+     */
     private void writer() {
         while (isConnected()) {
             try {
-                var toSend = queue.poll(COM_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                var toSend = queue.poll(COM_TIMEOUT_MILLIS);
                 if (toSend != null) {
-                    sendMessageReal(toSend);
+                    var start = System.nanoTime();
+                    write(toSend);
+                    var took = System.nanoTime() - start;
+                    averageWriteNanos = averageWriteNanos == 0 ? took : (averageWriteNanos * 7 + took) / 8;
+                    queue.awaitPriority(Math.min(averageWriteNanos, MAX_WRITE_PAUSE_NANOS));
                 }
             } catch (InterruptedException e) {
                 throw new RuntimeException(e);
             }
         }
+        queue.failAll("Device " + key + " disconnected");
+        log.debug("Writer for {} stopped: {}", key, getWriteStats());
         debouncer.shutdown();
-        rollingAverageSetter.shutdown();
     }
 
     private boolean isConnected() {
@@ -116,55 +264,71 @@ public class DeviceCommunicationHandler {
         return deviceScanner.getConnectedDevice(key) == this;
     }
 
-    private void sendMessageReal(byte[] info) {
+    private void write(Frame frame) {
+        try {
+            if (sendMessageReal(frame.data())) {
+                written.incrementAndGet();
+                frame.done().complete(null);
+            } else {
+                frame.done().completeExceptionally(new IOException(device.lastErrorMessage()));
+            }
+        } catch (RuntimeException e) {
+            frame.done().completeExceptionally(e);
+        }
+    }
+
+    private boolean sendMessageReal(byte[] info) {
         if (info.length > PACKET_LENGTH)
             throw new IllegalArgumentException("info cannot be greater than packet_length");
-        var message = new byte[PACKET_LENGTH];
-        System.arraycopy(info, 0, message, 0, info.length);
-        var val = device.write(message, PACKET_LENGTH, (byte) 0);
+        // Only used from the writer thread
+        System.arraycopy(info, 0, writeBuffer, 0, info.length);
+        Arrays.fill(writeBuffer, info.length, PACKET_LENGTH, (byte) 0);
+        var val = device.write(writeBuffer, PACKET_LENGTH, (byte) 0);
         if (val >= 0) {
             if (log.isTraceEnabled()) {
                 log.trace("> {}: {}", val, Arrays.toString(info));
             }
-        } else {
-            log.error("{} {}     {}", device.getLastErrorMessage(), val, Arrays.toString(info), new Exception().fillInStackTrace());
+            return true;
         }
+        log.error("{} {}     {}", device.lastErrorMessage(), val, Arrays.toString(info), new Exception().fillInStackTrace());
+        return false;
     }
 
-    private void interpretInputData(boolean initial, byte[] data) {
-        if (data[0] == INPUT_CODE_KNOB_CHANGE) {
-            var knob = data[1] & 0xFF;
-            var value = data[2] & 0xFF;
+    private void interpretInputData(boolean initial, InputPacket packet) {
+        if (packet.code == INPUT_CODE_KNOB_CHANGE) {
             try {
-                triggerOrDebounce(new KnobRotateEvent(key, knob, value, initial));
+                triggerOrDebounce(packet.index, packet.value, initial);
             } catch (Exception ex) {
                 log.error("Unable to handle knob rotate", ex);
             }
-        } else if (data[0] == INPUT_CODE_BUTTON_CHANGE) {
-            var knob = data[1] & 0xFF;
-            var value = data[2] & 0xFF;
+        } else if (packet.code == INPUT_CODE_BUTTON_CHANGE) {
             try {
-                triggerEvent(new ButtonPressEvent(key, knob, value == 1));
+                triggerEvent(new ButtonPressEvent(key, packet.index, packet.value == 1));
             } catch (Exception ex) {
                 log.error("Unable to handle button press", ex);
             }
         } else {
-            log.error("Invalid Input in DeviceInputListener: {}", Arrays.toString(data));
+            log.error("Invalid Input in DeviceInputListener: {}", Arrays.toString(readBuffer));
         }
     }
 
     private void triggerEvent(KnobRotateEvent o) {
-        var delta = saveService.get().getSendOnlyIfDelta();
-        var prevSentValue = prevSent.get(o.knob());
-        var currentSendValue = o.value();
-        if (prevSentValue != null && currentSendValue == prevSentValue) {
-            log.trace("Prevent setting same value for {}", o);
-        } else if (applyWorkaround(o.knob()) && prevSentValue != null && delta != null && prevSentValue - delta <= currentSendValue && currentSendValue <= prevSentValue + delta) {
-            log.trace("Prevent setting value within delta for {}", o);
+        triggerKnob(o.knob(), o.value(), o.initial());
+    }
+
+    /**
+     * Publishes the knob value unless it is filtered, the event is only created when it is published.
+     */
+    private void triggerKnob(int knob, int value, boolean initial) {
+        if (prevSent.get(knob) == value) {
+            if (log.isTraceEnabled()) {
+                log.trace("Prevent setting same value for {}", new KnobRotateEvent(key, knob, value, initial));
+            }
         } else {
-            prevSent.put(o.knob(), currentSendValue);
-            log.debug("< {}", o);
-            eventPublisher.publishEvent(o);
+            prevSent.set(knob, value);
+            var event = new KnobRotateEvent(key, knob, value, initial);
+            log.debug("< {}", event);
+            eventPublisher.publishEvent(event);
         }
     }
 
@@ -177,24 +341,68 @@ public class DeviceCommunicationHandler {
         eventPublisher.publishEvent(o);
     }
 
-    private void triggerOrDebounce(KnobRotateEvent event) {
-        if (applyWorkaround(event.knob())) {
-            var delay = saveService.get().getPreventSliderTwitchDelay();
-            var rolling = saveService.get().getSliderRollingAverage();
-            if (delay != null && delay != 0) {
-                debouncer.debounce(event, delay);
-            } else if (rolling != null && rolling != 0) {
-                rollingAverageSetter.setKnob(event, rolling);
+    /**
+     * Filters the value with the chain of the dial, and debounces it for the global slider twitch setting when the dial does not
+     * have filters of its own.
+     */
+    private void triggerOrDebounce(int knob, int value, boolean initial) {
+        if (filtersChanged) {
+            reloadFilterChains();
+        }
+        if (knob >= filterChains.length) {
+            triggerKnob(knob, value, initial);
+            return;
+        }
+        var chain = filterChains[knob];
+        if (chain != null) {
+            var now = System.nanoTime();
+            if (initial) {
+                chain.reset(value, now);
             } else {
-                triggerEvent(event);
+                value = chain.apply(value, now);
+                nextSettleNanos = Math.min(nextSettleNanos, chain.nextSettleNanos());
             }
+        }
+        var delay = ownFilters[knob] || !applyWorkaround(knob) ? null : saveService.get().getPreventSliderTwitchDelay();
+        if (delay != null && delay != 0) {
+            debouncer.debounce(new KnobRotateEvent(key, knob, value, initial), delay);
         } else {
-            triggerEvent(event);
+            triggerKnob(knob, value, initial);
+        }
+    }
+
+    /**
+     * The filters of a dial are its own, or the ones for the global rolling average and delta settings when it has none. A chain
+     * of which the filters did not change keeps its state.
+     */
+    private void reloadFilterChains() {
+        filtersChanged = false;
+        var save = saveService.get();
+        var deviceSave = save.getDeviceSave(key);
+        var knobSettings = deviceSave == null ? null : deviceSave.ensureCurrentProfile(deviceType).getKnobSettings();
+        // The rolling average never applied together with the slider twitch delay
+        var legacy = KnobFilterChain.legacyFilters(save.getPreventSliderTwitchDelay() == null ? save.getSliderRollingAverage() : null, save.getSendOnlyIfDelta());
+        for (var knob = 0; knob < filterChains.length; knob++) {
+            var setting = knobSettings == null ? null : knobSettings.get(knob);
+            var own = setting == null ? NO_FILTERS : setting.getFilters();
+            ownFilters[knob] = own.length != 0;
+            var filters = ownFilters[knob] ? own : applyWorkaround(knob) ? legacy : NO_FILTERS;
+            var current = filterChains[knob];
+            filterChains[knob] = filters.length == 0 ? null : current != null && current.sameFilters(filters) ? current : new KnobFilterChain(filters);
         }
     }
 
-    public Queue<byte[]> getQueue() {
-        return queue;
+    public WriteStats getWriteStats() {
+        return new WriteStats(queue.queued(), queue.superseded(), queue.dropped(), written.get(), averageWriteNanos / 1000);
+    }
+
+    /**
+     * @param queued     packets passed to {@link #sendMessage(byte[]...)}
+     * @param superseded packets that were replaced by a newer packet for the same part of the device before they were written
+     * @param dropped    bulk packets that were not written before their deadline
+     * @param written    packets written to the device
+     */
+    public record WriteStats(long queued, long superseded, long dropped, long written, long averageWriteMicros) {
     }
 
     public record KnobRotateEvent(String serialNum, int knob, int value, boolean initial) {
@@ -203,9 +411,24 @@ public class DeviceCommunicationHandler {
     public record ButtonPressEvent(String serialNum, int button, boolean pressed) {
     }
 
+    /**
+     * Decoded input packet, one instance per handler that is overwritten by every read.
+     */
+    private static final class InputPacket {
+        private byte code;
+        private int index;
+        private int value;
+
+        private InputPacket decode(byte[] data) {
+            code = data[0];
+            index = data[1] & 0xFF;
+            value = data[2] & 0xFF;
+            return this;
+        }
+    }
+
     private class KnobDebouncer {
-        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-        private final Map<Integer, Pair<Deque<KnobRotateEvent>, Future<?>>> delayedMap = new ConcurrentHashMap<>();
+        private final Map<Integer, Pair<Deque<KnobRotateEvent>, TimingWheel.Timeout>> delayedMap = new ConcurrentHashMap<>();
 
         public void debounce(KnobRotateEvent event, long delay) {
             var prev = cancel(event.knob());
@@ -239,14 +462,14 @@ public class DeviceCommunicationHandler {
                 return new ArrayDeque<>();
             } else {
                 if (prev.getRight() != null) {
-                    prev.getRight().cancel(true);
+                    prev.getRight().cancel();
                 }
                 return prev.getLeft();
             }
         }
 
         private void schedule(Deque<KnobRotateEvent> prevs, KnobRotateEvent event, long delay) {
-            delayedMap.put(event.knob, Pair.of(prevs, scheduler.schedule(() -> {
+            delayedMap.put(event.knob, Pair.of(prevs, timingWheel.schedule(() -> {
                 try {
                     triggerEvent(event);
                 } finally {
@@ -256,106 +479,11 @@ public class DeviceCommunicationHandler {
         }
 
         public void shutdown() {
-            scheduler.shutdownNow();
-        }
-    }
-
-    @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
-    private class RollingAverageSetter extends Thread {
-        private final Map<Integer, Deque<Pair<Long, Integer>>> targets = new ConcurrentHashMap<>();
-        @Setter private Integer rollWindowMs;
-        private boolean running = true;
-
-        public RollingAverageSetter() {
-            start();
-        }
-
-        public void setKnob(KnobRotateEvent knob, Integer rollWindowMs) {
-            this.rollWindowMs = rollWindowMs;
-            var target = targets.computeIfAbsent(knob.knob(), k -> new ArrayDeque<>());
-            synchronized (target) {
-                if (knob.initial()) {
-                    triggerEvent(knob);
-                    target.clear();
+            delayedMap.values().forEach(delayed -> {
+                if (delayed.getRight() != null) {
+                    delayed.getRight().cancel();
                 }
-                target.add(Pair.of(System.currentTimeMillis(), knob.value()));
-            }
-        }
-
-        @Override
-        public void run() {
-            while (running) {
-                synchronized (targets) {
-                    targets.forEach(this::handleRoll);
-                }
-
-                try {
-                    //noinspection BusyWait
-                    Thread.sleep(10);
-                } catch (InterruptedException e) {
-                    log.error("Unable to sleep, stopping rolling average setter", e);
-                    return;
-                }
-            }
-        }
-
-        private void handleRoll(Integer knob, Deque<Pair<Long, Integer>> timeToValue) {
-            synchronized (timeToValue) {
-                if (timeToValue.size() <= 1) {
-                    return;
-                }
-                removeAllPassedButLast(timeToValue);
-                var send = calcRolling(timeToValue);
-                triggerEvent(new KnobRotateEvent(key, knob, send, false));
-            }
-        }
-
-        private Integer calcRolling(Deque<Pair<Long, Integer>> timeToValue) {
-            if (timeToValue.size() == 1) {
-                return timeToValue.getFirst().getRight();
-            }
-
-            var count = 0L;
-            var sum = 0d;
-            var now = System.currentTimeMillis();
-            var prevStamp = now - rollWindowMs;
-            Integer prevValue = null;
-            for (var entry : timeToValue) {
-                if (prevValue != null) {
-                    var weight = entry.getLeft() - prevStamp;
-                    count += weight;
-                    sum += weight * prevValue;
-
-                    prevStamp = entry.getLeft();
-                }
-
-                prevValue = entry.getRight();
-            }
-
-            if (prevValue != null) {
-                var weight = now - prevStamp;
-                count += weight;
-                sum += weight * prevValue;
-            }
-
-            //noinspection NumericCastThatLosesPrecision
-            return (int) (sum / count);
-        }
-
-        private void removeAllPassedButLast(Deque<Pair<Long, Integer>> timeToValue) {
-            var now = System.currentTimeMillis();
-            while (timeToValue.size() > 1) {
-                var first = timeToValue.removeFirst();
-                var second = timeToValue.getFirst();
-                if (second.getLeft() >= now - rollWindowMs) {
-                    timeToValue.addFirst(first);
-                    return;
-                }
-            }
-        }
-
-        public void shutdown() {
-            running = false;
+            });
         }
     }
 }
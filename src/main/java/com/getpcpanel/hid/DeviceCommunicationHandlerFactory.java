@@ -1,11 +1,12 @@
 package com.getpcpanel.hid;
 
-import org.hid4java.HidDevice;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import com.getpcpanel.device.DeviceType;
 import com.getpcpanel.profile.SaveService;
+import com.getpcpanel.util.TimingWheel;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
@@ -17,8 +18,14 @@ public class DeviceCommunicationHandlerFactory {
     private final ApplicationEventPublisher eventPublisher;
     private final DeviceScanner deviceScanner;
     private final SaveService saveService;
+    private final TimingWheel timingWheel;
 
-    public DeviceCommunicationHandler build(String key, HidDevice device, DeviceType deviceType) {
-        return new DeviceCommunicationHandler(deviceScanner, eventPublisher, saveService, key, device, deviceType);
+    public DeviceCommunicationHandler build(String key, HidTransport device, DeviceType deviceType) {
+        return new DeviceCommunicationHandler(deviceScanner, eventPublisher, saveService, timingWheel, key, device, deviceType);
+    }
+
+    @EventListener(SaveService.SaveEvent.class)
+    public void onSave() {
+        deviceScanner.getConnectedDevices().forEach(DeviceCommunicationHandler::reloadFilters);
     }
 }
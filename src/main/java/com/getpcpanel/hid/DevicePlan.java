@@ -0,0 +1,124 @@
+package com.getpcpanel.hid;
+
+import static com.getpcpanel.commands.Commands.hasCommands;
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.getpcpanel.commands.Commands;
+import com.getpcpanel.profile.Profile;
+
+import one.util.streamex.StreamEx;
+
+/**
+ * A profile compiled for the events of a device: the commands, value calculators and gesture flags of every control in arrays
+ * indexed by the control, so an event is a lookup instead of a search through the profile. A plan does not change, a profile edit
+ * compiles a new one that keeps what did not change.
+ */
+final class DevicePlan {
+    private static final ButtonGesture[] GESTURES = ButtonGesture.values();
+    private static final DialValueCalculator DEFAULT_CALCULATOR = new DialValueCalculator(null);
+    private final Profile profile;
+    private final boolean preventClickWhenDblClick;
+    private final Commands[] dials;
+    private final DialValueCalculator[] calculators;
+    /** By gesture, then by button */
+    private final Commands[][] buttons;
+    private final int[] gestures;
+    private final int recompiled;
+
+    private DevicePlan(Profile profile, boolean preventClickWhenDblClick, int size, @Nullable DevicePlan previous) {
+        this.profile = profile;
+        this.preventClickWhenDblClick = preventClickWhenDblClick;
+        //noinspection ObjectEquality
+        var reuse = previous != null && previous.profile == profile ? previous : null;
+        dials = new Commands[size];
+        calculators = new DialValueCalculator[size];
+        buttons = new Commands[GESTURES.length][size];
+        gestures = new int[size];
+        var changed = 0;
+        for (var i = 0; i < size; i++) {
+            dials[i] = profile.getDialData(i);
+            var setting = profile.getKnobSettings().get(i);
+            var known = reuse != null && i < reuse.dials.length;
+            calculators[i] = known && reuse.calculators[i].matches(setting) ? reuse.calculators[i] : new DialValueCalculator(setting);
+            //noinspection ObjectEquality
+            if (!known || reuse.dials[i] != dials[i] || reuse.calculators[i] != calculators[i]) {
+                changed++;
+            }
+            buttons[ButtonGesture.CLICK.ordinal()][i] = profile.getButtonData(i);
+            buttons[ButtonGesture.DOUBLE_CLICK.ordinal()][i] = profile.getDblButtonData(i);
+            buttons[ButtonGesture.LONG_PRESS.ordinal()][i] = profile.getLongPressButtonData(i);
+            buttons[ButtonGesture.REPEAT.ordinal()][i] = profile.getRepeatButtonData(i);
+            for (var gesture : GESTURES) {
+                //noinspection ObjectEquality
+                if (!known || reuse.buttons[gesture.ordinal()][i] != buttons[gesture.ordinal()][i]) {
+                    changed++;
+                }
+            }
+            gestures[i] = gestureFlags(i);
+        }
+        recompiled = changed;
+    }
+
+    /**
+     * @param previous the plan this replaces, what did not change in the profile is taken from it
+     * @return the plan, or the previous one when nothing changed
+     */
+    static DevicePlan compile(Profile profile, boolean preventClickWhenDblClick, @Nullable DevicePlan previous) {
+        var size = StreamEx.of(profile.getDialData(), profile.getKnobSettings(), profile.getButtonData(), profile.getDblButtonData(),
+                                   profile.getLongPressButtonData(), profile.getRepeatButtonData())
+                           .flatCollection(Map::keySet)
+                           .mapToInt(Integer::intValue)
+                           .max().orElse(-1) + 1;
+        var result = new DevicePlan(profile, preventClickWhenDblClick, size, previous);
+        //noinspection ObjectEquality
+        if (previous != null && result.recompiled == 0 && previous.profile == profile && previous.dials.length == result.dials.length
+                && previous.preventClickWhenDblClick == preventClickWhenDblClick) {
+            return previous;
+        }
+        return result;
+    }
+
+    private int gestureFlags(int button) {
+        var result = 0;
+        if (preventClickWhenDblClick && hasCommands(buttons[ButtonGesture.DOUBLE_CLICK.ordinal()][button])) {
+            result |= ButtonGestureRecognizer.DELAY_CLICK;
+        }
+        if (hasCommands(buttons[ButtonGesture.LONG_PRESS.ordinal()][button])) {
+            result |= ButtonGestureRecognizer.LONG_PRESS;
+        }
+        if (hasCommands(buttons[ButtonGesture.REPEAT.ordinal()][button])) {
+            result |= ButtonGestureRecognizer.REPEAT;
+        }
+        return result;
+    }
+
+    Profile profile() {
+        return profile;
+    }
+
+    /**
+     * @return the number of controls and gestures whose commands or settings differ from the plan this was compiled from
+     */
+    int recompiled() {
+        return recompiled;
+    }
+
+    @Nullable Commands dial(int knob) {
+        return knob >= 0 && knob < dials.length ? dials[knob] : null;
+    }
+
+    DialValueCalculator calculator(int knob) {
+        return knob >= 0 && knob < calculators.length ? calculators[knob] : DEFAULT_CALCULATOR;
+    }
+
+    @Nullable Commands button(int button, ButtonGesture gesture) {
+        return button >= 0 && button < gestures.length ? buttons[gesture.ordinal()][button] : null;
+    }
+
+    int gestures(int button) {
+        return button >= 0 && button < gestures.length ? gestures[button] : 0;
+    }
+}
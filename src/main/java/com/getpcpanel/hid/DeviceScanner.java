@@ -1,7 +1,15 @@
 package com.getpcpanel.hid;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.SystemUtils;
 
 import org.hid4java.HidDevice;
 import org.hid4java.HidManager;
@@ -11,6 +19,7 @@ import org.hid4java.HidServicesSpecification;
 import org.hid4java.ScanMode;
 import org.hid4java.event.HidServicesEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
@@ -26,67 +35,187 @@ import lombok.extern.log4j.Log4j2;
 @Service
 @RequiredArgsConstructor
 public class DeviceScanner implements HidServicesListener {
+    private static final int DEFAULT_SCAN_INTERVAL = 3000;
     private final ConcurrentHashMap<String, DeviceCommunicationHandler> connectedDeviceMap = new ConcurrentHashMap<>();
     private final ApplicationEventPublisher eventPublisher;
+    @Value("${hid.simulated-devices:}") private final List<DeviceType> simulatedDevices;
+    @Value("${hid.simulated-knob-rate:0}") private final int simulatedKnobRate;
     @Autowired @Lazy @Setter private DeviceCommunicationHandlerFactory deviceCommunicationHandlerFactory;
+    @Value("${hid.hotplug:true}") private boolean hotplug;
+    @Value("${hid.fallback-scan-interval:30000}") private int fallbackScanInterval;
 
     private HidServices hidServices;
+    @Nullable private HidrawHotplugMonitor hotplugMonitor;
+    private volatile long hotplugSeenAt;
+    private final AtomicLong hotplugScans = new AtomicLong();
+    private final AtomicLong lastTimeToReadyMillis = new AtomicLong(-1);
+    private final AtomicLong maxTimeToReadyMillis = new AtomicLong(-1);
 
     public DeviceCommunicationHandler getConnectedDevice(String key) {
         return connectedDeviceMap.get(key);
     }
 
+    public Collection<DeviceCommunicationHandler> getConnectedDevices() {
+        return connectedDeviceMap.values();
+    }
+
     // Not @PostConstruct because the HomePage must have loaded before
     public void init() {
-        hidServices = HidManager.getHidServices(buildSpecification());
+        if (hotplug && SystemUtils.IS_OS_LINUX) {
+            hotplugMonitor = HidrawHotplugMonitor.start(HidrawHotplugMonitor.DEV, HidrawHotplugMonitor.SYS_HIDRAW, this::onHotplug).orElse(null);
+        }
+        // With hotplug events the scan only catches what they miss, like a node that udev made accessible much later
+        var scanInterval = hotplugMonitor == null ? DEFAULT_SCAN_INTERVAL : Math.max(DEFAULT_SCAN_INTERVAL, fallbackScanInterval);
+        log.info("Scanning for devices every {}ms{}", scanInterval, hotplugMonitor == null ? "" : " and when a PCPanel is plugged in");
+        hidServices = HidManager.getHidServices(buildSpecification(scanInterval));
         hidServices.addHidServicesListener(this);
         log.info("Starting HID services.");
         hidServices.start();
         log.info("Enumerating attached devices...");
+        addSimulatedDevices();
+    }
+
+    private void addSimulatedDevices() {
+        for (var i = 0; i < simulatedDevices.size(); i++) {
+            var deviceType = simulatedDevices.get(i);
+            var simulated = new SimulatedDevice("SIMULATED-" + deviceType.name() + "-" + i, deviceType);
+            log.info("Adding simulated {}", simulated.serialNumber());
+            deviceAdded(simulated.serialNumber(), simulated, deviceType);
+            simulated.startGenerating(simulatedKnobRate, 0);
+        }
     }
 
     static HidServicesSpecification buildSpecification() {
+        return buildSpecification(DEFAULT_SCAN_INTERVAL);
+    }
+
+    static HidServicesSpecification buildSpecification(int scanInterval) {
         var hidServicesSpecification = new HidServicesSpecification();
         hidServicesSpecification.setAutoShutdown(false);
         hidServicesSpecification.setAutoStart(false);
-        hidServicesSpecification.setScanInterval(3000);
+        hidServicesSpecification.setScanInterval(scanInterval);
         hidServicesSpecification.setPauseInterval(2000);
         hidServicesSpecification.setScanMode(ScanMode.SCAN_AT_FIXED_INTERVAL);
         return hidServicesSpecification;
     }
 
+    /**
+     * Connects the device unless it can not be opened, for example because udev did not set its permissions yet. It is tried again
+     * when its node changes.
+     */
     public void deviceAdded(@NonNull String key, @NonNull HidDevice device, DeviceType deviceType) {
-        if (!device.isOpen()) {
-            if (!device.open()) {
-                log.error("Unable to open device, it won't be possible to use the panel");
-            }
+        if (!device.isOpen() && !device.open()) {
+            log.warn("Unable to open {}, trying again when it changes", key);
+            return;
         }
-        var deviceHandler = deviceCommunicationHandlerFactory.build(key, device, deviceType);
+        deviceAdded(key, new Hid4JavaTransport(device), deviceType);
+    }
+
+    public void deviceAdded(@NonNull String key, @NonNull HidTransport transport, DeviceType deviceType) {
+        var deviceHandler = deviceCommunicationHandlerFactory.build(key, transport, deviceType);
         connectedDeviceMap.put(key, deviceHandler);
         deviceHandler.start();
         eventPublisher.publishEvent(new DeviceConnectedEvent(key, deviceType));
     }
 
-    public void deviceRemoved(String key, HidDevice device) {
-        if (key == null || device == null)
-            throw new IllegalArgumentException("serialNum or device cannot be null serialNum: " + key + " device: " + device);
-        if (connectedDeviceMap.remove(key) != null)
-            eventPublisher.publishEvent(new DeviceDisconnectedEvent(key));
+    public void deviceRemoved(String key) {
+        if (key == null)
+            throw new IllegalArgumentException("serialNum cannot be null");
+        var removed = connectedDeviceMap.remove(key);
+        if (removed != null)
+            disconnected(key, removed);
+    }
+
+    /**
+     * Removes the handler of which the device failed, unless it was already replaced by a new connection.
+     */
+    void deviceFailed(String key, DeviceCommunicationHandler handler) {
+        if (connectedDeviceMap.remove(key, handler))
+            disconnected(key, handler);
     }
 
-    private void foundPCPanel(HidDevice newPCPanel, DeviceType deviceType) {
+    private void disconnected(String key, DeviceCommunicationHandler handler) {
+        handler.close();
+        eventPublisher.publishEvent(new DeviceDisconnectedEvent(key));
+    }
+
+    /**
+     * Synchronized as both the scanning thread of hid4java and the hotplug and resume threads connect panels.
+     */
+    private synchronized void foundPCPanel(HidDevice newPCPanel, DeviceType deviceType) {
+        if (connectedDeviceMap.containsKey(newPCPanel.getSerialNumber())) {
+            return;
+        }
         log.info("FOUND PCPANEL : {}", newPCPanel);
         try {
             deviceAdded(newPCPanel.getSerialNumber(), newPCPanel, deviceType);
+            var seenAt = hotplugSeenAt;
+            if (seenAt != 0 && connectedDeviceMap.containsKey(newPCPanel.getSerialNumber())) {
+                var millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seenAt);
+                lastTimeToReadyMillis.set(millis);
+                maxTimeToReadyMillis.accumulateAndGet(millis, Math::max);
+                log.info("{} ready {}ms after it was plugged in", newPCPanel.getSerialNumber(), millis);
+            }
         } catch (Exception e) {
             log.error("Unable to handle device added", e);
         }
     }
 
+    /**
+     * A hidraw node of a PCPanel changed, the scan fires the attached and detached events right away. hid4java reports a device as
+     * attached only once, so a panel that could not be opened before, because udev had not set its permissions yet, is connected here
+     * when its permissions change. Until then the time it was first seen is kept for the time to ready.
+     */
+    private void onHotplug(long seenAtNanos) {
+        if (hidServices == null) {
+            return;
+        }
+        hotplugScans.incrementAndGet();
+        if (hotplugSeenAt == 0) {
+            hotplugSeenAt = seenAtNanos;
+        }
+        var waiting = false;
+        try {
+            hidServices.scan();
+            waiting = connectAttached(null);
+        } catch (Exception e) {
+            log.error("Unable to scan for devices after hotplug", e);
+        } finally {
+            if (!waiting) {
+                hotplugSeenAt = 0;
+            }
+        }
+    }
+
+    /**
+     * Connects the attached PCPanels that are not connected, only the given ones when serial numbers are given.
+     *
+     * @return whether an attached PCPanel could not be connected
+     */
+    private boolean connectAttached(@Nullable Collection<String> serialNumbers) {
+        var waiting = false;
+        for (var device : hidServices.getAttachedHidDevices()) {
+            var deviceType = determineDeviceType(device);
+            var serialNumber = device.getSerialNumber();
+            if (deviceType.isEmpty() || serialNumber == null || connectedDeviceMap.containsKey(serialNumber)
+                    || (serialNumbers != null && !serialNumbers.contains(serialNumber))) {
+                continue;
+            }
+            log.info("Connecting attached device that is not connected: {}", device);
+            foundPCPanel(device, deviceType.get());
+            waiting |= !connectedDeviceMap.containsKey(serialNumber);
+        }
+        return waiting;
+    }
+
+    public HotplugStats getHotplugStats() {
+        return new HotplugStats(hotplugMonitor != null, hotplugScans.get(), lastTimeToReadyMillis.get(), maxTimeToReadyMillis.get());
+    }
+
     private void lostPCPanel(HidDevice lostPCPanel) {
         log.info("LOST PCPANEL : {}", lostPCPanel);
         try {
-            deviceRemoved(lostPCPanel.getSerialNumber(), lostPCPanel);
+            deviceRemoved(lostPCPanel.getSerialNumber());
         } catch (Exception e) {
             log.error("Unable to handle device disconnect", e);
         }
@@ -107,21 +236,16 @@ public class DeviceScanner implements HidServicesListener {
         determineDeviceType(event.getHidDevice()).ifPresent(type -> lostPCPanel(event.getHidDevice()));
     }
 
-    public void triggerDeviceRescan() {
-        log.info("Triggering device rescan to reconnect devices after suspend/resume");
+    /**
+     * Enumerates the attached devices and connects the given ones that are attached but not connected.
+     */
+    public void triggerDeviceRescan(Collection<String> serialNumbers) {
+        if (hidServices == null) {
+            return;
+        }
+        log.info("Triggering device rescan to reconnect {} after suspend/resume", serialNumbers);
         try {
-            // Force enumeration of attached devices
-            var attachedDevices = hidServices.getAttachedHidDevices();
-            for (var device : attachedDevices) {
-                var deviceType = determineDeviceType(device);
-                if (deviceType.isPresent()) {
-                    String serialNumber = device.getSerialNumber();
-                    if (serialNumber != null && !connectedDeviceMap.containsKey(serialNumber)) {
-                        log.info("Reconnecting device after resume: {}", device);
-                        foundPCPanel(device, deviceType.get());
-                    }
-                }
-            }
+            connectAttached(serialNumbers);
         } catch (Exception e) {
             log.error("Error during device rescan", e);
         }
@@ -136,6 +260,9 @@ public class DeviceScanner implements HidServicesListener {
     }
 
     public void close() {
+        if (hotplugMonitor != null) {
+            hotplugMonitor.close();
+        }
         try {
             hidServices.shutdown();
         } catch (Exception e) {
@@ -143,6 +270,13 @@ public class DeviceScanner implements HidServicesListener {
         }
     }
 
+    /**
+     * @param active                whether hidraw nodes are watched, otherwise devices are only found by scanning
+     * @param lastTimeToReadyMillis from the hidraw node appearing to the device being connected, -1 when none was plugged in yet
+     */
+    public record HotplugStats(boolean active, long scans, long lastTimeToReadyMillis, long maxTimeToReadyMillis) {
+    }
+
     public record DeviceConnectedEvent(String serialNum, DeviceType deviceType) {
     }
 
@@ -2,6 +2,8 @@ package com.getpcpanel.hid;
 
 import static com.getpcpanel.util.Util.map;
 
+import java.util.Arrays;
+
 import javax.annotation.Nullable;
 
 import com.getpcpanel.commands.command.Command;
@@ -9,12 +11,19 @@ import com.getpcpanel.commands.command.DialAction;
 import com.getpcpanel.commands.command.DialAction.DialCommandParams;
 import com.getpcpanel.profile.KnobSetting;
 
+/**
+ * Maps the 0-255 value of a dial to what a command sets. The values for a command and output range are calculated once into a
+ * curve, after that a value is a lookup.
+ */
 public class DialValueCalculator {
     public static final double EXP_CONST = 1.04723275; // This will make 0-100 map to 1-101 exponentially
+    private static final int VALUES = 256;
+    private static final int MAX_CURVES = 8;
 
     private final boolean logarithmic;
     private final int minTrim;
     private final int maxTrim;
+    private volatile Curve[] curves = new Curve[0];
 
     public DialValueCalculator(@Nullable KnobSetting setting) {
         if (setting == null) {
@@ -28,8 +37,42 @@ public class DialValueCalculator {
         }
     }
 
+    /**
+     * @return whether this calculates the same as a new one for the setting would
+     */
+    public boolean matches(@Nullable KnobSetting setting) {
+        if (setting == null) {
+            return !logarithmic && minTrim == 0 && maxTrim == 100;
+        }
+        return logarithmic == setting.isLogarithmic() && minTrim == setting.getMinTrim() && maxTrim == setting.getMaxTrim();
+    }
+
     public float calcValue(@Nullable Command cmd, int value, float min, float max) {
         var cmdParams = (cmd instanceof DialAction da && da.getDialParams() != null) ? da.getDialParams() : DialCommandParams.DEFAULT;
+        if (value < 0 || value >= VALUES) {
+            return calculate(cmdParams, value, min, max);
+        }
+        var current = curves;
+        for (var curve : current) {
+            if (curve.matches(cmdParams, min, max)) {
+                return curve.values[value];
+            }
+        }
+        if (current.length >= MAX_CURVES) {
+            return calculate(cmdParams, value, min, max);
+        }
+        var curve = new Curve(cmdParams, min, max, new float[VALUES]);
+        for (var i = 0; i < VALUES; i++) {
+            curve.values[i] = calculate(cmdParams, i, min, max);
+        }
+        // A curve added by another thread meanwhile may get lost, it is then calculated again
+        var added = Arrays.copyOf(current, current.length + 1);
+        added[current.length] = curve;
+        curves = added;
+        return curve.values[value];
+    }
+
+    private float calculate(DialCommandParams cmdParams, int value, float min, float max) {
         var moveResult = attemptMoveValue(cmdParams, value, min, max);
         if (moveResult.returnImmediate) {
             return moveResult.newValue;
@@ -69,4 +112,10 @@ public class DialValueCalculator {
 
     record MoveResult(float newValue, boolean returnImmediate) {
     }
+
+    private record Curve(DialCommandParams params, float min, float max, float[] values) {
+        private boolean matches(DialCommandParams otherParams, float otherMin, float otherMax) {
+            return min == otherMin && max == otherMax && params.equals(otherParams);
+        }
+    }
 }
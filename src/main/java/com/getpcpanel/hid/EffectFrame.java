@@ -0,0 +1,48 @@
+package com.getpcpanel.hid;
+
+import java.util.Arrays;
+
+import com.getpcpanel.profile.LightingEffect.EFFECT_TARGET;
+
+/**
+ * The colours of one rendered effect frame as 0xRRGGBB, one slot per knob, slider, slider label and logo. Slots that no effect
+ * covers are {@link #NONE} and keep the lighting of the config.
+ */
+final class EffectFrame {
+    static final int NONE = -1;
+    private final int[][] parts = new int[EFFECT_TARGET.values().length][];
+
+    EffectFrame(int knobs, int sliders, boolean hasLogo) {
+        parts[EFFECT_TARGET.KNOB.ordinal()] = new int[knobs];
+        parts[EFFECT_TARGET.SLIDER.ordinal()] = new int[sliders];
+        parts[EFFECT_TARGET.SLIDER_LABEL.ordinal()] = new int[sliders];
+        parts[EFFECT_TARGET.LOGO.ordinal()] = new int[hasLogo ? 1 : 0];
+        clear();
+    }
+
+    int[] part(EFFECT_TARGET target) {
+        return parts[target.ordinal()];
+    }
+
+    /**
+     * @return whether an effect covers any slot of the part
+     */
+    boolean covers(EFFECT_TARGET target) {
+        for (var color : part(target)) {
+            if (color != NONE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void clear() {
+        for (var part : parts) {
+            Arrays.fill(part, NONE);
+        }
+    }
+
+    boolean samePart(EffectFrame other, EFFECT_TARGET target) {
+        return Arrays.equals(part(target), other.part(target));
+    }
+}
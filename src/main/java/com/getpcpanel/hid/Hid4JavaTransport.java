@@ -0,0 +1,30 @@
+package com.getpcpanel.hid;
+
+import org.hid4java.HidDevice;
+
+public record Hid4JavaTransport(HidDevice device) implements HidTransport {
+    @Override
+    public String serialNumber() {
+        return device.getSerialNumber();
+    }
+
+    @Override
+    public int read(byte[] data, int timeoutMillis) {
+        return device.read(data, timeoutMillis);
+    }
+
+    @Override
+    public int write(byte[] message, int length, byte reportId) {
+        return device.write(message, length, reportId);
+    }
+
+    @Override
+    public String lastErrorMessage() {
+        return device.getLastErrorMessage();
+    }
+
+    @Override
+    public void close() {
+        device.close();
+    }
+}
@@ -0,0 +1,28 @@
+package com.getpcpanel.hid;
+
+/**
+ * The USB boundary of a connected panel, {@link DeviceCommunicationHandler} only talks to the device through this. Implemented by
+ * {@link Hid4JavaTransport} for real panels and by {@link SimulatedDevice} for runs without hardware.
+ */
+public interface HidTransport {
+    String serialNumber();
+
+    /**
+     * Reads one input packet into data.
+     *
+     * @return the number of bytes read, 0 on timeout and -1 when the device is gone
+     */
+    int read(byte[] data, int timeoutMillis);
+
+    /**
+     * @return the number of bytes written, negative on failure
+     */
+    int write(byte[] message, int length, byte reportId);
+
+    String lastErrorMessage();
+
+    /**
+     * Releases the device, it is opened again when it is connected again. Nothing may read or write while it closes.
+     */
+    void close();
+}
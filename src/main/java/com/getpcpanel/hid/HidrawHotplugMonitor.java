@@ -0,0 +1,142 @@
+package com.getpcpanel.hid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.getpcpanel.device.DeviceType;
+
+import lombok.extern.log4j.Log4j2;
+import one.util.streamex.StreamEx;
+
+/**
+ * Watches the hidraw nodes in /dev, which the JDK does with inotify on Linux, and reports when a node of a PCPanel appears,
+ * disappears or gets its permissions from udev. The vendor and product of a new node are read from sysfs, so plugging in other
+ * HID devices does not lead to an enumeration. The node of a device is remembered, as sysfs is gone by the time it is removed.
+ * <p>
+ * Changes within {@link #SETTLE_MILLIS} are reported once, with the time the first of them was seen.
+ */
+@Log4j2
+final class HidrawHotplugMonitor implements Closeable {
+    static final Path DEV = Path.of("/dev");
+    static final Path SYS_HIDRAW = Path.of("/sys/class/hidraw");
+    /** udev changes the permissions of a new node right after it was created, a scan before that can not open the device */
+    static final long SETTLE_MILLIS = 50;
+    private static final String NODE_PREFIX = "hidraw";
+    private static final String HID_ID = "HID_ID=";
+    private final Path sysHidraw;
+    private final LongConsumer onChange;
+    private final WatchService watchService;
+    private final Map<String, DeviceType> nodes = new ConcurrentHashMap<>();
+
+    private HidrawHotplugMonitor(Path dev, Path sysHidraw, LongConsumer onChange) throws IOException {
+        this.sysHidraw = sysHidraw;
+        this.onChange = onChange;
+        watchService = dev.getFileSystem().newWatchService();
+        dev.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        try (var existing = Files.list(dev)) {
+            StreamEx.of(existing.iterator()).map(p -> p.getFileName().toString()).filter(n -> n.startsWith(NODE_PREFIX)).forEach(this::matches);
+        }
+    }
+
+    /**
+     * @param onChange called on the watching thread with the {@link System#nanoTime()} of the first change
+     * @return empty when the nodes can not be watched, the caller then has to rely on scanning
+     */
+    static Optional<HidrawHotplugMonitor> start(Path dev, Path sysHidraw, LongConsumer onChange) {
+        if (!Files.isDirectory(dev) || !Files.isDirectory(sysHidraw)) {
+            return Optional.empty();
+        }
+        try {
+            var monitor = new HidrawHotplugMonitor(dev, sysHidraw, onChange);
+            var thread = new Thread(monitor::run, "Hidraw hotplug");
+            thread.setDaemon(true);
+            thread.start();
+            return Optional.of(monitor);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("Unable to watch {} for PCPanels being plugged in: {}", dev, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void run() {
+        var firstChange = 0L;
+        try {
+            while (true) {
+                var key = firstChange == 0 ? watchService.take() : watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    onChange.accept(firstChange);
+                    firstChange = 0;
+                    continue;
+                }
+                for (var event : key.pollEvents()) {
+                    if (isChange(event) && firstChange == 0) {
+                        firstChange = System.nanoTime();
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            log.debug("Stopped watching for PCPanels being plugged in");
+        } catch (Exception e) {
+            log.error("Stopped watching for PCPanels being plugged in", e);
+        }
+    }
+
+    private boolean isChange(WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            return true;
+        }
+        var node = event.context().toString();
+        if (!node.startsWith(NODE_PREFIX)) {
+            return false;
+        }
+        if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+            return nodes.remove(node) != null;
+        }
+        return nodes.containsKey(node) || matches(node);
+    }
+
+    private boolean matches(String node) {
+        var type = deviceType(sysHidraw.resolve(node).resolve("device").resolve("uevent"));
+        type.ifPresent(t -> nodes.put(node, t));
+        return type.isPresent();
+    }
+
+    /**
+     * @param uevent the uevent file of the HID device of a hidraw node, with a line like `HID_ID=0003:00000483:0000A3C5`
+     */
+    static Optional<DeviceType> deviceType(Path uevent) {
+        try (var lines = Files.lines(uevent)) {
+            return StreamEx.of(lines.iterator())
+                           .findFirst(line -> line.startsWith(HID_ID))
+                           .map(line -> StringUtils.split(line.substring(HID_ID.length()), ':'))
+                           .filter(parts -> parts.length == 3)
+                           .flatMap(parts -> StreamEx.of(DeviceType.ALL)
+                                                     .findFirst(t -> t.getVid() == Integer.parseInt(parts[1], 16) && t.getPid() == Integer.parseInt(parts[2], 16)));
+        } catch (IOException | NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.trace("Unable to close hotplug watcher", e);
+        }
+    }
+}
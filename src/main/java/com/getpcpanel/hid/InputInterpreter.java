@@ -5,9 +5,6 @@ import static com.getpcpanel.util.Util.map;
 import static java.util.Objects.requireNonNullElse;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
@@ -16,20 +13,26 @@ import org.springframework.stereotype.Service;
 import com.getpcpanel.commands.PCPanelControlEvent;
 import com.getpcpanel.device.DeviceType;
 import com.getpcpanel.profile.SaveService;
-import com.getpcpanel.util.Debouncer;
+import com.getpcpanel.util.TimingWheel;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 
 @Log4j2
 @Service
-@RequiredArgsConstructor
 public final class InputInterpreter {
     private final SaveService save;
     private final DeviceHolder devices;
     private final ApplicationEventPublisher eventPublisher;
-    private final Debouncer debouncer;
-    private final Map<ClickId, Long> lastClicks = new HashMap<>();
+    private final ControlPlans plans;
+    private final ButtonGestureRecognizer gestureRecognizer;
+
+    public InputInterpreter(SaveService save, DeviceHolder devices, ApplicationEventPublisher eventPublisher, ControlPlans plans, TimingWheel timingWheel) {
+        this.save = save;
+        this.devices = devices;
+        this.eventPublisher = eventPublisher;
+        this.plans = plans;
+        gestureRecognizer = new ButtonGestureRecognizer(timingWheel, new GestureSettings(), this::onGesture);
+    }
 
     @EventListener
     public void onKnobRotate(DeviceCommunicationHandler.KnobRotateEvent event) {
@@ -39,63 +42,59 @@ public final class InputInterpreter {
                 value = map(value, 0, 100, 0, 255);
             }
             device.setKnobRotation(event.knob(), value);
-            var settings = save.getProfile(event.serialNum()).map(p -> p.getKnobSettings(event.knob())).orElse(null);
-            doDialAction(event.serialNum(), event.initial(), event.knob(), new DialValue(settings, value));
+            var plan = plans.get(event.serialNum());
+            var data = plan == null ? null : plan.dial(event.knob());
+            if (data != null) {
+                eventPublisher.publishEvent(new PCPanelControlEvent(event.serialNum(), event.knob(), data, event.initial(), new DialValue(plan.calculator(event.knob()), value)));
+            }
         });
     }
 
     @EventListener
     public void onButtonPress(DeviceCommunicationHandler.ButtonPressEvent event) throws IOException {
+        var now = System.nanoTime();
         devices.getDevice(event.serialNum()).ifPresent(device -> device.setButtonPressed(event.button(), event.pressed()));
-        if (event.pressed())
-            doClickAction(event.serialNum(), event.button());
+        gestureRecognizer.onButton(event.serialNum(), event.button(), event.pressed(), now);
     }
 
-    private void doDialAction(String serialNum, boolean initial, int knob, DialValue v) {
-        save.getProfile(serialNum).map(p -> p.getDialData(knob)).ifPresent(data -> eventPublisher.publishEvent(new PCPanelControlEvent(serialNum, knob, data, initial, v)));
+    @EventListener
+    public void onDisconnect(DeviceScanner.DeviceDisconnectedEvent event) {
+        gestureRecognizer.forget(event.serialNum());
     }
 
-    private void doClickAction(String serialNum, int knob) {
-        var clickId = new ClickId(serialNum, knob);
-        var timeDiff = System.currentTimeMillis() - lastClicks.getOrDefault(clickId, 0L);
-        determineClick(clickId, timeDiff);
+    private void onGesture(String serialNum, int button, ButtonGesture gesture) {
+        eventPublisher.publishEvent(new ButtonClickEvent(serialNum, button, gesture));
     }
 
-    private void determineClick(ClickId clickId, long timeDiff) {
-        long debounceTime = requireNonNullElse(save.get().getDblClickInterval(), 500L);
-        var isDblClick = timeDiff < debounceTime;
+    @EventListener
+    public void onButtonPress(ButtonClickEvent event) {
+        var plan = plans.get(event.serialNum());
+        var commands = plan == null ? null : plan.button(event.button(), event.gesture());
+        if (hasCommands(commands)) {
+            eventPublisher.publishEvent(new PCPanelControlEvent(event.serialNum(), event.button(), commands, false, null));
+        }
+    }
 
-        if (isDblClick) {
-            debouncer.debounce(clickId, () -> {
-            }, debounceTime, TimeUnit.MILLISECONDS);
-            eventPublisher.publishEvent(new ButtonClickEvent(clickId.serialNum(), clickId.button(), true));
-            lastClicks.remove(clickId);
-            return;
+    private final class GestureSettings implements ButtonGestureRecognizer.Settings {
+        @Override
+        public int gestures(String serialNum, int button) {
+            var plan = plans.get(serialNum);
+            return plan == null ? 0 : plan.gestures(button);
         }
 
-        lastClicks.put(clickId, System.currentTimeMillis());
-        Runnable trigger = () -> eventPublisher.publishEvent(new ButtonClickEvent(clickId.serialNum(), clickId.button(), false));
-        if (save.get().isPreventClickWhenDblClick()) {
-            debouncer.debounce(clickId, trigger, debounceTime, TimeUnit.MILLISECONDS);
-        } else {
-            trigger.run();
+        @Override
+        public long doubleClickMillis() {
+            return requireNonNullElse(save.get().getDblClickInterval(), 500L);
         }
-    }
 
-    @EventListener
-    public void onButtonPress(ButtonClickEvent event) {
-        save.getProfile(event.serialNum()).ifPresent(profile -> {
-            var click = profile.getButtonData(event.button());
-            var dblClick = profile.getDblButtonData(event.button());
-
-            if (event.dblClick() && hasCommands(dblClick)) {
-                eventPublisher.publishEvent(new PCPanelControlEvent(event.serialNum(), event.button(), dblClick, false, null));
-            } else if (!event.dblClick() && hasCommands(click)) {
-                eventPublisher.publishEvent(new PCPanelControlEvent(event.serialNum(), event.button(), click, false, null));
-            }
-        });
-    }
+        @Override
+        public long longPressMillis() {
+            return requireNonNullElse(save.get().getLongPressInterval(), 600L);
+        }
 
-    private record ClickId(String serialNum, int button) {
+        @Override
+        public long repeatMillis() {
+            return Math.max(10, requireNonNullElse(save.get().getRepeatInterval(), 150L));
+        }
     }
 }
@@ -0,0 +1,340 @@
+package com.getpcpanel.hid;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.getpcpanel.profile.KnobFilter;
+
+/**
+ * The {@link KnobFilter}s of one dial or slider, applied in order to every value on the reader thread. The state of the stages is
+ * primitive, so filtering does not allocate.
+ * <p>
+ * A dial only sends when it moves, so a smoothing stage would stay behind when it stops. When no value came in for a while the
+ * smoothing stages jump to their last input, {@link #nextSettleNanos()} tells when that is due, {@link #settle} does it.
+ */
+final class KnobFilterChain {
+    static final int NO_VALUE = -1;
+    private static final int MAX_VALUE = 255;
+    private static final long NO_SETTLE = Long.MAX_VALUE;
+    private static final long MEDIAN_SETTLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private final KnobFilter[] filters;
+    private final Stage[] stages;
+    private final long settleAfterNanos;
+    private long nextSettleNanos = NO_SETTLE;
+
+    KnobFilterChain(KnobFilter[] filters) {
+        this.filters = filters.clone();
+        stages = Arrays.stream(filters).map(KnobFilterChain::stage).toArray(Stage[]::new);
+        settleAfterNanos = Arrays.stream(stages).mapToLong(Stage::settleAfterNanos).max().orElse(0);
+    }
+
+    /**
+     * The global settings of before filters could be set per dial: a rolling average over a window follows about like an EMA with
+     * half the window as time constant, and the delta is a hysteresis.
+     *
+     * @return the filters, or empty when the values pass as they are
+     */
+    static KnobFilter[] legacyFilters(@Nullable Integer rollingAverageMs, @Nullable Integer delta) {
+        var result = new KnobFilter[(rollingAverageMs == null ? 0 : 1) + (delta == null ? 0 : 1)];
+        var i = 0;
+        if (rollingAverageMs != null) {
+            result[i++] = new KnobFilter().setType(KnobFilter.FILTER_TYPE.EMA).setTimeConstantMs(Math.max(1, rollingAverageMs / 2));
+        }
+        if (delta != null) {
+            result[i] = new KnobFilter().setType(KnobFilter.FILTER_TYPE.HYSTERESIS).setThreshold(delta);
+        }
+        return result;
+    }
+
+    private static Stage stage(KnobFilter filter) {
+        return switch (filter.getType()) {
+            case EMA -> new Ema(TimeUnit.MILLISECONDS.toNanos(Math.max(1, filter.getTimeConstantMs())));
+            case ONE_EURO -> new OneEuro(Math.max(0.01, filter.getMinCutoff()), Math.max(0, filter.getBeta()));
+            case MEDIAN -> new Median(Math.max(1, Math.min(15, filter.getSize() | 1)));
+            case HYSTERESIS -> new Hysteresis(Math.max(0, filter.getThreshold()));
+        };
+    }
+
+    boolean isEmpty() {
+        return stages.length == 0;
+    }
+
+    /**
+     * @return whether this chain was built from filters equal to these, so its state can be kept
+     */
+    boolean sameFilters(KnobFilter[] other) {
+        return Arrays.equals(filters, other);
+    }
+
+    /**
+     * An initial value is passed as is and becomes the state of all stages.
+     */
+    void reset(int value, long nowNanos) {
+        for (var stage : stages) {
+            stage.reset(value, nowNanos);
+        }
+        nextSettleNanos = NO_SETTLE;
+    }
+
+    int apply(int value, long nowNanos) {
+        var pending = false;
+        for (var stage : stages) {
+            value = stage.apply(value, nowNanos);
+            pending |= stage.pending();
+        }
+        nextSettleNanos = pending ? nowNanos + settleAfterNanos : NO_SETTLE;
+        return value;
+    }
+
+    long nextSettleNanos() {
+        return nextSettleNanos;
+    }
+
+    /**
+     * @return the value the chain settles on when no value came in since {@link #nextSettleNanos()}, or {@link #NO_VALUE}
+     */
+    int settle(long nowNanos) {
+        if (nowNanos - nextSettleNanos < 0) {
+            return NO_VALUE;
+        }
+        nextSettleNanos = NO_SETTLE;
+        var value = NO_VALUE;
+        for (var stage : stages) {
+            if (value != NO_VALUE) {
+                value = stage.apply(value, nowNanos);
+            }
+            if (stage.pending()) {
+                value = stage.settle();
+            }
+        }
+        return value;
+    }
+
+    private abstract static class Stage {
+        protected int lastIn = NO_VALUE;
+
+        abstract int apply(int value, long nowNanos);
+
+        abstract void reset(int value, long nowNanos);
+
+        /**
+         * @return whether the output is not yet where the input stopped
+         */
+        abstract boolean pending();
+
+        /**
+         * Jumps to the last input.
+         *
+         * @return the new output
+         */
+        abstract int settle();
+
+        abstract long settleAfterNanos();
+    }
+
+    private static final class Ema extends Stage {
+        private final long timeConstantNanos;
+        private double out;
+        private long lastNanos;
+
+        private Ema(long timeConstantNanos) {
+            this.timeConstantNanos = timeConstantNanos;
+        }
+
+        @Override
+        int apply(int value, long nowNanos) {
+            if (lastIn == NO_VALUE) {
+                out = value;
+            } else {
+                out += (1 - Math.exp(-(double) (nowNanos - lastNanos) / timeConstantNanos)) * (value - out);
+            }
+            lastIn = value;
+            lastNanos = nowNanos;
+            return (int) Math.round(out);
+        }
+
+        @Override
+        void reset(int value, long nowNanos) {
+            out = value;
+            lastIn = value;
+            lastNanos = nowNanos;
+        }
+
+        @Override
+        boolean pending() {
+            return lastIn != NO_VALUE && Math.round(out) != lastIn;
+        }
+
+        @Override
+        int settle() {
+            out = lastIn;
+            return lastIn;
+        }
+
+        @Override
+        long settleAfterNanos() {
+            return 2 * timeConstantNanos;
+        }
+    }
+
+    /**
+     * Casiez et al., "1€ Filter: A Simple Speed-based Low-pass Filter for Noisy Input in Interactive Systems", CHI 2012.
+     */
+    private static final class OneEuro extends Stage {
+        private static final double DERIVATIVE_CUTOFF = 1;
+        private final double minCutoff;
+        private final double beta;
+        private double out;
+        private double derivative;
+        private long lastNanos;
+
+        private OneEuro(double minCutoff, double beta) {
+            this.minCutoff = minCutoff;
+            this.beta = beta;
+        }
+
+        @Override
+        int apply(int value, long nowNanos) {
+            if (lastIn == NO_VALUE) {
+                out = value;
+                derivative = 0;
+            } else {
+                var dt = Math.max(1e-4, (nowNanos - lastNanos) / 1e9);
+                derivative += alpha(dt, DERIVATIVE_CUTOFF) * ((value - out) / dt - derivative);
+                out += alpha(dt, minCutoff + beta * Math.abs(derivative)) * (value - out);
+            }
+            lastIn = value;
+            lastNanos = nowNanos;
+            return (int) Math.round(out);
+        }
+
+        private static double alpha(double dt, double cutoff) {
+            var tau = 1 / (2 * Math.PI * cutoff);
+            return 1 / (1 + tau / dt);
+        }
+
+        @Override
+        void reset(int value, long nowNanos) {
+            out = value;
+            derivative = 0;
+            lastIn = value;
+            lastNanos = nowNanos;
+        }
+
+        @Override
+        boolean pending() {
+            return lastIn != NO_VALUE && Math.round(out) != lastIn;
+        }
+
+        @Override
+        int settle() {
+            out = lastIn;
+            derivative = 0;
+            return lastIn;
+        }
+
+        @Override
+        long settleAfterNanos() {
+            //noinspection NumericCastThatLosesPrecision
+            return (long) (2e9 / (2 * Math.PI * minCutoff));
+        }
+    }
+
+    private static final class Median extends Stage {
+        private final int[] window;
+        private final int[] sorted;
+        private int pos;
+        private int filled;
+        private int out = NO_VALUE;
+
+        private Median(int size) {
+            window = new int[size];
+            sorted = new int[size];
+        }
+
+        @Override
+        int apply(int value, long nowNanos) {
+            window[pos] = value;
+            pos = (pos + 1) % window.length;
+            filled = Math.min(filled + 1, window.length);
+            // Insertion sort of at most 15 values
+            for (var i = 0; i < filled; i++) {
+                var v = window[i];
+                var j = i - 1;
+                while (j >= 0 && sorted[j] > v) {
+                    sorted[j + 1] = sorted[j];
+                    j--;
+                }
+                sorted[j + 1] = v;
+            }
+            lastIn = value;
+            out = sorted[filled / 2];
+            return out;
+        }
+
+        @Override
+        void reset(int value, long nowNanos) {
+            Arrays.fill(window, value);
+            filled = window.length;
+            lastIn = value;
+            out = value;
+        }
+
+        @Override
+        boolean pending() {
+            return out != lastIn;
+        }
+
+        @Override
+        int settle() {
+            reset(lastIn, 0);
+            return lastIn;
+        }
+
+        @Override
+        long settleAfterNanos() {
+            return MEDIAN_SETTLE_NANOS;
+        }
+    }
+
+    private static final class Hysteresis extends Stage {
+        private final int threshold;
+        private int out = NO_VALUE;
+
+        private Hysteresis(int threshold) {
+            this.threshold = threshold;
+        }
+
+        @Override
+        int apply(int value, long nowNanos) {
+            if (out == NO_VALUE || Math.abs(value - out) > threshold || value == 0 || value == MAX_VALUE) {
+                out = value;
+            }
+            lastIn = value;
+            return out;
+        }
+
+        @Override
+        void reset(int value, long nowNanos) {
+            out = value;
+            lastIn = value;
+        }
+
+        @Override
+        boolean pending() {
+            return false;
+        }
+
+        @Override
+        int settle() {
+            return out;
+        }
+
+        @Override
+        long settleAfterNanos() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.getpcpanel.hid;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Packets waiting to be written to a device, in a priority and a bulk lane. Priority packets are always written first.
+ * <p>
+ * Lighting packets only describe the latest state of a part of the device, so each lane keeps at most one packet per
+ * {@link FrameKind}: a newer packet replaces the unsent one and moves to the back, which keeps the order in which the parts were last
+ * changed. A priority lighting packet is always part of a full lighting config, so it also replaces all unsent bulk lighting packets.
+ * Packets that are not recognized are never replaced.
+ * <p>
+ * Every packet has a future that completes once it is written. The future of a replaced packet completes together with the packet
+ * that replaced it, a bulk packet that is not written before its deadline is dropped and its future fails with a
+ * {@link TimeoutException}.
+ */
+final class LatestFrameQueue {
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    @GuardedBy("this") private final Map<Object, Frame> priority = new LinkedHashMap<>();
+    @GuardedBy("this") private final Map<Object, Frame> bulk = new LinkedHashMap<>();
+    @GuardedBy("this") private long queued;
+    @GuardedBy("this") private long superseded;
+    @GuardedBy("this") private long dropped;
+
+    CompletableFuture<Void> add(byte[] frame, boolean isPriority) {
+        return add(frame, isPriority, NO_DEADLINE);
+    }
+
+    /**
+     * @param deadlineNanos {@link System#nanoTime()} after which the bulk packet is dropped when it was not written yet
+     */
+    synchronized CompletableFuture<Void> add(byte[] frame, boolean isPriority, long deadlineNanos) {
+        var kind = FrameKind.of(frame);
+        var key = kind == FrameKind.OTHER ? new Object() : kind;
+        var added = new Frame(frame, new CompletableFuture<>(), isPriority ? NO_DEADLINE : deadlineNanos);
+        queued++;
+        supersede((isPriority ? priority : bulk).remove(key), added);
+        if (isPriority && kind.isLighting()) {
+            for (var it = bulk.entrySet().iterator(); it.hasNext(); ) {
+                var pending = it.next().getValue();
+                if (FrameKind.of(pending.data()).isLighting()) {
+                    it.remove();
+                    supersede(pending, added);
+                }
+            }
+        }
+        (isPriority ? priority : bulk).put(key, added);
+        notifyAll();
+        return added.done();
+    }
+
+    @GuardedBy("this")
+    private void supersede(@Nullable Frame replaced, Frame by) {
+        if (replaced == null) {
+            return;
+        }
+        superseded++;
+        by.done().whenComplete((ignored, e) -> {
+            if (e == null) {
+                replaced.done().complete(null);
+            } else {
+                replaced.done().completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * @return the oldest pending priority packet, or else the oldest bulk packet that did not pass its deadline, null when there was
+     * none within the timeout
+     */
+    synchronized @Nullable Frame poll(long timeoutMillis) throws InterruptedException {
+        var end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            var result = first(priority);
+            if (result == null) {
+                result = firstBeforeDeadline();
+            }
+            var left = end - System.nanoTime();
+            if (result != null || left <= 0) {
+                return result;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+        }
+    }
+
+    /**
+     * Waits until a priority packet is pending or the time passed.
+     */
+    synchronized void awaitPriority(long nanos) throws InterruptedException {
+        var end = System.nanoTime() + nanos;
+        var left = nanos;
+        while (priority.isEmpty() && left > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+            left = end - System.nanoTime();
+        }
+    }
+
+    @GuardedBy("this")
+    private @Nullable Frame firstBeforeDeadline() {
+        var now = System.nanoTime();
+        while (true) {
+            var result = first(bulk);
+            if (result == null || result.deadlineNanos() - now >= 0) {
+                return result;
+            }
+            dropped++;
+            result.done().completeExceptionally(new TimeoutException("Packet not written before its deadline"));
+        }
+    }
+
+    private static @Nullable Frame first(Map<Object, Frame> lane) {
+        var it = lane.values().iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        var result = it.next();
+        it.remove();
+        return result;
+    }
+
+    /**
+     * Fails all pending packets, used when the device is gone.
+     */
+    void failAll(String reason) {
+        var pending = new ArrayList<Frame>();
+        synchronized (this) {
+            pending.addAll(priority.values());
+            pending.addAll(bulk.values());
+            priority.clear();
+            bulk.clear();
+        }
+        pending.forEach(f -> f.done().completeExceptionally(new IOException(reason)));
+    }
+
+    synchronized long queued() {
+        return queued;
+    }
+
+    synchronized long superseded() {
+        return superseded;
+    }
+
+    synchronized long dropped() {
+        return dropped;
+    }
+
+    record Frame(byte[] data, CompletableFuture<Void> done, long deadlineNanos) {
+    }
+
+    enum FrameKind {
+        INIT, KNOB, SLIDER, LABEL, LOGO, ANIMATION, OTHER;
+
+        boolean isLighting() {
+            return this != INIT && this != OTHER;
+        }
+
+        static FrameKind of(byte[] frame) {
+            if (frame.length == 0) {
+                return OTHER;
+            }
+            if (frame.length == 1 && frame[0] == OutputInterpreter.OUTPUT_CODE_INIT[0]) {
+                return INIT;
+            }
+            if (frame[0] == OutputInterpreter.OUTPUT_CODE_RGB) {
+                return ANIMATION; // Every packet of the RGB panel sets the lighting of the whole device
+            }
+            if ((frame[0] == OutputInterpreter.PREFIX_PRO || frame[0] == OutputInterpreter.PREFIX_MINI) && frame.length > 1) {
+                return switch (frame[1]) {
+                    case OutputInterpreter.CUSTOM_SLIDER -> SLIDER;
+                    case OutputInterpreter.CUSTOM_SLIDER_LABEL -> LABEL;
+                    case OutputInterpreter.CUSTOM_KNOB -> KNOB;
+                    case OutputInterpreter.CUSTOM_LOGO -> LOGO;
+                    case OutputInterpreter.MODE_LIGHT_ANIMATION -> ANIMATION;
+                    default -> OTHER;
+                };
+            }
+            return OTHER;
+        }
+    }
+}
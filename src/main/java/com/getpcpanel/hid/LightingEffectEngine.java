@@ -0,0 +1,377 @@
+package com.getpcpanel.hid;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.getpcpanel.device.DeviceType;
+import com.getpcpanel.hid.DeviceCommunicationHandler.KnobRotateEvent;
+import com.getpcpanel.profile.LightingConfig;
+import com.getpcpanel.profile.LightingConfig.LightingMode;
+import com.getpcpanel.profile.LightingEffect;
+import com.getpcpanel.profile.LightingEffect.EFFECT_TARGET;
+import com.getpcpanel.profile.LightingEffect.EFFECT_TYPE;
+import com.getpcpanel.util.coloroverride.OverrideColorService;
+import com.getpcpanel.util.coloroverride.OverrideColors;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Renders the {@link LightingEffect}s of custom lighting configs on the host. One thread renders a frame for all animated devices at a
+ * fixed rate into a back buffer, which is only sent when it differs from the last frame that was sent.
+ * <p>
+ * A device that did not write the previous frame yet is skipped, and a sent frame is dropped by the writer when it is not written
+ * within two frames, so a slow device gets fewer frames instead of a backlog. A frame that was not written is not taken as shown, the
+ * next one is sent completely. The effects are compiled when the config is set, so a frame is a few operations per slot; the frame
+ * time and the dropped frames are kept per device in {@link EffectStats}, which are logged every minute while the effects run.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+public class LightingEffectEngine {
+    private static final int MIN_FPS = 30;
+    private static final int MAX_FPS = 60;
+    private static final int MAX_EFFECTS = 32;
+    private static final int MAX_ANALOG = 255;
+    private static final int DEFAULT_COLOR1 = 0xFFFFFF;
+    private static final int DEFAULT_COLOR2 = 0;
+    private static final long STATS_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final CompletableFuture<Void> NOTHING_PENDING = CompletableFuture.completedFuture(null);
+    private static final IntUnaryOperator SILENCE = analog -> 0;
+    private static final EFFECT_TARGET[] TARGETS = EFFECT_TARGET.values();
+    private final OutputInterpreter outputInterpreter;
+    private final OverrideColorService overrideColorService;
+    @Value("${pcpanel.lighting.effects-fps:30}") private final int fps;
+    /** The audio levels for {@link EFFECT_TYPE#VU_METER}, only available on Linux for now */
+    @Autowired(required = false) @Setter @Nullable private AudioLevelSource audioLevelSource;
+    private final Map<String, Animation> animations = new ConcurrentHashMap<>();
+    /** Written by the HID reader threads, copied by the render thread */
+    private final Map<String, AtomicIntegerArray> analogValues = new ConcurrentHashMap<>();
+    @GuardedBy("this") @Nullable private ScheduledExecutorService scheduler;
+    @GuardedBy("this") @Nullable private ScheduledFuture<?> ticker;
+
+    /**
+     * Starts, changes or stops the effects of the device for the lighting config that was just sent to it.
+     */
+    public void update(String serialNumber, DeviceType dt, LightingConfig config) {
+        var effects = config.getLightingMode() == LightingMode.CUSTOM && dt != DeviceType.PCPANEL_RGB ? compile(serialNumber, config.getEffects()) : List.<CompiledEffect>of();
+        if (effects.isEmpty()) {
+            stop(serialNumber);
+            return;
+        }
+        animations.compute(serialNumber, (serial, current) -> {
+            var result = current != null && current.fits(config) ? current : new Animation(serial, dt, config);
+            result.set(config, effects);
+            return result;
+        });
+        startTicker();
+    }
+
+    public void stop(String serialNumber) {
+        var stopped = animations.remove(serialNumber);
+        if (stopped != null) {
+            log.info("Effects of {} stopped: {}", serialNumber, stopped.stats());
+            stopTickerWhenIdle();
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(DeviceScanner.DeviceDisconnectedEvent event) {
+        stop(event.serialNum());
+        analogValues.remove(event.serialNum());
+    }
+
+    @EventListener
+    public void onKnobRotate(KnobRotateEvent event) {
+        var values = analogValues.computeIfAbsent(event.serialNum(), s -> new AtomicIntegerArray(DeviceType.PCPANEL_PRO.getAnalogCount()));
+        if (event.knob() >= 0 && event.knob() < values.length()) {
+            values.set(event.knob(), event.value());
+        }
+    }
+
+    public Optional<EffectStats> getStats(String serialNumber) {
+        return Optional.ofNullable(animations.get(serialNumber)).map(Animation::stats);
+    }
+
+    long framePeriodNanos() {
+        return TimeUnit.SECONDS.toNanos(1) / Math.max(MIN_FPS, Math.min(MAX_FPS, fps));
+    }
+
+    private synchronized void startTicker() {
+        if (ticker != null) {
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                var thread = new Thread(r, "Lighting effects");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        ticker = scheduler.scheduleAtFixedRate(this::tick, 0, framePeriodNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized void stopTickerWhenIdle() {
+        if (ticker != null && animations.isEmpty()) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+    }
+
+    private void tick() {
+        var now = System.nanoTime();
+        for (var animation : animations.values()) {
+            try {
+                animation.tick(now);
+            } catch (Exception e) {
+                log.debug("Unable to render the effects of {}", animation.serialNumber, e);
+            }
+        }
+    }
+
+    private static List<CompiledEffect> compile(String serialNumber, LightingEffect[] effects) {
+        var result = new ArrayList<CompiledEffect>(Math.min(effects.length, MAX_EFFECTS));
+        for (var effect : effects) {
+            if (result.size() == MAX_EFFECTS) {
+                log.warn("{} has more than {} lighting effects, ignoring the rest", serialNumber, MAX_EFFECTS);
+                break;
+            }
+            if (effect.getType() == null || effect.getTarget() == null || effect.getIndex() < LightingEffect.ALL_SLOTS) {
+                log.warn("Ignoring incomplete lighting effect {} of {}", effect, serialNumber);
+                continue;
+            }
+            try {
+                result.add(new CompiledEffect(effect.getType(), effect.getTarget(), effect.getIndex(),
+                        effect.getColor1() == null ? DEFAULT_COLOR1 : ColorCache.rgb(effect.getColor1()),
+                        effect.getColor2() == null ? DEFAULT_COLOR2 : ColorCache.rgb(effect.getColor2()),
+                        TimeUnit.MILLISECONDS.toNanos(Math.max(1, effect.getPeriodMillis())),
+                        effect.getAnalog() == null ? -1 : effect.getAnalog()));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring lighting effect {} of {}: {}", effect, serialNumber, e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Renders the effects into the frame. Effects are applied in order, so a later effect on the same slot wins. An active mute
+     * override is only replaced by a {@link EFFECT_TYPE#MUTE_PULSE}, the other effects leave it visible.
+     *
+     * @param analog values of the dials and sliders, the sliders follow the knobs
+     * @param level  audio level of what a dial or slider controls, indexed like analog
+     */
+    static void render(List<CompiledEffect> effects, OverrideColors overrides, int[] analog, IntUnaryOperator level, long nowNanos, EffectFrame into) {
+        into.clear();
+        var knobCount = into.part(EFFECT_TARGET.KNOB).length;
+        for (var effect : effects) {
+            var slots = into.part(effect.target());
+            var from = effect.index() == LightingEffect.ALL_SLOTS ? 0 : effect.index();
+            var to = effect.index() == LightingEffect.ALL_SLOTS ? slots.length : Math.min(effect.index() + 1, slots.length);
+            for (var i = from; i < to; i++) {
+                var muted = isMuted(overrides, effect.target(), i);
+                slots[i] = switch (effect.type()) {
+                    case VOLUME_GRADIENT -> muted ? slots[i] : blend(effect.color1(), effect.color2(), analog(analog, analogIndex(effect, knobCount, i)) / (double) MAX_ANALOG);
+                    case VU_METER -> muted ? slots[i] : blend(effect.color1(), effect.color2(), level.applyAsInt(analogIndex(effect, knobCount, i)) / (double) AudioLevelSource.MAX_LEVEL);
+                    case MUTE_PULSE -> muted ? blend(effect.color1(), effect.color2(), pulse(nowNanos, effect.periodNanos())) : slots[i];
+                    case CHASE -> muted ? slots[i] : blend(effect.color2(), effect.color1(), chase(nowNanos, effect.periodNanos(), i - from, to - from));
+                };
+            }
+        }
+    }
+
+    private static boolean isMuted(OverrideColors overrides, EFFECT_TARGET target, int slot) {
+        return switch (target) {
+            case KNOB -> overrides.dial(slot) != null;
+            case SLIDER -> overrides.slider(slot) != null;
+            case SLIDER_LABEL -> overrides.sliderLabel(slot) != null;
+            case LOGO -> overrides.logo() != null;
+        };
+    }
+
+    private static int analogIndex(CompiledEffect effect, int knobCount, int slot) {
+        return effect.analog() >= 0 ? effect.analog() : switch (effect.target()) {
+            case KNOB -> slot;
+            case SLIDER, SLIDER_LABEL -> knobCount + slot;
+            case LOGO -> 0;
+        };
+    }
+
+    private static int analog(int[] analog, int idx) {
+        return idx < analog.length ? analog[idx] : 0;
+    }
+
+    /**
+     * @return 0 at the start of the period, 1 halfway
+     */
+    private static double pulse(long nowNanos, long periodNanos) {
+        return 0.5 - 0.5 * Math.cos(2 * Math.PI * (nowNanos % periodNanos) / periodNanos);
+    }
+
+    /**
+     * @return 1 for the slot the light is at, fading out over the neighbouring slot
+     */
+    private static double chase(long nowNanos, long periodNanos, int slot, int slots) {
+        var position = (double) (nowNanos % periodNanos) / periodNanos * slots;
+        var distance = Math.abs(position - slot);
+        return Math.max(0, 1 - Math.min(distance, slots - distance));
+    }
+
+    @SuppressWarnings("NumericCastThatLosesPrecision")
+    private static int blend(int from, int to, double fraction) {
+        var result = 0;
+        for (var shift = 16; shift >= 0; shift -= 8) {
+            var a = from >> shift & 0xff;
+            var b = to >> shift & 0xff;
+            result |= (int) Math.round(a + (b - a) * fraction) << shift;
+        }
+        return result;
+    }
+
+    record CompiledEffect(EFFECT_TYPE type, EFFECT_TARGET target, int index, int color1, int color2, long periodNanos, int analog) {
+    }
+
+    /**
+     * @param frames         frames rendered
+     * @param sent           frames that changed and were sent
+     * @param dropped        frames that were skipped because the device did not write the previous one yet, or that were not written
+     *                       in time or at all
+     * @param missed         frames that were not rendered at all because the render thread was late
+     * @param averageFrameNs average time to render and queue a frame of this device
+     */
+    public record EffectStats(long frames, long sent, long dropped, long missed, long averageFrameNs, long maxFrameNs) {
+    }
+
+    private final class Animation {
+        private final String serialNumber;
+        private final DeviceType deviceType;
+        private final AtomicLong dropped = new AtomicLong();
+        private final IntUnaryOperator level;
+        private volatile LightingConfig config;
+        private volatile List<CompiledEffect> effects = List.of();
+        private volatile boolean forceSend;
+        // Only used by the render thread
+        private final int[] analog = new int[DeviceType.PCPANEL_PRO.getAnalogCount()];
+        private EffectFrame front;
+        private EffectFrame back;
+        private CompletableFuture<Void> pending = NOTHING_PENDING;
+        private long lastTickNanos;
+        private long lastStatsNanos;
+        private long frames;
+        private long sent;
+        private long missed;
+        private long averageFrameNanos;
+        private long maxFrameNanos;
+
+        private Animation(String serialNumber, DeviceType deviceType, LightingConfig config) {
+            this.serialNumber = serialNumber;
+            this.deviceType = deviceType;
+            this.config = config;
+            var source = audioLevelSource;
+            level = source == null ? SILENCE : analog -> Math.max(0, Math.min(AudioLevelSource.MAX_LEVEL, source.level(serialNumber, analog)));
+            front = newFrame(config);
+            back = newFrame(config);
+        }
+
+        private EffectFrame newFrame(LightingConfig config) {
+            return new EffectFrame(config.getKnobConfigs().length, config.getSliderConfigs().length, deviceType == DeviceType.PCPANEL_PRO);
+        }
+
+        boolean fits(LightingConfig newConfig) {
+            return newConfig.getKnobConfigs().length == config.getKnobConfigs().length && newConfig.getSliderConfigs().length == config.getSliderConfigs().length;
+        }
+
+        /**
+         * The config was just sent, which replaced the effect slots with the configured lighting, so the next frame is always sent.
+         */
+        void set(LightingConfig newConfig, List<CompiledEffect> newEffects) {
+            config = newConfig;
+            effects = newEffects;
+            forceSend = true;
+        }
+
+        void tick(long now) {
+            var period = framePeriodNanos();
+            if (lastTickNanos != 0) {
+                var elapsed = now - lastTickNanos;
+                if (elapsed < period / 2) {
+                    return; // A burst after a late tick, that frame was already rendered
+                }
+                missed += Math.max(0, (elapsed + period / 2) / period - 1);
+            }
+            lastTickNanos = now;
+            if (!pending.isDone()) {
+                dropped.incrementAndGet();
+                return;
+            }
+            // The front frame was not written (in time), so what the device shows is not known
+            var failed = pending.isCompletedExceptionally();
+            pending = NOTHING_PENDING;
+            if (failed) {
+                dropped.incrementAndGet();
+            }
+
+            var start = System.nanoTime();
+            copyAnalog();
+            render(effects, overrideColorService.getOverrides(serialNumber), analog, level, now, back);
+            frames++;
+            // A part that is no longer covered is sent too, to restore its configured lighting
+            var force = forceSend;
+            forceSend = false;
+            var parts = EnumSet.noneOf(EFFECT_TARGET.class);
+            for (var target : TARGETS) {
+                if (failed || (force ? back.covers(target) : !back.samePart(front, target))) {
+                    parts.add(target);
+                }
+            }
+            if (!parts.isEmpty()) {
+                pending = outputInterpreter.sendEffectFrame(serialNumber, deviceType, config, back, parts, Duration.ofNanos(2 * period));
+                sent++;
+                var swap = front;
+                front = back;
+                back = swap;
+            }
+            var took = System.nanoTime() - start;
+            averageFrameNanos = averageFrameNanos == 0 ? took : (averageFrameNanos * 7 + took) / 8;
+            maxFrameNanos = Math.max(maxFrameNanos, took);
+            if (lastStatsNanos == 0) {
+                lastStatsNanos = now;
+            } else if (now - lastStatsNanos >= STATS_INTERVAL_NANOS) {
+                lastStatsNanos = now;
+                log.info("Effects of {}: {}", serialNumber, stats());
+            }
+        }
+
+        private void copyAnalog() {
+            var values = analogValues.get(serialNumber);
+            for (var i = 0; i < analog.length; i++) {
+                analog[i] = values == null ? 0 : values.get(i);
+            }
+        }
+
+        EffectStats stats() {
+            return new EffectStats(frames, sent, dropped.get(), missed, averageFrameNanos, maxFrameNanos);
+        }
+    }
+}
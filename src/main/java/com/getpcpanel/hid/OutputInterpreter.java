@@ -1,11 +1,27 @@
 package com.getpcpanel.hid;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
-
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.Nullable;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import com.getpcpanel.device.DeviceType;
+import com.getpcpanel.hid.LatestFrameQueue.FrameKind;
 import com.getpcpanel.profile.LightingConfig;
+import com.getpcpanel.profile.LightingConfig.LightingMode;
+import com.getpcpanel.profile.LightingEffect.EFFECT_TARGET;
 import com.getpcpanel.profile.SingleKnobLightingConfig;
 import com.getpcpanel.profile.SingleLogoLightingConfig;
 import com.getpcpanel.profile.SingleSliderLabelLightingConfig;
@@ -14,6 +30,7 @@ import com.getpcpanel.util.coloroverride.OverrideColorService;
 
 import javafx.scene.paint.Color;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 
 @Log4j2
@@ -22,108 +39,213 @@ import lombok.extern.log4j.Log4j2;
 public final class OutputInterpreter {
     private final DeviceScanner deviceScanner;
     private final OverrideColorService overrideColorService;
+    /** Last lighting packet per kind that was queued for a handler, a reconnected device has a new handler so it starts empty. */
+    private final Map<DeviceCommunicationHandler, Map<FrameKind, Sent>> lastSent = Collections.synchronizedMap(new WeakHashMap<>());
+    @Autowired @Lazy @Setter @Nullable private LightingEffectEngine lightingEffectEngine;
 
-    private static final byte[] OUTPUT_CODE_INIT = { 1 };
+    static final byte[] OUTPUT_CODE_INIT = { 1 };
     private static final byte ANIMATION_RAINBOW_HORIZONTAL = 1;
     private static final byte ANIMATION_RAINBOW_VERTICAL = 2;
     private static final byte ANIMATION_WAVE = 3;
     private static final byte ANIMATION_BREATH = 4;
-    private static final byte COLOR_STATIC = 1;
+    static final byte COLOR_STATIC = 1;
     private static final byte COLOR_GRADIENT = 2;
-    private static final byte CUSTOM_SLIDER = 0;
-    private static final byte CUSTOM_SLIDER_LABEL = 1;
-    private static final byte CUSTOM_KNOB = 2;
-    private static final byte CUSTOM_LOGO = 3;
+    static final byte CUSTOM_SLIDER = 0;
+    static final byte CUSTOM_SLIDER_LABEL = 1;
+    static final byte CUSTOM_KNOB = 2;
+    static final byte CUSTOM_LOGO = 3;
     private static final byte LOGO_RAINBOW = 2;
     private static final byte LOGO_BREATH = 3;
-    private static final byte MODE_LIGHT_ANIMATION = 4;
+    static final byte MODE_LIGHT_ANIMATION = 4;
     private static final byte OUTPUT_CODE_RGB_RGB = 1;
-    private static final byte OUTPUT_CODE_RGB = 2;
+    static final byte OUTPUT_CODE_RGB = 2;
     private static final byte OUTPUT_CODE_RGB_RAINBOW = 3;
     private static final byte OUTPUT_CODE_RGB_WAVE = 4;
     private static final byte OUTPUT_CODE_RGB_BREATH = 5;
-    private static final byte PREFIX_MINI = 6;
-    private static final byte PREFIX_PRO = 5;
+    static final byte PREFIX_MINI = 6;
+    static final byte PREFIX_PRO = 5;
     private static final int MAX_BYTE = 255;
 
-    public void sendInit(String deviceSerialNumber) {
+    public CompletableFuture<Void> sendInit(String deviceSerialNumber) {
         var handler = deviceScanner.getConnectedDevice(deviceSerialNumber);
         if (handler == null)
             throw new IllegalArgumentException("invalid device");
-        handler.sendMessage(OUTPUT_CODE_INIT);
+        lastSent.remove(handler);
+        return handler.sendMessage(true, OUTPUT_CODE_INIT);
     }
 
-    public void sendFullLEDData(String deviceSerialNumber, int brightness, String[] colors, boolean[] volumeTrack, boolean priority) {
+    /**
+     * Makes the next lighting config for the device be sent completely, for when the device could have lost its lighting (like
+     * after a suspend).
+     */
+    public void forceFullRefresh(String deviceSerialNumber) {
+        var handler = deviceScanner.getConnectedDevice(deviceSerialNumber);
+        if (handler != null) {
+            lastSent.remove(handler);
+        }
+    }
+
+    public CompletableFuture<Void> sendFullLEDData(String deviceSerialNumber, int brightness, String[] colors, boolean[] volumeTrack, boolean priority) {
         var handler = deviceScanner.getConnectedDevice(deviceSerialNumber);
         if (handler == null)
             throw new IllegalArgumentException("invalid device");
 
         var data = new ByteWriter(brightness, 2 + 4 * colors.length + colors.length).append(2, 0);
+        var override = overrideColorService.getOverrides(deviceSerialNumber).dial(0);
         for (var color : colors) {
-            var toSend = overrideColorService.getDialOverride(deviceSerialNumber, 0).map(SingleKnobLightingConfig::getColor1).orElse(color);
-            data.append(OUTPUT_CODE_RGB_RGB).append(Color.valueOf(toSend));
+            var toSend = override == null ? color : override.getColor1();
+            data.append(OUTPUT_CODE_RGB_RGB).appendColor(toSend);
         }
         for (var b : volumeTrack) {
             data.append(b ? 1 : 0);
         }
-        if (priority) {
-            handler.sendMessage(data.get());
-        } else {
-            handler.sendMessage(new byte[][] { data.get() });
-        }
+        return send(handler, priority, data.get());
     }
 
-    public void sendLightingConfig(String serialNumber, DeviceType dt, LightingConfig config, boolean priority) {
+    /**
+     * @param priority written before all non-priority packets, use for changes the user is waiting for
+     * @return completes when the config is written to the device
+     */
+    public CompletableFuture<Void> sendLightingConfig(String serialNumber, DeviceType dt, LightingConfig config, boolean priority) {
         if (dt == null) {
             throw new IllegalArgumentException("Empty device type");
         }
-        switch (dt) {
+        var result = switch (dt) {
             case PCPANEL_RGB -> sendLightingConfigRGB(serialNumber, config, priority);
-            case PCPANEL_MINI -> sendLightingConfigMini(serialNumber, config);
-            case PCPANEL_PRO -> sendLightingConfigPro(serialNumber, config);
+            case PCPANEL_MINI -> sendLightingConfigMini(serialNumber, config, priority);
+            case PCPANEL_PRO -> sendLightingConfigPro(serialNumber, config, priority);
+        };
+        if (lightingEffectEngine != null) {
+            lightingEffectEngine.update(serialNumber, dt, config);
         }
+        return result;
     }
 
-    private void sendLightingConfigMini(String serialNumber, LightingConfig config) {
+    /**
+     * Sends the given parts of an effect frame. The slots that an effect covers are sent as a static colour, the other slots with the
+     * lighting of the config. The packets are dropped when they are not written within maxAge.
+     */
+    CompletableFuture<Void> sendEffectFrame(String serialNumber, DeviceType dt, LightingConfig config, EffectFrame frame, Set<EFFECT_TARGET> parts, Duration maxAge) {
+        var handler = deviceScanner.getConnectedDevice(serialNumber);
+        if (handler == null)
+            throw new IllegalArgumentException("invalid device");
+
+        var brightness = config.getGlobalBrightness();
+        var packets = new ArrayList<byte[]>(parts.size());
+        if (parts.contains(EFFECT_TARGET.KNOB)) {
+            packets.add(buildKnobData(serialNumber, dt == DeviceType.PCPANEL_MINI ? PREFIX_MINI : PREFIX_PRO, brightness, config.getKnobConfigs(), frame.part(EFFECT_TARGET.KNOB)));
+        }
+        if (dt == DeviceType.PCPANEL_PRO) {
+            if (parts.contains(EFFECT_TARGET.SLIDER_LABEL)) {
+                packets.add(buildSliderLabelData(serialNumber, brightness, config.getSliderLabelConfigs(), frame.part(EFFECT_TARGET.SLIDER_LABEL)));
+            }
+            if (parts.contains(EFFECT_TARGET.SLIDER)) {
+                packets.add(buildSliderData(serialNumber, brightness, config.getSliderConfigs(), frame.part(EFFECT_TARGET.SLIDER)));
+            }
+            if (parts.contains(EFFECT_TARGET.LOGO)) {
+                packets.add(buildLogoData(serialNumber, brightness, config.getLogoConfig(), frame.part(EFFECT_TARGET.LOGO)[0]));
+            }
+        }
+        return send(handler, false, maxAge, packets.toArray(byte[][]::new));
+    }
+
+    private CompletableFuture<Void> sendLightingConfigMini(String serialNumber, LightingConfig config, boolean priority) {
         var handler = deviceScanner.getConnectedDevice(serialNumber);
         var mode = config.getLightingMode();
-        switch (mode) {
-            case ALL_COLOR -> writeAllColor(handler, PREFIX_MINI, (byte) 5, config);
-            case ALL_RAINBOW -> writeAllRainbow(handler, PREFIX_MINI, config);
-            case ALL_WAVE -> writeAllWave(handler, PREFIX_MINI, config);
-            case ALL_BREATH -> writeAllBreath(handler, PREFIX_MINI, config);
+        return switch (mode) {
+            case ALL_COLOR -> writeAllColor(handler, PREFIX_MINI, (byte) 5, config, priority);
+            case ALL_RAINBOW -> writeAllRainbow(handler, PREFIX_MINI, config, priority);
+            case ALL_WAVE -> writeAllWave(handler, PREFIX_MINI, config, priority);
+            case ALL_BREATH -> writeAllBreath(handler, PREFIX_MINI, config, priority);
             case CUSTOM -> {
                 var knobData = buildKnobData(serialNumber, PREFIX_MINI, config.getGlobalBrightness(), config.getKnobConfigs());
-                handler.sendMessage(new byte[][] { knobData });
+                yield send(handler, priority, knobData);
             }
-        }
+            default -> unexpectedMode(mode);
+        };
     }
 
-    private void sendLightingConfigPro(String serialNumber, LightingConfig config) {
+    private CompletableFuture<Void> sendLightingConfigPro(String serialNumber, LightingConfig config, boolean priority) {
         var handler = deviceScanner.getConnectedDevice(serialNumber);
         var mode = config.getLightingMode();
-        switch (mode) {
-            case ALL_COLOR -> writeAllColor(handler, PREFIX_PRO, (byte) 2, config);
-            case ALL_RAINBOW -> writeAllRainbow(handler, PREFIX_PRO, config);
-            case ALL_WAVE -> writeAllWave(handler, PREFIX_PRO, config);
-            case ALL_BREATH -> writeAllBreath(handler, PREFIX_PRO, config);
+        return switch (mode) {
+            case ALL_COLOR -> writeAllColor(handler, PREFIX_PRO, (byte) 2, config, priority);
+            case ALL_RAINBOW -> writeAllRainbow(handler, PREFIX_PRO, config, priority);
+            case ALL_WAVE -> writeAllWave(handler, PREFIX_PRO, config, priority);
+            case ALL_BREATH -> writeAllBreath(handler, PREFIX_PRO, config, priority);
             case CUSTOM -> {
                 var knobData = buildKnobData(serialNumber, PREFIX_PRO, config.getGlobalBrightness(), config.getKnobConfigs());
-                var sliderLabelData = buildSliderLabelData(serialNumber, config.getGlobalBrightness(), config.getSliderLabelConfigs());
-                var sliderData = buildSliderData(serialNumber, config.getGlobalBrightness(), config.getSliderConfigs());
-                var logoData = buildLogoData(serialNumber, config.getGlobalBrightness(), config.getLogoConfig());
-                handler.sendMessage(knobData, sliderLabelData, sliderData, logoData);
+                var sliderLabelData = buildSliderLabelData(serialNumber, config.getGlobalBrightness(), config.getSliderLabelConfigs(), null);
+                var sliderData = buildSliderData(serialNumber, config.getGlobalBrightness(), config.getSliderConfigs(), null);
+                var logoData = buildLogoData(serialNumber, config.getGlobalBrightness(), config.getLogoConfig(), EffectFrame.NONE);
+                yield send(handler, priority, knobData, sliderLabelData, sliderData, logoData);
             }
+            default -> unexpectedMode(mode);
+        };
+    }
+
+    /**
+     * Sends the packets, skipping lighting packets that are equal to the last one of the same kind for the device. A packet is only
+     * skipped when the equal packet was written or will still be written before it would have been: a priority packet is not
+     * skipped for an equal bulk packet that is still queued, as priority lighting replaces queued bulk lighting.
+     */
+    private CompletableFuture<Void> send(DeviceCommunicationHandler handler, boolean priority, byte[]... packets) {
+        return send(handler, priority, null, packets);
+    }
+
+    /**
+     * @param maxAge when set the packets are bulk packets that are dropped when they are not written in time
+     */
+    private CompletableFuture<Void> send(DeviceCommunicationHandler handler, boolean priority, @Nullable Duration maxAge, byte[]... packets) {
+        if (packets.length == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        var sent = lastSent.computeIfAbsent(handler, h -> new EnumMap<>(FrameKind.class));
+        var result = new ArrayList<CompletableFuture<Void>>(packets.length);
+        //noinspection SynchronizationOnLocalVariableOrMethodParameter
+        synchronized (sent) {
+            for (var packet : packets) {
+                var kind = FrameKind.of(packet);
+                var previous = kind.isLighting() ? sent.get(kind) : null;
+                if (previous != null && previous.canReplace(packet, priority)) {
+                    result.add(previous.done());
+                    continue;
+                }
+                var done = maxAge == null ? handler.sendMessage(priority, packet) : handler.sendMessage(maxAge, packet);
+                if (kind == FrameKind.ANIMATION) {
+                    sent.clear(); // Animations replace the custom lighting of all parts
+                } else if (kind.isLighting()) {
+                    sent.remove(FrameKind.ANIMATION);
+                }
+                if (kind.isLighting()) {
+                    sent.put(kind, new Sent(packet, priority, done));
+                }
+                result.add(done);
+            }
+        }
+        return result.size() == 1 ? result.get(0) : CompletableFuture.allOf(result.toArray(CompletableFuture[]::new));
+    }
+
+    private record Sent(byte[] data, boolean priority, CompletableFuture<Void> done) {
+        boolean canReplace(byte[] packet, boolean isPriority) {
+            if (!Arrays.equals(data, packet) || done.isCompletedExceptionally()) {
+                return false;
+            }
+            return done.isDone() || priority || !isPriority;
         }
     }
 
-    private void writeAllColor(DeviceCommunicationHandler handler, byte prefix, byte secondPrefix, LightingConfig config) {
-        var c1 = Color.valueOf(config.getAllColor());
-        var data = new ByteWriter(config.getGlobalBrightness()).append(prefix, MODE_LIGHT_ANIMATION, secondPrefix).append(c1).get();
-        handler.sendMessage(new byte[][] { data });
+    private static CompletableFuture<Void> unexpectedMode(LightingMode mode) {
+        log.error("unexpected lighting mode in deviceOutputHandler: {}", mode);
+        return CompletableFuture.completedFuture(null);
     }
 
-    private void writeAllRainbow(DeviceCommunicationHandler handler, byte prefix, LightingConfig config) {
+    private CompletableFuture<Void> writeAllColor(DeviceCommunicationHandler handler, byte prefix, byte secondPrefix, LightingConfig config, boolean priority) {
+        var data = new ByteWriter(config.getGlobalBrightness()).append(prefix, MODE_LIGHT_ANIMATION, secondPrefix).appendColor(config.getAllColor()).get();
+        return send(handler, priority, data);
+    }
+
+    private CompletableFuture<Void> writeAllRainbow(DeviceCommunicationHandler handler, byte prefix, LightingConfig config, boolean priority) {
         var data = new ByteWriter(config.getGlobalBrightness()).append(prefix, MODE_LIGHT_ANIMATION, (config.getRainbowVertical() == 1) ? ANIMATION_RAINBOW_VERTICAL : ANIMATION_RAINBOW_HORIZONTAL)
                                                                .append(config.getRainbowPhaseShift(),
                                                                        -1)
@@ -131,10 +253,10 @@ public final class OutputInterpreter {
                                                                .append(config.getRainbowSpeed(),
                                                                        config.getRainbowReverse())
                                                                .get();
-        handler.sendMessage(new byte[][] { data });
+        return send(handler, priority, data);
     }
 
-    private void writeAllWave(DeviceCommunicationHandler handler, byte prefix, LightingConfig config) {
+    private CompletableFuture<Void> writeAllWave(DeviceCommunicationHandler handler, byte prefix, LightingConfig config, boolean priority) {
         var data = new ByteWriter(config.getGlobalBrightness())
                 .append(prefix, MODE_LIGHT_ANIMATION, ANIMATION_WAVE)
                 .append(config.getWaveHue(),
@@ -143,100 +265,110 @@ public final class OutputInterpreter {
                 .append(config.getWaveSpeed(),
                         config.getWaveReverse(),
                         config.getWaveBounce());
-        handler.sendMessage(new byte[][] { data.get() });
+        return send(handler, priority, data.get());
     }
 
-    private void writeAllBreath(DeviceCommunicationHandler handler, byte prefix, LightingConfig config) {
+    private CompletableFuture<Void> writeAllBreath(DeviceCommunicationHandler handler, byte prefix, LightingConfig config, boolean priority) {
         var data = new ByteWriter(config.getGlobalBrightness())
                 .append(prefix, MODE_LIGHT_ANIMATION, ANIMATION_BREATH)
                 .append(config.getBreathHue(),
                         -1)
                 .appendBrightness(config.getBreathBrightness())
                 .append(config.getBreathSpeed());
-        handler.sendMessage(new byte[][] { data.get() });
+        return send(handler, priority, data.get());
+    }
+
+    byte[] buildKnobData(String deviceSerial, byte prefix, int brightness, SingleKnobLightingConfig[] knobConfigs) {
+        return buildKnobData(deviceSerial, prefix, brightness, knobConfigs, null);
     }
 
-    private byte[] buildKnobData(String deviceSerial, byte prefix, int brightness, SingleKnobLightingConfig[] knobConfigs) {
+    /**
+     * @param rendered colours of an effect frame that replace the configured lighting, {@link EffectFrame#NONE} for the slots without
+     *                 an effect
+     */
+    private byte[] buildKnobData(String deviceSerial, byte prefix, int brightness, SingleKnobLightingConfig[] knobConfigs, @Nullable int[] rendered) {
         var knobData = new ByteWriter(brightness).append(prefix, CUSTOM_KNOB);
+        var overrides = overrideColorService.getOverrides(deviceSerial);
 
         for (var i = 0; i < knobConfigs.length; i++) {
-            var knobConfig = overrideColorService.getDialOverride(deviceSerial, i).orElse(knobConfigs[i]);
+            var knobConfig = Objects.requireNonNullElse(overrides.dial(i), knobConfigs[i]);
 
             knobData.mark();
+            if (rendered != null && rendered[i] != EffectFrame.NONE) {
+                knobData.append(COLOR_STATIC).appendRgb(rendered[i]).skipFromMark(7);
+                continue;
+            }
             var ignored = switch (knobConfig.getMode()) {
                 case NONE -> knobData;
-                case STATIC -> {
-                    var c1 = Color.valueOf(knobConfig.getColor1());
-                    yield knobData.append(COLOR_STATIC)
-                                  .append(c1);
-                }
-                case VOLUME_GRADIENT -> {
-                    var c1 = Color.valueOf(knobConfig.getColor1());
-                    var c2 = Color.valueOf(knobConfig.getColor2());
-                    yield knobData.append(COLOR_GRADIENT)
-                                  .append(c1)
-                                  .append(c2);
-                }
+                case STATIC -> knobData.append(COLOR_STATIC)
+                                       .appendColor(knobConfig.getColor1());
+                case VOLUME_GRADIENT -> knobData.append(COLOR_GRADIENT)
+                                                .appendColor(knobConfig.getColor1())
+                                                .appendColor(knobConfig.getColor2());
             };
             knobData.skipFromMark(7);
         }
         return knobData.get();
     }
 
-    private byte[] buildSliderLabelData(String deviceSerial, int brightness, SingleSliderLabelLightingConfig[] sliderLabelConfigs) {
+    private byte[] buildSliderLabelData(String deviceSerial, int brightness, SingleSliderLabelLightingConfig[] sliderLabelConfigs, @Nullable int[] rendered) {
         var sliderLabelData = new ByteWriter(brightness).append(PREFIX_PRO, CUSTOM_SLIDER_LABEL);
+        var overrides = overrideColorService.getOverrides(deviceSerial);
 
         for (var i = 0; i < sliderLabelConfigs.length; i++) {
-            var sliderLabelConfig = overrideColorService.getSliderLabelOverride(deviceSerial, i).orElse(sliderLabelConfigs[i]);
+            var sliderLabelConfig = Objects.requireNonNullElse(overrides.sliderLabel(i), sliderLabelConfigs[i]);
+            if (rendered != null && rendered[i] != EffectFrame.NONE) {
+                sliderLabelData.mark().append(1).appendRgb(rendered[i]).skipFromMark(7);
+                continue;
+            }
             var ignored = switch (sliderLabelConfig.getMode()) {
                 case NONE -> sliderLabelData;
-                case STATIC -> {
-                    var c1 = Color.valueOf(sliderLabelConfig.getColor());
-                    yield sliderLabelData.mark()
-                                         .append(1)
-                                         .append(c1);
-                }
+                case STATIC -> sliderLabelData.mark()
+                                              .append(1)
+                                              .appendColor(sliderLabelConfig.getColor());
             };
             sliderLabelData.skipFromMark(7);
         }
         return sliderLabelData.get();
     }
 
-    private byte[] buildSliderData(String deviceSerial, int brightness, SingleSliderLightingConfig[] sliderConfigs) {
+    private byte[] buildSliderData(String deviceSerial, int brightness, SingleSliderLightingConfig[] sliderConfigs, @Nullable int[] rendered) {
         var sliderData = new ByteWriter(brightness).append(PREFIX_PRO, CUSTOM_SLIDER);
+        var overrides = overrideColorService.getOverrides(deviceSerial);
 
         for (var i = 0; i < sliderConfigs.length; i++) {
-            var sliderConfig = overrideColorService.getSliderOverride(deviceSerial, i).orElse(sliderConfigs[i]);
+            var sliderConfig = Objects.requireNonNullElse(overrides.slider(i), sliderConfigs[i]);
             sliderData.mark();
+            if (rendered != null && rendered[i] != EffectFrame.NONE) {
+                sliderData.append(1).appendRgb(rendered[i]).appendRgb(rendered[i]).skipFromMark(7);
+                continue;
+            }
             var ignored = switch (sliderConfig.getMode()) {
                 case NONE -> sliderData;
-                case STATIC -> {
-                    var c1 = Color.valueOf(sliderConfig.getColor1());
-                    yield sliderData.append(1)
-                                    .append(c1)
-                                    .append(c1);
-                }
+                case STATIC -> sliderData.append(1)
+                                         .appendColor(sliderConfig.getColor1())
+                                         .appendColor(sliderConfig.getColor1());
                 case STATIC_GRADIENT -> sliderData.append(1)
-                                                  .append(Color.valueOf(sliderConfig.getColor1()))
-                                                  .append(Color.valueOf(sliderConfig.getColor2()));
+                                                  .appendColor(sliderConfig.getColor1())
+                                                  .appendColor(sliderConfig.getColor2());
                 case VOLUME_GRADIENT -> sliderData.append(3)
-                                                  .append(Color.valueOf(sliderConfig.getColor1()))
-                                                  .append(Color.valueOf(sliderConfig.getColor2()));
+                                                  .appendColor(sliderConfig.getColor1())
+                                                  .appendColor(sliderConfig.getColor2());
             };
             sliderData.skipFromMark(7);
         }
         return sliderData.get();
     }
 
-    private byte[] buildLogoData(String deviceSerial, int brightness, SingleLogoLightingConfig config) {
-        var logoConfig = overrideColorService.getLogoOverride(deviceSerial).orElse(config);
+    private byte[] buildLogoData(String deviceSerial, int brightness, SingleLogoLightingConfig config, int rendered) {
+        var logoConfig = Objects.requireNonNullElse(overrideColorService.getOverrides(deviceSerial).logo(), config);
         var logoData = new ByteWriter(brightness).append(PREFIX_PRO, CUSTOM_LOGO);
+        if (rendered != EffectFrame.NONE) {
+            return logoData.append(COLOR_STATIC).appendRgb(rendered).get();
+        }
         var ignored = switch (logoConfig.getMode()) {
             case NONE -> logoConfig;
-            case STATIC -> {
-                var c1 = Color.valueOf(logoConfig.getColor());
-                yield logoData.append(COLOR_STATIC).append(c1);
-            }
+            case STATIC -> logoData.append(COLOR_STATIC).appendColor(logoConfig.getColor());
             case RAINBOW -> logoData.append(LOGO_RAINBOW)
                                     .append(-1)
                                     .appendBrightness(logoConfig.getBrightness())
@@ -250,65 +382,52 @@ public final class OutputInterpreter {
         return logoData.get();
     }
 
-    private void sendLightingConfigRGB(String serialNumber, LightingConfig config, boolean priority) {
+    private CompletableFuture<Void> sendLightingConfigRGB(String serialNumber, LightingConfig config, boolean priority) {
         var mode = config.getLightingMode();
         if (mode == null) {
-            log.error("unexpected lighting mode in deviceOutputHandler");
-            return;
+            return unexpectedMode(null);
         }
 
-        switch (mode) {
+        return switch (mode) {
             case ALL_COLOR -> sendRGBAll(serialNumber, config.getGlobalBrightness(), Color.valueOf(config.getAllColor()), config.getVolumeBrightnessTrackingEnabled(), priority);
             case SINGLE_COLOR -> sendFullLEDData(serialNumber, config.getGlobalBrightness(), config.getIndividualColors(), config.getVolumeBrightnessTrackingEnabled(), priority);
             case ALL_RAINBOW -> sendRainbow(serialNumber, config.getRainbowPhaseShift(), (byte) -1, config.getRainbowBrightness(), config.getRainbowSpeed(), config.getRainbowReverse(), priority);
             case ALL_WAVE -> sendWave(serialNumber, config.getWaveHue(), (byte) -1, config.getWaveBrightness(), config.getWaveSpeed(), config.getWaveReverse(), config.getWaveBounce(), priority);
             case ALL_BREATH -> sendBreath(serialNumber, config.getBreathHue(), (byte) -1, config.getBreathBrightness(), config.getBreathSpeed(), priority);
-            default -> log.error("unexpected lighting mode in deviceOutputHandler");
-        }
+            default -> unexpectedMode(mode);
+        };
     }
 
-    public void sendRainbow(String deviceSerialNumber, byte phase_shift, byte saturation, byte brightness, byte speed, byte reverse, boolean priority) {
+    public CompletableFuture<Void> sendRainbow(String deviceSerialNumber, byte phase_shift, byte saturation, byte brightness, byte speed, byte reverse, boolean priority) {
         var handler = deviceScanner.getConnectedDevice(deviceSerialNumber);
         if (handler == null)
             throw new IllegalArgumentException("invalid device");
         var data = new byte[] { OUTPUT_CODE_RGB, OUTPUT_CODE_RGB_RAINBOW, phase_shift, saturation, brightness, speed, reverse };
-        if (priority) {
-            handler.sendMessage(data);
-        } else {
-            handler.sendMessage(new byte[][] { data });
-        }
+        return send(handler, priority, data);
     }
 
-    public void sendWave(String deviceSerialNumber, byte hue, byte saturation, byte brightness, byte speed, byte reverse, byte bounce, boolean priority) {
+    public CompletableFuture<Void> sendWave(String deviceSerialNumber, byte hue, byte saturation, byte brightness, byte speed, byte reverse, byte bounce, boolean priority) {
         var handler = deviceScanner.getConnectedDevice(deviceSerialNumber);
         if (handler == null)
             throw new IllegalArgumentException("invalid device");
         var data = new byte[] { OUTPUT_CODE_RGB, OUTPUT_CODE_RGB_WAVE, hue, saturation, brightness, speed, reverse, bounce };
-        if (priority) {
-            handler.sendMessage(data);
-        } else {
-            handler.sendMessage(new byte[][] { data });
-        }
+        return send(handler, priority, data);
     }
 
-    public void sendBreath(String deviceSerialNumber, byte hue, byte saturation, byte brightness, byte speed, boolean priority) {
+    public CompletableFuture<Void> sendBreath(String deviceSerialNumber, byte hue, byte saturation, byte brightness, byte speed, boolean priority) {
         var handler = deviceScanner.getConnectedDevice(deviceSerialNumber);
         if (handler == null)
             throw new IllegalArgumentException("invalid device");
         var data = new byte[] { OUTPUT_CODE_RGB, OUTPUT_CODE_RGB_BREATH, hue, saturation, brightness, speed };
-        if (priority) {
-            handler.sendMessage(data);
-        } else {
-            handler.sendMessage(new byte[][] { data });
-        }
+        return send(handler, priority, data);
     }
 
     @SuppressWarnings("NumericCastThatLosesPrecision")
-    public void sendRGBAll(String deviceSerialNumber, int brightness, Color color, boolean[] bs, boolean priority) {
-        sendRGBAll(deviceSerialNumber, brightness, (int) (color.getRed() * MAX_BYTE), (int) (color.getGreen() * MAX_BYTE), (int) (color.getBlue() * MAX_BYTE), bs, priority);
+    public CompletableFuture<Void> sendRGBAll(String deviceSerialNumber, int brightness, Color color, boolean[] bs, boolean priority) {
+        return sendRGBAll(deviceSerialNumber, brightness, (int) (color.getRed() * MAX_BYTE), (int) (color.getGreen() * MAX_BYTE), (int) (color.getBlue() * MAX_BYTE), bs, priority);
     }
 
-    public void sendRGBAll(String deviceSerialNumber, int brightness, int red, int green, int blue, boolean[] volumeTrack, boolean priority) {
+    public CompletableFuture<Void> sendRGBAll(String deviceSerialNumber, int brightness, int red, int green, int blue, boolean[] volumeTrack, boolean priority) {
         var handler = deviceScanner.getConnectedDevice(deviceSerialNumber);
         if (handler == null)
             throw new IllegalArgumentException("invalid device");
@@ -319,11 +438,7 @@ public final class OutputInterpreter {
                 .append(Color.rgb(red, green, blue));
         for (var b : volumeTrack)
             data.append(b ? 1 : 0);
-        if (priority) {
-            handler.sendMessage(data.get());
-        } else {
-            handler.sendMessage(new byte[][] { data.get() });
-        }
+        return send(handler, priority, data.get());
     }
 
     private boolean isIntByteSize(int... is) {
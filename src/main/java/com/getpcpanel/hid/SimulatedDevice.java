@@ -0,0 +1,161 @@
+package com.getpcpanel.hid;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import com.getpcpanel.device.DeviceType;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Panel without hardware. Knob and button changes are turned into input packets in the same 64-byte format the real panels send, every
+ * packet written to the device is captured in {@link #output()}. Enabled with `hid.simulated-devices` (e.g. `PCPANEL_PRO,PCPANEL_MINI`).
+ */
+@Log4j2
+@RequiredArgsConstructor
+public class SimulatedDevice implements HidTransport {
+    private static final int OUTPUT_CAPACITY = 100_000;
+    private final String serialNumber;
+    @Getter private final DeviceType deviceType;
+    private final BlockingQueue<byte[]> input = new LinkedBlockingQueue<>();
+    private final BlockingQueue<byte[]> output = new LinkedBlockingQueue<>(OUTPUT_CAPACITY);
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicInteger failingWrites = new AtomicInteger();
+    private volatile boolean connected = true;
+    @Getter private volatile boolean closed;
+    @Nullable private ScheduledExecutorService generator;
+
+    public void turnKnob(int knob, int value) {
+        input.add(packet(DeviceCommunicationHandler.INPUT_CODE_KNOB_CHANGE, knob, value));
+    }
+
+    public void pressButton(int button, boolean pressed) {
+        input.add(packet(DeviceCommunicationHandler.INPUT_CODE_BUTTON_CHANGE, button, pressed ? 1 : 0));
+    }
+
+    /**
+     * Starts sweeping all analog inputs up and down and clicking all buttons at the given number of packets per second (0 to disable).
+     */
+    public synchronized void startGenerating(int knobsPerSecond, int buttonsPerSecond) {
+        stopGenerating();
+        var scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            var t = new Thread(r, "Simulated input " + serialNumber);
+            t.setDaemon(true);
+            return t;
+        });
+        if (knobsPerSecond > 0) {
+            scheduler.scheduleAtFixedRate(this::generateKnob, 0, 1_000_000 / knobsPerSecond, TimeUnit.MICROSECONDS);
+        }
+        if (buttonsPerSecond > 0) {
+            scheduler.scheduleAtFixedRate(this::generateButton, 0, 1_000_000 / buttonsPerSecond, TimeUnit.MICROSECONDS);
+        }
+        generator = scheduler;
+    }
+
+    public synchronized void stopGenerating() {
+        if (generator != null) {
+            generator.shutdownNow();
+            generator = null;
+        }
+    }
+
+    private void generateKnob() {
+        var count = generated.getAndIncrement();
+        var knob = (int) (count % deviceType.getAnalogCount());
+        var step = (int) ((count / deviceType.getAnalogCount()) % 510);
+        turnKnob(knob, step < 256 ? step : 510 - step);
+    }
+
+    private void generateButton() {
+        var count = generated.getAndIncrement();
+        pressButton((int) ((count / 2) % deviceType.getButtonCount()), count % 2 == 0);
+    }
+
+    /**
+     * @return the packets written to the device in order, only the latest {@link #OUTPUT_CAPACITY} are kept when nobody takes them
+     */
+    public BlockingQueue<byte[]> output() {
+        return output;
+    }
+
+    public long writtenCount() {
+        return written.get();
+    }
+
+    /**
+     * Makes the next writes fail, like a device that is busy or briefly unplugged.
+     */
+    public void failWrites(int count) {
+        failingWrites.set(count);
+    }
+
+    public void disconnect() {
+        connected = false;
+        stopGenerating();
+    }
+
+    private static byte[] packet(byte code, int index, int value) {
+        var result = new byte[DeviceCommunicationHandler.PACKET_LENGTH];
+        result[0] = code;
+        result[1] = (byte) index;
+        result[2] = (byte) value;
+        return result;
+    }
+
+    @Override
+    public String serialNumber() {
+        return serialNumber;
+    }
+
+    @Override
+    public int read(byte[] data, int timeoutMillis) {
+        if (!connected || closed) {
+            return -1;
+        }
+        try {
+            var packet = input.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (packet == null) {
+                return 0;
+            }
+            System.arraycopy(packet, 0, data, 0, Math.min(packet.length, data.length));
+            return packet.length;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    @Override
+    public int write(byte[] message, int length, byte reportId) {
+        if (!connected || closed || failingWrites.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            return -1;
+        }
+        var copy = new byte[length];
+        System.arraycopy(message, 0, copy, 0, length);
+        while (!output.offer(copy)) {
+            output.poll();
+        }
+        written.incrementAndGet();
+        return length + 1;
+    }
+
+    @Override
+    public String lastErrorMessage() {
+        return connected ? "Simulated write failure" : "Simulated device disconnected";
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
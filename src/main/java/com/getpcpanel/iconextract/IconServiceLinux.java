@@ -1,17 +1,64 @@
 package com.getpcpanel.iconextract;
 
+import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
+import javax.imageio.ImageIO;
+
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
 import com.getpcpanel.spring.ConditionalOnLinux;
 
+import lombok.extern.log4j.Log4j2;
+import one.util.streamex.StreamEx;
+
+/**
+ * Looks up the png icon named after the binary in the hicolor icon theme and the pixmaps directories, largest size first.
+ */
+@Log4j2
 @Service
 @ConditionalOnLinux
 public class IconServiceLinux implements IIconService {
+    private static final List<String> sizes = List.of("256x256", "128x128", "96x96", "64x64", "48x48", "32x32");
+    private final List<Path> iconDirs = StreamEx.of(Path.of(System.getProperty("user.home"), ".local", "share", "icons", "hicolor"), Path.of("/usr/share/icons/hicolor"))
+                                                .cross(sizes)
+                                                .mapKeyValue((theme, size) -> theme.resolve(size).resolve("apps"))
+                                                .append(Path.of("/usr/share/pixmaps"))
+                                                .toImmutableList();
+
     @Override
     public BufferedImage getIconForFile(int width, int height, File file) {
-        return null;
+        var name = StringUtils.lowerCase(file.getName());
+        if (StringUtils.isBlank(name)) {
+            return null;
+        }
+        var icon = StreamEx.of(iconDirs).map(dir -> dir.resolve(name + ".png")).findFirst(Files::isRegularFile).orElse(null);
+        if (icon == null) {
+            return null;
+        }
+        try {
+            var image = ImageIO.read(icon.toFile());
+            return image == null ? null : resize(image, width, height);
+        } catch (IOException e) {
+            log.debug("Unable to read icon {}", icon, e);
+            return null;
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        if (image.getWidth() == width && image.getHeight() == height) {
+            return image;
+        }
+        var result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        var g2d = result.createGraphics();
+        g2d.drawImage(image.getScaledInstance(width, height, Image.SCALE_SMOOTH), 0, 0, null);
+        g2d.dispose();
+        return result;
     }
 }
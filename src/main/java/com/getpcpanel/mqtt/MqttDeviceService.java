@@ -113,7 +113,7 @@ public class MqttDeviceService {
     public void buttonPress(ButtonClickEvent btn) {
         saveService.getProfile(btn.serialNum()).ifPresent(profile -> {
             var topic = mqttTopicHelper.eventTopic(btn.serialNum(), button, btn.button());
-            mqtt.send(topic, new MqttEvent(btn.dblClick() ? "double_click" : "click"), true);
+            mqtt.send(topic, new MqttEvent(btn.gesture().getEventType()), true);
         });
     }
 
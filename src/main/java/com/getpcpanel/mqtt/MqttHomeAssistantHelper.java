@@ -13,6 +13,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.getpcpanel.device.Device;
+import com.getpcpanel.hid.ButtonGesture;
 import com.getpcpanel.profile.MqttSettings;
 
 import lombok.RequiredArgsConstructor;
@@ -314,7 +315,7 @@ public class MqttHomeAssistantHelper {
                     object_id,
                     "mdi:knob",
                     "event",
-                    List.of("click", "double_click")
+                    ButtonGesture.EVENT_TYPES
             );
         }
     }
@@ -0,0 +1,33 @@
+package com.getpcpanel.profile;
+
+import lombok.Data;
+
+/**
+ * A stage of the signal conditioning of a dial or slider, see {@link KnobSetting#getFilters()}. Only the fields of the type are
+ * used.
+ */
+@Data
+public class KnobFilter {
+    private FILTER_TYPE type = FILTER_TYPE.EMA;
+    /** EMA: the time in which a step is followed for 63% */
+    private int timeConstantMs = 30;
+    /** ONE_EURO: the cutoff frequency at rest, lower is smoother */
+    private double minCutoff = 1;
+    /** ONE_EURO: how fast the cutoff rises with the speed, higher follows quick moves with less lag */
+    private double beta = 0.05;
+    /** MEDIAN: the number of values, odd */
+    private int size = 3;
+    /** HYSTERESIS: changes up to this are ignored */
+    private int threshold = 1;
+
+    public enum FILTER_TYPE {
+        /** Exponential moving average over time */
+        EMA,
+        /** Adaptive low-pass filter that smooths at rest and follows quick moves, see https://gery.casiez.net/1euro/ */
+        ONE_EURO,
+        /** Median of the last values, removes single spikes without smoothing */
+        MEDIAN,
+        /** Holds the value until it changes more than the threshold, the ends are always reached */
+        HYSTERESIS
+    }
+}
@@ -1,12 +1,24 @@
 package com.getpcpanel.profile;
 
+import javax.annotation.Nullable;
+
 import lombok.Data;
 
 @Data
 public class KnobSetting {
+    private static final KnobFilter[] NO_FILTERS = {};
     private int minTrim;
     private int maxTrim = 100;
     private boolean logarithmic;
     private String overlayIcon;
     private int buttonDebounce = 50;
+    @Nullable private KnobFilter[] filters;
+
+    /**
+     * @return the filters that the values of the dial or slider go through in order, when set they replace the global slider twitch,
+     * rolling average and delta settings for it
+     */
+    public KnobFilter[] getFilters() {
+        return filters == null ? NO_FILTERS : filters;
+    }
 }
@@ -35,6 +35,7 @@ public class LightingConfig {
     private SingleSliderLabelLightingConfig[] sliderLabelConfigs = {};
     private SingleSliderLightingConfig[] sliderConfigs = {};
     private SingleLogoLightingConfig logoConfig;
+    private LightingEffect[] effects = {};
     @Getter @Setter private int globalBrightness = 100;
 
     public LightingConfig deepCopy() {
@@ -42,6 +43,7 @@ public class LightingConfig {
                 .knobConfigs(knobConfigs == null ? null : Arrays.copyOf(knobConfigs, knobConfigs.length))
                 .sliderLabelConfigs(sliderLabelConfigs == null ? null : Arrays.copyOf(sliderLabelConfigs, sliderLabelConfigs.length))
                 .sliderConfigs(sliderConfigs == null ? null : Arrays.copyOf(sliderConfigs, sliderConfigs.length))
+                .effects(effects == null ? null : Arrays.copyOf(effects, effects.length))
                 .build();
     }
 
@@ -256,5 +258,18 @@ public class LightingConfig {
     public SingleLogoLightingConfig getLogoConfig() {
         return logoConfig;
     }
+
+    /**
+     * Effects rendered by the application, only used in {@link LightingMode#CUSTOM}
+     */
+    public LightingEffect[] getEffects() {
+        if (effects == null)
+            effects = new LightingEffect[0];
+        return effects;
+    }
+
+    public void setEffects(LightingEffect[] effects) {
+        this.effects = effects;
+    }
 }
 
@@ -0,0 +1,42 @@
+package com.getpcpanel.profile;
+
+import javax.annotation.Nullable;
+
+import lombok.Data;
+
+/**
+ * An effect that is rendered by the application instead of by the device, on top of a {@link LightingConfig.LightingMode#CUSTOM}
+ * lighting config. The slots that an effect covers are sent as static colours for every frame.
+ */
+@Data
+public class LightingEffect {
+    public static final int ALL_SLOTS = -1;
+    private EFFECT_TYPE type;
+    private EFFECT_TARGET target;
+    private int index = ALL_SLOTS;
+    private String color1;
+    private String color2;
+    private int periodMillis = 1000;
+    /** The dial or slider that drives a volume gradient or VU meter, the slot's own one when not set */
+    @Nullable private Integer analog;
+
+    public LightingEffect() {
+        type = EFFECT_TYPE.VOLUME_GRADIENT;
+        target = EFFECT_TARGET.KNOB;
+    }
+
+    public enum EFFECT_TYPE {
+        /** From color1 at the lowest to color2 at the highest value of the dial or slider */
+        VOLUME_GRADIENT,
+        /** Pulses between color1 and color2 while a mute override of the slot is active */
+        MUTE_PULSE,
+        /** A color1 light that moves over the covered slots once every period, the others are color2 */
+        CHASE,
+        /** From color1 at silence to color2 at the peak level of the audio that the dial or slider controls */
+        VU_METER
+    }
+
+    public enum EFFECT_TARGET {
+        KNOB, SLIDER, SLIDER_LABEL, LOGO
+    }
+}
@@ -18,6 +18,8 @@ public class Profile {
     @JsonProperty("isMainProfile") private boolean isMainProfile;
     @JsonDeserialize(using = CommandMapDeserializer.class) private Map<Integer, Commands> buttonData = new HashMap<>();
     @JsonDeserialize(using = CommandMapDeserializer.class) private Map<Integer, Commands> dblButtonData = new HashMap<>();
+    @JsonDeserialize(using = CommandMapDeserializer.class) private Map<Integer, Commands> longPressButtonData = new HashMap<>();
+    @JsonDeserialize(using = CommandMapDeserializer.class) private Map<Integer, Commands> repeatButtonData = new HashMap<>();
     @JsonDeserialize(using = CommandMapDeserializer.class) private Map<Integer, Commands> dialData = new HashMap<>();
     @JsonDeserialize(using = KnobSettingMapDeserializer.class) private Map<Integer, KnobSetting> knobSettings = new HashMap<>();
     private LightingConfig lightingConfig;
@@ -66,6 +68,22 @@ public class Profile {
         dblButtonData.put(button, data);
     }
 
+    public Commands getLongPressButtonData(int button) {
+        return longPressButtonData.get(button);
+    }
+
+    public void setLongPressButtonData(int button, Commands data) {
+        longPressButtonData.put(button, data);
+    }
+
+    public Commands getRepeatButtonData(int button) {
+        return repeatButtonData.get(button);
+    }
+
+    public void setRepeatButtonData(int button, Commands data) {
+        repeatButtonData.put(button, data);
+    }
+
     public Commands getDialData(int dial) {
         return dialData.get(dial);
     }
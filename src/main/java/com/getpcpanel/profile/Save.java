@@ -27,6 +27,8 @@ public class Save {
     private boolean startupVersionCheck = true;
     private Long dblClickInterval = 500L;
     private boolean preventClickWhenDblClick = true;
+    private Long longPressInterval = 600L;
+    private Long repeatInterval = 150L;
     private boolean obsEnabled;
     private String obsAddress = "localhost";
     private String obsPort = "4455";
@@ -0,0 +1,142 @@
+package com.getpcpanel.sleepdetection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Brings the panels back after a resume, one {@link #step} at a time so nothing waits for the USB devices to come back. Every panel
+ * that was connected before the suspend goes through:
+ * <ul>
+ *     <li>{@link State#WAITING}: not connected yet, a rescan for the missing panels is done every step</li>
+ *     <li>{@link State#RESTORING}: its lighting is sent, the first successful write shows that the panel is ready. A failed write means
+ *     the connection from before the suspend is stale, it is dropped and the panel goes back to waiting until the rescan reconnects it</li>
+ *     <li>{@link State#RESTORED}: the time from the resume to the written lighting is kept in {@link Result}</li>
+ * </ul>
+ * Panels that are not back before the timeout are {@link State#GAVE_UP} on, the regular scanning still reconnects them later.
+ */
+@Log4j2
+final class ResumeSession {
+    private final Panels panels;
+    private final long resumedAt;
+    private final long deadline;
+    private final Map<String, Panel> expected = new LinkedHashMap<>();
+
+    ResumeSession(Panels panels, Collection<String> serials, long resumedAt, long timeoutNanos) {
+        this.panels = panels;
+        this.resumedAt = resumedAt;
+        deadline = resumedAt + timeoutNanos;
+        serials.forEach(serial -> expected.put(serial, new Panel()));
+    }
+
+    /**
+     * @return whether the session is done, because all panels are restored or the time is up
+     */
+    boolean step(long now) {
+        var connected = panels.connected();
+        var missing = new LinkedHashSet<String>();
+        for (var entry : expected.entrySet()) {
+            var serial = entry.getKey();
+            var panel = entry.getValue();
+            if (panel.state == State.RESTORING && panel.written.isDone()) {
+                if (panel.written.isCompletedExceptionally()) {
+                    log.debug("RESUME: {} not ready yet, reconnecting it", serial);
+                    panels.drop(serial);
+                    panel.state = State.WAITING;
+                    missing.add(serial);
+                    continue;
+                }
+                panel.state = State.RESTORED;
+                log.info("RESUME: {} restored {}ms after resume, {} attempt(s)", serial, TimeUnit.NANOSECONDS.toMillis(panel.restoredAt - resumedAt), panel.attempts);
+            }
+            if (panel.state == State.WAITING) {
+                if (connected.contains(serial)) {
+                    restore(serial, panel);
+                } else {
+                    missing.add(serial);
+                }
+            }
+        }
+
+        if (expected.values().stream().allMatch(p -> p.state == State.RESTORED)) {
+            return true;
+        }
+        if (now - deadline >= 0) {
+            expected.forEach((serial, panel) -> {
+                if (panel.state != State.RESTORED) {
+                    log.warn("RESUME: {} did not come back after resume", serial);
+                    panel.state = State.GAVE_UP;
+                }
+            });
+            return true;
+        }
+        if (!missing.isEmpty()) {
+            panels.rescan(missing);
+        }
+        return false;
+    }
+
+    private void restore(String serial, Panel panel) {
+        panel.attempts++;
+        panel.state = State.RESTORING;
+        try {
+            panel.written = panels.restore(serial).thenRun(() -> panel.restoredAt = System.nanoTime());
+        } catch (RuntimeException e) {
+            log.debug("RESUME: Unable to restore {}", serial, e);
+            panel.written = CompletableFuture.failedFuture(e);
+        }
+    }
+
+    List<Result> results() {
+        var result = new ArrayList<Result>(expected.size());
+        expected.forEach((serial, panel) -> result.add(new Result(serial, panel.state, panel.attempts,
+                panel.state == State.RESTORED ? TimeUnit.NANOSECONDS.toMillis(panel.restoredAt - resumedAt) : -1)));
+        return result;
+    }
+
+    enum State {
+        WAITING, RESTORING, RESTORED, GAVE_UP
+    }
+
+    /**
+     * @param millisToRestore from the resume to the restored lighting being written, -1 when it was not
+     */
+    record Result(String serialNumber, State state, int attempts, long millisToRestore) {
+    }
+
+    interface Panels {
+        /**
+         * @return the serial numbers of the panels that are connected and can be restored
+         */
+        Set<String> connected();
+
+        void rescan(Set<String> missing);
+
+        /**
+         * Drops the connection of a panel that could not be written, so the next rescan connects it again.
+         */
+        void drop(String serialNumber);
+
+        /**
+         * Sends the lighting of the panel.
+         *
+         * @return completes when the lighting is written
+         */
+        CompletableFuture<Void> restore(String serialNumber);
+    }
+
+    private static final class Panel {
+        private State state = State.WAITING;
+        private int attempts;
+        private CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+        private volatile long restoredAt;
+    }
+}
@@ -1,5 +1,17 @@
 package com.getpcpanel.sleepdetection;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
@@ -8,21 +20,35 @@ import com.getpcpanel.hid.DeviceHolder;
 import com.getpcpanel.hid.DeviceScanner;
 import com.getpcpanel.hid.OutputInterpreter;
 import com.getpcpanel.profile.LightingConfig;
+import com.getpcpanel.util.TimingWheel;
 
 import jakarta.annotation.PostConstruct;
 import javafx.application.Platform;
 import javafx.scene.paint.Color;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import one.util.streamex.StreamEx;
 
 @Log4j2
 @Service
 @RequiredArgsConstructor
 public final class SleepDetector {
+    private static final long SHUTDOWN_WRITE_TIMEOUT_MS = 2000;
     private static final LightingConfig ALL_OFF = LightingConfig.createAllColor(Color.BLACK);
+    private static final long RESUME_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long FIRST_RESUME_STEP_MS = 100;
+    private static final long MAX_RESUME_STEP_MS = 1000;
     private final DeviceScanner deviceScanner;
     private final OutputInterpreter outputInterpreter;
     private final DeviceHolder devices;
+    private final TimingWheel timingWheel;
+    private final ResumeSession.Panels panels = new HeldPanels();
+    /** The panels that were connected when the system was suspended, so the ones that did not come back yet are known */
+    private volatile Set<String> suspendedSerials = Set.of();
+    /** Held while a resume step runs and while the session is replaced, so the steps of a replaced session never overlap the new ones */
+    private final Object resumeLock = new Object();
+    @GuardedBy("resumeLock") @Nullable private ResumeSession resumeSession;
+    @GuardedBy("resumeLock") @Nullable private TimingWheel.Timeout resumeTimeout;
 
     @PostConstruct
     public void init() {
@@ -38,17 +64,18 @@ public final class SleepDetector {
     }
 
     private void onSuspended(boolean shutdown) {
+        suspendedSerials = StreamEx.of(devices.values()).map(Device::getSerialNumber).toImmutableSet();
+        replaceResumeSession(null);
         Runnable r = () -> {
+            var written = new ArrayList<CompletableFuture<Void>>();
             for (var device : devices.values()) {
                 log.debug("Pause: {}", device.getSerialNumber());
-                outputInterpreter.sendLightingConfig(device.getSerialNumber(), device.getDeviceType(), ALL_OFF, true);
-
-                if (shutdown) {
-                    waitUntilEmptyPrioQueue(device);
-                }
+                written.add(outputInterpreter.sendLightingConfig(device.getSerialNumber(), device.getDeviceType(), ALL_OFF, true));
             }
-            if (shutdown)
+            if (shutdown) {
+                awaitWritten(written);
                 deviceScanner.close();
+            }
         };
 
         if (shutdown) {
@@ -59,44 +86,84 @@ public final class SleepDetector {
         log.info("Stopped sleep detector");
     }
 
-    private void waitUntilEmptyPrioQueue(Device device) {
-        var handler = deviceScanner.getConnectedDevice(device.getSerialNumber());
-        for (var i = 0; i < 20; i++) {
-            if (handler.getQueue().isEmpty())
-                break;
-            try {
-                Thread.sleep(100L);
-            } catch (InterruptedException e) {
-                log.warn("Unable to sleep", e);
-            }
+    private void awaitWritten(List<CompletableFuture<Void>> written) {
+        try {
+            CompletableFuture.allOf(written.toArray(CompletableFuture[]::new)).get(SHUTDOWN_WRITE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            log.warn("Interrupted while turning off the lights", e);
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Unable to turn off the lights of all devices", e);
         }
     }
 
+    /**
+     * Runs a {@link ResumeSession} with steps timed by the {@link TimingWheel}, stepping quickly at first and slower while panels are
+     * still missing. A new suspend or resume replaces the running session.
+     */
     private void onResumed() {
-        Platform.runLater(() -> {
-            // Wait a bit for USB subsystem to stabilize after resume
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                log.warn("Interrupted while waiting for system to stabilize after resume", e);
-            }
+        var resumedAt = System.nanoTime();
+        var serials = new LinkedHashSet<>(suspendedSerials);
+        devices.values().forEach(device -> serials.add(device.getSerialNumber()));
+        log.info("Restoring {} after system resume", serials);
+        var session = new ResumeSession(panels, serials, resumedAt, RESUME_TIMEOUT_NANOS);
+        synchronized (resumeLock) {
+            replaceResumeSession(session);
+            resumeTimeout = timingWheel.schedule(() -> resumeStep(session, FIRST_RESUME_STEP_MS), 0, TimeUnit.MILLISECONDS);
+        }
+    }
 
-            // Try to reconnect any disconnected devices
-            log.info("Attempting to reconnect devices after system resume");
-            deviceScanner.triggerDeviceRescan();
+    private void replaceResumeSession(@Nullable ResumeSession session) {
+        synchronized (resumeLock) {
+            if (resumeTimeout != null) {
+                resumeTimeout.cancel();
+                resumeTimeout = null;
+            }
+            resumeSession = session;
+        }
+    }
 
-            // Wait a bit more for device reconnection to complete
+    private void resumeStep(ResumeSession session, long delayMs) {
+        synchronized (resumeLock) {
+            //noinspection ObjectEquality
+            if (resumeSession != session) {
+                return;
+            }
             try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                log.warn("Interrupted while waiting for device reconnection", e);
+                if (session.step(System.nanoTime())) {
+                    log.info("RESUME: done {}", session.results());
+                    resumeSession = null;
+                    resumeTimeout = null;
+                    return;
+                }
+            } catch (Exception e) {
+                log.error("Error while restoring the devices after resume", e);
             }
+            resumeTimeout = timingWheel.schedule(() -> resumeStep(session, Math.min(delayMs * 2, MAX_RESUME_STEP_MS)), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
 
-            // Restore lighting configuration for all devices
-            for (var device : devices.values()) {
-                log.info("RESUME: Restoring lighting for {}", device.getSerialNumber());
-                outputInterpreter.sendLightingConfig(device.getSerialNumber(), device.getDeviceType(), device.getLightingConfig(), true);
-            }
-        });
+    private final class HeldPanels implements ResumeSession.Panels {
+        @Override
+        public Set<String> connected() {
+            return StreamEx.of(devices.values()).map(Device::getSerialNumber).filter(serial -> deviceScanner.getConnectedDevice(serial) != null).toSet();
+        }
+
+        @Override
+        public void rescan(Set<String> missing) {
+            deviceScanner.triggerDeviceRescan(missing);
+        }
+
+        @Override
+        public void drop(String serialNumber) {
+            deviceScanner.deviceRemoved(serialNumber);
+        }
+
+        @Override
+        public CompletableFuture<Void> restore(String serialNumber) {
+            var device = devices.getDevice(serialNumber).orElseThrow(() -> new IllegalStateException(serialNumber + " is gone"));
+            log.info("RESUME: Restoring lighting for {}", serialNumber);
+            outputInterpreter.forceFullRefresh(serialNumber);
+            return outputInterpreter.sendLightingConfig(serialNumber, device.getDeviceType(), device.getLightingConfig(), true);
+        }
     }
 }
@@ -24,6 +24,7 @@ import javafx.fxml.FXML;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
@@ -46,10 +47,13 @@ public class BasicMacro extends Application implements UIInitializer<BasicMacro.
     @FXML private Pane root;
     @FXML private ButtonController singleClickPanelController;
     @FXML private ButtonController doubleClickPanelController;
+    @FXML private ButtonController longPressPanelController;
+    @FXML private ButtonController repeatPanelController;
     @FXML private ButtonController dialPanelController;
 
     @FXML private Pane topPane;
     @FXML private TabPane mainTabPane;
+    @FXML private Tab dialpane;
     @FXML private Button scFileButton;
 
     @FXML private TextField trimMin;
@@ -74,9 +78,8 @@ public class BasicMacro extends Application implements UIInitializer<BasicMacro.
         var profile = deviceSave.ensureCurrentProfile(device.getDeviceType());
         knobSetting = profile.getKnobSettings(dialNum);
 
-        // Do this before possibly removing the first 2 tabs
         if (analogType != null) {
-            mainTabPane.getTabs().get(2).setText(analogType);
+            dialpane.setText(analogType);
         }
         context = new CommandContext(stage, deviceSave, profile);
         dialPanelController.initController(Cmd.Type.dial, context, profile.getDialData(dialNum));
@@ -85,9 +88,10 @@ public class BasicMacro extends Application implements UIInitializer<BasicMacro.
         if (hasButton) {
             singleClickPanelController.initController(Cmd.Type.button, context, profile.getButtonData(dialNum));
             doubleClickPanelController.initController(Cmd.Type.button, context, profile.getDblButtonData(dialNum));
+            longPressPanelController.initController(Cmd.Type.button, context, profile.getLongPressButtonData(dialNum));
+            repeatPanelController.initController(Cmd.Type.button, context, profile.getRepeatButtonData(dialNum));
         } else {
-            mainTabPane.getTabs().remove(0);
-            mainTabPane.getTabs().remove(0);
+            mainTabPane.getTabs().remove(0, mainTabPane.getTabs().indexOf(dialpane));
         }
 
         postInit();
@@ -112,6 +116,8 @@ public class BasicMacro extends Application implements UIInitializer<BasicMacro.
     private void ok(ActionEvent event) {
         var buttonData = singleClickPanelController.determineButtonCommand();
         var dblButtonData = doubleClickPanelController.determineButtonCommand();
+        var longPressButtonData = longPressPanelController.determineButtonCommand();
+        var repeatButtonData = repeatPanelController.determineButtonCommand();
         var volData = dialPanelController.determineButtonCommand();
         knobSetting.setMinTrim(NumberUtils.toInt(trimMin.getText(), 0));
         knobSetting.setMaxTrim(NumberUtils.toInt(trimMax.getText(), 100));
@@ -122,11 +128,15 @@ public class BasicMacro extends Application implements UIInitializer<BasicMacro.
         var profile = context.profile();
         profile.setButtonData(dialNum, buttonData);
         profile.setDblButtonData(dialNum, dblButtonData);
+        profile.setLongPressButtonData(dialNum, longPressButtonData);
+        profile.setRepeatButtonData(dialNum, repeatButtonData);
         profile.setDialData(dialNum, volData);
         if (log.isDebugEnabled()) {
             log.debug("-----------------");
             log.debug(buttonData);
             log.debug(dblButtonData);
+            log.debug(longPressButtonData);
+            log.debug(repeatButtonData);
             log.debug(volData);
             log.debug("-----------------");
         }
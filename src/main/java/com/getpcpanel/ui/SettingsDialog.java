@@ -78,6 +78,8 @@ public class SettingsDialog extends Application implements UIInitializer<SingleP
     @FXML private Label overlayBGTransparency;
     @FXML private TextField dblClickInterval;
     @FXML private CheckBox preventClickWhenDblClick;
+    @FXML private TextField longPressInterval;
+    @FXML private TextField repeatInterval;
     @FXML private CheckBox obsEnable;
     @FXML private Pane obsControls;
     @FXML private TextField obsAddress;
@@ -170,6 +172,8 @@ public class SettingsDialog extends Application implements UIInitializer<SingleP
         save.setOverlayPosition(getOverlayPosition());
         save.setDblClickInterval(NumberUtils.toLong(dblClickInterval.getText(), 500));
         save.setPreventClickWhenDblClick(preventClickWhenDblClick.isSelected());
+        save.setLongPressInterval(NumberUtils.toLong(longPressInterval.getText(), 600));
+        save.setRepeatInterval(NumberUtils.toLong(repeatInterval.getText(), 150));
         save.setObsEnabled(obsEnable.isSelected());
         save.setObsAddress(obsAddress.getText());
         save.setObsPort(obsPort.getText());
@@ -220,6 +224,8 @@ public class SettingsDialog extends Application implements UIInitializer<SingleP
         overlayPadding.setText("" + save.getOverlayPadding());
         dblClickInterval.setText(save.getDblClickInterval() == null ? "500" : save.getDblClickInterval().toString());
         preventClickWhenDblClick.setSelected(save.isPreventClickWhenDblClick());
+        longPressInterval.setText(save.getLongPressInterval() == null ? "600" : save.getLongPressInterval().toString());
+        repeatInterval.setText(save.getRepeatInterval() == null ? "150" : save.getRepeatInterval().toString());
         obsEnable.setSelected(save.isObsEnabled());
         obsAddress.setText(save.getObsAddress());
         obsPort.setText(save.getObsPort());
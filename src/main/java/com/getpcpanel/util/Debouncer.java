@@ -2,63 +2,122 @@ package com.getpcpanel.util;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.BiFunction;
-import java.util.function.Function;
+
+import javax.annotation.Nullable;
 
 import org.springframework.stereotype.Service;
 
-import io.reactivex.Observable;
-import io.reactivex.disposables.Disposable;
-import io.reactivex.internal.schedulers.ExecutorScheduler;
-import io.reactivex.subjects.PublishSubject;
 import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
 
+/**
+ * Debouncing and rate limiting per key on the {@link TimingWheel}. A key only exists while something is pending for it, so keys
+ * that are not used any more do not stay around.
+ */
+@Log4j2
 @Service
+@RequiredArgsConstructor
 public class Debouncer {
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-    private final ExecutorScheduler rxScheduler = new ExecutorScheduler(scheduler, false);
-
-    private final Map<Object, RxScheduled> delayedMap = new ConcurrentHashMap<>();
+    private final TimingWheel timingWheel;
+    private final Map<Object, Entry> entries = new ConcurrentHashMap<>();
 
+    /**
+     * Runs the last given runnable once no new one was given for the delay.
+     */
     public void debounce(Object key, Runnable runnable, long delay, TimeUnit unit) {
-        delayedMap.compute(key, computeStream(x -> x.debounce(delay, unit, rxScheduler), runnable));
+        entries.compute(key, (k, entry) -> {
+            var result = entry == null ? new Entry() : entry;
+            if (result.timeout != null) {
+                result.timeout.cancel();
+            }
+            result.runnable = runnable;
+            result.timeout = timingWheel.schedule(() -> fireDebounced(k, result), delay, unit);
+            return result;
+        });
     }
 
-    public void rateLimit(Object key, Runnable runnable, long delay, TimeUnit unit) {
-        delayedMap.compute(key, computeStream(x -> x.throttleLatest(delay, unit), runnable));
+    private void fireDebounced(Object key, Entry entry) {
+        var toRun = new Runnable[1];
+        entries.computeIfPresent(key, (k, current) -> {
+            //noinspection ObjectEquality
+            if (current != entry || current.timeout == null || !current.timeout.isExpired()) {
+                return current; // Debounced again meanwhile
+            }
+            toRun[0] = current.runnable;
+            return null;
+        });
+        if (toRun[0] != null) {
+            toRun[0].run();
+        }
     }
 
-    private BiFunction<Object, RxScheduled, RxScheduled> computeStream(
-            Function<Observable<Object>, Observable<Object>> operator,
-            Runnable runnable) {
-        return (k, v) -> {
-            if (v != null) {
-                v.runnable.set(runnable);
-                v.subject.onNext("");
-                return v;
+    /**
+     * Runs the runnable right away when nothing ran for the key within the delay, otherwise the last one given runs when the delay
+     * since the previous run has passed.
+     */
+    public void rateLimit(Object key, Runnable runnable, long delay, TimeUnit unit) {
+        var runNow = new boolean[1];
+        entries.compute(key, (k, entry) -> {
+            if (entry == null) {
+                var result = new Entry();
+                result.timeout = timingWheel.schedule(() -> windowEnded(k, result, delay, unit), delay, unit);
+                runNow[0] = true;
+                return result;
             }
+            entry.runnable = runnable;
+            return entry;
+        });
+        if (runNow[0]) {
+            runnable.run();
+        }
+    }
 
-            var subject = PublishSubject.create();
-            var result = new RxScheduled(new AtomicReference<>(runnable), subject);
-            result.disposer.set(operator.apply(subject).subscribe(ignored -> result.runnable.get().run()));
+    private void windowEnded(Object key, Entry entry, long delay, TimeUnit unit) {
+        var toRun = new Runnable[1];
+        entries.computeIfPresent(key, (k, current) -> {
+            //noinspection ObjectEquality
+            if (current != entry) {
+                return current;
+            }
+            if (current.runnable == null) {
+                return null; // Nothing came in during the window, the next one runs right away
+            }
+            toRun[0] = current.runnable;
+            current.runnable = null;
+            current.timeout = timingWheel.schedule(() -> windowEnded(k, current, delay, unit), delay, unit);
+            return current;
+        });
+        if (toRun[0] != null) {
+            toRun[0].run();
+        }
+    }
 
-            subject.onNext("");
-            return result;
-        };
+    public Stats getStats() {
+        return new Stats(entries.size(), timingWheel.getStats());
     }
 
     @PreDestroy
     public void shutdown() {
-        scheduler.shutdownNow();
+        log.debug("Debouncer stopped: {}", getStats());
+        entries.values().forEach(entry -> {
+            if (entry.timeout != null) {
+                entry.timeout.cancel();
+            }
+        });
+        entries.clear();
     }
 
-    record RxScheduled(AtomicReference<Runnable> runnable, PublishSubject<Object> subject, AtomicReference<Disposable> disposer) {
-        RxScheduled(AtomicReference<Runnable> runnable, PublishSubject<Object> subject) {
-            this(runnable, subject, new AtomicReference<>(null));
-        }
+    /**
+     * @param keys keys with a pending debounce or an open rate limit window
+     */
+    public record Stats(int keys, TimingWheel.Stats timer) {
+    }
+
+    private static final class Entry {
+        // Guarded by the map entry
+        @Nullable private Runnable runnable;
+        @Nullable private TimingWheel.Timeout timeout;
     }
 }
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Service;
 
 import com.getpcpanel.cpp.ISndCtrl;
 import com.getpcpanel.cpp.linux.LinuxProcessHelper;
+import com.getpcpanel.cpp.linux.LinuxProcessIndex;
 import com.getpcpanel.spring.ConditionalOnLinux;
 import com.getpcpanel.spring.ConditionalOnWindows;
 
@@ -27,6 +28,7 @@ public abstract class IPlatformCommand {
     @RequiredArgsConstructor
     public static class LinuxPlatformCommand extends IPlatformCommand {
         private final LinuxProcessHelper processHelper;
+        private final LinuxProcessIndex processIndex;
 
         @Override
         public void exec(String shortcut) {
@@ -44,14 +46,10 @@ public abstract class IPlatformCommand {
 
         @Override
         public void kill(String process) {
-            try {
-                if (FOCUS.equals(process)) {
-                    processHelper.builder("kill", String.valueOf(processHelper.getActiveProcessPid())).start();
-                } else {
-                    processHelper.builder("pkill", process).start();
-                }
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+            if (FOCUS.equals(process)) {
+                processIndex.kill(processHelper.getActiveProcessPid());
+            } else if (processIndex.kill(process) == 0) {
+                log.debug("No running process found for '{}'", process);
             }
         }
     }
@@ -0,0 +1,272 @@
+package com.getpcpanel.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nullable;
+
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * The timer of the application for debouncing, rate limiting and other delayed triggers: a hashed timing wheel (Varghese and Lauck)
+ * of {@value #WHEEL_SIZE} buckets of {@value #TICK_MILLIS}ms, so scheduling and cancelling are O(1) and a delay can be up to a tick
+ * late. One thread moves new and cancelled timeouts into and out of the buckets and expires a bucket per tick, it sleeps while
+ * nothing is pending. Expired tasks run on a separate pool, so a slow task does not delay the others.
+ */
+@Log4j2
+@Service
+public class TimingWheel {
+    static final int TICK_MILLIS = 5;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+    private static final int WHEEL_SIZE = 1024;
+    private static final int MASK = WHEEL_SIZE - 1;
+    private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private final ExecutorService tasks = Executors.newCachedThreadPool(r -> {
+        var thread = new Thread(r, "Timer task");
+        thread.setDaemon(true);
+        return thread;
+    });
+    @Nullable private volatile Thread worker;
+    private volatile boolean running = true;
+    private volatile boolean idle;
+    // Only used by the worker
+    private long tick;
+    private volatile long maxLagNanos;
+    private volatile long averageLagNanos;
+
+    public TimingWheel() {
+        for (var i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new Bucket();
+        }
+    }
+
+    /**
+     * Runs the task after the delay, unless the returned timeout is cancelled before.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        var timeout = new Timeout(this, task, System.nanoTime() - startNanos + Math.max(0, unit.toNanos(delay)));
+        scheduled.incrementAndGet();
+        pending.incrementAndGet();
+        added.add(timeout);
+        var current = worker;
+        if (current == null) {
+            startWorker();
+        } else if (idle) {
+            LockSupport.unpark(current);
+        }
+        return timeout;
+    }
+
+    private synchronized void startWorker() {
+        if (worker == null && running) {
+            var thread = new Thread(this::run, "Timing wheel");
+            thread.setDaemon(true);
+            worker = thread;
+            thread.start();
+        }
+    }
+
+    private void run() {
+        tick = currentTick();
+        while (running) {
+            if (pending.get() == 0) {
+                idle = true;
+                // Checked again after announcing the idle state, so a timeout that was added meanwhile is not missed
+                if (pending.get() == 0 && running) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                // Nothing was in the wheel, so no bucket is skipped
+                tick = Math.max(tick, currentTick());
+            }
+            var deadline = (tick + 1) * TICK_NANOS;
+            var sleep = deadline - (System.nanoTime() - startNanos);
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue;
+            }
+            removeCancelled();
+            addNew();
+            expire(wheel[(int) (tick & MASK)], System.nanoTime() - startNanos);
+            tick++;
+        }
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / TICK_NANOS;
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        //noinspection NestedAssignment
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void addNew() {
+        Timeout timeout;
+        //noinspection NestedAssignment
+        while ((timeout = added.poll()) != null) {
+            if (timeout.state.get() != Timeout.PENDING) {
+                continue;
+            }
+            var ticks = timeout.deadlineNanos / TICK_NANOS;
+            timeout.remainingRounds = (ticks - tick) / WHEEL_SIZE;
+            wheel[(int) (Math.max(ticks, tick) & MASK)].add(timeout);
+        }
+    }
+
+    private void expire(Bucket bucket, long now) {
+        var timeout = bucket.head;
+        while (timeout != null) {
+            var next = timeout.next;
+            if (timeout.remainingRounds <= 0) {
+                bucket.remove(timeout);
+                if (timeout.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) {
+                    pending.decrementAndGet();
+                    expired.incrementAndGet();
+                    var lag = Math.max(0, now - timeout.deadlineNanos);
+                    maxLagNanos = Math.max(maxLagNanos, lag);
+                    averageLagNanos = averageLagNanos == 0 ? lag : (averageLagNanos * 31 + lag) / 32;
+                    run(timeout.task);
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    private void run(Runnable task) {
+        try {
+            tasks.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("Timer task failed", e);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.debug("Timer task not run, shutting down", e);
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(pending.get(), scheduled.get(), expired.get(), cancelledCount.get(), TimeUnit.NANOSECONDS.toMicros(averageLagNanos),
+                TimeUnit.NANOSECONDS.toMicros(maxLagNanos));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        var current = worker;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+        tasks.shutdownNow();
+        log.debug("Timing wheel stopped: {}", getStats());
+    }
+
+    /**
+     * @param pending        timeouts that did not expire and are not cancelled
+     * @param averageLagMicros how late timeouts expired on average, recent ones weigh more
+     */
+    public record Stats(int pending, long scheduled, long expired, long cancelled, long averageLagMicros, long maxLagMicros) {
+    }
+
+    public static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+        private final TimingWheel wheel;
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        // Only used by the worker
+        private long remainingRounds;
+        @Nullable private Bucket bucket;
+        @Nullable private Timeout prev;
+        @Nullable private Timeout next;
+
+        private Timeout(TimingWheel wheel, Runnable task, long deadlineNanos) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * @return whether the task was prevented from running, false when it already ran or was cancelled before
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            wheel.pending.decrementAndGet();
+            wheel.cancelledCount.incrementAndGet();
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    /**
+     * Doubly linked, so a cancelled timeout is removed without searching.
+     */
+    private static final class Bucket {
+        @Nullable private Timeout head;
+        @Nullable private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.getpcpanel.util.coloroverride;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
@@ -16,25 +18,58 @@ import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import one.util.streamex.StreamEx;
 
+/**
+ * Combines the overrides of all providers, in provider order. The combined overrides of a device are kept until one of the providers
+ * changes, so sending lighting only reads a flat array per slot type.
+ */
 @Setter
 @Service
 @RequiredArgsConstructor
 public class OverrideColorService {
     @Autowired @Lazy private List<IOverrideColorProvider> overriders;
+    private final Map<String, Resolved> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * @return the overrides of all providers combined, the first provider that overrides a slot wins
+     */
+    public OverrideColors getOverrides(String deviceSerial) {
+        var version = version();
+        var current = resolved.get(deviceSerial);
+        if (current == null || current.version() != version) {
+            current = new Resolved(version, OverrideColors.compose(StreamEx.of(overriders).map(p -> p.getOverrides(deviceSerial)).toList()));
+            resolved.put(deviceSerial, current);
+        }
+        return current.overrides();
+    }
+
+    /**
+     * @return changes whenever an override of any provider changes
+     */
+    public long version() {
+        var result = 0L;
+        //noinspection ForLoopReplaceableByForEach
+        for (var i = 0; i < overriders.size(); i++) {
+            result += overriders.get(i).version();
+        }
+        return result;
+    }
 
     public Optional<SingleKnobLightingConfig> getDialOverride(String deviceSerial, int dial) {
-        return StreamEx.of(overriders).mapPartial(p -> p.getDialOverride(deviceSerial, dial)).findFirst();
+        return Optional.ofNullable(getOverrides(deviceSerial).dial(dial));
     }
 
     public Optional<SingleSliderLightingConfig> getSliderOverride(String deviceSerial, int slider) {
-        return StreamEx.of(overriders).mapPartial(p -> p.getSliderOverride(deviceSerial, slider)).findFirst();
+        return Optional.ofNullable(getOverrides(deviceSerial).slider(slider));
     }
 
     public Optional<SingleSliderLabelLightingConfig> getSliderLabelOverride(String deviceSerial, int slider) {
-        return StreamEx.of(overriders).mapPartial(p -> p.getSliderLabelOverride(deviceSerial, slider)).findFirst();
+        return Optional.ofNullable(getOverrides(deviceSerial).sliderLabel(slider));
     }
 
     public Optional<SingleLogoLightingConfig> getLogoOverride(String deviceSerial) {
-        return StreamEx.of(overriders).mapPartial(p -> p.getLogoOverride(deviceSerial)).findFirst();
+        return Optional.ofNullable(getOverrides(deviceSerial).logo());
+    }
+
+    private record Resolved(long version, OverrideColors overrides) {
     }
 }
@@ -0,0 +1,88 @@
+package com.getpcpanel.util.coloroverride;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import javax.annotation.Nullable;
+
+import com.getpcpanel.profile.SingleKnobLightingConfig;
+import com.getpcpanel.profile.SingleLogoLightingConfig;
+import com.getpcpanel.profile.SingleSliderLabelLightingConfig;
+import com.getpcpanel.profile.SingleSliderLightingConfig;
+
+/**
+ * Override colours of one device, indexed by slot, null where a slot is not overridden. Never changed, a change creates a copy.
+ */
+@SuppressWarnings("ArrayRecordComponent")
+public record OverrideColors(
+        SingleKnobLightingConfig[] dials,
+        SingleSliderLightingConfig[] sliders,
+        SingleSliderLabelLightingConfig[] sliderLabels,
+        @Nullable SingleLogoLightingConfig logo
+) {
+    public static final OverrideColors EMPTY = new OverrideColors(new SingleKnobLightingConfig[0], new SingleSliderLightingConfig[0],
+            new SingleSliderLabelLightingConfig[0], null);
+
+    public @Nullable SingleKnobLightingConfig dial(int dial) {
+        return dial < dials.length ? dials[dial] : null;
+    }
+
+    public @Nullable SingleSliderLightingConfig slider(int slider) {
+        return slider < sliders.length ? sliders[slider] : null;
+    }
+
+    public @Nullable SingleSliderLabelLightingConfig sliderLabel(int slider) {
+        return slider < sliderLabels.length ? sliderLabels[slider] : null;
+    }
+
+    OverrideColors withDial(int dial, @Nullable SingleKnobLightingConfig config) {
+        return new OverrideColors(with(dials, dial, config), sliders, sliderLabels, logo);
+    }
+
+    OverrideColors withSlider(int slider, @Nullable SingleSliderLightingConfig config) {
+        return new OverrideColors(dials, with(sliders, slider, config), sliderLabels, logo);
+    }
+
+    OverrideColors withSliderLabel(int slider, @Nullable SingleSliderLabelLightingConfig config) {
+        return new OverrideColors(dials, sliders, with(sliderLabels, slider, config), logo);
+    }
+
+    OverrideColors withLogo(@Nullable SingleLogoLightingConfig config) {
+        return new OverrideColors(dials, sliders, sliderLabels, config);
+    }
+
+    private static <T> T[] with(T[] slots, int index, @Nullable T value) {
+        var result = Arrays.copyOf(slots, Math.max(slots.length, index + 1));
+        result[index] = value;
+        return result;
+    }
+
+    /**
+     * @return per slot the override of the first layer that overrides it
+     */
+    static OverrideColors compose(List<OverrideColors> layers) {
+        if (layers.size() == 1) {
+            return layers.get(0);
+        }
+        return new OverrideColors(
+                compose(layers, OverrideColors::dials, SingleKnobLightingConfig[]::new),
+                compose(layers, OverrideColors::sliders, SingleSliderLightingConfig[]::new),
+                compose(layers, OverrideColors::sliderLabels, SingleSliderLabelLightingConfig[]::new),
+                layers.stream().map(OverrideColors::logo).filter(l -> l != null).findFirst().orElse(null));
+    }
+
+    private static <T> T[] compose(List<OverrideColors> layers, Function<OverrideColors, T[]> slots, IntFunction<T[]> create) {
+        var result = create.apply(layers.stream().mapToInt(l -> slots.apply(l).length).max().orElse(0));
+        for (var i = layers.size() - 1; i >= 0; i--) {
+            var layer = slots.apply(layers.get(i));
+            for (var slot = 0; slot < layer.length; slot++) {
+                if (layer[slot] != null) {
+                    result[slot] = layer[slot];
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,151 @@
+package com.getpcpanel.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.commands.command.ButtonAction;
+import com.getpcpanel.commands.command.Command;
+
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+class CommandDispatcherTest {
+    private static final String SERIAL = "SERIAL";
+    private CommandDispatcher sut;
+    private List<String> ran;
+
+    @BeforeEach
+    void setUp() {
+        sut = new CommandDispatcher();
+        sut.init();
+        ran = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sut.stop();
+    }
+
+    @Test
+    void slowLaneDoesNotBlockTheOthers() throws Exception {
+        var obsReleased = new CountDownLatch(1);
+        var audioRan = new CountDownLatch(1);
+        dispatch(0, new TestCommand(CommandLane.OBS, () -> await(obsReleased)));
+        dispatch(1, new TestCommand(CommandLane.AUDIO, audioRan::countDown));
+
+        assertTrue(audioRan.await(1, TimeUnit.SECONDS), "Audio waited for OBS");
+        obsReleased.countDown();
+    }
+
+    @Test
+    void latestCommandOfAControlWins() throws Exception {
+        var started = new CountDownLatch(1);
+        var released = new CountDownLatch(1);
+        var done = new CountDownLatch(1);
+        dispatch(0, new TestCommand(CommandLane.AUDIO, () -> {
+            started.countDown();
+            await(released);
+        }));
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        for (var i = 1; i <= 3; i++) {
+            dispatch(1, new TestCommand(CommandLane.AUDIO, "volume " + i));
+        }
+        dispatch(2, new TestCommand(CommandLane.AUDIO, done::countDown));
+        var stats = laneStats(CommandLane.AUDIO);
+        assertEquals(2, stats.queued());
+        assertEquals(2, stats.superseded());
+
+        released.countDown();
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of("volume 3"), ran);
+        log.info("Lanes: {}", sut.getStats());
+    }
+
+    @Test
+    void commandsOfAControlRunOnTheirOwnLanes() throws Exception {
+        var done = new CountDownLatch(2);
+        var commands = new Commands(List.of(
+                new TestCommand(CommandLane.OBS, done::countDown),
+                new TestCommand(CommandLane.VOICEMEETER, done::countDown)), CommandsType.allAtOnce);
+        sut.onCommand(new PCPanelControlEvent(SERIAL, 0, commands, false, null));
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(1, laneStats(CommandLane.OBS).executed());
+        assertEquals(1, laneStats(CommandLane.VOICEMEETER).executed());
+    }
+
+    @Test
+    void commandsAfterASystemCommandKeepTheirOrder() throws Exception {
+        var done = new CountDownLatch(1);
+        var commands = new Commands(List.of(
+                new TestCommand(CommandLane.SYSTEM, () -> {
+                    await(new CountDownLatch(1), 50);
+                    ran.add("profile");
+                }),
+                new TestCommand(CommandLane.AUDIO, "volume"),
+                new TestCommand(CommandLane.AUDIO, done::countDown)), CommandsType.allAtOnce);
+        sut.onCommand(new PCPanelControlEvent(SERIAL, 0, commands, false, null));
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of("profile", "volume"), ran);
+        assertEquals(0, laneStats(CommandLane.AUDIO).executed());
+    }
+
+    private void dispatch(int knob, Command command) {
+        sut.onCommand(new PCPanelControlEvent(SERIAL, knob, new Commands(List.of(command), CommandsType.allAtOnce), false, null));
+    }
+
+    private CommandDispatcher.LaneStats laneStats(CommandLane lane) {
+        return sut.getStats().stream().filter(s -> s.lane() == lane).findFirst().orElseThrow();
+    }
+
+    private static void await(CountDownLatch latch) {
+        await(latch, 5000);
+    }
+
+    private static void await(CountDownLatch latch, long millis) {
+        try {
+            latch.await(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class TestCommand extends Command implements ButtonAction {
+        private final CommandLane lane;
+        private final Runnable action;
+
+        private TestCommand(CommandLane lane, Runnable action) {
+            this.lane = lane;
+            this.action = action;
+        }
+
+        private TestCommand(CommandLane lane, String name) {
+            this(lane, () -> ran.add(name));
+        }
+
+        @Override
+        public void execute() {
+            action.run();
+        }
+
+        @Override
+        public CommandLane getLane() {
+            return lane;
+        }
+
+        @Override
+        public String buildLabel() {
+            return "";
+        }
+    }
+}
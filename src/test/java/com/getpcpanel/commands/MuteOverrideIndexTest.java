@@ -0,0 +1,89 @@
+package com.getpcpanel.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.commands.command.Command;
+import com.getpcpanel.commands.command.CommandVoiceMeeterBasic;
+import com.getpcpanel.commands.command.CommandVolumeDevice;
+import com.getpcpanel.commands.command.CommandVolumeProcess;
+import com.getpcpanel.commands.command.DialAction.DialCommandParams;
+import com.getpcpanel.device.DeviceType;
+import com.getpcpanel.profile.LightingConfig;
+import com.getpcpanel.profile.LightingConfig.LightingMode;
+import com.getpcpanel.profile.Profile;
+import com.getpcpanel.ui.ILightingDialogMuteOverrideHelper;
+import com.getpcpanel.util.coloroverride.ColorOverrideHolder;
+import com.getpcpanel.voicemeeter.Voicemeeter.ButtonType;
+import com.getpcpanel.voicemeeter.Voicemeeter.ControlType;
+import com.getpcpanel.voicemeeter.Voicemeeter.DialType;
+
+class MuteOverrideIndexTest {
+    private static final String SERIAL = "INDEX";
+    private static final String FOLLOW = ILightingDialogMuteOverrideHelper.FOLLOW_PROCESS;
+    private MuteOverrideIndex sut;
+
+    @BeforeEach
+    void build() {
+        var lighting = new LightingConfig(5, 4);
+        lighting.setLightingMode(LightingMode.CUSTOM);
+        var profile = new Profile("index", DeviceType.PCPANEL_PRO);
+        profile.setLightingConfig(lighting);
+
+        mute(lighting, 0, FOLLOW);
+        profile.setDialData(0, commands(new CommandVolumeProcess(List.of("Spotify.exe"), "", false, DialCommandParams.DEFAULT)));
+        mute(lighting, 1, "Speakers");
+        profile.setDialData(1, Commands.EMPTY);
+        mute(lighting, 2, FOLLOW);
+        profile.setDialData(2, commands(new CommandVolumeDevice("", false, DialCommandParams.DEFAULT)));
+        profile.setDialData(3, commands(new CommandVolumeProcess(List.of("no-override.exe"), "", false, DialCommandParams.DEFAULT)));
+        lighting.getSliderConfigs()[0].setMuteOverrideDeviceOrFollow(FOLLOW).setMuteOverrideColor("#FF0000");
+        lighting.getSliderLabelConfigs()[0].setMuteOverrideDeviceOrFollow("VoiceMeeter: Input 3, Mute").setMuteOverrideColor("#FF0000");
+        profile.setDialData(5, commands(new CommandVoiceMeeterBasic(ControlType.STRIP, 2, DialType.GAIN, DialCommandParams.DEFAULT)));
+
+        sut = new MuteOverrideIndex(MuteOverrideIndex.slots(SERIAL, profile));
+    }
+
+    @Test
+    void eventsOnlyFindTheirOwnSlots() {
+        assertEquals(Set.of("DIAL0"), names(sut.process("spotify")));
+        assertEquals(Set.of(), names(sut.process("discord")));
+        assertEquals(Set.of(), names(sut.process("no-override")));
+        assertEquals(Set.of("DIAL1"), names(sut.device("Speakers (Realtek)", "other", id -> id.isEmpty() ? "default" : id)));
+        assertEquals(Set.of("DIAL1", "DIAL2"), names(sut.device("Speakers (Realtek)", "default", id -> id.isEmpty() ? "default" : id)));
+        assertEquals(Set.of("SLIDER0"), names(sut.voiceMeeter(ControlType.STRIP, 2, ButtonType.SOLO)));
+        assertEquals(Set.of("SLIDER0", "SLIDER_LABEL0"), names(sut.voiceMeeter(ControlType.STRIP, 2, ButtonType.MUTE)));
+        assertEquals(Set.of(), names(sut.voiceMeeter(ControlType.BUS, 2, ButtonType.MUTE)));
+        assertEquals(Set.of(), names(sut.obsSource("Mic")));
+        assertEquals(Set.of(SERIAL), sut.serials());
+    }
+
+    @Test
+    void slotsSetAndClearTheirOverride() {
+        var holder = new ColorOverrideHolder();
+        sut.process("spotify").forEach(slot -> slot.apply(holder, true));
+        assertEquals("#FF0000", holder.getOverrides(SERIAL).dial(0).getColor1());
+
+        sut.process("spotify").forEach(slot -> slot.apply(holder, false));
+        assertNull(holder.getOverrides(SERIAL).dial(0));
+    }
+
+    private static void mute(LightingConfig lighting, int knob, String deviceOrFollow) {
+        lighting.getKnobConfigs()[knob].setMuteOverrideDeviceOrFollow(deviceOrFollow).setMuteOverrideColor("#FF0000");
+    }
+
+    private static Commands commands(Command command) {
+        return new Commands(List.of(command), CommandsType.allAtOnce);
+    }
+
+    private static Set<String> names(Collection<MuteOverrideIndex.Slot> slots) {
+        return Set.copyOf(slots.stream().map(slot -> slot.part().name() + slot.index()).toList());
+    }
+}
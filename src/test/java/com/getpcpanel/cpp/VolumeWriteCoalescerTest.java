@@ -0,0 +1,52 @@
+package com.getpcpanel.cpp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.util.TimingWheel;
+
+class VolumeWriteCoalescerTest {
+    private static final int VALUES = 1000;
+    private final List<Float> deviceWrites = new CopyOnWriteArrayList<>();
+    private final TimingWheel timingWheel = new TimingWheel();
+    private VolumeWriteCoalescer sut;
+
+    @BeforeEach
+    void setUp() {
+        var sndCtrl = (ISndCtrl) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { ISndCtrl.class }, (proxy, method, args) -> {
+            if ("setDeviceVolume".equals(method.getName())) {
+                deviceWrites.add((Float) args[1]);
+            }
+            return null;
+        });
+        sut = new VolumeWriteCoalescer(sndCtrl, timingWheel, 20);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sut.shutdown();
+        timingWheel.shutdown();
+    }
+
+    @Test
+    void latestValueWins() throws InterruptedException {
+        for (var i = 0; i < VALUES; i++) {
+            sut.setDeviceVolume("device", i / (float) VALUES);
+        }
+        Thread.sleep(200);
+
+        var stats = sut.stats();
+        assertEquals((VALUES - 1) / (float) VALUES, deviceWrites.get(deviceWrites.size() - 1));
+        assertEquals(VALUES, stats.written() + stats.superseded());
+        assertEquals(deviceWrites.size(), stats.written());
+        assertTrue(stats.written() < 10, "Expected the writes to be coalesced, but got " + stats.written());
+    }
+}
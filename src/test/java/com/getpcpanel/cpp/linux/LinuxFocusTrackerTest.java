@@ -0,0 +1,50 @@
+package com.getpcpanel.cpp.linux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.getpcpanel.cpp.windows.WindowFocusChangedEvent;
+
+class LinuxFocusTrackerTest {
+    @Test
+    void focusChangeIsOnlyPublishedWhenTheBinaryChanges(@TempDir Path proc) throws IOException {
+        process(proc, 10, "firefox");
+        process(proc, 11, "firefox");
+        process(proc, 12, "spotify");
+        var events = new ArrayList<Object>();
+        var sut = new LinuxFocusTracker(List.of(), events::add, null, new LinuxProcessIndex(proc.toString(), 0));
+
+        sut.onFocusPid(10);
+        sut.onFocusPid(11);
+        assertEquals(List.of(new WindowFocusChangedEvent("firefox")), events, "Another window of the same binary");
+
+        sut.onFocusPid(12);
+        sut.onFocusPid(12);
+        assertEquals(List.of(new WindowFocusChangedEvent("firefox"), new WindowFocusChangedEvent("spotify")), events);
+    }
+
+    @Test
+    void unknownFocusIsNotPublished(@TempDir Path proc) throws IOException {
+        process(proc, 10, "firefox");
+        var events = new ArrayList<Object>();
+        var sut = new LinuxFocusTracker(List.of(), events::add, null, new LinuxProcessIndex(proc.toString(), 0));
+
+        sut.onFocusPid(10);
+        sut.onFocusPid(-1);
+        assertEquals(List.of(new WindowFocusChangedEvent("firefox")), events);
+    }
+
+    private static void process(Path proc, int pid, String command) throws IOException {
+        var dir = Files.createDirectories(proc.resolve(String.valueOf(pid)));
+        Files.writeString(dir.resolve("stat"), pid + " (" + command + ") S 1 1 1 0 -1 0 0 0 0 0 0 0 0 0 20 0 1 0 100 0 0");
+        Files.writeString(dir.resolve("comm"), command + "\n");
+    }
+}
@@ -0,0 +1,76 @@
+package com.getpcpanel.cpp.linux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+class LinuxProcessIndexTest {
+    @Test
+    void parseStartTime() {
+        assertEquals(4242, LinuxProcessIndex.parseStartTime("12 (Web Content (x)) S 1 12 12 0 -1 4194560 1 0 0 0 0 0 0 0 20 0 1 0 4242 0 0"));
+        assertEquals(-1, LinuxProcessIndex.parseStartTime("12 (broken"));
+    }
+
+    @Test
+    void detectsNewRemovedAndReusedPids(@TempDir Path proc) throws IOException {
+        process(proc, 10, 100, "firefox");
+        process(proc, 11, 100, "bash");
+        var sut = new LinuxProcessIndex(proc.toString(), 0);
+
+        assertEquals(2, sut.processes().size());
+        assertEquals("firefox", sut.get(10).orElseThrow().command());
+
+        FileUtils.deleteDirectory(proc.resolve("11").toFile());
+        process(proc, 12, 200, "spotify");
+        assertEquals(2, sut.processes().size());
+        assertTrue(sut.get(11).isEmpty());
+
+        // Pid 10 reused by another process
+        FileUtils.deleteDirectory(proc.resolve("10").toFile());
+        process(proc, 10, 300, "discord");
+        assertEquals("discord", sut.get(10).orElseThrow().command());
+        assertEquals(300, sut.get(10).orElseThrow().startTime());
+    }
+
+    @Test
+    void killMatchesCommandNamesLikePkill() {
+        var firefox = new LinuxProcessIndex.ProcessEntry(10, 100, null, "firefox-bin");
+        assertTrue(LinuxProcessIndex.commandMatcher("firefox").test(firefox));
+        assertTrue(LinuxProcessIndex.commandMatcher("^fire.*bin$").test(firefox));
+        assertFalse(LinuxProcessIndex.commandMatcher("Firefox").test(firefox));
+        assertFalse(LinuxProcessIndex.commandMatcher("chrome").test(firefox));
+        assertTrue(LinuxProcessIndex.commandMatcher("[").test(new LinuxProcessIndex.ProcessEntry(11, 100, null, "a[b")));
+        assertFalse(LinuxProcessIndex.commandMatcher("x").test(new LinuxProcessIndex.ProcessEntry(12, 100, null, null)));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @EnabledOnOs(OS.LINUX)
+    void refreshCostOnThisMachine() {
+        var sut = new LinuxProcessIndex("/proc", 0);
+        sut.processes();
+        sut.processes();
+        log.info("Process index: {}", sut.stats());
+        assertTrue(sut.stats().processes() > 0);
+    }
+
+    private static void process(Path proc, int pid, long startTime, String command) throws IOException {
+        var dir = Files.createDirectories(proc.resolve(String.valueOf(pid)));
+        Files.writeString(dir.resolve("stat"), pid + " (" + command + ") S 1 1 1 0 -1 0 0 0 0 0 0 0 0 0 20 0 1 0 " + startTime + " 0 0");
+        Files.writeString(dir.resolve("comm"), command + "\n");
+    }
+}
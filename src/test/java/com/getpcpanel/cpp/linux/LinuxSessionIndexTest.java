@@ -0,0 +1,68 @@
+package com.getpcpanel.cpp.linux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class LinuxSessionIndexTest {
+    private final LinuxAudioSession firefox = session(1, 100, "firefox", "Firefox");
+    private final LinuxAudioSession firefoxChild = session(2, 101, "firefox", "Firefox");
+    private final LinuxAudioSession noPid = session(3, -1, "speech-dispatcher", "");
+    private final LinuxAudioSession player = session(4, 200, "mpv", "Spotify");
+    private final LinuxAudioSession spotify = session(5, 300, "spotify", "Music");
+    private final LinuxSessionIndex sut = LinuxSessionIndex.of(List.of(firefox, firefoxChild, noPid, player, spotify));
+
+    @Test
+    void matchesNameAndTitleIgnoringCase() {
+        assertEquals(Set.of(firefox, firefoxChild), sut.byNameOrTitle("FireFox"));
+        assertEquals(Set.of(spotify, player), sut.byNameOrTitle("SPOTIFY"), "The binary of one and the title of the other");
+        assertEquals(Set.of(spotify), sut.byNameOrTitle("music"));
+        assertEquals(Set.of(noPid), sut.byNameOrTitle("speech-dispatcher"), "A blank title falls back to the binary name");
+        assertTrue(sut.byNameOrTitle("chrome").isEmpty());
+    }
+
+    @Test
+    void sessionMatchingOnNameAndTitleIsReturnedOnce() {
+        var result = sut.byNameOrTitle("firefox");
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    void blankLookupMatchesNothing() {
+        assertTrue(sut.byNameOrTitle(null).isEmpty());
+        assertTrue(sut.byNameOrTitle(" ").isEmpty());
+        assertTrue(LinuxSessionIndex.EMPTY.byNameOrTitle(null).isEmpty());
+        assertTrue(LinuxSessionIndex.EMPTY.byNameOrTitle("firefox").isEmpty());
+        assertTrue(LinuxSessionIndex.EMPTY.byPid(100).isEmpty());
+    }
+
+    @Test
+    void byPid() {
+        assertEquals(List.of(firefox), sut.byPid(100));
+        assertEquals(List.of(player), sut.byPid(200));
+        assertTrue(sut.byPid(42).isEmpty());
+        assertEquals(5, sut.all().size());
+    }
+
+    @Test
+    void focusMatchesPidThenBinary() {
+        assertEquals(List.of(firefox), List.copyOf(sut.byFocus(new LinuxFocusTracker.Focus(100, "firefox"))));
+        assertEquals(Set.of(firefox, firefoxChild), Set.copyOf(sut.byFocus(new LinuxFocusTracker.Focus(99, "firefox"))));
+    }
+
+    @Test
+    void unknownFocusMatchesNothing() {
+        assertTrue(sut.byFocus(LinuxFocusTracker.Focus.NONE).isEmpty());
+        assertTrue(sut.byFocus(new LinuxFocusTracker.Focus(-1, "firefox")).isEmpty());
+        assertTrue(sut.byPid(-1).isEmpty(), "Sessions without a pid are not indexed by pid");
+    }
+
+    private static LinuxAudioSession session(int index, int pid, String binary, String title) {
+        return new LinuxAudioSession(null, index, pid, new File(binary), title, "", 1f, false);
+    }
+}
@@ -0,0 +1,99 @@
+package com.getpcpanel.cpp.linux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+class PeakMeterTest {
+    private static final int WINDOW = LinuxLevelMonitor.RATE / 20;
+
+    @Test
+    void levelsOfSyntheticSignals() {
+        var sut = new PeakMeter(WINDOW);
+        sut.accept(new byte[WINDOW * 2], WINDOW * 2);
+        assertEquals(0, sut.peakLevel());
+
+        var fullScale = sine(32767, WINDOW);
+        sut.accept(fullScale, fullScale.length);
+        assertEquals(PeakMeter.MAX_LEVEL, sut.peakLevel());
+        assertEquals(32767 / Math.sqrt(2), sut.rms(), 200);
+
+        // -20dB is a third of the way down the 60dB scale
+        var quiet = sine(3277, WINDOW);
+        sut.accept(quiet, quiet.length);
+        assertEquals(170, sut.peakLevel(), 1);
+    }
+
+    @Test
+    void sampleSplitOverChunks() {
+        var sut = new PeakMeter(4);
+        var pcm = new byte[] { 0x00, 0x40, 0x00, (byte) 0xC0 }; // 16384, -16384
+        sut.accept(new byte[] { pcm[0] }, 1);
+        assertEquals(0, sut.peak());
+        sut.accept(new byte[] { pcm[1], pcm[2], pcm[3] }, 3);
+        assertEquals(16384, sut.peak());
+        assertEquals(16384, sut.rms());
+    }
+
+    @Test
+    void pumpAndCapture() throws Exception {
+        var pcm = sine(16384, LinuxLevelMonitor.RATE);
+        assertEquals(pcm.length, LevelCapture.pump(new ByteArrayInputStream(pcm), new PeakMeter(WINDOW)));
+
+        var capture = new LevelCapture("test", new ByteArrayInputStream(pcm), null, new PeakMeter(WINDOW)).start();
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (capture.isRunning() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(capture.isRunning());
+        // The stream ended, so the meter is back to silence
+        assertEquals(0, capture.meter().peakLevel());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void costOfNineStreams() throws IOException {
+        var second = sine(12000, LinuxLevelMonitor.RATE);
+        var meters = new PeakMeter[9];
+        for (var i = 0; i < meters.length; i++) {
+            meters[i] = new PeakMeter(WINDOW);
+            LevelCapture.pump(new ByteArrayInputStream(second), meters[i]); // warm up
+        }
+
+        var threads = ManagementFactory.getThreadMXBean();
+        var seconds = 20;
+        var start = threads.getCurrentThreadCpuTime();
+        for (var s = 0; s < seconds; s++) {
+            for (var meter : meters) {
+                LevelCapture.pump(new ByteArrayInputStream(second), meter);
+            }
+        }
+        var cpu = threads.getCurrentThreadCpuTime() - start;
+        log.info("Metering {} streams: {}us cpu per second of audio", meters.length, TimeUnit.NANOSECONDS.toMicros(cpu / seconds));
+        assertTrue(meters[8].peakLevel() > 0);
+    }
+
+    /**
+     * @return one channel of s16le
+     */
+    private static byte[] sine(int amplitude, int samples) {
+        var result = new byte[samples * 2];
+        for (var i = 0; i < samples; i++) {
+            var sample = (short) Math.round(amplitude * Math.sin(2 * Math.PI * 440 * i / LinuxLevelMonitor.RATE));
+            result[i * 2] = (byte) sample;
+            result[i * 2 + 1] = (byte) (sample >> 8);
+        }
+        return result;
+    }
+}
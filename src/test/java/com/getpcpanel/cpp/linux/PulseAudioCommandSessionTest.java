@@ -0,0 +1,72 @@
+package com.getpcpanel.cpp.linux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.getpcpanel.util.ProcessHelper;
+
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+@EnabledOnOs(OS.LINUX)
+class PulseAudioCommandSessionTest {
+    private static final int COMMANDS = 10_000;
+
+    @Test
+    void standInReceivesAllCommands(@TempDir Path dir) throws Exception {
+        var received = new File(dir.toFile(), "received.txt");
+        var sut = new PulseAudioCommandSession(new ProcessHelper(), "dd status=none of=" + received.getAbsolutePath());
+
+        var start = System.nanoTime();
+        for (var i = 0; i < COMMANDS; i++) {
+            assertTrue(sut.send("set-sink-input-volume 1 " + i));
+        }
+        var tookMs = (System.nanoTime() - start) / 1_000_000d;
+        sut.close();
+        log.info("{} commands in {}ms", COMMANDS, tookMs);
+
+        var lines = Files.readAllLines(received.toPath(), StandardCharsets.UTF_8);
+        assertEquals(COMMANDS, lines.size());
+        assertEquals("set-sink-input-volume 1 " + (COMMANDS - 1), lines.get(COMMANDS - 1));
+        assertEquals(COMMANDS, sut.sentCount());
+    }
+
+    @Test
+    void unavailableSessionFallsBack() {
+        var sut = new PulseAudioCommandSession(new ProcessHelper(), "false");
+        assertFalse(sut.send("set-sink-volume 0 0"));
+        var start = System.nanoTime();
+        assertFalse(sut.send("set-sink-volume 0 0"));
+        assertTrue(System.nanoTime() - start < 50_000_000, "Started the session again");
+        sut.close();
+    }
+
+    @Test
+    void rejectingSessionIsGivenUp() {
+        // cat writes every command back, which is what pacmd does with the reason it rejected one
+        var sut = new PulseAudioCommandSession(new ProcessHelper(), "cat");
+        for (var i = 0; i < 3; i++) {
+            assertTrue(sut.send("set-sink-input-volume 1 " + i));
+        }
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (sut.send("set-sink-input-volume 1 0")) {
+                Thread.sleep(10);
+            }
+        });
+        assertTrue(sut.rejectedCount() >= 3);
+        sut.close();
+    }
+}
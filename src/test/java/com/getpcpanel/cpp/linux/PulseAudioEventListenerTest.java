@@ -0,0 +1,47 @@
+package com.getpcpanel.cpp.linux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.cpp.EventType;
+import com.getpcpanel.cpp.linux.PulseAudioEventListener.LinuxDeviceChangedEvent;
+import com.getpcpanel.cpp.linux.PulseAudioEventListener.LinuxServerChangedEvent;
+import com.getpcpanel.cpp.linux.PulseAudioEventListener.LinuxSessionChangedEvent;
+
+class PulseAudioEventListenerTest {
+    @Test
+    void subscribeLines() {
+        var events = new ArrayList<Object>();
+        var sut = new PulseAudioEventListener(events::add, null);
+
+        sut.checkTrigger("Event 'change' on sink-input #42");
+        sut.checkTrigger("Event 'new' on sink-input #43");
+        sut.checkTrigger("Event 'remove' on sink-input #42");
+        sut.checkTrigger("Event 'change' on sink #1");
+        sut.checkTrigger("Event 'new' on source #3");
+        sut.checkTrigger("Event 'change' on server #4294967295");
+        assertEquals(List.of(
+                new LinuxSessionChangedEvent(EventType.CHANGED, 42),
+                new LinuxSessionChangedEvent(EventType.ADDED, 43),
+                new LinuxSessionChangedEvent(EventType.REMOVED, 42),
+                new LinuxDeviceChangedEvent(EventType.CHANGED, true, 1),
+                new LinuxDeviceChangedEvent(EventType.ADDED, false, 3),
+                new LinuxServerChangedEvent()), events);
+    }
+
+    @Test
+    void otherFacilitiesAreIgnored() {
+        var events = new ArrayList<Object>();
+        var sut = new PulseAudioEventListener(events::add, null);
+
+        sut.checkTrigger("Event 'new' on source-output #7");
+        sut.checkTrigger("Event 'change' on client #12");
+        sut.checkTrigger("Event 'remove' on module #25");
+        sut.checkTrigger("Connection failure: Connection refused");
+        assertEquals(List.of(), events);
+    }
+}
@@ -0,0 +1,116 @@
+package com.getpcpanel.cpp.linux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.cpp.linux.PulseAudioWrapper.InOutput;
+import com.getpcpanel.cpp.linux.PulseAudioWrapper.PulseAudioTarget;
+
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+class PulseAudioParserTest {
+    private static final int STREAMS = 500;
+    private static final int EXTRA_PROPERTIES = 40;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void textAndJsonGiveSameTargets() throws Exception {
+        var text = buildText();
+        var json = buildJson().getBytes(StandardCharsets.UTF_8);
+
+        var fromText = PulseAudioWrapper.parseLines(text, InOutput.session);
+        var fromJson = PulseAudioJsonParser.parse(new ByteArrayInputStream(json), InOutput.session);
+
+        assertEquals(STREAMS, fromText.size());
+        assertEquals(STREAMS, fromJson.size());
+        for (var i = 0; i < STREAMS; i++) {
+            assertSameTarget(fromText.get(i), fromJson.get(i));
+        }
+        assertEquals("App = " + 7 + ": main", fromJson.get(7).properties().get("application.name"));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void compareParseTimes() throws Exception {
+        var text = buildText();
+        var json = buildJson().getBytes(StandardCharsets.UTF_8);
+
+        for (var i = 0; i < ROUNDS; i++) { // Warmup
+            PulseAudioWrapper.parseLines(text, InOutput.session);
+            PulseAudioJsonParser.parse(new ByteArrayInputStream(json), InOutput.session);
+        }
+
+        var start = System.nanoTime();
+        for (var i = 0; i < ROUNDS; i++) {
+            PulseAudioWrapper.parseLines(text, InOutput.session);
+        }
+        var textNs = (System.nanoTime() - start) / ROUNDS;
+
+        start = System.nanoTime();
+        for (var i = 0; i < ROUNDS; i++) {
+            PulseAudioJsonParser.parse(new ByteArrayInputStream(json), InOutput.session);
+        }
+        var jsonNs = (System.nanoTime() - start) / ROUNDS;
+        log.info("{} streams: text {}us, json {}us", STREAMS, textNs / 1000, jsonNs / 1000);
+    }
+
+    private static void assertSameTarget(PulseAudioTarget text, PulseAudioTarget json) {
+        assertEquals(text.index(), json.index());
+        assertEquals(text.volume(), json.volume(), 0.001f);
+        assertEquals(text.muted(), json.muted());
+        for (var property : PulseAudioJsonParser.USED_PROPERTIES) {
+            assertEquals(text.properties().get(property), json.properties().get(property), property);
+        }
+    }
+
+    private static List<String> buildText() {
+        var result = new ArrayList<String>();
+        for (var i = 0; i < STREAMS; i++) {
+            result.add("Sink Input #" + i);
+            result.add("\tDriver: protocol-native.c");
+            result.add("\tSink: 1");
+            result.add("\tMute: " + (i % 2 == 0 ? "yes" : "no"));
+            result.add("\tVolume: front-left: " + (i % 100) * 655 + " / " + (i % 100) + "% / -1.00 dB,   front-right: 0 / 0% / -inf dB");
+            result.add("\t        balance 0.00");
+            result.add("\tProperties:");
+            result.add("\t\tapplication.name = \"App = " + i + ": main\"");
+            result.add("\t\tapplication.process.id = \"" + (1000 + i) + "\"");
+            result.add("\t\tapplication.process.binary = \"app" + i + "\"");
+            for (var p = 0; p < EXTRA_PROPERTIES; p++) {
+                result.add("\t\tsome.property." + p + " = \"value " + p + "\"");
+            }
+        }
+        return result;
+    }
+
+    static String buildJson() {
+        var result = new StringBuilder("[");
+        for (var i = 0; i < STREAMS; i++) {
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append("{\"index\":").append(i)
+                  .append(",\"driver\":\"protocol-native.c\",\"sink\":1")
+                  .append(",\"mute\":").append(i % 2 == 0)
+                  .append(",\"volume\":{\"front-left\":{\"value\":").append((i % 100) * 655).append(",\"value_percent\":\"").append(i % 100).append("%\",\"db\":\"-1.00 dB\"},")
+                  .append("\"front-right\":{\"value\":0,\"value_percent\":\"0%\",\"db\":\"-inf dB\"}}")
+                  .append(",\"balance\":0.0,\"properties\":{")
+                  .append("\"application.name\":\"App = ").append(i).append(": main\",")
+                  .append("\"application.process.id\":\"").append(1000 + i).append("\",")
+                  .append("\"application.process.binary\":\"app").append(i).append('"');
+            for (var p = 0; p < EXTRA_PROPERTIES; p++) {
+                result.append(",\"some.property.").append(p).append("\":\"value ").append(p).append('"');
+            }
+            result.append("},\"format\":{\"encoding\":\"pcm\"}}");
+        }
+        return result.append(']').toString();
+    }
+}
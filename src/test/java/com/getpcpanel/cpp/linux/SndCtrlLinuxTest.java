@@ -0,0 +1,117 @@
+package com.getpcpanel.cpp.linux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.cpp.AudioSessionEvent;
+import com.getpcpanel.cpp.EventType;
+import com.getpcpanel.cpp.MuteType;
+import com.getpcpanel.cpp.linux.PulseAudioEventListener.LinuxSessionChangedEvent;
+import com.getpcpanel.cpp.linux.PulseAudioWrapper.InOutput;
+import com.getpcpanel.cpp.linux.PulseAudioWrapper.PulseAudioTarget;
+import com.getpcpanel.util.Debouncer;
+import com.getpcpanel.util.TimingWheel;
+
+class SndCtrlLinuxTest {
+    private final List<PulseAudioTarget> sessions = new CopyOnWriteArrayList<>();
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+    private final List<String> written = new ArrayList<>();
+    private final AtomicInteger sessionLists = new AtomicInteger();
+    private TimingWheel timingWheel;
+    private SndCtrlLinux sut;
+
+    @BeforeEach
+    void setUp() {
+        timingWheel = new TimingWheel();
+        sessions.add(session(1, "firefox", 0.5f));
+        var cmd = new PulseAudioWrapper(null, null) {
+            @Override
+            public List<PulseAudioTarget> getDevices() {
+                return List.of();
+            }
+
+            @Override
+            public Defaults getDefaults() {
+                return new Defaults(null, null);
+            }
+
+            @Override
+            public List<PulseAudioTarget> getSessions() {
+                sessionLists.incrementAndGet();
+                return List.copyOf(sessions);
+            }
+
+            @Override
+            public void setSessionVolume(int index, float volume) {
+                written.add(index + " " + volume);
+            }
+
+            @Override
+            public void muteSession(int index, MuteType mute) {
+                written.add(index + " " + mute);
+            }
+        };
+        sut = new SndCtrlLinux(cmd, null, events::add, new Debouncer(timingWheel));
+        sut.init();
+        sessionLists.set(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timingWheel.shutdown();
+    }
+
+    @Test
+    void changedAndNewSessionsAreRefreshed() throws Exception {
+        sessions.set(0, session(1, "firefox", 0.8f));
+        sut.onSessionChanged(new LinuxSessionChangedEvent(EventType.CHANGED, 1));
+        assertEquals(1, sessionLists.get(), "The first change is refreshed right away");
+        assertEquals(0.8f, volumeOf("firefox"));
+
+        sessions.add(session(2, "spotify", 1f));
+        sut.onSessionChanged(new LinuxSessionChangedEvent(EventType.ADDED, 2));
+        sut.onSessionChanged(new LinuxSessionChangedEvent(EventType.CHANGED, 2));
+        for (var i = 0; i < 100 && sut.getAllSessions().size() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, sessionLists.get(), "Changes within the rate limit are refreshed at once");
+        assertEquals(1f, volumeOf("spotify"));
+        assertTrue(events.stream().anyMatch(e -> e instanceof AudioSessionEvent ase && ase.eventType() == EventType.ADDED));
+
+        sut.onSessionChanged(new LinuxSessionChangedEvent(EventType.REMOVED, 2));
+        assertEquals(1, sut.getAllSessions().size());
+    }
+
+    @Test
+    void changesCausedByOwnWritesAreNotListed() {
+        sut.setProcessVolume("firefox", null, 0.3f);
+        sut.muteProcesses(Set.of("firefox"), MuteType.toggle);
+        assertEquals(List.of("1 0.3", "1 toggle"), written);
+        assertEquals(0.3f, volumeOf("firefox"));
+        assertTrue(sut.getAllSessions().iterator().next().muted());
+
+        sut.onSessionChanged(new LinuxSessionChangedEvent(EventType.CHANGED, 1));
+        sut.onSessionChanged(new LinuxSessionChangedEvent(EventType.CHANGED, 1));
+        assertEquals(0, sessionLists.get());
+    }
+
+    private float volumeOf(String binary) {
+        return sut.getAllSessions().stream().filter(s -> binary.equals(s.executable().getName())).findFirst().orElseThrow().volume();
+    }
+
+    private static PulseAudioTarget session(int index, String binary, float volume) {
+        return new PulseAudioTarget(index, volume, false, Map.of(), Map.of("application.process.binary", "/usr/bin/" + binary, "application.name", binary),
+                InOutput.session);
+    }
+}
@@ -0,0 +1,155 @@
+package com.getpcpanel.cpp.linux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.getpcpanel.cpp.AudioSessionEvent;
+import com.getpcpanel.cpp.EventType;
+import com.getpcpanel.cpp.MuteType;
+import com.getpcpanel.cpp.linux.PipeWireDumpParser.PipeWireObject;
+import com.getpcpanel.cpp.linux.PipeWireMonitor.PipeWireObjectsEvent;
+import com.getpcpanel.cpp.linux.PulseAudioWrapper.InOutput;
+import com.getpcpanel.util.ProcessHelper;
+
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+class SndCtrlPipeWireTest {
+    private static final String SINK = "alsa_output.pci-0000_00_1f.3.analog-stereo";
+    private static final String SOURCE = SndCtrlLinux.INPUT_PREFIX + "alsa_input.usb-Blue_Yeti-00.analog-stereo";
+    private static final int STREAMS = 500;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void replayRecordedDump() throws Exception {
+        var events = new ArrayList<>();
+        var sut = new SndCtrlPipeWire(null, events::add, null);
+        var batches = recordedBatches();
+        assertEquals(3, batches.size());
+
+        sut.onObjects(new PipeWireObjectsEvent(batches.get(0), true));
+        assertEquals(2, sut.getDevices().size());
+        assertEquals(SINK, sut.defaultPlayer());
+        assertEquals(SOURCE, sut.defaultRecorder());
+        assertEquals(0.7f, sut.getDevice(SINK).volume(), 0.001f);
+        assertTrue(sut.getDevice(SOURCE).muted());
+        assertEquals(2, sut.getAllSessions().size());
+        var firefox = sut.getAllSessions().stream().filter(s -> s.pid() == 4242).findFirst().orElseThrow();
+        assertEquals(0.5f, firefox.volume(), 0.001f);
+        assertFalse(firefox.muted());
+
+        events.clear();
+        sut.onObjects(new PipeWireObjectsEvent(batches.get(1), false));
+        assertEquals(0.6f, firefox.volume(), 0.001f);
+        assertTrue(firefox.muted());
+        assertEquals(List.of(new AudioSessionEvent(firefox, EventType.CHANGED)), events);
+
+        events.clear();
+        sut.onObjects(new PipeWireObjectsEvent(batches.get(2), false));
+        assertEquals(1, sut.getAllSessions().size());
+        assertEquals(EventType.REMOVED, ((AudioSessionEvent) events.get(0)).eventType());
+        assertNull(sut.defaultRecorder());
+        assertEquals(SINK, sut.defaultPlayer());
+    }
+
+    @Test
+    @EnabledOnOs(OS.LINUX)
+    void writesThroughControlChannel(@TempDir Path dir) throws Exception {
+        var received = new File(dir.toFile(), "received.txt");
+        var control = new PipeWireControlChannel(new ProcessHelper(), "tee " + received.getAbsolutePath());
+        var sut = new SndCtrlPipeWire(control, e -> {
+        }, null);
+        sut.onObjects(new PipeWireObjectsEvent(recordedBatches().get(0), true));
+
+        sut.setDeviceVolume("", 0.5f);
+        sut.setProcessVolume("FIREFOX", null, 1f);
+        sut.muteDevice(SOURCE, MuteType.toggle);
+        control.close();
+
+        assertEquals(List.of("set-param 48 Props {\"channelVolumes\":[0.125000,0.125000]}",
+                "set-param 70 Props {\"channelVolumes\":[1.000000,1.000000]}",
+                "set-param 52 Props {\"mute\":false}"), Files.readAllLines(received.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void parseGeneratedDump() throws Exception {
+        var parsed = new ArrayList<PipeWireObject>();
+        PipeWireDumpParser.parse(new ByteArrayInputStream(buildDump().getBytes(StandardCharsets.UTF_8)), parsed::addAll);
+        assertEquals(STREAMS, parsed.size());
+        assertEquals("app7", parsed.get(7).props().get("application.process.binary"));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void compareParseTimesWithPactl() throws Exception {
+        var dump = buildDump().getBytes(StandardCharsets.UTF_8);
+        var pactl = PulseAudioParserTest.buildJson().getBytes(StandardCharsets.UTF_8);
+        for (var i = 0; i < ROUNDS; i++) { // Warmup
+            PipeWireDumpParser.parse(new ByteArrayInputStream(dump), b -> {
+            });
+            PulseAudioJsonParser.parse(new ByteArrayInputStream(pactl), InOutput.session);
+        }
+
+        var start = System.nanoTime();
+        for (var i = 0; i < ROUNDS; i++) {
+            PipeWireDumpParser.parse(new ByteArrayInputStream(dump), b -> {
+            });
+        }
+        var pipeWireNs = (System.nanoTime() - start) / ROUNDS;
+
+        start = System.nanoTime();
+        for (var i = 0; i < ROUNDS; i++) {
+            PulseAudioJsonParser.parse(new ByteArrayInputStream(pactl), InOutput.session);
+        }
+        var pactlNs = (System.nanoTime() - start) / ROUNDS;
+        log.info("{} streams: pw-dump {}us, pactl json {}us", STREAMS, pipeWireNs / 1000, pactlNs / 1000);
+    }
+
+    private static List<List<PipeWireObject>> recordedBatches() throws Exception {
+        var result = new ArrayList<List<PipeWireObject>>();
+        try (var in = Objects.requireNonNull(SndCtrlPipeWireTest.class.getResourceAsStream("/pipewire/pw-dump-monitor.json"))) {
+            PipeWireDumpParser.parse(in, result::add);
+        }
+        return result;
+    }
+
+    private static String buildDump() {
+        var result = new StringBuilder("[");
+        for (var i = 0; i < STREAMS; i++) {
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append("{\"id\":").append(100 + i)
+                  .append(",\"type\":\"PipeWire:Interface:Node\",\"version\":3,\"permissions\":[\"r\",\"x\",\"m\"],\"info\":{")
+                  .append("\"max-input-ports\":0,\"max-output-ports\":2,\"change-mask\":[\"props\",\"params\"],\"state\":\"running\",\"props\":{")
+                  .append("\"application.name\":\"App = ").append(i).append(": main\",")
+                  .append("\"application.process.id\":").append(1000 + i).append(',')
+                  .append("\"application.process.binary\":\"app").append(i).append("\",")
+                  .append("\"media.class\":\"Stream/Output/Audio\"");
+            for (var p = 0; p < 40; p++) {
+                result.append(",\"some.property.").append(p).append("\":\"value ").append(p).append('"');
+            }
+            result.append("},\"params\":{\"EnumFormat\":[{\"mediaType\":\"audio\",\"format\":{\"default\":\"S16LE\"}}],")
+                  .append("\"Props\":[{\"volume\":1.0,\"mute\":").append(i % 2 == 0).append(",\"channelVolumes\":[")
+                  .append(Math.pow((i % 100) / 100d, 3)).append(',').append(Math.pow((i % 100) / 100d, 3)).append("]}]}}}");
+        }
+        return result.append(']').toString();
+    }
+}
@@ -0,0 +1,21 @@
+package com.getpcpanel.cpp.linux;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class X11ActiveWindowSourceTest {
+    @Test
+    void parseWindowId() {
+        assertEquals(0x3a00007L, X11ActiveWindowSource.parseWindowId("_NET_ACTIVE_WINDOW(WINDOW): window id # 0x3a00007"));
+        assertEquals(0x3A0000FL, X11ActiveWindowSource.parseWindowId("_NET_ACTIVE_WINDOW(WINDOW): window id # 0x3A0000F"));
+    }
+
+    @Test
+    void parseNoActiveWindow() {
+        assertEquals(0L, X11ActiveWindowSource.parseWindowId("_NET_ACTIVE_WINDOW(WINDOW): window id # 0x0"));
+        assertNull(X11ActiveWindowSource.parseWindowId("_NET_ACTIVE_WINDOW:  not found."));
+        assertNull(X11ActiveWindowSource.parseWindowId(""));
+    }
+}
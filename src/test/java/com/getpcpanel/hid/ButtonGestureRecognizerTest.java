@@ -0,0 +1,196 @@
+package com.getpcpanel.hid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.util.TimingWheel;
+
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+class ButtonGestureRecognizerTest {
+    private static final String SERIAL = "SERIAL";
+    private TimingWheel timingWheel;
+    private BlockingQueue<ButtonGesture> gestures;
+    private int flags;
+    private ButtonGestureRecognizer sut;
+
+    @BeforeEach
+    void setUp() {
+        timingWheel = new TimingWheel();
+        gestures = new LinkedBlockingQueue<>();
+        flags = 0;
+        sut = new ButtonGestureRecognizer(timingWheel, new ButtonGestureRecognizer.Settings() {
+            @Override
+            public int gestures(String serialNum, int button) {
+                return flags;
+            }
+
+            @Override
+            public long doubleClickMillis() {
+                return 100;
+            }
+
+            @Override
+            public long longPressMillis() {
+                return 100;
+            }
+
+            @Override
+            public long repeatMillis() {
+                return 30;
+            }
+        }, (serialNum, button, gesture) -> gestures.add(gesture));
+    }
+
+    @AfterEach
+    void tearDown() {
+        timingWheel.shutdown();
+    }
+
+    @Test
+    void clickIsSentRightAwayWhenNothingElseIsConfigured() {
+        press();
+        assertEquals(ButtonGesture.CLICK, gestures.poll());
+        release();
+        assertNull(gestures.poll());
+
+        press();
+        assertEquals(ButtonGesture.DOUBLE_CLICK, gestures.poll());
+        release();
+        assertEquals(0, timingWheel.getStats().scheduled());
+    }
+
+    @Test
+    void clickWaitsForDoubleClick() throws Exception {
+        flags = ButtonGestureRecognizer.DELAY_CLICK;
+        press();
+        release();
+        assertNull(gestures.poll());
+        assertEquals(ButtonGesture.CLICK, gestures.poll(1, TimeUnit.SECONDS));
+
+        press();
+        release();
+        press();
+        assertEquals(ButtonGesture.DOUBLE_CLICK, gestures.poll());
+        release();
+        assertNull(gestures.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void pendingClickIsSentWhenPressedAgainJustAfterTheDoubleClickInterval() throws Exception {
+        flags = ButtonGestureRecognizer.DELAY_CLICK;
+        var start = System.nanoTime();
+        sut.onButton(SERIAL, 1, true, start);
+        sut.onButton(SERIAL, 1, false, start + TimeUnit.MILLISECONDS.toNanos(10));
+        sut.onButton(SERIAL, 1, true, start + TimeUnit.MILLISECONDS.toNanos(101));
+        assertEquals(ButtonGesture.CLICK, gestures.poll());
+        sut.onButton(SERIAL, 1, false, start + TimeUnit.MILLISECONDS.toNanos(110));
+        assertEquals(ButtonGesture.CLICK, gestures.poll(1, TimeUnit.SECONDS));
+        assertNull(gestures.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void longPress() throws Exception {
+        flags = ButtonGestureRecognizer.LONG_PRESS;
+        press();
+        release();
+        assertEquals(ButtonGesture.CLICK, gestures.poll());
+
+        Thread.sleep(150);
+        press();
+        assertNull(gestures.poll());
+        assertEquals(ButtonGesture.LONG_PRESS, gestures.poll(1, TimeUnit.SECONDS));
+        release();
+        press();
+        release();
+        assertEquals(ButtonGesture.CLICK, gestures.poll(), "A long press is not the first click of a double click");
+        assertNull(gestures.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void holdRepeats() throws Exception {
+        flags = ButtonGestureRecognizer.LONG_PRESS | ButtonGestureRecognizer.REPEAT;
+        press();
+        assertEquals(ButtonGesture.LONG_PRESS, gestures.poll(1, TimeUnit.SECONDS));
+        for (var i = 0; i < 3; i++) {
+            assertEquals(ButtonGesture.REPEAT, gestures.poll(1, TimeUnit.SECONDS));
+        }
+        release();
+        gestures.poll(50, TimeUnit.MILLISECONDS); // One may have been on its way
+        assertNull(gestures.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(0, timingWheel.getStats().pending());
+    }
+
+    @Test
+    void releaseOnDisconnect() throws Exception {
+        flags = ButtonGestureRecognizer.REPEAT;
+        press();
+        assertEquals(ButtonGesture.REPEAT, gestures.poll(1, TimeUnit.SECONDS));
+        sut.forget(SERIAL);
+        gestures.poll(50, TimeUnit.MILLISECONDS);
+        assertNull(gestures.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void undelayedClicksDoNotAllocate() {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var listener = new int[1];
+        var counting = new ButtonGestureRecognizer(timingWheel, new ButtonGestureRecognizer.Settings() {
+            @Override
+            public int gestures(String serialNum, int button) {
+                return 0;
+            }
+
+            @Override
+            public long doubleClickMillis() {
+                return 0;
+            }
+
+            @Override
+            public long longPressMillis() {
+                return 100;
+            }
+
+            @Override
+            public long repeatMillis() {
+                return 30;
+            }
+        }, (serialNum, button, gesture) -> listener[0]++);
+        var presses = 200_000;
+        for (var i = 0; i < presses; i++) {
+            counting.onButton(SERIAL, i & 3, (i & 4) == 0, i);
+        }
+
+        listener[0] = 0;
+        var thread = Thread.currentThread().getId();
+        var before = threads.getThreadAllocatedBytes(thread);
+        var start = System.nanoTime();
+        for (var i = 0; i < presses; i++) {
+            counting.onButton(SERIAL, i & 3, (i & 4) == 0, i);
+        }
+        var took = System.nanoTime() - start;
+        var allocated = threads.getThreadAllocatedBytes(thread) - before;
+        log.info("{} presses took {}ns each, allocated {} bytes", presses, took / presses, allocated);
+        assertEquals(presses / 2, listener[0]);
+        assertTrue(allocated < 10_000, "Allocated " + allocated + " bytes");
+    }
+
+    private void press() {
+        sut.onButton(SERIAL, 1, true, System.nanoTime());
+    }
+
+    private void release() {
+        sut.onButton(SERIAL, 1, false, System.nanoTime());
+    }
+}
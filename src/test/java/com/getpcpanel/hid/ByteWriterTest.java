@@ -0,0 +1,28 @@
+package com.getpcpanel.hid;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+import javafx.scene.paint.Color;
+
+class ByteWriterTest {
+    private static final String[] COLORS = { "#FFFFFF", "#000000", "#0065FF", "#7f3", "red", "rgb(12, 200, 99)", "0x123456" };
+
+    @Test
+    void cachedColorsEncodeLikeParsedColors() {
+        for (var brightness = 0; brightness <= 120; brightness += 7) {
+            for (var color : COLORS) {
+                var parsed = new ByteWriter(brightness, 3).append(Color.valueOf(color)).get();
+                var cached = new ByteWriter(brightness, 3).appendColor(color).get();
+                assertArrayEquals(parsed, cached, color + " at " + brightness);
+            }
+        }
+    }
+
+    @Test
+    void brightnessIsScaled() {
+        var data = new ByteWriter(50, 4).append(1, 2).appendBrightness((byte) -1).appendBrightness((byte) 100).get();
+        assertArrayEquals(new byte[] { 1, 2, 127, 50 }, data);
+    }
+}
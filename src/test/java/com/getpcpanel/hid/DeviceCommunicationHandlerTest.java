@@ -0,0 +1,200 @@
+package com.getpcpanel.hid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.getpcpanel.device.DeviceType;
+import com.getpcpanel.hid.DeviceCommunicationHandler.KnobRotateEvent;
+import com.getpcpanel.profile.Save;
+import com.getpcpanel.profile.SaveService;
+import com.getpcpanel.util.TimingWheel;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+class DeviceCommunicationHandlerTest {
+    private static final String SERIAL = "ALLOCATION";
+    private static final int WARMUP = 50_000;
+    private static final int READS = 1_000_000;
+    private static final int ROUNDS = 5;
+    /** Slack for the measurement itself, the reads under test are expected to allocate nothing. */
+    private static final long MAX_ALLOCATED_BYTES = 4096;
+    /** A KnobRotateEvent is 32 bytes with compressed class pointers, a boxed value would add 16 */
+    private static final long MAX_BYTES_PER_EVENT = 40;
+    private final TimingWheel timingWheel = new TimingWheel();
+
+    @AfterEach
+    void stopTimer() {
+        timingWheel.shutdown();
+    }
+
+    @Test
+    void steadyStateInputDoesNotAllocate() {
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var events = new ArrayList<>();
+        var transport = new RepeatingTransport();
+        var handler = handler(events, transport);
+
+        // Every other read times out, the others repeat a knob value that was already published
+        for (var i = 0; i < WARMUP; i++) {
+            handler.readOnce();
+        }
+        assertEquals(List.of(new KnobRotateEvent(SERIAL, 3, 200, true)), events);
+
+        // Compilation and deoptimization on the test thread can allocate, take the best of a few rounds
+        var allocated = Long.MAX_VALUE;
+        for (var round = 0; round < ROUNDS && allocated >= MAX_ALLOCATED_BYTES; round++) {
+            var before = threadBean.getCurrentThreadAllocatedBytes();
+            for (var i = 0; i < READS; i++) {
+                handler.readOnce();
+            }
+            allocated = threadBean.getCurrentThreadAllocatedBytes() - before;
+            log.info("{} reads allocated {} bytes", READS, allocated);
+        }
+        assertEquals(1, events.size());
+        assertTrue(allocated < MAX_ALLOCATED_BYTES, "Steady state reads allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void changedValuesOnlyAllocateTheEvent() {
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var published = new long[1];
+        var transport = new RepeatingTransport();
+        transport.changing = true;
+        var handler = handler(event -> published[0]++, transport, new Save());
+        // Every published event is logged on debug, which the tests run with
+        var handlerLog = (Logger) LoggerFactory.getLogger(DeviceCommunicationHandler.class);
+        var level = handlerLog.getLevel();
+        handlerLog.setLevel(Level.INFO);
+
+        var allocated = Long.MAX_VALUE;
+        var events = 0L;
+        try {
+            for (var i = 0; i < WARMUP; i++) {
+                handler.readOnce();
+            }
+            for (var round = 0; round < ROUNDS && allocated >= MAX_ALLOCATED_BYTES + events * MAX_BYTES_PER_EVENT; round++) {
+                var publishedBefore = published[0];
+                var before = threadBean.getCurrentThreadAllocatedBytes();
+                for (var i = 0; i < READS; i++) {
+                    handler.readOnce();
+                }
+                allocated = threadBean.getCurrentThreadAllocatedBytes() - before;
+                events = published[0] - publishedBefore;
+                log.info("{} reads with {} events allocated {} bytes", READS, events, allocated);
+            }
+        } finally {
+            handlerLog.setLevel(level);
+        }
+        assertEquals(READS / 2, events);
+        assertTrue(allocated < MAX_ALLOCATED_BYTES + events * MAX_BYTES_PER_EVENT, "Allocated " + allocated + " bytes for " + events + " events");
+    }
+
+    @Test
+    void changedValuesArePublished() {
+        var events = new ArrayList<>();
+        var transport = new RepeatingTransport();
+        var handler = handler(events, transport);
+
+        handler.readOnce();
+        transport.value = 10;
+        handler.readOnce(); // Timeout
+        handler.readOnce();
+        assertEquals(List.of(new KnobRotateEvent(SERIAL, 3, 200, true), new KnobRotateEvent(SERIAL, 3, 10, true)), events);
+    }
+
+    @Test
+    void rollingAverageSettlesOnTheReaderThread() throws InterruptedException {
+        var events = new ArrayList<>();
+        var transport = new RepeatingTransport();
+        var save = new Save();
+        save.setSliderRollingAverage(20);
+        var handler = handler(events, transport, save);
+
+        for (var i = 0; i < 40; i++) {
+            handler.readOnce();
+        }
+        transport.value = 100;
+        while (transport.timeout) {
+            handler.readOnce();
+        }
+        handler.readOnce(); // Smoothed towards 100
+        Thread.sleep(30);
+        handler.readOnce(); // Timeout, the average settles
+        assertEquals(new KnobRotateEvent(SERIAL, 3, 100, false), events.get(events.size() - 1));
+    }
+
+    private DeviceCommunicationHandler handler(List<Object> events, HidTransport transport) {
+        return handler(events, transport, new Save());
+    }
+
+    private DeviceCommunicationHandler handler(List<Object> events, HidTransport transport, Save save) {
+        return handler(events::add, transport, save);
+    }
+
+    private DeviceCommunicationHandler handler(ApplicationEventPublisher publisher, HidTransport transport, Save save) {
+        var saveService = new SaveService(null, null, null, null) {
+            @Override
+            public Save get() {
+                return save;
+            }
+        };
+        var scanner = new DeviceScanner(publisher, List.of(), 0);
+        return new DeviceCommunicationHandler(scanner, publisher, saveService, timingWheel, SERIAL, transport, DeviceType.PCPANEL_PRO);
+    }
+
+    /**
+     * Alternates between a timeout and the same knob packet, without allocating. When changing, the value of every packet differs
+     * from the previous one.
+     */
+    private static final class RepeatingTransport implements HidTransport {
+        private int value = 200;
+        private boolean timeout;
+        private boolean changing;
+
+        @Override
+        public String serialNumber() {
+            return SERIAL;
+        }
+
+        @Override
+        public int read(byte[] data, int timeoutMillis) {
+            timeout = !timeout;
+            if (!timeout) {
+                return 0;
+            }
+            if (changing) {
+                value = value == 200 ? 201 : 200;
+            }
+            data[0] = DeviceCommunicationHandler.INPUT_CODE_KNOB_CHANGE;
+            data[1] = 3;
+            data[2] = (byte) value;
+            return DeviceCommunicationHandler.PACKET_LENGTH;
+        }
+
+        @Override
+        public int write(byte[] message, int length, byte reportId) {
+            return length + 1;
+        }
+
+        @Override
+        public String lastErrorMessage() {
+            return "";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.getpcpanel.hid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.commands.Commands;
+import com.getpcpanel.commands.CommandsType;
+import com.getpcpanel.commands.command.CommandBrightness;
+import com.getpcpanel.commands.command.DialAction.DialCommandParams;
+import com.getpcpanel.device.DeviceType;
+import com.getpcpanel.profile.Profile;
+
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+class DevicePlanTest {
+    private static final CommandBrightness BRIGHTNESS = new CommandBrightness(new DialCommandParams(false, 10, 5));
+
+    @Test
+    void controlsAreLookedUpByIndex() {
+        var profile = new Profile("test", DeviceType.PCPANEL_PRO);
+        var dial = commands();
+        profile.setDialData(2, dial);
+        profile.getKnobSettings(2).setLogarithmic(true).setMinTrim(10);
+        profile.setLongPressButtonData(1, commands());
+        profile.setDblButtonData(3, commands());
+
+        var sut = DevicePlan.compile(profile, true, null);
+        assertSame(dial, sut.dial(2));
+        assertNull(sut.dial(0));
+        assertNull(sut.dial(20));
+        assertEquals(ButtonGestureRecognizer.LONG_PRESS, sut.gestures(1));
+        assertEquals(ButtonGestureRecognizer.DELAY_CLICK, sut.gestures(3));
+        assertEquals(0, DevicePlan.compile(profile, false, null).gestures(3));
+
+        var expected = new DialValueCalculator(profile.getKnobSettings(2));
+        for (var value = 0; value < 256; value++) {
+            assertEquals(expected.calcValue(BRIGHTNESS, value, 0, 1), sut.calculator(2).calcValue(BRIGHTNESS, value, 0, 1));
+            assertEquals(expected.calcValue(null, value, 0, 100), sut.calculator(2).calcValue(null, value, 0, 100));
+        }
+    }
+
+    @Test
+    void onlyChangedControlsAreRecompiled() {
+        var profile = new Profile("test", DeviceType.PCPANEL_PRO);
+        profile.setDialData(0, commands());
+        profile.setDialData(1, commands());
+        var first = DevicePlan.compile(profile, true, null);
+        assertSame(first, DevicePlan.compile(profile, true, first));
+
+        profile.setDialData(1, commands());
+        var second = DevicePlan.compile(profile, true, first);
+        assertEquals(1, second.recompiled());
+        assertSame(first.calculator(0), second.calculator(0));
+
+        profile.getKnobSettings(0).setMaxTrim(50);
+        var third = DevicePlan.compile(profile, true, second);
+        assertEquals(1, third.recompiled());
+        assertNotSame(second.calculator(0), third.calculator(0));
+        assertSame(second.calculator(1), third.calculator(1));
+
+        var other = new Profile("other", DeviceType.PCPANEL_PRO);
+        other.setDialData(0, commands());
+        assertEquals(5, DevicePlan.compile(other, true, third).recompiled(), "A dial and 4 button gestures of the one control");
+    }
+
+    /**
+     * The work of a dial event before it is dispatched, with a value calculator made per event as before the plans and with the
+     * compiled one.
+     */
+    @Test
+    @Tag("benchmark")
+    void compiledDialEventBenchmark() {
+        var profile = new Profile("test", DeviceType.PCPANEL_PRO);
+        for (var i = 0; i < 9; i++) {
+            profile.setDialData(i, commands());
+            profile.getKnobSettings(i).setLogarithmic(i % 2 == 0);
+        }
+        var plan = DevicePlan.compile(profile, true, null);
+        var events = 200_000;
+        var sink = 0f;
+        for (var round = 0; round < 3; round++) {
+            var start = System.nanoTime();
+            for (var i = 0; i < events; i++) {
+                var knob = i % 9;
+                var dial = new DialValue(profile.getKnobSettings(knob), i & 255);
+                sink += dial.getValue(profile.getDialData(knob).getCommands().get(0), 0, 1);
+            }
+            var perEvent = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (var i = 0; i < events; i++) {
+                var knob = i % 9;
+                var dial = new DialValue(plan.calculator(knob), i & 255);
+                sink += dial.getValue(plan.dial(knob).getCommands().get(0), 0, 1);
+            }
+            var compiled = System.nanoTime() - start;
+            log.info("Dial event: {}ns per event, {}ns compiled", perEvent / events, compiled / events);
+        }
+        assertTrue(sink > 0);
+    }
+
+    private static Commands commands() {
+        return new Commands(List.of(BRIGHTNESS), CommandsType.allAtOnce);
+    }
+}
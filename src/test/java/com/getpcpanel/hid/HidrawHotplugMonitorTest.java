@@ -0,0 +1,68 @@
+package com.getpcpanel.hid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.getpcpanel.device.DeviceType;
+
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+class HidrawHotplugMonitorTest {
+    @Test
+    void deviceTypeFromUevent(@TempDir Path sys) throws IOException {
+        assertEquals(Optional.of(DeviceType.PCPANEL_PRO), HidrawHotplugMonitor.deviceType(uevent(sys, "hidraw0", "0003:00000483:0000A3C5")));
+        assertEquals(Optional.of(DeviceType.PCPANEL_RGB), HidrawHotplugMonitor.deviceType(uevent(sys, "hidraw1", "0003:000004D8:0000EB52")));
+        assertEquals(Optional.empty(), HidrawHotplugMonitor.deviceType(uevent(sys, "hidraw2", "0003:0000046D:0000C52B")));
+        assertEquals(Optional.empty(), HidrawHotplugMonitor.deviceType(uevent(sys, "hidraw3", "garbage")));
+        assertEquals(Optional.empty(), HidrawHotplugMonitor.deviceType(sys.resolve("missing")));
+    }
+
+    @Test
+    @EnabledOnOs(OS.LINUX)
+    void reportsOnlyPcPanelNodes(@TempDir Path root) throws Exception {
+        var dev = Files.createDirectories(root.resolve("dev"));
+        var sys = Files.createDirectories(root.resolve("sys"));
+        var changes = new LinkedBlockingQueue<Long>();
+        var sut = HidrawHotplugMonitor.start(dev, sys, changes::add).orElseThrow();
+        try {
+            uevent(sys, "hidraw4", "0003:0000046D:0000C52B");
+            Files.createFile(dev.resolve("hidraw4"));
+            Files.createFile(dev.resolve("ttyS0"));
+            assertNull(changes.poll(HidrawHotplugMonitor.SETTLE_MILLIS * 4, TimeUnit.MILLISECONDS));
+
+            uevent(sys, "hidraw5", "0003:00000483:0000A3C5");
+            Files.createFile(dev.resolve("hidraw5"));
+            var seenAt = changes.poll(5, TimeUnit.SECONDS);
+            assertNotNull(seenAt, "Plugging in not reported");
+            log.info("Hotplug reported {}us after the node appeared", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - seenAt));
+
+            // The sysfs entry is gone before the node is removed
+            Files.delete(sys.resolve("hidraw5").resolve("device").resolve("uevent"));
+            Files.delete(dev.resolve("hidraw5"));
+            assertNotNull(changes.poll(5, TimeUnit.SECONDS), "Unplugging not reported");
+            assertTrue(changes.isEmpty());
+        } finally {
+            sut.close();
+        }
+    }
+
+    private static Path uevent(Path sys, String node, String hidId) throws IOException {
+        var dir = Files.createDirectories(sys.resolve(node).resolve("device"));
+        return Files.writeString(dir.resolve("uevent"), "DRIVER=hid-generic\nHID_ID=" + hidId + "\nHID_NAME=test\n");
+    }
+}
@@ -0,0 +1,290 @@
+package com.getpcpanel.hid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.profile.KnobFilter;
+import com.getpcpanel.profile.KnobFilter.FILTER_TYPE;
+
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+class KnobFilterChainTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    /** Values within this of each other for at least {@link #REST_NANOS} are a slider at rest */
+    private static final int REST_RANGE = 2;
+    private static final long REST_NANOS = 300 * MS;
+    /** Outputs this soon after the slider came to rest are counted as latency, not as noise */
+    private static final long SETTLE_GRACE_NANOS = 250 * MS;
+
+    @Test
+    void emaFollowsAndSettles() {
+        var sut = new KnobFilterChain(new KnobFilter[] { filter(FILTER_TYPE.EMA).setTimeConstantMs(10) });
+        sut.reset(0, 0);
+        var value = sut.apply(100, 10 * MS);
+        assertEquals(63, value, 1);
+        assertEquals(KnobFilterChain.NO_VALUE, sut.settle(25 * MS));
+        assertEquals(100, sut.settle(30 * MS));
+        assertEquals(Long.MAX_VALUE, sut.nextSettleNanos());
+    }
+
+    @Test
+    void medianRemovesSpikes() {
+        var sut = new KnobFilterChain(new KnobFilter[] { filter(FILTER_TYPE.MEDIAN).setSize(3) });
+        sut.reset(50, 0);
+        assertEquals(50, sut.apply(90, MS));
+        assertEquals(50, sut.apply(50, 2 * MS));
+        // A real change shows after two values
+        assertEquals(60, sut.apply(60, 3 * MS));
+    }
+
+    @Test
+    void hysteresisHoldsButReachesTheEnds() {
+        var sut = new KnobFilterChain(new KnobFilter[] { filter(FILTER_TYPE.HYSTERESIS).setThreshold(2) });
+        sut.reset(100, 0);
+        assertEquals(100, sut.apply(102, MS));
+        assertEquals(100, sut.apply(98, 2 * MS));
+        assertEquals(103, sut.apply(103, 3 * MS));
+        sut.reset(1, 0);
+        assertEquals(0, sut.apply(0, 4 * MS));
+        assertEquals(Long.MAX_VALUE, sut.nextSettleNanos());
+    }
+
+    @Test
+    void oneEuroIsSmoothAtRestAndQuickWhenMoving() {
+        var sut = new KnobFilterChain(new KnobFilter[] { filter(FILTER_TYPE.ONE_EURO).setMinCutoff(1).setBeta(0.05) });
+        sut.reset(100, 0);
+        assertEquals(100, sut.apply(101, 100 * MS));
+        var time = 100 * MS;
+        var value = 0;
+        for (var target = 100; target <= 200; target += 10) {
+            time += 8 * MS;
+            value = sut.apply(target, time);
+        }
+        assertTrue(value > 180, "Lags too much: " + value);
+    }
+
+    @Test
+    void legacySettings() {
+        assertEquals(0, KnobFilterChain.legacyFilters(null, null).length);
+        assertEquals(List.of(filter(FILTER_TYPE.EMA).setTimeConstantMs(50), filter(FILTER_TYPE.HYSTERESIS).setThreshold(2)),
+                List.of(KnobFilterChain.legacyFilters(100, 2)));
+    }
+
+    /**
+     * Replays slider traces through filter chains and reports, per chain, how many values are sent while the slider rests (noise)
+     * and how long after the slider came to rest the value reached where it rests (latency). Recorded traces can be added with
+     * -Dknob.traces=&lt;dir&gt;, one file per trace with a `nanos,value` line per value that the device sent.
+     */
+    @Test
+    void replaySliderTraces() throws IOException {
+        var traces = new LinkedHashMap<String, Trace>();
+        traces.put("synthetic", syntheticTrace(new Random(42)));
+        var recorded = System.getProperty("knob.traces");
+        if (StringUtils.isNotBlank(recorded)) {
+            try (var files = Files.list(Path.of(recorded))) {
+                for (var file : files.sorted().toList()) {
+                    traces.put(file.getFileName().toString(), readTrace(file));
+                }
+            }
+        }
+
+        var chains = new LinkedHashMap<String, KnobFilter[]>();
+        chains.put("raw", new KnobFilter[0]);
+        chains.put("legacy rolling 100ms", KnobFilterChain.legacyFilters(100, null));
+        chains.put("ema 30ms", new KnobFilter[] { filter(FILTER_TYPE.EMA) });
+        chains.put("one-euro", new KnobFilter[] { filter(FILTER_TYPE.ONE_EURO) });
+        chains.put("median 3", new KnobFilter[] { filter(FILTER_TYPE.MEDIAN).setSize(3) });
+        chains.put("median 5", new KnobFilter[] { filter(FILTER_TYPE.MEDIAN).setSize(5) });
+        chains.put("hysteresis 1", new KnobFilter[] { filter(FILTER_TYPE.HYSTERESIS) });
+        chains.put("median 3 + hysteresis 1", new KnobFilter[] { filter(FILTER_TYPE.MEDIAN).setSize(3), filter(FILTER_TYPE.HYSTERESIS) });
+        chains.put("one-euro + hysteresis 1", new KnobFilter[] { filter(FILTER_TYPE.ONE_EURO), filter(FILTER_TYPE.HYSTERESIS) });
+
+        for (var trace : traces.entrySet()) {
+            Map<String, Result> results = new LinkedHashMap<>();
+            chains.forEach((name, filters) -> results.put(name, replay(trace.getValue(), new KnobFilterChain(filters))));
+            log.info("Trace {}: {} values, {} rests", trace.getKey(), trace.getValue().nanos.length, trace.getValue().rests().size());
+            results.forEach((name, result) -> log.info(String.format("  %-26s %6.2f values/s at rest, %5.1fms average, %5.1fms max latency, %d%% of rests reached",
+                    name, result.noisePerSecond, result.averageLatencyMs, result.maxLatencyMs, result.reachedPercent)));
+
+            if ("synthetic".equals(trace.getKey())) {
+                var raw = results.get("raw");
+                assertTrue(results.get("hysteresis 1").noisePerSecond < raw.noisePerSecond / 2, "Hysteresis does not suppress noise");
+                assertTrue(results.get("median 3 + hysteresis 1").noisePerSecond < raw.noisePerSecond / 2, "Median and hysteresis do not suppress noise");
+                assertTrue(results.get("ema 30ms").maxLatencyMs < 150, "EMA does not settle");
+                results.forEach((name, result) -> assertEquals(100, result.reachedPercent, name + " does not reach all rests"));
+            }
+        }
+    }
+
+    /**
+     * Replays the trace like the reader thread does: a chain that has to settle is settled when no value came in before it is due.
+     */
+    private static Result replay(Trace trace, KnobFilterChain chain) {
+        var outNanos = new ArrayList<Long>();
+        var outValues = new ArrayList<Integer>();
+        var last = trace.values[0];
+        chain.reset(last, trace.nanos[0]);
+        for (var i = 1; i < trace.nanos.length; i++) {
+            var settleAt = chain.nextSettleNanos();
+            if (settleAt < trace.nanos[i]) {
+                var settled = chain.settle(settleAt);
+                if (settled != KnobFilterChain.NO_VALUE && settled != last) {
+                    last = settled;
+                    outNanos.add(settleAt);
+                    outValues.add(settled);
+                }
+            }
+            var value = chain.apply(trace.values[i], trace.nanos[i]);
+            if (value != last) {
+                last = value;
+                outNanos.add(trace.nanos[i]);
+                outValues.add(value);
+            }
+        }
+
+        var noisy = 0;
+        var restNanos = 0L;
+        var latencies = new ArrayList<Long>();
+        var reached = 0;
+        var rests = trace.rests();
+        for (var rest : rests) {
+            restNanos += rest.end - rest.start - SETTLE_GRACE_NANOS;
+            var value = valueAt(outNanos, outValues, trace.values[0], rest.start);
+            var reachedAt = Math.abs(value - rest.target) <= REST_RANGE ? rest.start : -1L;
+            for (var o = 0; o < outNanos.size(); o++) {
+                var at = outNanos.get(o);
+                if (at >= rest.start && at < rest.end) {
+                    if (reachedAt < 0 && Math.abs(outValues.get(o) - rest.target) <= REST_RANGE) {
+                        reachedAt = at;
+                    }
+                    if (at >= rest.start + SETTLE_GRACE_NANOS) {
+                        noisy++;
+                    }
+                }
+            }
+            if (reachedAt >= 0) {
+                reached++;
+                latencies.add(reachedAt - rest.start);
+            }
+        }
+        var average = latencies.stream().mapToLong(Long::longValue).average().orElse(0) / MS;
+        var max = latencies.stream().mapToLong(Long::longValue).max().orElse(0) / (double) MS;
+        return new Result(noisy / (restNanos / 1e9), average, max, rests.isEmpty() ? 100 : reached * 100 / rests.size());
+    }
+
+    private static int valueAt(List<Long> nanos, List<Integer> values, int initial, long at) {
+        var result = initial;
+        for (var i = 0; i < nanos.size() && nanos.get(i) <= at; i++) {
+            result = values.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * A slider that dithers by a step or two at rest, with an occasional spike, and moves between rests at different speeds. Like the
+     * device, a value is only sent when it changes.
+     */
+    private static Trace syntheticTrace(Random random) {
+        var nanos = new ArrayList<Long>();
+        var values = new ArrayList<Integer>();
+        var time = 0L;
+        var position = 50.0;
+        int[][] moves = { { 200, 300 }, { 20, 150 }, { 120, 1500 }, { 255, 400 }, { 180, 80 }, { 0, 600 } };
+        for (var move : moves) {
+            // Rest for 1.5s
+            var restEnd = time + 1500 * MS;
+            while (time < restEnd) {
+                time += (20 + random.nextInt(180)) * MS;
+                var noise = random.nextInt(20) == 0 ? (random.nextBoolean() ? 3 : -3) : random.nextInt(3) - 1;
+                add(nanos, values, time, (int) Math.round(position) + noise);
+            }
+            // Move, reporting every 8ms
+            var from = position;
+            var steps = move[1] / 8;
+            for (var step = 1; step <= steps; step++) {
+                time += 8 * MS;
+                position = from + (move[0] - from) * step / steps;
+                add(nanos, values, time, (int) Math.round(position) + random.nextInt(3) - 1);
+            }
+            time += 8 * MS;
+            add(nanos, values, time, move[0]);
+        }
+        time += 1500 * MS;
+        add(nanos, values, time, (int) Math.round(position));
+        return new Trace(nanos.stream().mapToLong(Long::longValue).toArray(), values.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static void add(List<Long> nanos, List<Integer> values, long time, int value) {
+        var clamped = Math.max(0, Math.min(255, value));
+        if (values.isEmpty() || values.get(values.size() - 1) != clamped) {
+            nanos.add(time);
+            values.add(clamped);
+        }
+    }
+
+    private static Trace readTrace(Path file) throws IOException {
+        var lines = Files.readAllLines(file).stream().filter(StringUtils::isNotBlank).map(l -> StringUtils.split(l, ',')).toList();
+        return new Trace(lines.stream().mapToLong(l -> Long.parseLong(l[0].trim())).toArray(), lines.stream().mapToInt(l -> Integer.parseInt(l[1].trim())).toArray());
+    }
+
+    private static KnobFilter filter(FILTER_TYPE type) {
+        return new KnobFilter().setType(type);
+    }
+
+    private record Trace(long[] nanos, int[] values) {
+        /**
+         * @return the periods in which the values stay within {@link #REST_RANGE} of where they rest for at least {@link #REST_NANOS}
+         */
+        List<Rest> rests() {
+            var result = new ArrayList<Rest>();
+            var start = 0;
+            for (var i = 1; i <= values.length; i++) {
+                if (i == values.length || outOfRange(start, i)) {
+                    var end = i == values.length ? nanos[values.length - 1] : nanos[i];
+                    if (end - nanos[start] >= REST_NANOS) {
+                        result.add(new Rest(nanos[start], end, median(start, i)));
+                    }
+                    start = i;
+                }
+            }
+            return result;
+        }
+
+        private boolean outOfRange(int from, int to) {
+            var min = Integer.MAX_VALUE;
+            var max = Integer.MIN_VALUE;
+            for (var i = from; i <= to; i++) {
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+            return max - min > 2 * REST_RANGE;
+        }
+
+        private int median(int from, int to) {
+            var copy = Arrays.copyOfRange(values, from, to);
+            Arrays.sort(copy);
+            return copy[copy.length / 2];
+        }
+    }
+
+    private record Rest(long start, long end, int target) {
+    }
+
+    private record Result(double noisePerSecond, double averageLatencyMs, double maxLatencyMs, int reachedPercent) {
+    }
+}
@@ -0,0 +1,109 @@
+package com.getpcpanel.hid;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.hid.LatestFrameQueue.FrameKind;
+
+class LatestFrameQueueTest {
+    private static final byte[] INIT = { 1 };
+    private static final byte[] UNKNOWN = { 42 };
+
+    @Test
+    void kinds() {
+        assertEquals(FrameKind.INIT, FrameKind.of(INIT));
+        assertEquals(FrameKind.SLIDER, FrameKind.of(frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_SLIDER, 0)));
+        assertEquals(FrameKind.LABEL, FrameKind.of(frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_SLIDER_LABEL, 0)));
+        assertEquals(FrameKind.KNOB, FrameKind.of(frame(OutputInterpreter.PREFIX_MINI, OutputInterpreter.CUSTOM_KNOB, 0)));
+        assertEquals(FrameKind.LOGO, FrameKind.of(frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_LOGO, 0)));
+        assertEquals(FrameKind.ANIMATION, FrameKind.of(frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.MODE_LIGHT_ANIMATION, 0)));
+        assertEquals(FrameKind.ANIMATION, FrameKind.of(frame(OutputInterpreter.OUTPUT_CODE_RGB, 1, 0)));
+        assertEquals(FrameKind.OTHER, FrameKind.of(UNKNOWN));
+    }
+
+    @Test
+    void newerFramesReplaceUnsentOnes() throws Exception {
+        var sut = new LatestFrameQueue();
+        var first = sut.add(frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_KNOB, 0), false);
+        for (var i = 1; i < 100; i++) {
+            sut.add(frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_KNOB, i), false);
+            sut.add(frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_SLIDER, i), false);
+        }
+        sut.add(UNKNOWN, false);
+        sut.add(UNKNOWN, false);
+
+        var knob = sut.poll(0);
+        assertArrayEquals(frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_KNOB, 99), knob.data());
+        assertArrayEquals(frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_SLIDER, 99), sut.poll(0).data());
+        assertSame(UNKNOWN, sut.poll(0).data());
+        assertSame(UNKNOWN, sut.poll(0).data());
+        assertNull(sut.poll(1));
+        assertEquals(201, sut.queued());
+        assertEquals(197, sut.superseded());
+
+        assertFalse(first.isDone());
+        knob.done().complete(null);
+        assertTrue(first.isDone());
+    }
+
+    @Test
+    void replacedFramesMoveToTheBack() throws Exception {
+        var sut = new LatestFrameQueue();
+        var custom = frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_KNOB, 1);
+        var animation = frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.MODE_LIGHT_ANIMATION, 2);
+        var newCustom = frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_KNOB, 3);
+        sut.add(custom, false);
+        sut.add(animation, false);
+        sut.add(newCustom, false);
+
+        assertSame(animation, sut.poll(0).data());
+        assertSame(newCustom, sut.poll(0).data());
+    }
+
+    @Test
+    void priorityFramesGoFirstAndReplaceBulkLighting() throws Exception {
+        var sut = new LatestFrameQueue();
+        var bulkKnob = sut.add(frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_KNOB, 1), false);
+        sut.add(UNKNOWN, false);
+        var off = frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.MODE_LIGHT_ANIMATION, 0);
+        sut.add(off, true);
+        var newer = frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_SLIDER, 1);
+        sut.add(newer, false);
+
+        var written = sut.poll(0);
+        assertSame(off, written.data());
+        assertSame(UNKNOWN, sut.poll(0).data());
+        assertSame(newer, sut.poll(0).data());
+        assertNull(sut.poll(0));
+
+        written.done().complete(null);
+        assertTrue(bulkKnob.isDone());
+    }
+
+    @Test
+    void lateBulkFramesAreDropped() throws Exception {
+        var sut = new LatestFrameQueue();
+        var late = sut.add(frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_KNOB, 1), false, System.nanoTime() - 1);
+        var onTime = frame(OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_LOGO, 1);
+        sut.add(onTime, false, System.nanoTime() + 60_000_000_000L);
+
+        assertSame(onTime, sut.poll(0).data());
+        var e = assertThrows(ExecutionException.class, late::get);
+        assertTrue(e.getCause() instanceof TimeoutException);
+        assertEquals(1, sut.dropped());
+    }
+
+    private static byte[] frame(int prefix, int kind, int value) {
+        return new byte[] { (byte) prefix, (byte) kind, (byte) value };
+    }
+}
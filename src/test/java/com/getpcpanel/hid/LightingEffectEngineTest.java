@@ -0,0 +1,148 @@
+package com.getpcpanel.hid;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.device.DeviceType;
+import com.getpcpanel.hid.DeviceCommunicationHandler.KnobRotateEvent;
+import com.getpcpanel.hid.LightingEffectEngine.CompiledEffect;
+import com.getpcpanel.profile.LightingConfig;
+import com.getpcpanel.profile.LightingConfig.LightingMode;
+import com.getpcpanel.profile.LightingEffect;
+import com.getpcpanel.profile.LightingEffect.EFFECT_TARGET;
+import com.getpcpanel.profile.LightingEffect.EFFECT_TYPE;
+import com.getpcpanel.profile.SingleKnobLightingConfig;
+import com.getpcpanel.util.coloroverride.ColorOverrideHolder;
+import com.getpcpanel.util.coloroverride.OverrideColors;
+
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+class LightingEffectEngineTest {
+    private static final String SERIAL = SimulatedPanel.SERIAL;
+    private static final long PERIOD = TimeUnit.SECONDS.toNanos(1);
+    private SimulatedPanel panel;
+    private SimulatedDevice device;
+    private LightingEffectEngine sut;
+
+    @BeforeEach
+    void connect() {
+        panel = new SimulatedPanel();
+        device = panel.device();
+        sut = new LightingEffectEngine(panel.outputInterpreter(), panel.overrideColorService(), 60);
+        panel.outputInterpreter().setLightingEffectEngine(sut);
+    }
+
+    @AfterEach
+    void disconnect() {
+        sut.stop(SERIAL);
+        panel.close();
+    }
+
+    @Test
+    void volumeGradientFollowsTheDial() {
+        var frame = new EffectFrame(5, 4, true);
+        var gradient = new CompiledEffect(EFFECT_TYPE.VOLUME_GRADIENT, EFFECT_TARGET.SLIDER, 1, 0x000000, 0xFF0080, PERIOD, -1);
+        var analog = new int[9];
+        analog[6] = 255;
+
+        LightingEffectEngine.render(List.of(gradient), OverrideColors.EMPTY, analog, a -> 0, 0, frame);
+        assertArrayEquals(new int[] { EffectFrame.NONE, 0xFF0080, EffectFrame.NONE, EffectFrame.NONE }, frame.part(EFFECT_TARGET.SLIDER));
+        assertFalse(frame.covers(EFFECT_TARGET.KNOB));
+
+        analog[6] = 0;
+        LightingEffectEngine.render(List.of(gradient), OverrideColors.EMPTY, analog, a -> 0, 0, frame);
+        assertEquals(0, frame.part(EFFECT_TARGET.SLIDER)[1]);
+    }
+
+    @Test
+    void mutePulseOnlyCoversMutedSlots() {
+        var frame = new EffectFrame(5, 4, true);
+        var pulse = new CompiledEffect(EFFECT_TYPE.MUTE_PULSE, EFFECT_TARGET.KNOB, LightingEffect.ALL_SLOTS, 0x000000, 0xFF0000, PERIOD, -1);
+        var holder = new ColorOverrideHolder();
+        holder.setDialOverride(SERIAL, 2, new SingleKnobLightingConfig());
+
+        LightingEffectEngine.render(List.of(pulse), holder.getOverrides(SERIAL), new int[0], a -> 0, PERIOD / 2, frame);
+        assertArrayEquals(new int[] { EffectFrame.NONE, EffectFrame.NONE, 0xFF0000, EffectFrame.NONE, EffectFrame.NONE }, frame.part(EFFECT_TARGET.KNOB));
+        LightingEffectEngine.render(List.of(pulse), holder.getOverrides(SERIAL), new int[0], a -> 0, PERIOD, frame);
+        assertEquals(0, frame.part(EFFECT_TARGET.KNOB)[2]);
+    }
+
+    @Test
+    void chaseMovesOverTheSlots() {
+        var frame = new EffectFrame(5, 4, true);
+        var chase = new CompiledEffect(EFFECT_TYPE.CHASE, EFFECT_TARGET.KNOB, LightingEffect.ALL_SLOTS, 0xFFFFFF, 0x000000, PERIOD, -1);
+
+        LightingEffectEngine.render(List.of(chase), OverrideColors.EMPTY, new int[0], a -> 0, PERIOD / 5 * 2, frame);
+        assertArrayEquals(new int[] { 0, 0, 0xFFFFFF, 0, 0 }, frame.part(EFFECT_TARGET.KNOB));
+    }
+
+    @Test
+    void vuMeterFollowsTheAudioOfTheControl() {
+        var frame = new EffectFrame(5, 4, true);
+        var meter = new CompiledEffect(EFFECT_TYPE.VU_METER, EFFECT_TARGET.SLIDER_LABEL, LightingEffect.ALL_SLOTS, 0x000000, 0x00FF00, PERIOD, -1);
+
+        LightingEffectEngine.render(List.of(meter), OverrideColors.EMPTY, new int[0], a -> a == 7 ? 255 : 0, 0, frame);
+        assertArrayEquals(new int[] { 0, 0, 0x00FF00, 0 }, frame.part(EFFECT_TARGET.SLIDER_LABEL));
+    }
+
+    @Test
+    void framesAreOnlySentWhenTheyChange() throws Exception {
+        var config = new LightingConfig(5, 4);
+        config.setLightingMode(LightingMode.CUSTOM);
+        config.setEffects(new LightingEffect[] { new LightingEffect().setIndex(0).setColor1("#000000").setColor2("#FFFFFF") });
+        sut.onKnobRotate(new KnobRotateEvent(SERIAL, 0, 255, false));
+        sut.update(SERIAL, DeviceType.PCPANEL_PRO, config);
+
+        var white = new byte[] { OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_KNOB, OutputInterpreter.COLOR_STATIC, -1, -1, -1 };
+        awaitPacket(white);
+        Thread.sleep(300);
+        var stats = sut.getStats(SERIAL).orElseThrow();
+        log.info("Effect stats: {}", stats);
+        assertTrue(stats.frames() > 3, "Rendered " + stats.frames() + " frames");
+        assertEquals(1, stats.sent());
+
+        sut.onKnobRotate(new KnobRotateEvent(SERIAL, 0, 0, false));
+        awaitPacket(new byte[] { OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_KNOB, OutputInterpreter.COLOR_STATIC, 0, 0, 0 });
+
+        config.setLightingMode(LightingMode.ALL_COLOR);
+        sut.update(SERIAL, DeviceType.PCPANEL_PRO, config);
+        assertTrue(sut.getStats(SERIAL).isEmpty());
+    }
+
+    @Test
+    void frameThatWasNotWrittenIsSentAgain() throws Exception {
+        var config = new LightingConfig(5, 4);
+        config.setLightingMode(LightingMode.CUSTOM);
+        config.setEffects(new LightingEffect[] { new LightingEffect().setIndex(0).setColor1("#000000").setColor2("#FFFFFF") });
+        sut.onKnobRotate(new KnobRotateEvent(SERIAL, 0, 255, false));
+        sut.update(SERIAL, DeviceType.PCPANEL_PRO, config);
+        awaitPacket(new byte[] { OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_KNOB, OutputInterpreter.COLOR_STATIC, -1, -1, -1 });
+
+        device.failWrites(1);
+        sut.onKnobRotate(new KnobRotateEvent(SERIAL, 0, 0, false));
+        awaitPacket(new byte[] { OutputInterpreter.PREFIX_PRO, OutputInterpreter.CUSTOM_KNOB, OutputInterpreter.COLOR_STATIC, 0, 0, 0 });
+        assertTrue(sut.getStats(SERIAL).orElseThrow().dropped() > 0);
+    }
+
+    private void awaitPacket(byte[] prefix) throws InterruptedException {
+        while (true) {
+            var packet = device.output().poll(1, TimeUnit.SECONDS);
+            assertNotNull(packet, "Packet not sent");
+            if (Arrays.equals(packet, 0, prefix.length, prefix, 0, prefix.length)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.getpcpanel.hid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.device.DeviceType;
+import com.getpcpanel.profile.LightingConfig;
+import com.getpcpanel.profile.LightingConfig.LightingMode;
+import com.getpcpanel.profile.SingleKnobLightingConfig;
+import com.getpcpanel.profile.SingleKnobLightingConfig.SINGLE_KNOB_MODE;
+import com.getpcpanel.profile.SingleSliderLightingConfig.SINGLE_SLIDER_MODE;
+
+import javafx.scene.paint.Color;
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+class OutputInterpreterTest {
+    private static final String SERIAL = SimulatedPanel.SERIAL;
+    private static final int BENCHMARK_WARMUP = 50_000;
+    private static final int BENCHMARK_ROUNDS = 200_000;
+    private static final int ROUNDS = 5;
+    private SimulatedPanel panel;
+    private SimulatedDevice device;
+    private OutputInterpreter sut;
+
+    @BeforeEach
+    void connect() {
+        panel = new SimulatedPanel();
+        device = panel.device();
+        sut = panel.outputInterpreter();
+    }
+
+    @AfterEach
+    void disconnect() {
+        panel.close();
+    }
+
+    @Test
+    void onlyChangedPacketsAreSent() throws Exception {
+        var custom = new LightingConfig(5, 4);
+        custom.setLightingMode(LightingMode.CUSTOM);
+        send(custom);
+        assertEquals(4, device.writtenCount());
+
+        send(custom);
+        assertEquals(4, device.writtenCount());
+
+        custom.getSliderConfigs()[0].setMode(SINGLE_SLIDER_MODE.STATIC);
+        custom.getSliderConfigs()[0].setColor1FromColor(Color.RED);
+        send(custom);
+        assertEquals(5, device.writtenCount());
+
+        sut.forceFullRefresh(SERIAL);
+        send(custom);
+        assertEquals(9, device.writtenCount());
+    }
+
+    @Test
+    void animationsResetTheCustomPackets() throws Exception {
+        var custom = new LightingConfig(5, 4);
+        custom.setLightingMode(LightingMode.CUSTOM);
+        send(custom);
+        send(LightingConfig.createAllColor(Color.BLUE));
+        send(LightingConfig.createAllColor(Color.BLUE));
+        assertEquals(5, device.writtenCount());
+
+        send(custom);
+        assertEquals(9, device.writtenCount());
+    }
+
+    @Test
+    void buildKnobDataOnlyAllocatesThePacket() {
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var knobs = new SingleKnobLightingConfig[DeviceType.PCPANEL_PRO.getButtonCount()];
+        for (var i = 0; i < knobs.length; i++) {
+            knobs[i] = new SingleKnobLightingConfig();
+            knobs[i].setMode(i % 2 == 0 ? SINGLE_KNOB_MODE.STATIC : SINGLE_KNOB_MODE.VOLUME_GRADIENT);
+            knobs[i].setColor1("#FF%02X00".formatted(i * 20));
+            knobs[i].setColor2("#0000%02X".formatted(i * 20));
+        }
+        var sink = 0;
+        for (var i = 0; i < BENCHMARK_WARMUP; i++) {
+            sink += sut.buildKnobData(SERIAL, OutputInterpreter.PREFIX_PRO, 80, knobs)[3];
+        }
+        // A byte array has a 16 byte header and is padded to 8 bytes
+        var packetBytes = (16 + sut.buildKnobData(SERIAL, OutputInterpreter.PREFIX_PRO, 80, knobs).length + 7) / 8 * 8;
+
+        // Compilation and deoptimization on the test thread can allocate, take the best of a few rounds
+        var allocated = Long.MAX_VALUE;
+        for (var round = 0; round < ROUNDS && allocated > packetBytes; round++) {
+            var allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+            var start = System.nanoTime();
+            for (var i = 0; i < BENCHMARK_ROUNDS; i++) {
+                sink += sut.buildKnobData(SERIAL, OutputInterpreter.PREFIX_PRO, 80, knobs)[3];
+            }
+            var ns = (System.nanoTime() - start) / BENCHMARK_ROUNDS;
+            allocated = (threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore) / BENCHMARK_ROUNDS;
+            log.info("buildKnobData: {}ns, {} bytes allocated per call ({})", ns, allocated, sink);
+        }
+        assertTrue(allocated <= packetBytes, "buildKnobData allocated " + allocated + " bytes per call");
+    }
+
+    private void send(LightingConfig config) throws Exception {
+        sut.sendLightingConfig(SERIAL, DeviceType.PCPANEL_PRO, config, false).get(1, TimeUnit.SECONDS);
+    }
+}
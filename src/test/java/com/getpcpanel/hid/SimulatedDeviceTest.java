@@ -0,0 +1,124 @@
+package com.getpcpanel.hid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.device.DeviceType;
+import com.getpcpanel.hid.DeviceCommunicationHandler.ButtonPressEvent;
+import com.getpcpanel.hid.DeviceCommunicationHandler.KnobRotateEvent;
+
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+class SimulatedDeviceTest {
+    private static final String SERIAL = SimulatedPanel.SERIAL;
+    private static final int ROUND_TRIPS = 1000;
+    private static final int BURST = 20_000;
+    private BlockingQueue<Object> events;
+    private SimulatedPanel panel;
+    private SimulatedDevice device;
+    private DeviceScanner scanner;
+
+    @BeforeEach
+    void connect() {
+        events = new LinkedBlockingQueue<>();
+        panel = new SimulatedPanel(events::add);
+        device = panel.device();
+        scanner = panel.scanner();
+        assertEquals(new DeviceScanner.DeviceConnectedEvent(SERIAL, DeviceType.PCPANEL_PRO), events.poll());
+    }
+
+    @AfterEach
+    void disconnect() {
+        panel.close();
+    }
+
+    @Test
+    void inputPacketsBecomeEvents() throws Exception {
+        device.turnKnob(3, 200);
+        device.pressButton(1, true);
+
+        assertEquals(new KnobRotateEvent(SERIAL, 3, 200, true), events.poll(1, TimeUnit.SECONDS));
+        assertEquals(new ButtonPressEvent(SERIAL, 1, true), events.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void outputPacketsAreCaptured() throws Exception {
+        scanner.getConnectedDevice(SERIAL).sendMessage(new byte[] { 5, 2, 1 }, new byte[] { 6 });
+
+        var first = device.output().poll(1, TimeUnit.SECONDS);
+        var second = device.output().poll(1, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertNotNull(second);
+        assertEquals(DeviceCommunicationHandler.PACKET_LENGTH, first.length);
+        assertEquals(List.of((byte) 5, (byte) 2, (byte) 1, (byte) 0), List.of(first[0], first[1], first[2], first[3]));
+        assertEquals(6, second[0]);
+    }
+
+    @Test
+    void disconnectRemovesDevice() throws Exception {
+        device.disconnect();
+        assertEquals(new DeviceScanner.DeviceDisconnectedEvent(SERIAL), events.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void removedConnectionIsClosedAndNotReused() throws Exception {
+        var stale = scanner.getConnectedDevice(SERIAL);
+        scanner.deviceRemoved(SERIAL);
+        assertTrue(device.isClosed(), "The stale connection is released once its reader and writer stopped");
+        assertEquals(new DeviceScanner.DeviceDisconnectedEvent(SERIAL), events.poll(1, TimeUnit.SECONDS));
+
+        var reconnected = new SimulatedDevice(SERIAL, DeviceType.PCPANEL_PRO);
+        scanner.deviceAdded(SERIAL, reconnected, DeviceType.PCPANEL_PRO);
+        try {
+            var fresh = scanner.getConnectedDevice(SERIAL);
+            assertNotSame(stale, fresh);
+            fresh.sendMessage(new byte[] { 5 }).get(1, TimeUnit.SECONDS);
+            assertEquals(1, reconnected.writtenCount());
+            assertEquals(0, device.writtenCount());
+
+            scanner.deviceFailed(SERIAL, stale);
+            assertSame(fresh, scanner.getConnectedDevice(SERIAL), "A late failure of the stale connection keeps the new one");
+        } finally {
+            reconnected.disconnect();
+        }
+    }
+
+    @Test
+    void roundTripLatencyAndThroughput() throws Exception {
+        var latencies = new long[ROUND_TRIPS];
+        for (var i = 0; i < ROUND_TRIPS; i++) {
+            var start = System.nanoTime();
+            device.turnKnob(0, i % 2);
+            assertNotNull(events.poll(1, TimeUnit.SECONDS));
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        log.info("Packet to event latency: p50 {}us, p99 {}us, max {}us", latencies[ROUND_TRIPS / 2] / 1000, latencies[ROUND_TRIPS * 99 / 100] / 1000,
+                latencies[ROUND_TRIPS - 1] / 1000);
+
+        var start = System.nanoTime();
+        for (var i = 0; i < BURST; i++) {
+            device.turnKnob(i % DeviceType.PCPANEL_PRO.getAnalogCount(), i % 256);
+        }
+        for (var i = 0; i < BURST; i++) {
+            assertNotNull(events.poll(5, TimeUnit.SECONDS));
+        }
+        var tookMs = (System.nanoTime() - start) / 1_000_000d;
+        log.info("{} packets in {}ms: {} packets/s", BURST, tookMs, (int) (BURST / tookMs * 1000));
+        assertTrue(events.isEmpty());
+    }
+}
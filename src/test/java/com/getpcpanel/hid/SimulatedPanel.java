@@ -0,0 +1,66 @@
+package com.getpcpanel.hid;
+
+import java.util.List;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.getpcpanel.device.DeviceType;
+import com.getpcpanel.profile.Save;
+import com.getpcpanel.profile.SaveService;
+import com.getpcpanel.util.TimingWheel;
+import com.getpcpanel.util.coloroverride.OverrideColorService;
+
+/**
+ * A {@link SimulatedDevice} connected through a {@link DeviceScanner} and {@link DeviceCommunicationHandler} as a real panel would be,
+ * with an empty {@link Save}. {@link #close()} disconnects the device and stops the timer of the handler.
+ */
+final class SimulatedPanel implements AutoCloseable {
+    static final String SERIAL = "SIMULATED-PRO";
+    private final TimingWheel timingWheel = new TimingWheel();
+    private final SimulatedDevice device = new SimulatedDevice(SERIAL, DeviceType.PCPANEL_PRO);
+    private final DeviceScanner scanner;
+    private final OverrideColorService overrideColorService = new OverrideColorService();
+    private final OutputInterpreter outputInterpreter;
+
+    SimulatedPanel() {
+        this(e -> {
+        });
+    }
+
+    SimulatedPanel(ApplicationEventPublisher eventPublisher) {
+        var save = new Save();
+        var saveService = new SaveService(null, null, null, null) {
+            @Override
+            public Save get() {
+                return save;
+            }
+        };
+        scanner = new DeviceScanner(eventPublisher, List.of(), 0);
+        scanner.setDeviceCommunicationHandlerFactory(new DeviceCommunicationHandlerFactory(eventPublisher, scanner, saveService, timingWheel));
+        scanner.deviceAdded(SERIAL, device, DeviceType.PCPANEL_PRO);
+        overrideColorService.setOverriders(List.of());
+        outputInterpreter = new OutputInterpreter(scanner, overrideColorService);
+    }
+
+    SimulatedDevice device() {
+        return device;
+    }
+
+    DeviceScanner scanner() {
+        return scanner;
+    }
+
+    OverrideColorService overrideColorService() {
+        return overrideColorService;
+    }
+
+    OutputInterpreter outputInterpreter() {
+        return outputInterpreter;
+    }
+
+    @Override
+    public void close() {
+        device.disconnect();
+        timingWheel.shutdown();
+    }
+}
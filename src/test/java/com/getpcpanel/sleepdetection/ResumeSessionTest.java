@@ -0,0 +1,111 @@
+package com.getpcpanel.sleepdetection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.sleepdetection.ResumeSession.Result;
+import com.getpcpanel.sleepdetection.ResumeSession.State;
+
+class ResumeSessionTest {
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+    private final Set<String> connected = new HashSet<>();
+    private final List<Set<String>> rescans = new ArrayList<>();
+    private final Queue<CompletableFuture<Void>> writes = new LinkedList<>();
+    private ResumeSession.Panels panels;
+
+    @BeforeEach
+    void setUp() {
+        connected.clear();
+        rescans.clear();
+        writes.clear();
+        panels = new ResumeSession.Panels() {
+            @Override
+            public Set<String> connected() {
+                return Set.copyOf(connected);
+            }
+
+            @Override
+            public void rescan(Set<String> missing) {
+                rescans.add(Set.copyOf(missing));
+            }
+
+            @Override
+            public void drop(String serialNumber) {
+                connected.remove(serialNumber);
+            }
+
+            @Override
+            public CompletableFuture<Void> restore(String serialNumber) {
+                var write = new CompletableFuture<Void>();
+                writes.add(write);
+                return write;
+            }
+        };
+    }
+
+    @Test
+    void connectedPanelIsRestoredOnFirstWrite() {
+        connected.add("A");
+        var sut = new ResumeSession(panels, List.of("A"), 0, TIMEOUT);
+
+        assertFalse(sut.step(0));
+        assertTrue(rescans.isEmpty());
+        writes.remove().complete(null);
+        assertTrue(sut.step(1));
+        var result = sut.results().get(0);
+        assertEquals(State.RESTORED, result.state());
+        assertEquals(1, result.attempts());
+    }
+
+    @Test
+    void missingPanelIsRescannedAndStaleWriteRetried() {
+        var sut = new ResumeSession(panels, List.of("B"), 0, TIMEOUT);
+
+        assertFalse(sut.step(0));
+        assertEquals(List.of(Set.of("B")), rescans);
+        assertTrue(writes.isEmpty());
+
+        connected.add("B");
+        assertFalse(sut.step(1));
+        writes.remove().completeExceptionally(new IOException("stale"));
+        assertFalse(sut.step(2));
+        assertFalse(connected.contains("B"), "The stale connection is dropped");
+        assertEquals(List.of(Set.of("B"), Set.of("B")), rescans);
+        assertTrue(writes.isEmpty());
+
+        connected.add("B");
+        assertFalse(sut.step(3));
+        writes.remove().complete(null);
+        assertTrue(sut.step(4));
+        assertEquals(new Result("B", State.RESTORED, 2, sut.results().get(0).millisToRestore()), sut.results().get(0));
+    }
+
+    @Test
+    void givesUpOnPanelsThatDoNotComeBack() {
+        connected.add("A");
+        var sut = new ResumeSession(panels, List.of("A", "C"), 0, TIMEOUT);
+
+        assertFalse(sut.step(0));
+        writes.remove().complete(null);
+        assertFalse(sut.step(TIMEOUT / 2));
+        assertTrue(sut.step(TIMEOUT));
+        var states = Map.of(sut.results().get(0).serialNumber(), sut.results().get(0).state(), sut.results().get(1).serialNumber(), sut.results().get(1).state());
+        assertEquals(Map.of("A", State.RESTORED, "C", State.GAVE_UP), states);
+        assertEquals(-1, sut.results().get(1).millisToRestore());
+    }
+}
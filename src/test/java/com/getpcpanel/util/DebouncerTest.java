@@ -0,0 +1,64 @@
+package com.getpcpanel.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DebouncerTest {
+    private TimingWheel timingWheel;
+    private Debouncer sut;
+    private List<Integer> ran;
+
+    @BeforeEach
+    void setUp() {
+        timingWheel = new TimingWheel();
+        sut = new Debouncer(timingWheel);
+        ran = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sut.shutdown();
+        timingWheel.shutdown();
+    }
+
+    @Test
+    void debounceRunsTheLastOnce() throws Exception {
+        for (var i = 0; i < 5; i++) {
+            var value = i;
+            sut.debounce("key", () -> ran.add(value), 50, TimeUnit.MILLISECONDS);
+            Thread.sleep(10);
+        }
+        sut.debounce("other", () -> ran.add(10), 50, TimeUnit.MILLISECONDS);
+        assertEquals(2, sut.getStats().keys());
+
+        Thread.sleep(200);
+        assertEquals(List.of(4, 10), ran);
+        assertEquals(0, sut.getStats().keys());
+    }
+
+    @Test
+    void rateLimitRunsFirstAndLast() throws Exception {
+        sut.rateLimit("key", () -> ran.add(0), 100, TimeUnit.MILLISECONDS);
+        assertEquals(List.of(0), ran);
+
+        sut.rateLimit("key", () -> ran.add(1), 100, TimeUnit.MILLISECONDS);
+        sut.rateLimit("key", () -> ran.add(2), 100, TimeUnit.MILLISECONDS);
+        assertEquals(List.of(0), ran);
+
+        Thread.sleep(150);
+        assertEquals(List.of(0, 2), ran);
+
+        // The window of the second run closes without anything new, after that the next runs right away again
+        Thread.sleep(150);
+        assertEquals(0, sut.getStats().keys());
+        sut.rateLimit("key", () -> ran.add(3), 100, TimeUnit.MILLISECONDS);
+        assertEquals(List.of(0, 2, 3), ran);
+    }
+}
@@ -0,0 +1,90 @@
+package com.getpcpanel.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import lombok.extern.log4j.Log4j2;
+
+@Log4j2
+class TimingWheelTest {
+    private TimingWheel sut;
+
+    @BeforeEach
+    void setUp() {
+        sut = new TimingWheel();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sut.shutdown();
+    }
+
+    @Test
+    void runsAfterTheDelay() throws Exception {
+        var latch = new CountDownLatch(1);
+        var start = System.nanoTime();
+        var timeout = sut.schedule(latch::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        var took = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(took >= 50, "Ran after " + took + "ms");
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    void cancelledDoesNotRun() throws Exception {
+        var ran = new AtomicInteger();
+        var timeout = sut.schedule(ran::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        Thread.sleep(100);
+        assertEquals(0, ran.get());
+        assertEquals(0, sut.getStats().pending());
+        assertEquals(1, sut.getStats().cancelled());
+    }
+
+    @Test
+    void delaysLongerThanARound() throws Exception {
+        // 1024 buckets of 5ms is a round of 5.12s, 6s needs an extra round
+        var ran = new AtomicInteger();
+        sut.schedule(ran::incrementAndGet, 6, TimeUnit.SECONDS);
+        var latch = new CountDownLatch(1);
+        sut.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(0, ran.get());
+        assertEquals(1, sut.getStats().pending());
+    }
+
+    @Test
+    void manyTimeouts() throws Exception {
+        var count = 20_000;
+        var latch = new CountDownLatch(count / 2);
+        var start = System.nanoTime();
+        for (var i = 0; i < count; i++) {
+            var timeout = sut.schedule(latch::countDown, 10 + i % 100, TimeUnit.MILLISECONDS);
+            if (i % 2 == 1) {
+                timeout.cancel();
+            }
+        }
+        var scheduling = System.nanoTime() - start;
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        var stats = sut.getStats();
+        log.info("Scheduled and cancelled {} timeouts in {}us, {}", count, TimeUnit.NANOSECONDS.toMicros(scheduling), stats);
+        assertEquals(0, stats.pending());
+        assertEquals(count / 2, stats.expired());
+        assertEquals(count / 2, stats.cancelled());
+    }
+}
@@ -0,0 +1,66 @@
+package com.getpcpanel.util.coloroverride;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.getpcpanel.profile.SingleKnobLightingConfig;
+import com.getpcpanel.profile.SingleLogoLightingConfig;
+import com.getpcpanel.profile.SingleSliderLightingConfig;
+
+class OverrideColorServiceTest {
+    private static final String SERIAL = "serial";
+
+    @Test
+    void firstLayerWins() {
+        var mute = new ColorOverrideHolder();
+        var mqtt = new ColorOverrideHolder();
+        var sut = new OverrideColorService();
+        sut.setOverriders(List.of(mute, mqtt));
+
+        var muted = new SingleKnobLightingConfig().setColor1("#FF0000");
+        var fromMqtt = new SingleKnobLightingConfig().setColor1("#00FF00");
+        var mqttSlider = new SingleSliderLightingConfig().setColor1("#0000FF");
+        var logo = new SingleLogoLightingConfig().setColor("#FFFFFF");
+        mute.setDialOverride(SERIAL, 1, muted);
+        mqtt.setDialOverride(SERIAL, 1, fromMqtt);
+        mqtt.setDialOverride(SERIAL, 3, fromMqtt);
+        mqtt.setSliderOverride(SERIAL, 0, mqttSlider);
+        mqtt.setLogoOverride(SERIAL, logo);
+
+        var overrides = sut.getOverrides(SERIAL);
+        assertNull(overrides.dial(0));
+        assertSame(muted, overrides.dial(1));
+        assertSame(fromMqtt, overrides.dial(3));
+        assertNull(overrides.dial(10));
+        assertSame(mqttSlider, overrides.slider(0));
+        assertSame(logo, overrides.logo());
+        assertEquals(0, sut.getOverrides("other").dials().length);
+    }
+
+    @Test
+    void combinedOverridesAreKeptUntilAChange() {
+        var mute = new ColorOverrideHolder();
+        var sut = new OverrideColorService();
+        sut.setOverriders(List.of(mute, new ColorOverrideHolder()));
+        mute.setDialOverride(SERIAL, 0, new SingleKnobLightingConfig());
+
+        var first = sut.getOverrides(SERIAL);
+        var version = sut.version();
+        assertSame(first, sut.getOverrides(SERIAL));
+        assertEquals(version, sut.version());
+
+        mute.setDialOverride(SERIAL, 0, null);
+        assertNotEquals(version, sut.version());
+        assertNull(sut.getOverrides(SERIAL).dial(0));
+
+        mute.setDialOverride(SERIAL, 2, new SingleKnobLightingConfig());
+        mute.clearAllOverrides();
+        assertNull(sut.getOverrides(SERIAL).dial(2));
+    }
+}